@@ -1,18 +1,30 @@
 package com.chitchat.gateway.websocket;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket handler for messaging service
+ *
+ * Offers the same subprotocols as the messaging service: "chitchat.json" (text,
+ * default) and "chitchat.cbor" (binary). Sessions that negotiate CBOR get their
+ * frames as CBOR-encoded BinaryMessages.
  */
 @Slf4j
 @Component
-public class MessagingWebSocketHandler implements WebSocketHandler {
+public class MessagingWebSocketHandler implements WebSocketHandler, SubProtocolCapable {
+
+    private static final String CBOR_SUB_PROTOCOL = "chitchat.cbor";
+    private static final List<String> SUB_PROTOCOLS = List.of(CBOR_SUB_PROTOCOL, "chitchat.json");
+
+    private static final CBORMapper CBOR_MAPPER = new CBORMapper();
 
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
 
@@ -23,17 +35,28 @@ public class MessagingWebSocketHandler implements WebSocketHandler {
         log.info("Messaging WebSocket connection established for user: {}", userId);
         
         // Send welcome message
-        session.sendMessage(new TextMessage("{\"type\":\"connection\",\"status\":\"connected\",\"userId\":\"" + userId + "\"}"));
+        Map<String, Object> welcome = new LinkedHashMap<>();
+        welcome.put("type", "connection");
+        welcome.put("status", "connected");
+        welcome.put("userId", userId);
+        session.sendMessage(isCbor(session)
+                ? new BinaryMessage(CBOR_MAPPER.writeValueAsBytes(welcome))
+                : new TextMessage("{\"type\":\"connection\",\"status\":\"connected\",\"userId\":\"" + userId + "\"}"));
     }
 
     @Override
     public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
         String userId = getUserId(session);
-        log.debug("Received message from user {}: {}", userId, message.getPayload());
+        log.debug("Received message from user {}: {} bytes", userId, message.getPayloadLength());
         
         // Forward message to messaging service
         // This would typically involve routing to the appropriate microservice
-        session.sendMessage(new TextMessage("{\"type\":\"ack\",\"message\":\"Message received\"}"));
+        if (isCbor(session)) {
+            session.sendMessage(new BinaryMessage(CBOR_MAPPER.writeValueAsBytes(
+                    Map.of("type", "ack", "message", "Message received"))));
+        } else {
+            session.sendMessage(new TextMessage("{\"type\":\"ack\",\"message\":\"Message received\"}"));
+        }
     }
 
     @Override
@@ -55,6 +78,15 @@ public class MessagingWebSocketHandler implements WebSocketHandler {
         return false;
     }
 
+    @Override
+    public List<String> getSubProtocols() {
+        return SUB_PROTOCOLS;
+    }
+
+    private boolean isCbor(WebSocketSession session) {
+        return CBOR_SUB_PROTOCOL.equalsIgnoreCase(session.getAcceptedProtocol());
+    }
+
     private String getUserId(WebSocketSession session) {
         WebSocketAuthHandler.WebSocketPrincipal principal = 
             (WebSocketAuthHandler.WebSocketPrincipal) session.getPrincipal();
@@ -0,0 +1,44 @@
+package com.chitchat.calls.config;
+
+import com.chitchat.shared.config.KafkaProducerProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka producer configuration for calls service
+ *
+ * Replaces Boot's auto-configured producer factory with one built from a
+ * KafkaProducerProfile (chitchat.kafka.producer.profile). Everything configured
+ * under spring.kafka.producer (serializers, explicit batch-size, properties.*)
+ * is applied on top of the profile's preset.
+ *
+ * The producer's client metrics (send rate, batch size, request latency) are
+ * published to Micrometer with the tag producer=events.
+ */
+@Configuration
+public class KafkaConfig {
+
+    @Value("${chitchat.kafka.producer.profile:latency}")
+    private String producerProfile;
+
+    @Bean
+    public ProducerFactory<String, Object> producerFactory(KafkaProperties kafkaProperties, MeterRegistry meterRegistry) {
+        KafkaProducerProfile profile = KafkaProducerProfile.of(producerProfile);
+        Map<String, Object> configProps = new HashMap<>(profile.producerProperties());
+        configProps.putAll(kafkaProperties.buildProducerProperties(null));
+        return profile.producerFactory(configProps, meterRegistry, "events");
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+}
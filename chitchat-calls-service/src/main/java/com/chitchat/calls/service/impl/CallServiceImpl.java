@@ -233,8 +233,9 @@ public class CallServiceImpl implements CallService {
     }
     
     private void publishCallEvent(Call call, String eventType) {
-        // Publish call event to Kafka for real-time updates
-        kafkaTemplate.send("call-events", eventType, call);
+        // Publish call event to Kafka for real-time updates, keyed by call session so
+        // all events of a call land on one partition in order
+        kafkaTemplate.send("call-events", call.getSessionId(), call);
     }
     
     private CallResponse mapToCallResponse(Call call) {
@@ -3,6 +3,7 @@ package com.chitchat.messaging;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * ChitChat Messaging Service Application - Real-time Chat Microservice
@@ -45,6 +46,7 @@ import org.springframework.data.mongodb.config.EnableMongoAuditing;
  * 
  * Key Annotations:
  * @EnableMongoAuditing - Automatic createdAt/updatedAt for MongoDB documents
+ * @EnableScheduling - Periodic jobs (unread counter reconciliation)
  * @SpringBootApplication(exclude={...}) - Excludes JPA/SQL dependencies (uses MongoDB only)
  */
 @SpringBootApplication(exclude = {
@@ -53,6 +55,7 @@ import org.springframework.data.mongodb.config.EnableMongoAuditing;
     org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration.class
 })
 @EnableMongoAuditing  // Enable automatic timestamp management for MongoDB documents
+@EnableScheduling  // Enable scheduled tasks (unread counter reconciliation)
 public class ChitChatMessagingServiceApplication {
 
     /**
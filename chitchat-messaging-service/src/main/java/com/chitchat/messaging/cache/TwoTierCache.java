@@ -0,0 +1,231 @@
+package com.chitchat.messaging.cache;
+
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Spring Cache with a bounded in-process L1 (Caffeine) in front of a shared L2 (Redis)
+ *
+ * Reads try L1, then L2 (filling L1 on a hit). Writes and evictions go to L2
+ * and L1, then publish the key on the CacheInvalidationBus so every other node
+ * drops its L1 copy and re-reads L2 on next use. L1 holds deserialized
+ * objects, so an L1 hit costs neither a round trip nor JSON deserialization.
+ *
+ * L1 keys are key.toString(), the same form RedisCache uses for L2 keys and
+ * the form invalidations travel in. L1 values are shared instances: callers
+ * must not modify what the cache returns. Null values are not cached, like L2.
+ *
+ * A node that read L2 just before another node's write can keep the old value
+ * in L1 for up to the L1 TTL, so that TTL is deliberately short.
+ */
+@Slf4j
+public class TwoTierCache implements Cache {
+
+    // Invalidation key meaning "clear the whole cache"
+    static final String CLEAR_ALL = "*";
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Timer remoteLoadTime;
+    private final Timer valueLoadTime;
+
+    public TwoTierCache(Cache remote, long localMaxSize, Duration localTtl,
+                        CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        this.name = remote.getName();
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+        this.local = Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(localTtl)
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, "tier", "l1");
+        this.localHits = gets(meterRegistry, "l1", "hit");
+        this.localMisses = gets(meterRegistry, "l1", "miss");
+        this.remoteHits = gets(meterRegistry, "l2", "hit");
+        this.remoteMisses = gets(meterRegistry, "l2", "miss");
+        this.remoteLoadTime = loadTime(meterRegistry, "l2");
+        this.valueLoadTime = loadTime(meterRegistry, "loader");
+
+        invalidationBus.subscribe(name, this::onRemoteInvalidation);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = key.toString();
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            localHits.increment();
+            return new SimpleValueWrapper(value);
+        }
+        localMisses.increment();
+
+        ValueWrapper wrapper = readRemote(key);
+        if (wrapper != null && wrapper.get() != null) {
+            local.put(localKey, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * Concurrent misses for the same key on this node share one L2 read / load
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = key.toString();
+        Object cached = local.getIfPresent(localKey);
+        if (cached != null) {
+            localHits.increment();
+            return (T) cached;
+        }
+        localMisses.increment();
+
+        return (T) local.get(localKey, ignored -> {
+            ValueWrapper wrapper = readRemote(key);
+            if (wrapper != null && wrapper.get() != null) {
+                return wrapper.get();
+            }
+
+            long started = System.nanoTime();
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            } finally {
+                valueLoadTime.record(Duration.ofNanos(System.nanoTime() - started));
+            }
+            if (value != null) {
+                remote.put(key, value);
+                invalidationBus.publish(name, localKey);
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        remote.put(key, value);
+        local.put(key.toString(), value);
+        invalidationBus.publish(name, key.toString());
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        // Whichever value won in L2 is re-read on next use
+        local.invalidate(key.toString());
+        if (existing == null) {
+            invalidationBus.publish(name, key.toString());
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(key.toString());
+        invalidationBus.publish(name, key.toString());
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remote.evictIfPresent(key);
+        local.invalidate(key.toString());
+        invalidationBus.publish(name, key.toString());
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        invalidationBus.publish(name, CLEAR_ALL);
+    }
+
+    private ValueWrapper readRemote(Object key) {
+        long started = System.nanoTime();
+        ValueWrapper wrapper;
+        try {
+            wrapper = remote.get(key);
+        } finally {
+            remoteLoadTime.record(Duration.ofNanos(System.nanoTime() - started));
+        }
+        if (wrapper != null) {
+            remoteHits.increment();
+        } else {
+            remoteMisses.increment();
+        }
+        return wrapper;
+    }
+
+    private void onRemoteInvalidation(String key) {
+        if (CLEAR_ALL.equals(key)) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    private Counter gets(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("chitchat.cache.gets")
+            .description("Cache lookups per tier (l1 = in-process, l2 = Redis)")
+            .tag("cache", name)
+            .tag("tier", tier)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private Timer loadTime(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("chitchat.cache.load")
+            .description("Time to fetch a value missing from L1, from Redis (l2) or the cached method (loader)")
+            .tag("cache", name)
+            .tag("source", source)
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,62 @@
+package com.chitchat.messaging.cache;
+
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CacheManager that wraps every cache of a Redis CacheManager in a TwoTierCache
+ *
+ * The Redis manager keeps deciding which caches exist and their L2 TTLs; this
+ * manager adds the in-process L1 and its cross-node invalidation. Caches are
+ * created on first use and then reused, so each cache subscribes to the
+ * invalidation bus exactly once.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final long localMaxSize;
+    private final Duration localTtl;
+
+    private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remoteCacheManager, CacheInvalidationBus invalidationBus,
+                               MeterRegistry meterRegistry, long localMaxSize, Duration localTtl) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = localTtl;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name,
+            ignored -> new TwoTierCache(remote, localMaxSize, localTtl, invalidationBus, meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(remoteCacheManager.getCacheNames());
+        names.addAll(caches.keySet());
+        return names;
+    }
+}
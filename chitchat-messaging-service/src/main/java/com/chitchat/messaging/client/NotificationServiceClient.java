@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -71,6 +72,49 @@ public class NotificationServiceClient {
         }
     }
     
+    /**
+     * Send one notification request for many recipients of a group message
+     * 
+     * The notification service fans the request out to each user's devices, so a
+     * group message costs one HTTP call per batch instead of one per member.
+     */
+    public void sendGroupMessageNotification(List<Long> recipientIds, String title, String messageContent,
+                                             Long senderId, String messageId, String groupId, String senderAvatarUrl) {
+        try {
+            String url = NOTIFICATION_SERVICE_URL + "/api/notifications/send-bulk";
+            
+            Map<String, Object> data = createMessageData(senderId, messageId, null, title, senderAvatarUrl);
+            data.put("conversationId", groupId); // Group chat navigation
+            data.put("groupId", groupId);
+            
+            SendBulkNotificationDto dto = SendBulkNotificationDto.builder()
+                    .userIds(recipientIds)
+                    .title(title)
+                    .body(truncateMessage(messageContent))
+                    .type("MESSAGE")
+                    .data(data)
+                    .imageUrl(senderAvatarUrl)
+                    .build();
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("Authorization", "Bearer SYSTEM_TOKEN"); // System-level auth
+            
+            HttpEntity<SendBulkNotificationDto> request = new HttpEntity<>(dto, headers);
+            
+            log.debug("Sending group push notification to {} users for message {}", recipientIds.size(), messageId);
+            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                log.warn("Failed to send group message notification. Status: {}", response.getStatusCode());
+            }
+            
+        } catch (Exception e) {
+            log.error("Error sending group message notification to {} users", recipientIds.size(), e);
+            // Don't throw exception - notification failure shouldn't block message sending
+        }
+    }
+    
     /**
      * Truncate message to fit in notification (max 100 chars)
      */
@@ -106,5 +150,18 @@ public class NotificationServiceClient {
         private Map<String, Object> data;
         private String imageUrl;  // Profile image for notification
     }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SendBulkNotificationDto {
+        private List<Long> userIds;
+        private String title;
+        private String body;
+        private String type;
+        private Map<String, Object> data;
+        private String imageUrl;
+    }
 }
 
@@ -0,0 +1,230 @@
+package com.chitchat.messaging.client;
+
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Two-level cache of user profiles (name, avatar, ...) in front of UserServiceClient
+ *
+ * Lookup order: local Caffeine cache -> Redis (shared by all messaging nodes)
+ * -> user-service REST. Sending a message or listing conversations no longer
+ * costs one HTTP call per user:
+ * - get: concurrent misses for the same user on a node share one load
+ *   (Caffeine computes each key once), so a hot profile expiring does not
+ *   send a burst of identical requests to Redis or the user service
+ * - getAll: one Redis MGET, then one user-service batch request for whatever
+ *   is still missing
+ *
+ * Invalidation: user-service publishes the user ID on user-profile-updated after
+ * a profile change. The consuming node deletes the Redis entry and its local
+ * copy and broadcasts the invalidation to the other nodes over the
+ * CacheInvalidationBus. The TTLs only bound staleness if an event is lost.
+ *
+ * Users the user service does not know (or cannot return right now) are not
+ * cached; callers get null / no map entry and use their usual fallback.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserProfileCache {
+
+    private static final String CACHE_NAME = "userProfiles";
+    private static final String REDIS_KEY_PREFIX = "chitchat:user-profile:";
+    private static final String PROFILE_UPDATED_TOPIC = "user-profile-updated";
+    // Matches the user service's batch endpoint limit
+    private static final int BATCH_SIZE = 500;
+
+    private final UserServiceClient userServiceClient;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chitchat.user-profile-cache.local-max-size:100000}")
+    private long localMaxSize;
+
+    @Value("${chitchat.user-profile-cache.local-ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    @Value("${chitchat.user-profile-cache.redis-ttl-minutes:60}")
+    private long redisTtlMinutes;
+
+    private Cache<Long, UserServiceClient.UserDto> local;
+    private Counter redisLoads;
+    private Counter userServiceLoads;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, CACHE_NAME);
+
+        redisLoads = loadCounter("redis");
+        userServiceLoads = loadCounter("user-service");
+
+        invalidationBus.subscribe(CACHE_NAME, key -> local.invalidate(Long.valueOf(key)));
+    }
+
+    /**
+     * Profile of one user, or null if it cannot be resolved
+     */
+    public UserServiceClient.UserDto get(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return local.get(userId, id -> loadAll(Set.of(id)).get(id));
+    }
+
+    /**
+     * Profiles of several users; unresolved users are missing from the map
+     */
+    public Map<Long, UserServiceClient.UserDto> getAll(Collection<Long> userIds) {
+        Set<Long> ids = userIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return local.getAll(ids, this::loadAll);
+    }
+
+    /**
+     * Drop a user's profile everywhere: Redis, this node, and the other nodes
+     */
+    public void invalidate(Long userId) {
+        local.invalidate(userId);
+        try {
+            redisTemplate.delete(REDIS_KEY_PREFIX + userId);
+        } catch (Exception e) {
+            log.warn("Failed to delete cached profile of user {} from Redis: {}", userId, e.getMessage());
+        }
+        invalidationBus.publish(CACHE_NAME, String.valueOf(userId));
+    }
+
+    @KafkaListener(topics = PROFILE_UPDATED_TOPIC, groupId = "messaging-user-profile-cache",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer")
+    public void onProfileUpdated(String userId) {
+        try {
+            invalidate(Long.valueOf(userId.trim()));
+            log.debug("Invalidated cached profile of user {}", userId);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed profile update event: {}", userId);
+        }
+    }
+
+    /**
+     * Redis first (one MGET), then the user service in batches for the rest
+     */
+    private Map<Long, UserServiceClient.UserDto> loadAll(Set<? extends Long> userIds) {
+        List<Long> ids = new ArrayList<>(userIds);
+        Map<Long, UserServiceClient.UserDto> loaded = new HashMap<>(ids.size() * 2);
+
+        List<String> cached = null;
+        try {
+            cached = redisTemplate.opsForValue().multiGet(ids.stream().map(id -> REDIS_KEY_PREFIX + id).toList());
+        } catch (Exception e) {
+            log.warn("Failed to read {} cached profiles from Redis: {}", ids.size(), e.getMessage());
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            UserServiceClient.UserDto user = cached != null ? deserialize(cached.get(i)) : null;
+            if (user != null) {
+                loaded.put(ids.get(i), user);
+            } else {
+                missing.add(ids.get(i));
+            }
+        }
+        redisLoads.increment(loaded.size());
+
+        for (int from = 0; from < missing.size(); from += BATCH_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(missing.size(), from + BATCH_SIZE));
+            List<UserServiceClient.UserDto> users = chunk.size() == 1
+                ? singleUser(chunk.get(0))
+                : userServiceClient.getUsersByIds(chunk);
+            users.forEach(user -> loaded.put(user.getId(), user));
+            userServiceLoads.increment(users.size());
+            writeToRedis(users);
+        }
+        return loaded;
+    }
+
+    private List<UserServiceClient.UserDto> singleUser(Long userId) {
+        UserServiceClient.UserDto user = userServiceClient.getUserById(userId);
+        return user != null ? List.of(user) : List.of();
+    }
+
+    /**
+     * SETEX for every loaded profile in a single pipelined round trip
+     */
+    private void writeToRedis(List<UserServiceClient.UserDto> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        long ttlSeconds = Duration.ofMinutes(redisTtlMinutes).toSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (UserServiceClient.UserDto user : users) {
+                    setEx(connection, user, ttlSeconds);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to cache {} profiles in Redis: {}", users.size(), e.getMessage());
+        }
+    }
+
+    private void setEx(RedisConnection connection, UserServiceClient.UserDto user, long ttlSeconds) {
+        try {
+            byte[] key = (REDIS_KEY_PREFIX + user.getId()).getBytes(StandardCharsets.UTF_8);
+            connection.stringCommands().setEx(key, ttlSeconds, objectMapper.writeValueAsBytes(user));
+        } catch (Exception e) {
+            log.warn("Failed to serialize profile of user {}: {}", user.getId(), e.getMessage());
+        }
+    }
+
+    private UserServiceClient.UserDto deserialize(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, UserServiceClient.UserDto.class);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable cached profile: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Counter loadCounter(String source) {
+        return Counter.builder("chitchat.user.profile.loads")
+            .description("User profiles loaded into the local cache, by source")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+}
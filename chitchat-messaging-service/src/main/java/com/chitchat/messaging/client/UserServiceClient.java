@@ -6,6 +6,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Client for calling User Service APIs
  */
@@ -31,12 +36,8 @@ public class UserServiceClient {
                 if (data instanceof java.util.Map) {
                     @SuppressWarnings("unchecked")
                     java.util.Map<String, Object> map = (java.util.Map<String, Object>) data;
-                    UserDto user = new UserDto();
+                    UserDto user = toUserDto(map);
                     user.setId(userId);
-                    user.setName((String) map.get("name"));
-                    user.setPhoneNumber((String) map.get("phoneNumber"));
-                    user.setAvatarUrl((String) map.get("avatarUrl"));
-                    user.setAbout((String) map.get("about"));
                     return user;
                 }
             }
@@ -47,6 +48,52 @@ public class UserServiceClient {
         }
     }
     
+    /**
+     * Get several users' details in one request
+     * 
+     * Unknown users are missing from the result. On failure the result is
+     * empty, so callers fall back exactly as for a missing user.
+     */
+    public List<UserDto> getUsersByIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        try {
+            String url = USER_SERVICE_URL + "/api/users/batch";
+            ApiResponse response = restTemplate.postForObject(url, Map.of("userIds", userIds), ApiResponse.class);
+            
+            List<UserDto> users = new ArrayList<>();
+            if (response != null && response.isSuccess() && response.getData() instanceof List<?> data) {
+                for (Object item : data) {
+                    if (item instanceof Map) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> map = (Map<String, Object>) item;
+                        UserDto user = toUserDto(map);
+                        if (user.getId() != null) {
+                            users.add(user);
+                        }
+                    }
+                }
+            }
+            return users;
+        } catch (Exception e) {
+            log.error("Error fetching {} users by ID", userIds.size(), e);
+            return List.of();
+        }
+    }
+    
+    private static UserDto toUserDto(Map<String, Object> map) {
+        UserDto user = new UserDto();
+        if (map.get("id") instanceof Number id) {
+            user.setId(id.longValue());
+        }
+        user.setName((String) map.get("name"));
+        user.setPhoneNumber((String) map.get("phoneNumber"));
+        user.setAvatarUrl((String) map.get("avatarUrl"));
+        user.setAbout((String) map.get("about"));
+        return user;
+    }
+    
     @Data
     public static class ApiResponse {
         private boolean success;
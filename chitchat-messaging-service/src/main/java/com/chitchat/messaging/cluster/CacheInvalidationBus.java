@@ -0,0 +1,27 @@
+package com.chitchat.messaging.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Cluster-wide invalidation of in-process cache entries
+ *
+ * A node that changes data held in a local cache updates its own copy and
+ * publishes the affected key; every other node drops that key and reloads it
+ * on next use. The publishing node never receives its own invalidations.
+ *
+ * Implementations:
+ * - InMemoryCacheInvalidationBus: single node (default), nothing to notify
+ * - RedisCacheInvalidationBus: Redis pub/sub, one channel per cache (chitchat.cluster.mode=redis)
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Tell the other nodes to drop a key of a cache
+     */
+    void publish(String cacheName, String key);
+
+    /**
+     * Register the handler for keys of a cache invalidated by other nodes
+     */
+    void subscribe(String cacheName, Consumer<String> handler);
+}
@@ -0,0 +1,34 @@
+package com.chitchat.messaging.cluster;
+
+import com.chitchat.messaging.websocket.protocol.OutboundFrame;
+
+import java.util.List;
+
+/**
+ * A WebSocket frame forwarded to another node for delivery to its local sessions
+ *
+ * @param originNodeId Node that produced the frame
+ * @param userId Recipient; null for a multi-user delivery or a broadcast
+ * @param userIds Recipients on the target node (group fan-out); null unless the delivery is multi-user
+ * @param excludeUserId For broadcasts, user that must not receive the frame (may be null)
+ * @param frame Frame to deliver; encoded by the receiving node in each session's wire format
+ * @param droppable Whether the frame may be dropped under backpressure
+ */
+public record ClusterDelivery(String originNodeId, Long userId, List<Long> userIds, Long excludeUserId,
+                              OutboundFrame frame, boolean droppable) {
+
+    public static ClusterDelivery toUser(String originNodeId, Long userId, OutboundFrame frame, boolean droppable) {
+        return new ClusterDelivery(originNodeId, userId, null, null, frame, droppable);
+    }
+
+    /**
+     * One delivery for all recipients connected to the same node
+     */
+    public static ClusterDelivery toUsers(String originNodeId, List<Long> userIds, OutboundFrame frame, boolean droppable) {
+        return new ClusterDelivery(originNodeId, null, userIds, null, frame, droppable);
+    }
+
+    public static ClusterDelivery toAll(String originNodeId, Long excludeUserId, OutboundFrame frame, boolean droppable) {
+        return new ClusterDelivery(originNodeId, null, null, excludeUserId, frame, droppable);
+    }
+}
@@ -0,0 +1,47 @@
+package com.chitchat.messaging.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/**
+ * Identity of this messaging node within the cluster
+ *
+ * Used as the routing address for node-to-node delivery and as the value stored
+ * in the presence registry. Set chitchat.cluster.node-id to pin it; otherwise a
+ * unique ID is generated per process start (hostname + random suffix), so a
+ * restarted node never inherits routes of its previous incarnation.
+ */
+@Slf4j
+@Component
+public class ClusterNode {
+
+    private final String nodeId;
+
+    public ClusterNode(@Value("${chitchat.cluster.node-id:}") String configuredNodeId) {
+        this.nodeId = StringUtils.hasText(configuredNodeId) ? configuredNodeId : generateNodeId();
+        log.info("Messaging cluster node ID: {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isSelf(String otherNodeId) {
+        return nodeId.equals(otherNodeId);
+    }
+
+    private static String generateNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
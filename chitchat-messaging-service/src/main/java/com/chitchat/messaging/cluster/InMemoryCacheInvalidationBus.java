@@ -0,0 +1,24 @@
+package com.chitchat.messaging.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Cache invalidation bus for single-node deployments (chitchat.cluster.mode=local)
+ *
+ * The only node already updated its own cache, so there is nobody to notify.
+ */
+@Component
+@ConditionalOnProperty(name = "chitchat.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class InMemoryCacheInvalidationBus implements CacheInvalidationBus {
+
+    @Override
+    public void publish(String cacheName, String key) {
+    }
+
+    @Override
+    public void subscribe(String cacheName, Consumer<String> handler) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.chitchat.messaging.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-process node message bus
+ *
+ * Default for single-node deployments (chitchat.cluster.mode=local), where there
+ * is no other node to reach. Instances sharing one subscriber map deliver to
+ * each other synchronously, without serialization.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chitchat.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class InMemoryNodeMessageBus implements NodeMessageBus {
+
+    private final String nodeId;
+    private final Map<String, Consumer<ClusterDelivery>> subscribers;
+
+    @Autowired
+    public InMemoryNodeMessageBus(ClusterNode clusterNode) {
+        this(clusterNode, new ConcurrentHashMap<>());
+    }
+
+    public InMemoryNodeMessageBus(ClusterNode clusterNode, Map<String, Consumer<ClusterDelivery>> sharedSubscribers) {
+        this.nodeId = clusterNode.getNodeId();
+        this.subscribers = sharedSubscribers;
+    }
+
+    @Override
+    public void send(String targetNodeId, ClusterDelivery delivery) {
+        Consumer<ClusterDelivery> handler = subscribers.get(targetNodeId);
+        if (handler == null) {
+            log.debug("No subscriber for node {}, dropping delivery for user {}", targetNodeId, delivery.userId());
+            return;
+        }
+        handler.accept(delivery);
+    }
+
+    @Override
+    public void broadcast(ClusterDelivery delivery) {
+        subscribers.forEach((targetNodeId, handler) -> {
+            if (!targetNodeId.equals(nodeId)) {
+                handler.accept(delivery);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterDelivery> handler) {
+        subscribers.put(nodeId, handler);
+    }
+}
@@ -0,0 +1,53 @@
+package com.chitchat.messaging.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process presence registry
+ *
+ * Default for single-node deployments (chitchat.cluster.mode=local). Several
+ * instances constructed over the same map behave like nodes sharing one
+ * registry, which lets multi-node routing be exercised inside one JVM.
+ */
+@Component
+@ConditionalOnProperty(name = "chitchat.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class InMemoryPresenceRegistry implements PresenceRegistry {
+
+    private final String nodeId;
+    private final Map<Long, Set<String>> presence;
+
+    @Autowired
+    public InMemoryPresenceRegistry(ClusterNode clusterNode) {
+        this(clusterNode, new ConcurrentHashMap<>());
+    }
+
+    public InMemoryPresenceRegistry(ClusterNode clusterNode, Map<Long, Set<String>> sharedPresence) {
+        this.nodeId = clusterNode.getNodeId();
+        this.presence = sharedPresence;
+    }
+
+    @Override
+    public void register(Long userId) {
+        presence.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(nodeId);
+    }
+
+    @Override
+    public void unregister(Long userId) {
+        presence.computeIfPresent(userId, (id, nodes) -> {
+            nodes.remove(nodeId);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+
+    @Override
+    public Set<String> nodesFor(Long userId) {
+        Set<String> nodes = presence.get(userId);
+        return nodes != null ? Set.copyOf(nodes) : Set.of();
+    }
+}
@@ -0,0 +1,32 @@
+package com.chitchat.messaging.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Node-to-node channel for WebSocket frames addressed to users on other nodes
+ *
+ * send() is a single hop to the node that owns the user's sessions (as found in
+ * the PresenceRegistry); broadcast() reaches every node and is reserved for
+ * frames that are not addressed to a specific user.
+ *
+ * Implementations:
+ * - InMemoryNodeMessageBus: single node (default) and tests
+ * - RedisNodeMessageBus: Redis pub/sub, one channel per node (chitchat.cluster.mode=redis)
+ */
+public interface NodeMessageBus {
+
+    /**
+     * Deliver to one node
+     */
+    void send(String nodeId, ClusterDelivery delivery);
+
+    /**
+     * Deliver to every other node
+     */
+    void broadcast(ClusterDelivery delivery);
+
+    /**
+     * Register the handler for deliveries addressed to this node
+     */
+    void subscribe(Consumer<ClusterDelivery> handler);
+}
@@ -0,0 +1,40 @@
+package com.chitchat.messaging.cluster;
+
+import java.util.Set;
+
+/**
+ * Cluster-wide view of which messaging nodes hold WebSocket sessions for a user
+ *
+ * Each node registers a user when their first local session opens and
+ * unregisters them when the last local session closes. Lookups return only
+ * nodes that are still alive, so a crashed node stops receiving traffic once
+ * its liveness expires.
+ *
+ * Implementations:
+ * - InMemoryPresenceRegistry: single node (default) and tests
+ * - RedisPresenceRegistry: multi-node deployments (chitchat.cluster.mode=redis)
+ */
+public interface PresenceRegistry {
+
+    /**
+     * Record that this node holds at least one session for the user
+     */
+    void register(Long userId);
+
+    /**
+     * Record that this node no longer holds any session for the user
+     */
+    void unregister(Long userId);
+
+    /**
+     * Live nodes (including this one) that hold sessions for the user
+     */
+    Set<String> nodesFor(Long userId);
+
+    /**
+     * Whether the user has a session on any live node
+     */
+    default boolean isOnline(Long userId) {
+        return !nodesFor(userId).isEmpty();
+    }
+}
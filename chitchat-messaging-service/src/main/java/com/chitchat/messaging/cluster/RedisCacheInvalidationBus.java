@@ -0,0 +1,68 @@
+package com.chitchat.messaging.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub cache invalidation bus for multi-node deployments
+ *
+ * Each cache has its own channel (chitchat:cluster:invalidate:{cacheName}); a
+ * message is "{originNodeId}|{key}" so a node can skip its own invalidations.
+ * Like node deliveries this is fire-and-forget: an invalidation missed while a
+ * node restarts is harmless because the restarted node starts with empty
+ * caches, and caches fed by it keep a TTL as a bound on staleness.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chitchat.cluster.mode", havingValue = "redis")
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final String CHANNEL_PREFIX = "chitchat:cluster:invalidate:";
+    private static final char SEPARATOR = '|';
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String nodeId;
+
+    public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                     RedisMessageListenerContainer clusterListenerContainer,
+                                     ClusterNode clusterNode) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = clusterListenerContainer;
+        this.nodeId = clusterNode.getNodeId();
+    }
+
+    @Override
+    public void publish(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL_PREFIX + cacheName, nodeId + SEPARATOR + key);
+        } catch (Exception e) {
+            log.warn("Failed to publish invalidation of {} in cache {}: {}", key, cacheName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(String cacheName, Consumer<String> handler) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf(SEPARATOR);
+            if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+                return;
+            }
+            try {
+                handler.accept(body.substring(separator + 1));
+            } catch (Exception e) {
+                log.error("Failed to apply invalidation on cache {}: {}", cacheName, e.getMessage());
+            }
+        }, new ChannelTopic(CHANNEL_PREFIX + cacheName));
+
+        log.info("Node {} subscribed to invalidations of cache {}", nodeId, cacheName);
+    }
+}
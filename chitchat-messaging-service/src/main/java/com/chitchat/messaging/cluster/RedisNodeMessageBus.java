@@ -0,0 +1,87 @@
+package com.chitchat.messaging.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub node message bus for multi-node deployments
+ *
+ * Every node subscribes to its own channel (chitchat:cluster:node:{nodeId}), so
+ * a frame for a user on another node is one PUBLISH to exactly that node.
+ * Broadcasts go to chitchat:cluster:broadcast, which every node subscribes to.
+ *
+ * Pub/sub is fire-and-forget: a delivery published while the target node is
+ * restarting is lost. That matches WebSocket push semantics - messages are
+ * persisted first and replayed as pending messages on reconnect.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chitchat.cluster.mode", havingValue = "redis")
+public class RedisNodeMessageBus implements NodeMessageBus {
+
+    private static final String NODE_CHANNEL_PREFIX = "chitchat:cluster:node:";
+    private static final String BROADCAST_CHANNEL = "chitchat:cluster:broadcast";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String nodeId;
+    private final ObjectReader deliveryReader;
+    private final ObjectWriter deliveryWriter;
+
+    public RedisNodeMessageBus(StringRedisTemplate redisTemplate, RedisMessageListenerContainer clusterListenerContainer,
+                               ClusterNode clusterNode, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = clusterListenerContainer;
+        this.nodeId = clusterNode.getNodeId();
+        this.deliveryReader = objectMapper.readerFor(ClusterDelivery.class);
+        this.deliveryWriter = objectMapper.writerFor(ClusterDelivery.class);
+    }
+
+    @Override
+    public void send(String targetNodeId, ClusterDelivery delivery) {
+        publish(NODE_CHANNEL_PREFIX + targetNodeId, delivery);
+    }
+
+    @Override
+    public void broadcast(ClusterDelivery delivery) {
+        publish(BROADCAST_CHANNEL, delivery);
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterDelivery> handler) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                ClusterDelivery delivery = deliveryReader.readValue(message.getBody());
+                // Our own broadcasts come back on the shared channel
+                if (!nodeId.equals(delivery.originNodeId())) {
+                    handler.accept(delivery);
+                }
+            } catch (Exception e) {
+                log.error("Failed to handle cluster delivery on channel {}: {}",
+                        new String(message.getChannel(), StandardCharsets.UTF_8), e.getMessage());
+            }
+        }, List.of(new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId), new ChannelTopic(BROADCAST_CHANNEL)));
+
+        log.info("Node {} subscribed to cluster delivery channels", nodeId);
+    }
+
+    private void publish(String channel, ClusterDelivery delivery) {
+        try {
+            redisTemplate.convertAndSend(channel, deliveryWriter.writeValueAsString(delivery));
+        } catch (Exception e) {
+            log.error("Failed to publish cluster delivery to {} for user {}: {}",
+                    channel, delivery.userId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.chitchat.messaging.cluster;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis-backed presence registry for multi-node deployments
+ *
+ * Storage Pattern:
+ * - chitchat:presence:{userId} - SET of node IDs holding sessions for the user
+ * - chitchat:cluster:nodes - ZSET of node ID -> last heartbeat (epoch millis)
+ *
+ * Each node heartbeats every chitchat.cluster.heartbeat-seconds. A node whose
+ * heartbeat is older than chitchat.cluster.node-ttl-seconds is treated as dead:
+ * it is filtered out of lookups. The set of live nodes is refreshed on every
+ * heartbeat and cached locally; a member missing from that snapshot is checked
+ * against its heartbeat score (the snapshot may be stale, or the node may have
+ * just joined) and its presence entry is removed lazily only once the node is
+ * past the prune TTL (NODE_PRUNE_TTL_MULTIPLIER heartbeat TTLs).
+ *
+ * Remote routes are cached per user for chitchat.cluster.route-cache-millis, so
+ * the frames of a burst (typing, presence fan-out, messages) share one SMEMBERS,
+ * and users with only local sessions cost no round trip within the window. A
+ * node that registers or unregisters a user publishes the user on the
+ * invalidation bus, so other nodes drop their cached route at once; the TTL only
+ * bounds staleness when such an invalidation is lost.
+ *
+ * If this node's own heartbeat had lapsed (first start, Redis restart, long GC
+ * pause) its local users are re-registered, so presence heals on its own.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chitchat.cluster.mode", havingValue = "redis")
+public class RedisPresenceRegistry implements PresenceRegistry {
+
+    private static final String PRESENCE_KEY_PREFIX = "chitchat:presence:";
+    private static final String NODES_KEY = "chitchat:cluster:nodes";
+    private static final String ROUTES_CACHE = "presence-routes";
+
+    private static final int MAX_CACHED_ROUTES = 100_000;
+
+    // Heartbeats older than this many TTLs are pruned from the node set entirely
+    private static final int NODE_PRUNE_TTL_MULTIPLIER = 10;
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final String nodeId;
+
+    @Value("${chitchat.cluster.heartbeat-seconds:10}")
+    private long heartbeatSeconds;
+
+    @Value("${chitchat.cluster.node-ttl-seconds:30}")
+    private long nodeTtlSeconds;
+
+    @Value("${chitchat.cluster.route-cache-millis:1000}")
+    private long routeCacheMillis;
+
+    // Users with at least one session on this node - authoritative for self
+    private final Set<Long> localUsers = ConcurrentHashMap.newKeySet();
+
+    private volatile Set<String> liveNodes = Set.of();
+
+    // User ID -> live remote nodes holding sessions for the user (never this node)
+    private Cache<Long, Set<String>> remoteRoutes;
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cluster-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RedisPresenceRegistry(StringRedisTemplate redisTemplate, CacheInvalidationBus invalidationBus,
+                                 ClusterNode clusterNode) {
+        this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
+        this.nodeId = clusterNode.getNodeId();
+    }
+
+    @PostConstruct
+    public void start() {
+        remoteRoutes = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_ROUTES)
+                .expireAfterWrite(Duration.ofMillis(routeCacheMillis))
+                .build();
+        invalidationBus.subscribe(ROUTES_CACHE, key -> remoteRoutes.invalidate(Long.valueOf(key)));
+
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatSeconds, TimeUnit.SECONDS);
+        log.info("Redis presence registry started for node {} (heartbeat {}s, TTL {}s)",
+                nodeId, heartbeatSeconds, nodeTtlSeconds);
+    }
+
+    @Override
+    public void register(Long userId) {
+        localUsers.add(userId);
+        try {
+            redisTemplate.opsForSet().add(presenceKey(userId), nodeId);
+        } catch (Exception e) {
+            // Re-registered on the next heartbeat that finds this node missing
+            log.warn("Failed to register presence for user {}: {}", userId, e.getMessage());
+        }
+        invalidationBus.publish(ROUTES_CACHE, String.valueOf(userId));
+    }
+
+    @Override
+    public void unregister(Long userId) {
+        localUsers.remove(userId);
+        try {
+            redisTemplate.opsForSet().remove(presenceKey(userId), nodeId);
+        } catch (Exception e) {
+            log.warn("Failed to unregister presence for user {}: {}", userId, e.getMessage());
+        }
+        invalidationBus.publish(ROUTES_CACHE, String.valueOf(userId));
+    }
+
+    @Override
+    public Set<String> nodesFor(Long userId) {
+        Set<String> remote = remoteRoutes.get(userId, this::loadRemoteNodes);
+        boolean local = localUsers.contains(userId);
+        if (remote == null || remote.isEmpty()) {
+            return local ? Set.of(nodeId) : Set.of();
+        }
+        if (!local) {
+            return remote;
+        }
+        Set<String> nodes = new HashSet<>(remote);
+        nodes.add(nodeId);
+        return nodes;
+    }
+
+    /**
+     * Live remote nodes of a user from Redis, or null (not cached) if Redis is unavailable
+     */
+    private Set<String> loadRemoteNodes(Long userId) {
+        Set<String> members;
+        try {
+            members = redisTemplate.opsForSet().members(presenceKey(userId));
+        } catch (Exception e) {
+            log.warn("Failed to look up presence for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+        if (members == null || members.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> live = liveNodes;
+        Set<String> nodes = new HashSet<>();
+        for (String member : members) {
+            if (member.equals(nodeId)) {
+                continue;
+            }
+            if (live.contains(member) || isLive(userId, member)) {
+                nodes.add(member);
+            }
+        }
+        return Set.copyOf(nodes);
+    }
+
+    /**
+     * Liveness of a node missing from the local snapshot, from its heartbeat score
+     *
+     * The route is removed only when the node is past the prune TTL (or already
+     * pruned from the node set). A live node whose route was removed in error
+     * heals on its own: its next heartbeat finds its score missing or lapsed and
+     * re-registers its local users.
+     */
+    private boolean isLive(Long userId, String member) {
+        try {
+            long now = System.currentTimeMillis();
+            long ttlMillis = TimeUnit.SECONDS.toMillis(nodeTtlSeconds);
+            Double heartbeat = redisTemplate.opsForZSet().score(NODES_KEY, member);
+            if (heartbeat != null && heartbeat >= now - ttlMillis) {
+                return true;
+            }
+            if (heartbeat == null || heartbeat < now - ttlMillis * NODE_PRUNE_TTL_MULTIPLIER) {
+                redisTemplate.opsForSet().remove(presenceKey(userId), member);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check liveness of node {}: {}", member, e.getMessage());
+        }
+        return false;
+    }
+
+    private void heartbeat() {
+        try {
+            long now = System.currentTimeMillis();
+            long ttlMillis = TimeUnit.SECONDS.toMillis(nodeTtlSeconds);
+
+            Double previous = redisTemplate.opsForZSet().score(NODES_KEY, nodeId);
+            redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+
+            if ((previous == null || previous < now - ttlMillis) && !localUsers.isEmpty()) {
+                log.warn("Node {} heartbeat had lapsed, re-registering {} local users", nodeId, localUsers.size());
+                for (Long userId : localUsers) {
+                    redisTemplate.opsForSet().add(presenceKey(userId), nodeId);
+                }
+            }
+
+            Set<String> live = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, now - ttlMillis, Double.MAX_VALUE);
+            liveNodes = live != null ? Set.copyOf(live) : Set.of();
+
+            redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - ttlMillis * NODE_PRUNE_TTL_MULTIPLIER);
+        } catch (Exception e) {
+            log.warn("Cluster heartbeat failed for node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private static String presenceKey(Long userId) {
+        return PRESENCE_KEY_PREFIX + userId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        try {
+            for (Long userId : localUsers) {
+                redisTemplate.opsForSet().remove(presenceKey(userId), nodeId);
+            }
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+            log.info("Node {} left the messaging cluster", nodeId);
+        } catch (Exception e) {
+            log.warn("Failed to deregister node {} on shutdown: {}", nodeId, e.getMessage());
+        }
+    }
+}
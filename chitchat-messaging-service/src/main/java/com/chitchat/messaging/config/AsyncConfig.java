@@ -15,7 +15,7 @@ import java.util.concurrent.ThreadPoolExecutor;
  * Enables asynchronous execution for:
  * - WebSocket message broadcasts
  * - Push notifications
- * - Kafka event publishing
+ * - Group message fan-out
  * - Database operations
  * 
  * Optimized for high concurrency and multiple users
@@ -76,20 +76,26 @@ public class AsyncConfig {
         return executor;
     }
 
-    @Bean(name = "kafkaExecutor")
-    public Executor kafkaExecutor() {
+    /**
+     * Group message fan-out: WebSocket delivery and batched notifications per member chunk
+     * 
+     * Fixed size, so a message to a very large group never takes more than
+     * 8 threads no matter how many chunks it is split into.
+     */
+    @Bean(name = "groupFanoutExecutor")
+    public Executor groupFanoutExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(15);  // Dedicated pool for Kafka publishing
-        executor.setMaxPoolSize(30);
-        executor.setQueueCapacity(150);
-        executor.setThreadNamePrefix("kafka-async-");
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("group-fanout-");
         executor.setKeepAliveSeconds(60);
         executor.setAllowCoreThreadTimeOut(true);
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
         executor.initialize();
-        log.info("Kafka executor initialized with core: 15, max: 30, queue: 150");
+        log.info("Group fan-out executor initialized with core: 8, max: 8, queue: 1000");
         return executor;
     }
 }
@@ -1,9 +1,13 @@
 package com.chitchat.messaging.config;
 
+import com.chitchat.messaging.cache.TwoTierCacheManager;
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -20,21 +24,34 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Redis Cache Configuration for Messaging Service
+ * Two-tier Cache Configuration for Messaging Service
  * 
- * Caches:
+ * Every cache is an in-process Caffeine L1 (chitchat.cache.local.*, short TTL)
+ * in front of Redis L2 (TTLs below). @CacheEvict on any node clears L2 and
+ * that node's L1, and drops the key from the other nodes' L1 via the
+ * CacheInvalidationBus. See TwoTierCache for the metrics.
+ * 
+ * Caches (L2 TTL):
  * - Conversation lists (30 seconds TTL)
- * - Unread counts (30 seconds TTL)
- * - User details (5 minutes TTL)
+ *
+ * User profiles are cached by UserProfileCache (local + Redis) and unread
+ * counts are kept by UnreadCounterService (Redis hashes), not here.
  */
 @Slf4j
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    @Value("${chitchat.cache.local.max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${chitchat.cache.local.ttl-seconds:10}")
+    private long localTtlSeconds;
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        log.info("Configuring Redis cache manager");
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, CacheInvalidationBus invalidationBus,
+                                     MeterRegistry meterRegistry) {
+        log.info("Configuring two-tier cache manager (L1 max size: {}, L1 TTL: {}s)", localMaxSize, localTtlSeconds);
 
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
@@ -52,17 +69,16 @@ public class CacheConfig {
         
         // Conversation list cache - 30 seconds (updated frequently)
         cacheConfigurations.put("conversationList", defaultConfig.entryTtl(Duration.ofSeconds(30)));
-        
-        // Unread count cache - 30 seconds (updated frequently)
-        cacheConfigurations.put("unreadCount", defaultConfig.entryTtl(Duration.ofSeconds(30)));
-        
-        // User details cache - 5 minutes (updated less frequently)
-        cacheConfigurations.put("userDetails", defaultConfig.entryTtl(Duration.ofMinutes(5)));
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
+        // Not a bean itself, so initialize the configured caches here
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoTierCacheManager(redisCacheManager, invalidationBus, meterRegistry,
+                localMaxSize, Duration.ofSeconds(localTtlSeconds));
     }
 }
 
@@ -0,0 +1,44 @@
+package com.chitchat.messaging.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Messaging cluster configuration
+ *
+ * chitchat.cluster.mode selects how nodes find and reach each other:
+ * - local (default): single node, in-memory presence registry and message bus
+ * - redis: presence in Redis, node-to-node delivery over Redis pub/sub
+ *
+ * In redis mode a dedicated listener container receives deliveries for this
+ * node. It dispatches on a single thread so frames keep the order in which they
+ * were published (a message before its status update); that thread only decodes
+ * the delivery and queues the frame on the local sessions, never a socket write.
+ */
+@Slf4j
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "chitchat.cluster.mode", havingValue = "redis")
+    public RedisMessageListenerContainer clusterListenerContainer(RedisConnectionFactory connectionFactory) {
+        log.info("Configuring Redis listener container for messaging cluster");
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("cluster-delivery-");
+        executor.initialize();
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(executor);
+        return container;
+    }
+}
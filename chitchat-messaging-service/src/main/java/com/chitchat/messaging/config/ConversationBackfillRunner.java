@@ -0,0 +1,37 @@
+package com.chitchat.messaging.config;
+
+import com.chitchat.messaging.service.ConversationSummaryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off backfill of the conversations read model
+ * 
+ * Enable with chitchat.conversations.backfill-on-startup=true on a single
+ * instance when deploying the read model (or to repair it), then turn it off.
+ * The backfill is idempotent; messages written while it runs are applied by
+ * the regular incremental updates.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chitchat.conversations.backfill-on-startup", havingValue = "true")
+public class ConversationBackfillRunner implements ApplicationRunner {
+
+    private final ConversationSummaryService conversationSummaryService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long started = System.currentTimeMillis();
+        try {
+            long written = conversationSummaryService.backfill();
+            log.info("Conversation backfill wrote {} conversations in {} ms", written, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Conversation backfill failed", e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.chitchat.messaging.config;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.util.ConversationIds;
+import com.mongodb.client.model.ReplaceOptions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Online backfill of Message.conversationId for messages written before the field existed
+ *
+ * Runs in the background once the application is ready, so startup and traffic
+ * are never blocked:
+ * - Walks messages without a conversationId in _id order, batchSize at a time
+ * - Sets conversationId with conditional updates (safe to run on several instances)
+ * - Records completion in the "migrations" collection, so later starts skip the scan
+ * - Drops the legacy per-direction conversation indexes once every message is keyed
+ *
+ * Until the migration is complete, MessageRepositoryCustomImpl keeps using the
+ * legacy senderId/recipientId and groupId queries (isComplete() == false), so
+ * un-migrated messages never disappear from history.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversationKeyMigration {
+
+    private static final String MIGRATIONS_COLLECTION = "migrations";
+    private static final String MIGRATION_ID = "message-conversation-id";
+
+    /**
+     * Indexes that only served the pre-conversationId queries
+     */
+    private static final List<String> LEGACY_INDEXES = List.of(
+            "idx_sender_recipient_created",
+            "idx_sender_recipient_created_id",
+            "idx_recipient_sender_created",
+            "idx_group_created",
+            "idx_group_created_id");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${chitchat.migration.conversation-key.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chitchat.migration.conversation-key.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${chitchat.migration.conversation-key.batch-pause-ms:50}")
+    private long batchPauseMs;
+
+    private volatile boolean complete;
+
+    /**
+     * Whether every message has a conversationId (queries may rely on the conversationId index)
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (isRecordedComplete()) {
+            complete = true;
+            log.debug("Conversation key migration already complete");
+            return;
+        }
+        if (!enabled) {
+            log.info("Conversation key migration disabled; conversation queries stay on the legacy indexes");
+            return;
+        }
+
+        Thread worker = new Thread(this::migrate, "conversation-key-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void migrate() {
+        long started = System.currentTimeMillis();
+        long updated = 0;
+        String lastId = null;
+
+        try {
+            while (true) {
+                // Another instance may have finished first
+                if (isRecordedComplete()) {
+                    complete = true;
+                    log.info("Conversation key migration completed by another instance");
+                    return;
+                }
+
+                Criteria criteria = Criteria.where("conversationId").exists(false);
+                if (lastId != null) {
+                    criteria = criteria.and("_id").gt(new ObjectId(lastId));
+                }
+                Query query = Query.query(criteria)
+                        .with(Sort.by(Sort.Direction.ASC, "_id"))
+                        .limit(batchSize);
+                query.fields().include("senderId", "recipientId", "groupId");
+
+                List<Message> batch = mongoTemplate.find(query, Message.class);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+                int pending = 0;
+                for (Message message : batch) {
+                    String conversationId = ConversationIds.of(message);
+                    if (conversationId != null) {
+                        bulk.updateOne(
+                                Query.query(Criteria.where("_id").is(message.getId()).and("conversationId").exists(false)),
+                                Update.update("conversationId", conversationId));
+                        pending++;
+                    }
+                }
+                if (pending > 0) {
+                    updated += bulk.execute().getModifiedCount();
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+
+                if (batchPauseMs > 0) {
+                    Thread.sleep(batchPauseMs);
+                }
+            }
+
+            markComplete();
+            log.info("Conversation key migration keyed {} messages in {} ms", updated, System.currentTimeMillis() - started);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Conversation key migration interrupted after {} messages; it resumes on next start", updated);
+        } catch (Exception e) {
+            log.error("Conversation key migration failed after {} messages; it resumes on next start", updated, e);
+        }
+    }
+
+    private void markComplete() {
+        mongoTemplate.getCollection(MIGRATIONS_COLLECTION).replaceOne(
+                new Document("_id", MIGRATION_ID),
+                new Document("_id", MIGRATION_ID).append("completedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+        complete = true;
+        dropLegacyIndexes();
+    }
+
+    private boolean isRecordedComplete() {
+        try {
+            return mongoTemplate.getCollection(MIGRATIONS_COLLECTION)
+                    .find(new Document("_id", MIGRATION_ID))
+                    .first() != null;
+        } catch (Exception e) {
+            log.warn("Failed to read conversation key migration state: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void dropLegacyIndexes() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(Message.class);
+            List<String> existing = indexOps.getIndexInfo().stream().map(IndexInfo::getName).toList();
+            for (String name : LEGACY_INDEXES) {
+                if (existing.contains(name)) {
+                    indexOps.dropIndex(name);
+                    log.info("Dropped index {} (superseded by idx_conversation_created_id)", name);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to drop legacy conversation indexes", e);
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.chitchat.messaging.config;
 
+import com.chitchat.shared.config.KafkaProducerProfile;
+import com.chitchat.shared.event.ClasspathSchemaRegistry;
+import com.chitchat.shared.event.EventCodec;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
@@ -35,7 +39,8 @@ import java.util.Map;
  * - Event replay capability
  * 
  * Configuration:
- * - Key: String (typically message ID or user ID)
+ * - Key: String, the conversation ID for conversation events so each
+ *   conversation's events stay on one partition, in order
  * - Value: JSON object (message details)
  * - Serialization: JSON for flexibility
  * - Bootstrap servers: Kafka cluster connection
@@ -44,6 +49,16 @@ import java.util.Map;
  * - message-events: New message notifications
  * - message-status-events: Delivery/read receipts
  * - typing-events: Typing indicators (optional)
+ * 
+ * Message events are not sent from request threads: they are appended to the
+ * outbox and published by the outbox relay with its own producer (below).
+ * With chitchat.events.binary-message-events, message-events carries the
+ * binary MessageCreated event (EventCodec, Avro) instead of the Message JSON.
+ * 
+ * Both producers are built from a KafkaProducerProfile (shared config): the
+ * general-purpose template uses chitchat.kafka.producer.profile, the outbox relay
+ * chitchat.outbox.producer.profile. Their client metrics are published to
+ * Micrometer, tagged producer=events / producer=outbox.
  */
 @Configuration
 public class KafkaConfig {
@@ -59,6 +74,22 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${chitchat.kafka.producer.profile:latency}")
+    private String producerProfile;
+
+    @Value("${chitchat.outbox.producer.profile:throughput}")
+    private String outboxProducerProfile;
+
+    // Optional overrides of the outbox profile's preset
+    @Value("${chitchat.outbox.producer.linger-ms:#{null}}")
+    private Integer outboxLingerMs;
+
+    @Value("${chitchat.outbox.producer.batch-size-bytes:#{null}}")
+    private Integer outboxBatchSizeBytes;
+
+    @Value("${chitchat.outbox.producer.compression-type:#{null}}")
+    private String outboxCompressionType;
+
     /**
      * Creates Kafka producer factory with JSON serialization
      * 
@@ -67,14 +98,17 @@ public class KafkaConfig {
      * - KEY_SERIALIZER: String keys (message/user IDs)
      * - VALUE_SERIALIZER: JSON for complex objects
      * - ADD_TYPE_INFO_HEADERS: false (no Java type info in headers)
+     * - Batching, compression, acks and idempotence from the producer profile
      * 
      * The producer is thread-safe and can be shared across the application.
      * 
+     * @param meterRegistry Registry for the producer's client metrics
      * @return ProducerFactory configured for String keys and JSON values
      */
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
+    public ProducerFactory<String, Object> producerFactory(MeterRegistry meterRegistry) {
+        KafkaProducerProfile profile = KafkaProducerProfile.of(producerProfile);
+        Map<String, Object> configProps = new HashMap<>(profile.producerProperties());
         
         // Kafka broker addresses
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
@@ -89,7 +123,7 @@ public class KafkaConfig {
         // Makes it easier for non-Java consumers to process events
         configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
         
-        return new DefaultKafkaProducerFactory<>(configProps);
+        return profile.producerFactory(configProps, meterRegistry, "events");
     }
 
     /**
@@ -103,12 +137,62 @@ public class KafkaConfig {
      * - Transaction support
      * 
      * Usage:
-     * kafkaTemplate.send("message-events", messageId, messageEvent);
+     * kafkaTemplate.send("message-events", conversationId, messageEvent);
      * 
+     * @param producerFactory Producer factory (above)
      * @return KafkaTemplate configured with the producer factory
      */
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Producer used by the outbox relay
+     * 
+     * Tuned for batches rather than single records, since the relay publishes
+     * the outbox in batches from one background thread (THROUGHPUT profile by default):
+     * - ENABLE_IDEMPOTENCE + acks=all: a retried send is never written twice
+     *   and never reordered within a partition
+     * - LINGER_MS / BATCH_SIZE: records of a relay batch share produce requests
+     * - COMPRESSION_TYPE: whole batches are compressed (JSON compresses well)
+     * - MAX_BLOCK_MS: a broker outage stalls the relay briefly, never forever
+     * 
+     * chitchat.outbox.producer.linger-ms / batch-size-bytes / compression-type,
+     * when set, override the profile's values.
+     * 
+     * Values are pre-serialized: UTF-8 JSON, or binary events (see OutboxServiceImpl).
+     * 
+     * @param meterRegistry Registry for the producer's client metrics
+     * @return KafkaTemplate for String keys and pre-serialized values
+     */
+    @Bean
+    public KafkaTemplate<String, byte[]> outboxKafkaTemplate(MeterRegistry meterRegistry) {
+        KafkaProducerProfile profile = KafkaProducerProfile.of(outboxProducerProfile);
+        Map<String, Object> configProps = new HashMap<>(profile.producerProperties());
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 5000);
+        if (outboxLingerMs != null) {
+            configProps.put(ProducerConfig.LINGER_MS_CONFIG, outboxLingerMs);
+        }
+        if (outboxBatchSizeBytes != null) {
+            configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, outboxBatchSizeBytes);
+        }
+        if (outboxCompressionType != null) {
+            configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, outboxCompressionType);
+        }
+        return new KafkaTemplate<>(profile.<String, byte[]>producerFactory(configProps, meterRegistry, "outbox"));
+    }
+
+    /**
+     * Codec of the binary event schema, writing and resolving the schemas committed with shared config
+     * 
+     * @return EventCodec over ClasspathSchemaRegistry
+     */
+    @Bean
+    public EventCodec eventCodec() {
+        return new EventCodec(new ClasspathSchemaRegistry());
     }
 }
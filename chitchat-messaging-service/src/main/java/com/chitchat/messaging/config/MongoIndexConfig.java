@@ -3,11 +3,13 @@ package com.chitchat.messaging.config;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
 
 /**
  * MongoDB Index Configuration for Performance Optimization
@@ -17,6 +19,9 @@ import org.springframework.data.mongodb.core.index.IndexOperations;
  * - Unread message counts
  * - Message status updates
  * - Group message queries
+ * - Message search (text index)
+ * - Conversation list (conversations read model)
+ * - Outbox relay (message_outbox)
  */
 @Slf4j
 @Configuration
@@ -25,6 +30,9 @@ public class MongoIndexConfig {
 
     private final MongoTemplate mongoTemplate;
 
+    @Value("${chitchat.search.default-language:english}")
+    private String searchLanguage;
+
     @PostConstruct
     public void initIndexes() {
         log.info("Creating MongoDB indexes for messages collection...");
@@ -32,53 +40,101 @@ public class MongoIndexConfig {
         try {
             IndexOperations indexOps = mongoTemplate.indexOps("messages");
 
-            // Index 1: Compound index for conversation queries (senderId, recipientId, createdAt)
-            // Optimizes: findConversationMessages query
+            // Index 1: Compound index for conversation and group history (conversationId, createdAt, _id)
+            // Optimizes: findConversationMessages, findGroupMessages, keyset findConversationSlice/findGroupSlice
+            // One equality on the canonical key replaces the per-direction $or, so a direct chat is a single
+            // range scan; _id is the tie-breaker of the history cursor, so (createdAt, _id) sorts come from the index.
+            // The legacy per-direction and group indexes are dropped by ConversationKeyMigration once every message is keyed.
             indexOps.ensureIndex(new Index()
-                    .on("senderId", Sort.Direction.ASC)
-                    .on("recipientId", Sort.Direction.ASC)
+                    .on("conversationId", Sort.Direction.ASC)
                     .on("createdAt", Sort.Direction.DESC)
-                    .named("idx_sender_recipient_created"));
+                    .on("_id", Sort.Direction.DESC)
+                    .named("idx_conversation_created_id"));
 
-            // Index 2: Compound index for reverse conversation queries (recipientId, senderId, createdAt)
-            // Optimizes: findConversationMessages query (bi-directional)
-            indexOps.ensureIndex(new Index()
-                    .on("recipientId", Sort.Direction.ASC)
-                    .on("senderId", Sort.Direction.ASC)
-                    .on("createdAt", Sort.Direction.DESC)
-                    .named("idx_recipient_sender_created"));
-
-            // Index 3: Compound index for unread message counts (recipientId, status)
-            // Optimizes: countTotalUnreadMessages and findUnreadCountsBySender
-            indexOps.ensureIndex(new Index()
+            // Index 2: Compound index for the pending backlog (recipientId, status, createdAt, _id)
+            // Optimizes: findDeliveredMessagesForRecipient and keyset findPendingSlice
+            // (backlog replay reads SENT messages oldest first straight from the index)
+            replaceIndex(indexOps, "idx_recipient_status", new Index()
                     .on("recipientId", Sort.Direction.ASC)
                     .on("status", Sort.Direction.ASC)
-                    .named("idx_recipient_status"));
-
-            // Index 4: Compound index for group messages (groupId, createdAt)
-            // Optimizes: findGroupMessages query
-            indexOps.ensureIndex(new Index()
-                    .on("groupId", Sort.Direction.ASC)
-                    .on("createdAt", Sort.Direction.DESC)
-                    .named("idx_group_created"));
+                    .on("createdAt", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("idx_recipient_status_created_id"));
 
-            // Index 5: Single index on senderId for sender's messages
+            // Index 3: Single index on senderId for sender's messages
             // Optimizes: findUnreadMessagesForSender
             indexOps.ensureIndex(new Index()
                     .on("senderId", Sort.Direction.ASC)
                     .named("idx_sender"));
 
-            // Index 6: Single index on createdAt for time-based queries
+            // Index 4: Single index on createdAt for time-based queries
             // Optimizes: findUndeliveredMessages and time range queries
             indexOps.ensureIndex(new Index()
                     .on("createdAt", Sort.Direction.DESC)
                     .named("idx_created"));
 
+            // Index 5: Text index on content for message search
+            // Optimizes: searchMessages (ranked $text search instead of an unindexed case-insensitive regex)
+            indexOps.ensureIndex(new TextIndexDefinition.TextIndexDefinitionBuilder()
+                    .onField("content")
+                    .withDefaultLanguage(searchLanguage)
+                    .named("idx_content_text")
+                    .build());
+
+            // Index 6: Sparse index on the creation time of staged outbox events
+            // Optimizes: OutboxServiceImpl sweep of events left on messages (only the few messages with staged events are indexed)
+            indexOps.ensureIndex(new Index()
+                    .on("pendingEvents.createdAt", Sort.Direction.ASC)
+                    .sparse()
+                    .named("idx_pending_events_created"));
+
             log.info("MongoDB indexes created successfully for messages collection");
 
+            // Conversations read model: a user's conversation list, newest first
+            // Optimizes: ConversationRepository.findByParticipantOrderByLastMessageAtDesc (single range read)
+            mongoTemplate.indexOps("conversations").ensureIndex(new Index()
+                    .on("participantIds", Sort.Direction.ASC)
+                    .on("lastMessageAt", Sort.Direction.DESC)
+                    .named("idx_participants_last_message"));
+
+            log.info("MongoDB indexes created successfully for conversations collection");
+
+            // Outbox: the relay's scan for due events
+            // Optimizes: OutboxServiceImpl claim query (nextAttemptAt <= now, oldest first)
+            mongoTemplate.indexOps("message_outbox").ensureIndex(new Index()
+                    .on("nextAttemptAt", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("idx_next_attempt_id"));
+
+            // Outbox: events held by a relay (their keys are not claimed again until published)
+            // Optimizes: OutboxServiceImpl busy-key lookup (claimedUntil >= now)
+            mongoTemplate.indexOps("message_outbox").ensureIndex(new Index()
+                    .on("claimedUntil", Sort.Direction.ASC)
+                    .named("idx_claimed_until"));
+
+            // Outbox: a key's events in append order
+            // Optimizes: OutboxServiceImpl per-key ordering check after a claim (key in [...], _id < ...)
+            mongoTemplate.indexOps("message_outbox").ensureIndex(new Index()
+                    .on("key", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("idx_key_id"));
+
+            log.info("MongoDB indexes created successfully for message_outbox collection");
+
         } catch (Exception e) {
             log.error("Failed to create MongoDB indexes", e);
         }
     }
-}
 
+    /**
+     * Create an index that extends an older one, then drop the older one (its keys are a prefix of the new index)
+     */
+    private void replaceIndex(IndexOperations indexOps, String oldName, Index index) {
+        indexOps.ensureIndex(index);
+        boolean oldExists = indexOps.getIndexInfo().stream().anyMatch(info -> oldName.equals(info.getName()));
+        if (oldExists) {
+            indexOps.dropIndex(oldName);
+            log.info("Dropped index {} (superseded)", oldName);
+        }
+    }
+}
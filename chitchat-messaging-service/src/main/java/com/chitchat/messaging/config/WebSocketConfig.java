@@ -17,6 +17,10 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
  * - /ws/messages - Main message broadcasting endpoint
  * - /ws/status - Message status updates (delivered, read)
  * 
+ * Subprotocols (Sec-WebSocket-Protocol):
+ * - chitchat.json - JSON text frames (default when none is requested)
+ * - chitchat.cbor - CBOR binary frames; native endpoint only, SockJS transports are text-only
+ * 
  * Security:
  * - CORS enabled for all origins (development only)
  * - Authentication handled via query parameters or headers
@@ -73,6 +73,26 @@ public class MessagingController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
+    /**
+     * Cursor-paginated conversation history (no offset, no total count)
+     * 
+     * First page: no cursor. Older messages: before={nextCursor}. Newer messages: after={prevCursor}.
+     */
+    @GetMapping("/conversation/{receiverId}/history")
+    public ResponseEntity<ApiResponse<CursorPage<MessageResponse>>> getConversationHistory(
+            @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
+            @RequestHeader(value = "X-User-UID", required = false) String firebaseUidHeader,
+            @RequestHeader(value = "X-User-Phone", required = false) String phoneNumberHeader,
+            @RequestHeader(value = "X-Token-Type", required = false) String tokenType,
+            @PathVariable Long receiverId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        Long senderId = extractUserIdFromHeaders(userIdHeader, firebaseUidHeader, phoneNumberHeader, tokenType);
+        CursorPage<MessageResponse> response = messagingService.getConversationHistory(senderId, receiverId, before, after, limit);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
     @GetMapping("/group/{groupId}")
     public ResponseEntity<ApiResponse<Page<MessageResponse>>> getGroupMessages(
             @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
@@ -85,6 +105,23 @@ public class MessagingController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
+    /**
+     * Cursor-paginated group history (no offset, no total count)
+     */
+    @GetMapping("/group/{groupId}/history")
+    public ResponseEntity<ApiResponse<CursorPage<MessageResponse>>> getGroupHistory(
+            @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
+            @RequestHeader(value = "X-User-UID", required = false) String firebaseUidHeader,
+            @RequestHeader(value = "X-User-Phone", required = false) String phoneNumberHeader,
+            @RequestHeader(value = "X-Token-Type", required = false) String tokenType,
+            @PathVariable String groupId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        CursorPage<MessageResponse> response = messagingService.getGroupHistory(groupId, before, after, limit);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
     @GetMapping("/user")
     public ResponseEntity<ApiResponse<Page<MessageResponse>>> getUserMessages(
             @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
@@ -109,6 +146,25 @@ public class MessagingController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
+    /**
+     * Ranked message search with relevance scores and highlight snippets
+     * 
+     * Pages are zero-based; request page + 1 while hasMore is true.
+     */
+    @GetMapping("/search/hits")
+    public ResponseEntity<ApiResponse<MessageSearchPage>> searchMessageHits(
+            @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
+            @RequestHeader(value = "X-User-UID", required = false) String firebaseUidHeader,
+            @RequestHeader(value = "X-User-Phone", required = false) String phoneNumberHeader,
+            @RequestHeader(value = "X-Token-Type", required = false) String tokenType,
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Long userId = extractUserIdFromHeaders(userIdHeader, firebaseUidHeader, phoneNumberHeader, tokenType);
+        MessageSearchPage response = messagingService.searchMessageHits(query, userId, page, size);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
     @PutMapping("/{messageId}/read")
     public ResponseEntity<ApiResponse<MessageResponse>> markMessageAsRead(
             @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
@@ -121,6 +177,23 @@ public class MessagingController {
         return ResponseEntity.ok(ApiResponse.success(response, "Message marked as read"));
     }
     
+    /**
+     * Mark the conversation of a message as read up to (and including) that message
+     * 
+     * One watermark write regardless of how many messages it covers.
+     */
+    @PutMapping("/{messageId}/read-upto")
+    public ResponseEntity<ApiResponse<ReadWatermarkResponse>> markConversationReadUpTo(
+            @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
+            @RequestHeader(value = "X-User-UID", required = false) String firebaseUidHeader,
+            @RequestHeader(value = "X-User-Phone", required = false) String phoneNumberHeader,
+            @RequestHeader(value = "X-Token-Type", required = false) String tokenType,
+            @PathVariable String messageId) {
+        Long userId = extractUserIdFromHeaders(userIdHeader, firebaseUidHeader, phoneNumberHeader, tokenType);
+        ReadWatermarkResponse response = messagingService.markConversationReadUpTo(userId, messageId);
+        return ResponseEntity.ok(ApiResponse.success(response, "Conversation marked as read"));
+    }
+    
     @DeleteMapping("/{messageId}")
     public ResponseEntity<ApiResponse<Void>> deleteMessage(
             @RequestHeader(value = "X-User-ID", required = false) String userIdHeader,
@@ -0,0 +1,131 @@
+package com.chitchat.messaging.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversation summary document stored in MongoDB (read model)
+ * 
+ * One document per direct chat (user pair) or group, holding a snapshot of the
+ * latest message and each participant's unread count. It is updated in place
+ * whenever a message is sent, read or deleted, so the conversation list is a
+ * single indexed read instead of an aggregation over the user's whole history.
+ * It also holds each participant's read watermark (readMarks).
+ * 
+ * MongoDB Collection: conversations
+ * 
+ * Document ID:
+ * - Direct chats: "{lowerUserId}_{higherUserId}" (see ConversationIds)
+ * - Group chats: the group ID
+ * 
+ * Indexing Strategy:
+ * - Compound (multikey) index on (participantIds, lastMessageAt) for the conversation list
+ * 
+ * The messages collection stays the source of truth; ConversationBackfillRunner
+ * rebuilds this collection from it.
+ */
+@Document(collection = "conversations")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Conversation {
+    
+    /**
+     * Conversation ID (see ConversationIds)
+     */
+    @Id
+    private String id;
+    
+    /**
+     * Conversation type (INDIVIDUAL, GROUP)
+     */
+    private ConversationType type;
+    
+    /**
+     * Group ID for group conversations, null for direct chats
+     */
+    private String groupId;
+    
+    /**
+     * User IDs that see this conversation in their list
+     * 
+     * Direct chats: both users. Groups: current members, kept in sync
+     * when members are added or removed.
+     */
+    private List<Long> participantIds;
+    
+    /**
+     * Snapshot of the latest message in the conversation
+     */
+    private LastMessage lastMessage;
+    
+    /**
+     * Time of the latest message (sort key of the conversation list)
+     */
+    private LocalDateTime lastMessageAt;
+    
+    /**
+     * Unread message count per participant, keyed by user ID
+     * 
+     * Only maintained for direct chats: group messages carry a single status,
+     * not per-member read state. It follows the participant's read watermark:
+     * the partner's messages after it that are not legacy READ are unread.
+     */
+    private Map<String, Long> unreadCounts;
+    
+    /**
+     * "Read up to" watermark per participant, keyed by user ID
+     * 
+     * Everything at or before the watermark message counts as read by that
+     * participant. A read action is one write here instead of a status change
+     * on every message it covers: per-message READ, unread counts, pending
+     * replay and history ticks are all derived from it. Watermarks only move
+     * forward.
+     */
+    private Map<String, ReadMark> readMarks;
+    
+    /**
+     * Denormalized copy of the fields shown in the conversation list
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LastMessage {
+        private String messageId;
+        private Long senderId;
+        private String content;
+        private Message.MessageType type;
+        private Message.MessageStatus status;
+        private LocalDateTime createdAt;
+    }
+    
+    /**
+     * Position a participant has read up to: (messageCreatedAt, messageId) as in MessageCursor
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReadMark {
+        private String messageId;
+        private LocalDateTime messageCreatedAt;
+        private LocalDateTime readAt;
+    }
+    
+    /**
+     * Conversation types, matching ConversationResponse.conversationType
+     */
+    public enum ConversationType {
+        INDIVIDUAL, GROUP
+    }
+}
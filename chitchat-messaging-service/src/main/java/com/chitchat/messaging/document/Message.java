@@ -1,5 +1,6 @@
 package com.chitchat.messaging.document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,6 +9,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -31,8 +33,8 @@ import java.util.List;
  * Indexing Strategy:
  * - Index on senderId for sender's message history
  * - Index on recipientId for recipient's inbox
- * - Index on groupId for group chat messages
- * - Compound index on (recipientId, createdAt) for efficient pagination
+ * - Compound index on (conversationId, createdAt, _id) for conversation and group history
+ * - Compound index on (recipientId, status) for unread counts
  * 
  * Message Types Supported:
  * - TEXT: Plain text messages
@@ -99,6 +101,19 @@ public class Message {
      */
     private String groupId;
     
+    /**
+     * Canonical conversation key (see ConversationIds)
+     * 
+     * - One-on-one: "{lowerUserId}_{higherUserId}", identical for both directions
+     * - Group: the groupId
+     * 
+     * Set on save; older messages are keyed by ConversationKeyMigration.
+     * Used for:
+     * - Conversation and group history with a single equality match
+     *   (idx_conversation_created_id) instead of a senderId/recipientId $or
+     */
+    private String conversationId;
+    
     /**
      * Message content/text
      * 
@@ -256,6 +271,28 @@ public class Message {
      */
     private Boolean isPinned;
     
+    /**
+     * Text search relevance score
+     * 
+     * Only populated on results of a text search (MessageRepositoryCustom.searchMessages);
+     * never written to the collection.
+     */
+    @TextScore
+    private Float score;
+    
+    /**
+     * Kafka events written together with this message and not yet moved to the outbox
+     * 
+     * Staged by OutboxService.stage() before the message write, so the message and
+     * its events are stored by one single-document write. OutboxService.dispatch()
+     * moves them to message_outbox right after; the relay's sweep moves the ones a
+     * crash left behind. Unset on almost every message.
+     * 
+     * Never part of the message's JSON (API responses, Kafka payloads).
+     */
+    @JsonIgnore
+    private List<OutboxEvent> pendingEvents;
+    
     /**
      * Enum defining types of messages supported
      * 
@@ -0,0 +1,79 @@
+package com.chitchat.messaging.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Kafka event waiting to be published (transactional outbox)
+ * 
+ * Written next to the message change it describes, before the request
+ * returns, and deleted by the outbox relay once Kafka acknowledged it. The
+ * collection therefore only holds events not yet published. Events staged on
+ * a message (Message.pendingEvents) are embedded copies of this document that
+ * keep their _id when they are moved here.
+ * 
+ * MongoDB Collection: message_outbox
+ * 
+ * Indexing Strategy:
+ * - nextAttemptAt: the relay's scan for due events (ordered by _id, i.e. append order)
+ * - claimedUntil: keys currently held by a relay
+ * - key + _id: a key's events in append order (per-key ordering across relays)
+ */
+@Document(collection = "message_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    private String id;
+    
+    /**
+     * Kafka topic
+     */
+    private String topic;
+    
+    /**
+     * Kafka record key (null for unkeyed topics)
+     */
+    private String key;
+    
+    /**
+     * Record value, already serialized as JSON (null for binary events)
+     */
+    private String payload;
+    
+    /**
+     * Record value of a binary event (EventCodec), set instead of payload
+     */
+    private byte[] binaryPayload;
+    
+    /**
+     * When the event was appended (lag is measured from here)
+     */
+    private Instant createdAt;
+    
+    /**
+     * Earliest time the relay may (re)try the event
+     */
+    private Instant nextAttemptAt;
+    
+    /**
+     * Failed publish attempts so far
+     */
+    private int attempts;
+    
+    /**
+     * Relay batch currently publishing the event, and until when it holds it
+     */
+    private String claimToken;
+    
+    private Instant claimedUntil;
+}
@@ -77,6 +77,16 @@ public class ConversationResponse {
      */
     private Integer unreadCount;
     
+    /**
+     * Message the other user has read up to (direct chats); own messages up to it are READ
+     */
+    private String partnerReadUpToMessageId;
+    
+    /**
+     * Creation time of the partnerReadUpToMessageId message
+     */
+    private LocalDateTime partnerReadUpToTime;
+    
     /**
      * Whether the other user is currently typing
      */
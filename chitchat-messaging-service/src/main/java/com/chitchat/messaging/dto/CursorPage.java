@@ -0,0 +1,42 @@
+package com.chitchat.messaging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a cursor-paginated slice of history
+ * 
+ * Items are newest first. Pass nextCursor as "before" to load older items and
+ * prevCursor as "after" to load newer ones. There is deliberately no total
+ * count - computing it would cost a count query on every page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    /**
+     * Items in this slice, newest first
+     */
+    private List<T> items;
+    
+    /**
+     * Cursor of the oldest item - request with before=nextCursor for older items (null if empty)
+     */
+    private String nextCursor;
+    
+    /**
+     * Cursor of the newest item - request with after=prevCursor for newer items (null if empty)
+     */
+    private String prevCursor;
+    
+    /**
+     * Whether more items exist beyond this slice in the paging direction
+     */
+    private boolean hasMore;
+}
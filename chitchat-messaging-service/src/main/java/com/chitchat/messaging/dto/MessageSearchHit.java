@@ -0,0 +1,49 @@
+package com.chitchat.messaging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a single ranked message search result
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchHit {
+
+    /**
+     * The matching message
+     */
+    private MessageResponse message;
+
+    /**
+     * MongoDB text relevance score (higher ranks first)
+     */
+    private Float score;
+
+    /**
+     * Excerpt of the content around the first match (whole content if short)
+     */
+    private String snippet;
+
+    /**
+     * Matched term ranges within snippet, in order
+     */
+    private List<Highlight> highlights;
+
+    /**
+     * A matched term: snippet.substring(start, end)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Highlight {
+        private int start;
+        private int end;
+    }
+}
@@ -0,0 +1,37 @@
+package com.chitchat.messaging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one page of ranked message search results
+ *
+ * Hits are ordered by relevance, then newest first. Like CursorPage there is
+ * no total count; hasMore tells the client whether to request page + 1.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchPage {
+
+    private String query;
+
+    private List<MessageSearchHit> hits;
+
+    /**
+     * Zero-based page number
+     */
+    private int page;
+
+    private int size;
+
+    /**
+     * Whether another page of results exists
+     */
+    private boolean hasMore;
+}
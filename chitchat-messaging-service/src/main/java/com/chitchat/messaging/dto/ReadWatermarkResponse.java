@@ -0,0 +1,58 @@
+package com.chitchat.messaging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a participant's "read up to" watermark in a conversation
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadWatermarkResponse {
+    
+    /**
+     * Conversation ID (see ConversationIds)
+     */
+    private String conversationId;
+    
+    /**
+     * Group ID for group conversations, null for direct chats
+     */
+    private String groupId;
+    
+    /**
+     * User who read the conversation
+     */
+    private Long userId;
+    
+    /**
+     * Newest message read; everything at or before it is read
+     */
+    private String messageId;
+    
+    /**
+     * Creation time of the watermark message
+     */
+    private LocalDateTime messageCreatedAt;
+    
+    /**
+     * When the read happened
+     */
+    private LocalDateTime readAt;
+    
+    /**
+     * Messages still unread after the watermark
+     */
+    private long unreadCount;
+    
+    /**
+     * false if the watermark was already at or past this message (nothing changed)
+     */
+    private boolean advanced;
+}
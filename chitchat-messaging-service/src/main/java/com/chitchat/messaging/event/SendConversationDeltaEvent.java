@@ -0,0 +1,22 @@
+package com.chitchat.messaging.event;
+
+import com.chitchat.messaging.dto.MessageResponse;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event for pushing a conversation change (new latest message) via WebSocket
+ * Coalesced per user into a single CONVERSATION_DELTA frame
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper=false)
+public class SendConversationDeltaEvent extends WebSocketEvent {
+    private MessageResponse message;
+    
+    public SendConversationDeltaEvent(Long userId, MessageResponse message) {
+        super(userId, "SEND_CONVERSATION_DELTA");
+        this.message = message;
+    }
+}
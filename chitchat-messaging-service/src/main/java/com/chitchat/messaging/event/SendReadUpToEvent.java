@@ -0,0 +1,36 @@
+package com.chitchat.messaging.event;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Event for sending a READ_UPTO watermark via WebSocket
+ * 
+ * One event per read action: the reader's conversation partner (direct chat)
+ * or the other group members receive a single READ_UPTO frame.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper=false)
+public class SendReadUpToEvent extends WebSocketEvent {
+    private List<Long> recipientIds;
+    private String conversationId;
+    private String groupId;
+    private Long readerId;
+    private String messageId;
+    private long readAt;
+    
+    public SendReadUpToEvent(List<Long> recipientIds, String conversationId, String groupId, Long readerId,
+                             String messageId, long readAt) {
+        super(readerId, "SEND_READ_UPTO");
+        this.recipientIds = recipientIds;
+        this.conversationId = conversationId;
+        this.groupId = groupId;
+        this.readerId = readerId;
+        this.messageId = messageId;
+        this.readAt = readAt;
+    }
+}
@@ -0,0 +1,29 @@
+package com.chitchat.messaging.event;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Event for sending one status update covering many messages of a sender via WebSocket
+ * 
+ * Replaces one SendStatusUpdateEvent per message for bulk transitions
+ * (mark-all-as-read, pending messages delivered on reconnect).
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper=false)
+public class SendStatusBatchUpdateEvent extends WebSocketEvent {
+    private Long senderId;
+    private List<String> messageIds;
+    private String status;
+    
+    public SendStatusBatchUpdateEvent(Long senderId, List<String> messageIds, String status) {
+        super(null, "SEND_STATUS_BATCH_UPDATE");
+        this.senderId = senderId;
+        this.messageIds = messageIds;
+        this.status = status;
+    }
+}
@@ -13,8 +13,16 @@ import lombok.NoArgsConstructor;
 public class SendUnreadCountUpdateEvent extends WebSocketEvent {
     private Long userId;
     
+    // Conversation partner whose unread count changed (null = total only)
+    private Long partnerId;
+    
     public SendUnreadCountUpdateEvent(Long userId) {
+        this(userId, null);
+    }
+    
+    public SendUnreadCountUpdateEvent(Long userId, Long partnerId) {
         super(userId, "SEND_UNREAD_COUNT_UPDATE");
         this.userId = userId;
+        this.partnerId = partnerId;
     }
 }
@@ -29,6 +29,19 @@ public class WebSocketEventListener {
         messageWebSocketHandler.sendStatusUpdateToUser(event.getSenderId(), event.getMessageId(), event.getStatus());
     }
     
+    @EventListener
+    public void handleSendReadUpToEvent(SendReadUpToEvent event) {
+        log.debug("Handling SendReadUpToEvent from user: {} ({} recipients)", event.getReaderId(), event.getRecipientIds().size());
+        messageWebSocketHandler.sendReadUpTo(event.getRecipientIds(), event.getConversationId(), event.getGroupId(),
+                event.getReaderId(), event.getMessageId(), event.getReadAt());
+    }
+    
+    @EventListener
+    public void handleSendStatusBatchUpdateEvent(SendStatusBatchUpdateEvent event) {
+        log.debug("Handling SendStatusBatchUpdateEvent for user: {} ({} messages)", event.getSenderId(), event.getMessageIds().size());
+        messageWebSocketHandler.sendStatusUpdatesToUser(event.getSenderId(), event.getMessageIds(), event.getStatus());
+    }
+    
     @EventListener
     public void handleSendTypingIndicatorEvent(SendTypingIndicatorEvent event) {
         log.debug("Handling SendTypingIndicatorEvent for user: {}", event.getReceiverId());
@@ -45,6 +58,12 @@ public class WebSocketEventListener {
     @EventListener
     public void handleSendUnreadCountUpdateEvent(SendUnreadCountUpdateEvent event) {
         log.debug("Handling SendUnreadCountUpdateEvent for user: {}", event.getUserId());
-        messageWebSocketHandler.sendUnreadCountUpdate(event.getUserId());
+        messageWebSocketHandler.sendUnreadCountUpdate(event.getUserId(), event.getPartnerId());
+    }
+    
+    @EventListener
+    public void handleSendConversationDeltaEvent(SendConversationDeltaEvent event) {
+        log.debug("Handling SendConversationDeltaEvent for user: {}", event.getUserId());
+        messageWebSocketHandler.sendConversationDelta(event.getUserId(), event.getMessage());
     }
 }
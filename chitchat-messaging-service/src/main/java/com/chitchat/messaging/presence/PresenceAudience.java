@@ -0,0 +1,154 @@
+package com.chitchat.messaging.presence;
+
+import com.chitchat.messaging.document.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves who should receive a user's presence (ONLINE/OFFLINE) updates
+ *
+ * The audience of user X is:
+ * - Conversation partners: users X has exchanged direct messages with
+ * - Chat viewers: sessions that currently have X's chat open (VIEW_CHAT frame),
+ *   even if no message has been exchanged yet
+ *
+ * Partners are loaded with two distinct queries on the existing sender/recipient
+ * indexes (rather than materialising every message) and cached per user for
+ * chitchat.presence.partner-cache-seconds. New conversations are added to the
+ * cached sets as messages are delivered, so the cache does not go stale for
+ * active users.
+ *
+ * Viewers are tracked per node; a viewer connected to another node is reached
+ * only if they are also a conversation partner.
+ */
+@Slf4j
+@Component
+public class PresenceAudience {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${chitchat.presence.partner-cache-seconds:300}")
+    private long partnerCacheSeconds;
+
+    private record CachedPartners(Set<Long> partners, long loadedAt) {
+    }
+
+    // userId -> conversation partners
+    private final Map<Long, CachedPartners> partnerCache = new ConcurrentHashMap<>();
+
+    // viewed userId -> (sessionId -> viewer userId)
+    private final Map<Long, Map<String, Long>> viewersByChatUser = new ConcurrentHashMap<>();
+
+    // sessionId -> viewed userId
+    private final Map<String, Long> viewedBySession = new ConcurrentHashMap<>();
+
+    public PresenceAudience(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Users that should receive presence updates for the given user (never includes the user)
+     */
+    public Set<Long> audienceFor(Long userId) {
+        Set<Long> audience = new HashSet<>(partnersOf(userId));
+
+        Map<String, Long> viewers = viewersByChatUser.get(userId);
+        if (viewers != null) {
+            audience.addAll(viewers.values());
+        }
+
+        audience.remove(userId);
+        return audience;
+    }
+
+    /**
+     * Record a direct message exchange so both users' cached partner sets include each other
+     */
+    public void recordConversation(Long userId, Long partnerId) {
+        if (userId == null || partnerId == null || userId.equals(partnerId)) {
+            return;
+        }
+        addCachedPartner(userId, partnerId);
+        addCachedPartner(partnerId, userId);
+    }
+
+    /**
+     * Mark a session as viewing a user's chat; null clears the session's current view
+     */
+    public void setViewing(String sessionId, Long viewerId, Long chatUserId) {
+        clearViewing(sessionId);
+        if (viewerId == null || chatUserId == null) {
+            return;
+        }
+        viewedBySession.put(sessionId, chatUserId);
+        viewersByChatUser.computeIfAbsent(chatUserId, id -> new ConcurrentHashMap<>()).put(sessionId, viewerId);
+    }
+
+    /**
+     * Forget whatever chat the session was viewing (called on disconnect)
+     */
+    public void clearViewing(String sessionId) {
+        Long previous = viewedBySession.remove(sessionId);
+        if (previous != null) {
+            viewersByChatUser.computeIfPresent(previous, (id, viewers) -> {
+                viewers.remove(sessionId);
+                return viewers.isEmpty() ? null : viewers;
+            });
+        }
+    }
+
+    /**
+     * Drop expired partner sets so the cache only holds recently active users
+     */
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(partnerCacheSeconds);
+        partnerCache.values().removeIf(cached -> cached.loadedAt() < cutoff);
+    }
+
+    private Set<Long> partnersOf(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedPartners cached = partnerCache.get(userId);
+        if (cached != null && now - cached.loadedAt() < TimeUnit.SECONDS.toMillis(partnerCacheSeconds)) {
+            return cached.partners();
+        }
+
+        try {
+            Set<Long> loaded = new HashSet<>();
+            loaded.addAll(mongoTemplate.findDistinct(
+                    Query.query(Criteria.where("senderId").is(userId)), "recipientId", Message.class, Long.class));
+            loaded.addAll(mongoTemplate.findDistinct(
+                    Query.query(Criteria.where("recipientId").is(userId)), "senderId", Message.class, Long.class));
+            // Group messages have no recipientId
+            loaded.removeIf(Objects::isNull);
+
+            // Concurrent set: recordConversation() may add to it while it is being read
+            Set<Long> partners = ConcurrentHashMap.newKeySet(loaded.size());
+            partners.addAll(loaded);
+
+            partnerCache.put(userId, new CachedPartners(partners, now));
+            log.debug("Loaded {} conversation partners for presence of user {}", partners.size(), userId);
+            return partners;
+        } catch (Exception e) {
+            log.warn("Failed to load conversation partners for user {}: {}", userId, e.getMessage());
+            return cached != null ? cached.partners() : Set.of();
+        }
+    }
+
+    private void addCachedPartner(Long userId, Long partnerId) {
+        CachedPartners cached = partnerCache.get(userId);
+        if (cached != null) {
+            cached.partners().add(partnerId);
+        }
+    }
+}
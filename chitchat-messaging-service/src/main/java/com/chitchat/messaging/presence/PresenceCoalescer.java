@@ -0,0 +1,99 @@
+package com.chitchat.messaging.presence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces rapid presence changes per user into a single published update
+ *
+ * The first change for a user opens a window of windowMillis. Later changes
+ * inside the window only replace the pending status. When the window closes,
+ * the latest status is published - unless it equals the last status published
+ * for that user, in which case nothing is sent at all. A reconnect storm where
+ * a client drops and comes back within the window therefore costs zero frames.
+ *
+ * Users with no published status are treated as OFFLINE.
+ */
+@Slf4j
+public class PresenceCoalescer {
+
+    private static final String OFFLINE = "OFFLINE";
+
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final BiConsumer<Long, String> publisher;
+
+    // userId -> status waiting for its window to close
+    private final Map<Long, String> pending = new ConcurrentHashMap<>();
+
+    // userId -> last status sent; OFFLINE entries are removed to keep the map small
+    private final Map<Long, String> lastPublished = new ConcurrentHashMap<>();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public PresenceCoalescer(ScheduledExecutorService scheduler, long windowMillis, BiConsumer<Long, String> publisher) {
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Record a presence change; publication happens when the user's window closes
+     */
+    public void submit(Long userId, String status) {
+        if (windowMillis <= 0) {
+            publishIfChanged(userId, status);
+            return;
+        }
+
+        // Only the change that opens the window schedules a flush
+        if (pending.put(userId, status) == null) {
+            try {
+                scheduler.schedule(() -> flush(userId), windowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                pending.remove(userId);
+                log.debug("Presence scheduler rejected flush for user {}: {}", userId, e.getMessage());
+            }
+        } else {
+            suppressed.incrementAndGet();
+        }
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    private void flush(Long userId) {
+        String status = pending.remove(userId);
+        if (status != null) {
+            publishIfChanged(userId, status);
+        }
+    }
+
+    private void publishIfChanged(Long userId, String status) {
+        String previous = OFFLINE.equals(status) ? lastPublished.remove(userId) : lastPublished.put(userId, status);
+        if (status.equals(previous != null ? previous : OFFLINE)) {
+            suppressed.incrementAndGet();
+            return;
+        }
+
+        published.incrementAndGet();
+        try {
+            publisher.accept(userId, status);
+        } catch (Exception e) {
+            log.warn("Failed to publish presence {} for user {}: {}", status, userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.chitchat.messaging.presence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-side typing state per (sender, conversation) with start/stop debouncing
+ *
+ * Clients send TYPING frames on keystrokes; forwarding each one made typing the
+ * largest frame volume in busy chats. The tracker turns a burst of them into at
+ * most one start and one stop for the recipient:
+ * - The first "typing" publishes a start; further "typing" frames only refresh the state
+ * - A "stopped" frame is held for stopDebounceMillis; typing again within that
+ *   window cancels it, so pauses between words never reach the recipient
+ * - With no frame for expiryMillis the state expires and a stop is published,
+ *   so a client that disconnects mid-burst never leaves an indicator stuck on
+ *
+ * The conversation is identified by the recipient of a direct chat.
+ */
+@Slf4j
+public class TypingIndicatorTracker {
+
+    /**
+     * Receives the typing transitions that should reach the recipient
+     */
+    @FunctionalInterface
+    public interface Publisher {
+        void publish(Long senderId, Long recipientId, String senderName, boolean isTyping);
+    }
+
+    private record TypingKey(Long senderId, Long recipientId) {
+    }
+
+    private static final class TypingState {
+        private final String senderName;
+        private ScheduledFuture<?> timer;
+        // Bumped on every reschedule so a timer that already started running cannot end a refreshed state
+        private long generation;
+        private boolean stopPending;
+
+        private TypingState(String senderName) {
+            this.senderName = senderName;
+        }
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long stopDebounceMillis;
+    private final long expiryMillis;
+    private final Publisher publisher;
+
+    // (sender, recipient) -> active typing state; absent means "not typing"
+    private final Map<TypingKey, TypingState> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public TypingIndicatorTracker(ScheduledExecutorService scheduler, long stopDebounceMillis, long expiryMillis,
+                                  Publisher publisher) {
+        this.scheduler = scheduler;
+        this.stopDebounceMillis = stopDebounceMillis;
+        this.expiryMillis = expiryMillis;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Record a typing frame from the sender
+     *
+     * @return true if the frame changed the typing state, false if it was absorbed by the debouncer
+     */
+    public boolean onTyping(Long senderId, Long recipientId, String senderName, boolean isTyping) {
+        received.incrementAndGet();
+        TypingKey key = new TypingKey(senderId, recipientId);
+        boolean[] changed = new boolean[1];
+
+        TypingState state = states.compute(key, (k, current) -> {
+            if (isTyping) {
+                if (current == null) {
+                    changed[0] = true;
+                    current = new TypingState(senderName);
+                } else {
+                    // Repeated start, and any stop it cancels, never reach the recipient
+                    suppressed.addAndGet(current.stopPending ? 2 : 1);
+                    current.stopPending = false;
+                    cancelTimer(current);
+                }
+                current.timer = schedule(k, current, expiryMillis);
+                return current;
+            }
+
+            if (current == null || current.stopPending) {
+                suppressed.incrementAndGet();
+                return current;
+            }
+            changed[0] = true;
+            cancelTimer(current);
+            current.stopPending = true;
+            current.timer = schedule(k, current, stopDebounceMillis);
+            return current;
+        });
+
+        // Starts go out immediately; stops are published when their timer fires
+        if (isTyping && changed[0]) {
+            publish(key, state.senderName, true);
+        }
+        return changed[0];
+    }
+
+    /**
+     * End the sender's typing state right away (e.g. the message was sent)
+     */
+    public void stopNow(Long senderId, Long recipientId) {
+        TypingKey key = new TypingKey(senderId, recipientId);
+        TypingState state = states.remove(key);
+        if (state != null) {
+            cancelTimer(state);
+            publish(key, state.senderName, false);
+        }
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    public long getForwardedCount() {
+        return forwarded.get();
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    public int getActiveCount() {
+        return states.size();
+    }
+
+    private ScheduledFuture<?> schedule(TypingKey key, TypingState state, long delayMillis) {
+        long generation = ++state.generation;
+        try {
+            return scheduler.schedule(() -> expire(key, generation), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Typing scheduler rejected timer for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void expire(TypingKey key, long generation) {
+        TypingState[] ended = new TypingState[1];
+        // Only the latest timer scheduled for the state may end it
+        states.computeIfPresent(key, (k, current) -> {
+            if (current.generation != generation) {
+                return current;
+            }
+            ended[0] = current;
+            return null;
+        });
+        if (ended[0] != null) {
+            publish(key, ended[0].senderName, false);
+        }
+    }
+
+    private void publish(TypingKey key, String senderName, boolean isTyping) {
+        forwarded.incrementAndGet();
+        try {
+            publisher.publish(key.senderId(), key.recipientId(), senderName, isTyping);
+        } catch (Exception e) {
+            log.warn("Failed to publish typing {} from user {} to user {}: {}",
+                    isTyping, key.senderId(), key.recipientId(), e.getMessage());
+        }
+    }
+
+    private static void cancelTimer(TypingState state) {
+        if (state.timer != null) {
+            state.timer.cancel(false);
+            state.timer = null;
+        }
+    }
+}
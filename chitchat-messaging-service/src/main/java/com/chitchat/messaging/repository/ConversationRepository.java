@@ -0,0 +1,28 @@
+package com.chitchat.messaging.repository;
+
+import com.chitchat.messaging.document.Conversation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for the Conversation read model
+ * 
+ * Reads only - all writes are atomic partial updates in ConversationSummaryServiceImpl.
+ */
+@Repository
+public interface ConversationRepository extends MongoRepository<Conversation, String> {
+    
+    /**
+     * Finds a user's conversations, most recent first
+     * 
+     * Served by the (participantIds, lastMessageAt) index as a single range read.
+     * 
+     * @param userId User ID
+     * @return Conversations the user participates in, ordered by latest message
+     */
+    @Query(value = "{ participantIds: ?0, lastMessageAt: { $ne: null } }", sort = "{ lastMessageAt: -1 }")
+    List<Conversation> findByParticipantOrderByLastMessageAtDesc(Long userId);
+}
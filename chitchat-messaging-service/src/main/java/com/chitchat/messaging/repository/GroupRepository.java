@@ -31,4 +31,16 @@ public interface GroupRepository extends MongoRepository<Group, String> {
     
     @Query("{ 'members.userId': ?0, 'members.role': { $in: ['ADMIN', 'MODERATOR'] } }")
     List<Group> findGroupsWhereUserIsAdminOrModerator(Long userId);
+    
+    /**
+     * IDs of a user's groups (projection: only _id is loaded)
+     */
+    @Query(value = "{ 'members.userId': ?0 }", fields = "{ '_id': 1 }")
+    List<Group> findIdsByUserId(Long userId);
+    
+    /**
+     * Name and member IDs/roles of a group (projection for the membership cache)
+     */
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'name': 1, 'members.userId': 1, 'members.role': 1 }")
+    Optional<Group> findMembershipById(String groupId);
 }
@@ -1,8 +1,6 @@
 package com.chitchat.messaging.repository;
 
 import com.chitchat.messaging.document.Message;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
@@ -23,92 +21,22 @@ import java.util.List;
  * Custom Query Methods:
  * - Conversation message retrieval (bi-directional)
  * - Group message queries
- * - Message search (full-text)
+ * - Message search (text index, in MessageRepositoryCustom)
  * - Delivery status tracking
  * - Unread message counts
  * 
  * Database: MongoDB
  * Collection: messages
  * 
+ * Conversation, group and user history queries (paged and keyset) live in
+ * MessageRepositoryCustom, keyed by the canonical conversationId.
+ * 
  * Query Syntax: MongoDB JSON query format
- * - Uses MongoDB operators: $or, $in, $regex, $lt, $gte, $ne
- * - Efficient with proper indexes on senderId, recipientId, groupId
+ * - Uses MongoDB operators: $or, $in, $lt, $gte, $ne
+ * - Efficient with proper indexes on conversationId, senderId, recipientId
  */
 @Repository
-public interface MessageRepository extends MongoRepository<Message, String> {
-    
-    /**
-     * Finds conversation messages between two users (bi-directional)
-     * 
-     * Returns all messages where:
-     * - user1 sent to user2 OR
-     * - user2 sent to user1
-     * 
-     * This gives complete conversation history regardless of who sent what.
-     * 
-     * MongoDB Query Explained:
-     * { $or: [
-     *   { senderId: userId1, recipientId: userId2 },
-     *   { senderId: userId2, recipientId: userId1 }
-     * ]}
-     * 
-     * @param userId1 First user ID
-     * @param userId2 Second user ID
-     * @param pageable Pagination with sorting (typically by createdAt DESC)
-     * @return Page of messages in the conversation
-     */
-    @Query("{ $or: [ { senderId: ?0, recipientId: ?1 }, { senderId: ?1, recipientId: ?0 } ] }")
-    Page<Message> findConversationMessages(Long userId1, Long userId2, Pageable pageable);
-    
-    /**
-     * Finds all messages in a specific group
-     * 
-     * Simple query filtering by groupId.
-     * Used for group chat message history.
-     * 
-     * @param groupId MongoDB ObjectId of the group
-     * @param pageable Pagination parameters
-     * @return Page of group messages
-     */
-    @Query("{ groupId: ?0 }")
-    Page<Message> findGroupMessages(String groupId, Pageable pageable);
-    
-    /**
-     * Finds all messages for a user (sent, received, and group messages)
-     * 
-     * Returns messages where user is:
-     * - Sender (senderId matches)
-     * - Recipient (recipientId matches)
-     * - Group member (groupId in user's groups)
-     * 
-     * Used for complete user message history.
-     * 
-     * @param userId User's ID
-     * @param groupIds List of group IDs user is member of
-     * @param pageable Pagination parameters
-     * @return Page of all user's messages
-     */
-    @Query("{ $or: [ { senderId: ?0 }, { recipientId: ?0 }, { groupId: { $in: ?1 } } ] }")
-    Page<Message> findUserMessages(Long userId, List<String> groupIds, Pageable pageable);
-    
-    /**
-     * Searches messages by content (full-text search)
-     * 
-     * MongoDB Query Features:
-     * - $regex: Regular expression pattern matching
-     * - $options: 'i' for case-insensitive search
-     * - Only searches user's own messages (privacy)
-     * 
-     * Example: query="hello" matches "Hello", "HELLO world", "say hello"
-     * 
-     * Note: For production, use MongoDB text indexes for better performance.
-     * 
-     * @param query Search term
-     * @param userId User performing the search (privacy filter)
-     * @return List of matching messages
-     */
-    @Query("{ content: { $regex: ?0, $options: 'i' }, $or: [ { senderId: ?1 }, { recipientId: ?1 } ] }")
-    List<Message> searchMessages(String query, Long userId);
+public interface MessageRepository extends MongoRepository<Message, String>, MessageRepositoryCustom {
     
     /**
      * Finds messages that were sent but not delivered
@@ -156,23 +84,6 @@ public interface MessageRepository extends MongoRepository<Message, String> {
     @Query("{ recipientId: ?0, status: { $in: ['SENT', 'DELIVERED'] } }")
     List<Message> findDeliveredMessagesForRecipient(Long recipientId);
     
-    /**
-     * Finds recent messages in a group since a specific time
-     * 
-     * Used for:
-     * - Loading recent activity when user opens group
-     * - Catching up on missed messages
-     * - Real-time message updates
-     * 
-     * $gte: Greater than or equal to (includes boundary)
-     * 
-     * @param groupId Group identifier
-     * @param since Timestamp to get messages after
-     * @return List of messages since the specified time
-     */
-    @Query("{ groupId: ?0, createdAt: { $gte: ?1 } }")
-    List<Message> findRecentGroupMessages(String groupId, LocalDateTime since);
-    
     /**
      * Finds all unique conversation partners for a user
      * 
@@ -216,59 +127,6 @@ public interface MessageRepository extends MongoRepository<Message, String> {
     })
     List<Message> findLatestMessagesForConversations(Long userId);
     
-    /**
-     * Counts unread messages for each conversation partner
-     * 
-     * Returns unread message count for each user the given user has conversations with.
-     * Used for showing unread badges in conversation list.
-     * 
-     * MongoDB Aggregation Pipeline:
-     * 1. Match messages where user is recipient and status is SENT or DELIVERED (unread)
-     * 2. Group by sender ID to count unread messages per sender
-     * 
-     * Note: Both SENT and DELIVERED count as unread (not READ yet)
-     * 
-     * @param userId User ID to count unread messages for
-     * @return List of unread counts per conversation partner
-     */
-    @Aggregation(pipeline = {
-        "{ $match: { recipientId: ?0, status: { $in: ['SENT', 'DELIVERED'] } } }",
-        "{ $group: { _id: '$senderId', unreadCount: { $sum: 1 } } }"
-    })
-    List<UnreadCountResult> findUnreadCountsBySender(Long userId);
-    
-    /**
-     * Counts total unread messages for a user (messages sent TO the user)
-     * 
-     * Returns total count of unread messages where the user is the recipient.
-     * Used for showing total unread count badge in the app header.
-     * 
-     * MongoDB Query:
-     * - recipientId: User ID (messages sent TO this user)
-     * - status: SENT or DELIVERED (messages that are not read yet)
-     * 
-     * Note: Both SENT and DELIVERED count as unread (not READ yet)
-     * 
-     * @param userId User ID to count total unread messages for
-     * @return Total count of unread messages
-     */
-    @Query(value = "{ recipientId: ?0, status: { $in: ['SENT', 'DELIVERED'] } }", count = true)
-    long countTotalUnreadMessages(Long userId);
-    
-    /**
-     * Finds pinned messages in a one-on-one conversation
-     * 
-     * Used for:
-     * - Finding existing pinned messages to unpin before pinning a new one
-     * - Ensuring only one message per conversation can be pinned
-     * 
-     * @param senderId First user ID in the conversation
-     * @param recipientId Second user ID in the conversation
-     * @return List of pinned messages in the conversation
-     */
-    @Query("{ $or: [ { senderId: ?0, recipientId: ?1 }, { senderId: ?1, recipientId: ?0 } ], isPinned: true }")
-    List<Message> findBySenderIdAndRecipientIdAndIsPinnedTrue(Long senderId, Long recipientId);
-    
     /**
      * Finds pinned messages in a group conversation
      * 
@@ -294,51 +152,5 @@ public interface MessageRepository extends MongoRepository<Message, String> {
      */
     @Query("{ _id: { $in: ?0 } }")
     List<Message> findByIdIn(List<String> messageIds);
-    
-    /**
-     * Bulk update message status
-     * 
-     * Updates status for multiple messages to READ in a single operation.
-     * Used when marking all messages in a conversation as read.
-     * 
-     * @param recipientId User ID marking messages as read
-     * @param senderId User ID who sent the messages
-     * @return Number of messages updated
-     */
-    @Query(value = "{ recipientId: ?0, senderId: ?1, status: { $in: ['SENT', 'DELIVERED'] } }", delete = false, count = false)
-    List<Message> findUnreadMessagesFromSender(Long recipientId, Long senderId);
-    
-    /**
-     * Finds all messages in SENT status for a specific recipient
-     * 
-     * Used when user comes online to deliver pending messages.
-     * Returns only messages in SENT status (not DELIVERED or READ).
-     * These are messages that were sent while the user was offline.
-     * 
-     * @param recipientId User ID to find pending messages for
-     * @return List of messages in SENT status
-     */
-    @Query("{ recipientId: ?0, status: 'SENT' }")
-    List<Message> findPendingMessagesForRecipient(Long recipientId);
-    
-    /**
-     * Result class for unread count aggregation
-     */
-    class UnreadCountResult {
-        private Long senderId;
-        private Long unreadCount;
-        
-        public UnreadCountResult() {}
-        
-        public UnreadCountResult(Long senderId, Long unreadCount) {
-            this.senderId = senderId;
-            this.unreadCount = unreadCount;
-        }
-        
-        public Long getSenderId() { return senderId; }
-        public void setSenderId(Long senderId) { this.senderId = senderId; }
-        
-        public Long getUnreadCount() { return unreadCount; }
-        public void setUnreadCount(Long unreadCount) { this.unreadCount = unreadCount; }
-    }
+
 }
@@ -0,0 +1,188 @@
+package com.chitchat.messaging.repository;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.util.MessageCursor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Custom MessageRepository queries that cannot be expressed as annotated methods
+ *
+ * Conversation queries are keyed by Message.conversationId (see ConversationIds):
+ * a direct chat is a single equality on "{lowerUserId}_{higherUserId}" instead of
+ * a two-branch $or over senderId/recipientId, so every conversation read is one
+ * range scan of idx_conversation_created_id. Until ConversationKeyMigration has
+ * keyed every existing message, the same methods fall back to the legacy
+ * senderId/recipientId and groupId queries.
+ *
+ * Keyset (cursor) pagination of message history:
+ * - No skip: a page deep in the history costs the same as the first page
+ * - No count query per page
+ * - Stable under concurrent inserts (new messages never shift older pages)
+ *
+ * Every slice method returns messages newest first, at most limit of them.
+ * before and after are exclusive bounds; when both are null the newest messages are returned.
+ */
+public interface MessageRepositoryCustom {
+
+    /**
+     * Finds conversation messages between two users (bi-directional)
+     *
+     * Returns every message either user sent to the other, regardless of direction.
+     *
+     * @param userId1 First user ID
+     * @param userId2 Second user ID
+     * @param pageable Pagination with sorting (typically by createdAt DESC)
+     * @return Page of messages in the conversation
+     */
+    Page<Message> findConversationMessages(Long userId1, Long userId2, Pageable pageable);
+
+    /**
+     * Finds all messages in a specific group
+     *
+     * Used for group chat message history.
+     *
+     * @param groupId MongoDB ObjectId of the group
+     * @param pageable Pagination parameters
+     * @return Page of group messages
+     */
+    Page<Message> findGroupMessages(String groupId, Pageable pageable);
+
+    /**
+     * Finds all messages for a user (sent, received, and group messages)
+     *
+     * @param userId User's ID
+     * @param groupIds List of group IDs user is member of
+     * @param pageable Pagination parameters
+     * @return Page of all user's messages
+     */
+    Page<Message> findUserMessages(Long userId, List<String> groupIds, Pageable pageable);
+
+    /**
+     * Finds recent messages in a group since a specific time (inclusive)
+     *
+     * @param groupId Group identifier
+     * @param since Timestamp to get messages after
+     * @return List of messages since the specified time
+     */
+    List<Message> findRecentGroupMessages(String groupId, LocalDateTime since);
+
+    /**
+     * Finds pinned messages in a one-on-one conversation
+     *
+     * Used to unpin the existing pinned message before pinning a new one,
+     * so only one message per conversation is pinned.
+     *
+     * @param userId1 First user ID in the conversation
+     * @param userId2 Second user ID in the conversation
+     * @return List of pinned messages in the conversation
+     */
+    List<Message> findPinnedConversationMessages(Long userId1, Long userId2);
+
+    /**
+     * Counts a sender's messages to a recipient that are after the recipient's read watermark
+     *
+     * The unread count of a direct chat. Messages marked READ before reads
+     * became watermarks still count as read.
+     *
+     * @param recipientId User who received the messages
+     * @param senderId Conversation partner who sent them
+     * @param after Recipient's watermark position (exclusive; null = no watermark yet)
+     * @return Number of unread messages from senderId
+     */
+    long countUnreadFromSender(Long recipientId, Long senderId, MessageCursor after);
+
+    /**
+     * Finds the newest message a sender sent to a recipient
+     *
+     * @param recipientId User who received the message
+     * @param senderId Conversation partner who sent it
+     * @return The newest message, or null if there is none
+     */
+    Message findLatestMessageFromSender(Long recipientId, Long senderId);
+
+    /**
+     * Finds a batch of a recipient's pending (SENT) messages after a position, oldest first
+     *
+     * Keyset pagination over idx_recipient_status_created_id, used to replay an
+     * offline backlog in bounded batches. Includes messages the recipient has
+     * already read through a watermark (reading does not change their status).
+     *
+     * @param recipientId Recipient user ID
+     * @param after Position of the last message already replayed (null = from the oldest)
+     * @param limit Maximum number of messages
+     * @return Pending messages, oldest first
+     */
+    List<Message> findPendingSlice(Long recipientId, MessageCursor after, int limit);
+
+    /**
+     * Server-side status transition for many messages at once (updateMany)
+     *
+     * Only messages still in one of expectedStatuses change, so concurrent
+     * transitions never move a message backwards (e.g. READ to DELIVERED).
+     * Sets deliveredAt or readAt for DELIVERED and READ. IDs are sent in
+     * chunks to keep each update's filter small.
+     *
+     * @param messageIds Messages to update
+     * @param expectedStatuses Statuses a message must currently have to be updated
+     * @param status New status
+     * @param at Transition timestamp
+     * @return Number of messages actually modified
+     */
+    long updateStatus(Collection<String> messageIds, Collection<Message.MessageStatus> expectedStatuses,
+                      Message.MessageStatus status, LocalDateTime at);
+
+    /**
+     * Counts a group's messages after a position that were not sent by the reader
+     *
+     * @param groupId Group ID
+     * @param readerId Reader (their own messages are never unread)
+     * @param after Watermark position (exclusive)
+     * @return Number of newer messages from other members
+     */
+    long countGroupMessagesAfter(String groupId, Long readerId, MessageCursor after);
+
+    /**
+     * Full-text search of the messages a user can see, ranked by relevance
+     *
+     * Uses the idx_content_text text index (stemming, stop words, phrases in
+     * quotes, "-word" to exclude) instead of an unanchored regex. Scope: messages
+     * the user sent or received plus messages of the given groups. Each returned
+     * message carries its text score in Message.score.
+     *
+     * @param text Search text (MongoDB $text syntax)
+     * @param userId User performing the search
+     * @param groupIds Groups the user is a member of
+     * @param offset Number of ranked results to skip
+     * @param limit Maximum number of results
+     * @return Matching messages, best match first, then newest first
+     */
+    List<Message> searchMessages(String text, Long userId, List<String> groupIds, int offset, int limit);
+
+    /**
+     * Finds a slice of the conversation between two users (bi-directional)
+     *
+     * @param userId1 First user ID
+     * @param userId2 Second user ID
+     * @param before Return messages older than this position (null = no upper bound)
+     * @param after Return messages newer than this position (null = no lower bound)
+     * @param limit Maximum number of messages
+     * @return Messages newest first
+     */
+    List<Message> findConversationSlice(Long userId1, Long userId2, MessageCursor before, MessageCursor after, int limit);
+
+    /**
+     * Finds a slice of a group's messages
+     *
+     * @param groupId Group ID
+     * @param before Return messages older than this position (null = no upper bound)
+     * @param after Return messages newer than this position (null = no lower bound)
+     * @param limit Maximum number of messages
+     * @return Messages newest first
+     */
+    List<Message> findGroupSlice(String groupId, MessageCursor before, MessageCursor after, int limit);
+}
@@ -0,0 +1,228 @@
+package com.chitchat.messaging.repository;
+
+import com.chitchat.messaging.config.ConversationKeyMigration;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.util.ConversationIds;
+import com.chitchat.messaging.util.MessageCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MongoTemplate implementation of MessageRepositoryCustom
+ *
+ * Keyset predicate for "older than (c, id)":
+ *   createdAt <= c AND NOT (createdAt == c AND _id >= id)
+ *
+ * The createdAt range is placed next to the conversationId equality so it
+ * becomes an index bound of idx_conversation_created_id; the $nor only filters
+ * the few messages that share the cursor's millisecond. Results are sorted on
+ * (createdAt, _id), which the index provides, so MongoDB reads exactly limit
+ * index entries per page.
+ */
+@RequiredArgsConstructor
+public class MessageRepositoryCustomImpl implements MessageRepositoryCustom {
+
+    // Message IDs per updateMany in updateStatus
+    private static final int STATUS_UPDATE_CHUNK_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ConversationKeyMigration conversationKeyMigration;
+
+    @Override
+    public Page<Message> findConversationMessages(Long userId1, Long userId2, Pageable pageable) {
+        return findPage(directConversation(userId1, userId2, null, null), pageable);
+    }
+
+    @Override
+    public Page<Message> findGroupMessages(String groupId, Pageable pageable) {
+        return findPage(groupConversation(groupId), pageable);
+    }
+
+    @Override
+    public Page<Message> findUserMessages(Long userId, List<String> groupIds, Pageable pageable) {
+        return findPage(userScope(userId, groupIds), pageable);
+    }
+
+    @Override
+    public List<Message> findRecentGroupMessages(String groupId, LocalDateTime since) {
+        return mongoTemplate.find(Query.query(groupConversation(groupId).and("createdAt").gte(since)), Message.class);
+    }
+
+    @Override
+    public List<Message> findPinnedConversationMessages(Long userId1, Long userId2) {
+        Criteria criteria = directConversation(userId1, userId2, null, null);
+        return mongoTemplate.find(Query.query(new Criteria().andOperator(criteria, Criteria.where("isPinned").is(true))),
+                Message.class);
+    }
+
+    @Override
+    public long countUnreadFromSender(Long recipientId, Long senderId, MessageCursor after) {
+        // Bounded by the watermark on idx_conversation_created_id: cost follows the unread messages, not the history
+        Criteria criteria = directConversation(recipientId, senderId, null, after)
+                .and("senderId").is(senderId)
+                .and("status").in(Message.MessageStatus.SENT, Message.MessageStatus.DELIVERED);
+        return mongoTemplate.count(Query.query(withTieBreak(criteria, null, after)), Message.class);
+    }
+
+    @Override
+    public Message findLatestMessageFromSender(Long recipientId, Long senderId) {
+        Query query = Query.query(directConversation(recipientId, senderId, null, null).and("senderId").is(senderId))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(1);
+        return mongoTemplate.findOne(query, Message.class);
+    }
+
+    @Override
+    public List<Message> findPendingSlice(Long recipientId, MessageCursor after, int limit) {
+        Criteria criteria = withRange(Criteria.where("recipientId").is(recipientId)
+                .and("status").is(Message.MessageStatus.SENT), null, after);
+        Query query = Query.query(withTieBreak(criteria, null, after))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt").and(Sort.by(Sort.Direction.ASC, "_id")))
+                .limit(limit);
+        return mongoTemplate.find(query, Message.class);
+    }
+
+    @Override
+    public long updateStatus(Collection<String> messageIds, Collection<Message.MessageStatus> expectedStatuses,
+                             Message.MessageStatus status, LocalDateTime at) {
+        Update update = Update.update("status", status).set("updatedAt", at);
+        if (status == Message.MessageStatus.DELIVERED) {
+            update.set("deliveredAt", at);
+        } else if (status == Message.MessageStatus.READ) {
+            update.set("readAt", at);
+        }
+
+        List<String> ids = new ArrayList<>(messageIds);
+        long modified = 0;
+        for (int from = 0; from < ids.size(); from += STATUS_UPDATE_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + STATUS_UPDATE_CHUNK_SIZE));
+            Query query = Query.query(Criteria.where("_id").in(chunk).and("status").in(expectedStatuses));
+            modified += mongoTemplate.updateMulti(query, update, Message.class).getModifiedCount();
+        }
+        return modified;
+    }
+
+    @Override
+    public long countGroupMessagesAfter(String groupId, Long readerId, MessageCursor after) {
+        Criteria criteria = withRange(groupConversation(groupId), null, after).and("senderId").ne(readerId);
+        return mongoTemplate.count(Query.query(withTieBreak(criteria, null, after)), Message.class);
+    }
+
+    @Override
+    public List<Message> searchMessages(String text, Long userId, List<String> groupIds, int offset, int limit) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .addCriteria(userScope(userId, groupIds))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .skip(offset)
+                .limit(limit);
+        return mongoTemplate.find(query, Message.class);
+    }
+
+    @Override
+    public List<Message> findConversationSlice(Long userId1, Long userId2, MessageCursor before, MessageCursor after, int limit) {
+        return findSlice(withTieBreak(directConversation(userId1, userId2, before, after), before, after), before, after, limit);
+    }
+
+    @Override
+    public List<Message> findGroupSlice(String groupId, MessageCursor before, MessageCursor after, int limit) {
+        Criteria criteria = withRange(groupConversation(groupId), before, after);
+        return findSlice(withTieBreak(criteria, before, after), before, after, limit);
+    }
+
+    /**
+     * Direct chat between two users, with the optional keyset range on createdAt
+     *
+     * Before the migration completes each $or branch carries its own range so
+     * both legacy direction indexes still get bounded scans.
+     */
+    private Criteria directConversation(Long userId1, Long userId2, MessageCursor before, MessageCursor after) {
+        if (conversationKeyMigration.isComplete()) {
+            return withRange(Criteria.where("conversationId").is(ConversationIds.direct(userId1, userId2)), before, after);
+        }
+        return new Criteria().orOperator(
+                withRange(Criteria.where("senderId").is(userId1).and("recipientId").is(userId2), before, after),
+                withRange(Criteria.where("senderId").is(userId2).and("recipientId").is(userId1), before, after));
+    }
+
+    private Criteria groupConversation(String groupId) {
+        return conversationKeyMigration.isComplete()
+                ? Criteria.where("conversationId").is(ConversationIds.group(groupId))
+                : Criteria.where("groupId").is(groupId);
+    }
+
+    /**
+     * Messages a user can see: sent, received, or in one of their groups
+     */
+    private Criteria userScope(Long userId, List<String> groupIds) {
+        String groupField = conversationKeyMigration.isComplete() ? "conversationId" : "groupId";
+        return new Criteria().orOperator(
+                Criteria.where("senderId").is(userId),
+                Criteria.where("recipientId").is(userId),
+                Criteria.where(groupField).in(groupIds));
+    }
+
+    private Page<Message> findPage(Criteria criteria, Pageable pageable) {
+        Query query = Query.query(criteria).with(pageable);
+        List<Message> messages = mongoTemplate.find(query, Message.class);
+        return PageableExecutionUtils.getPage(messages, pageable,
+                () -> mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Message.class));
+    }
+
+    private List<Message> findSlice(Criteria criteria, MessageCursor before, MessageCursor after, int limit) {
+        // Paging forward from "after" only: scan upwards from the cursor, then flip to newest first
+        boolean ascending = after != null && before == null;
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(direction, "createdAt").and(Sort.by(direction, "_id")))
+                .limit(limit);
+
+        List<Message> messages = mongoTemplate.find(query, Message.class);
+        if (ascending) {
+            messages = new ArrayList<>(messages);
+            Collections.reverse(messages);
+        }
+        return messages;
+    }
+
+    private static Criteria withRange(Criteria criteria, MessageCursor before, MessageCursor after) {
+        if (before == null && after == null) {
+            return criteria;
+        }
+        Criteria createdAt = criteria.and("createdAt");
+        if (before != null) {
+            createdAt.lte(before.createdAt());
+        }
+        if (after != null) {
+            createdAt.gte(after.createdAt());
+        }
+        return criteria;
+    }
+
+    private static Criteria withTieBreak(Criteria criteria, MessageCursor before, MessageCursor after) {
+        List<Criteria> excluded = new ArrayList<>(2);
+        if (before != null) {
+            excluded.add(Criteria.where("createdAt").is(before.createdAt()).and("_id").gte(before.messageId()));
+        }
+        if (after != null) {
+            excluded.add(Criteria.where("createdAt").is(after.createdAt()).and("_id").lte(after.messageId()));
+        }
+        return excluded.isEmpty() ? criteria : criteria.norOperator(excluded);
+    }
+}
@@ -0,0 +1,89 @@
+package com.chitchat.messaging.service;
+
+import com.chitchat.messaging.document.Conversation;
+import com.chitchat.messaging.document.Message;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service interface for the conversations read model
+ * 
+ * Keeps one summary document per direct chat or group (latest message snapshot
+ * and per-participant unread counts) in step with the messages collection.
+ * Every method is a single atomic update of one conversation document.
+ */
+public interface ConversationSummaryService {
+    
+    /**
+     * Get a user's conversations, most recent first
+     * 
+     * @param userId User ID
+     * @return Conversation summaries
+     */
+    List<Conversation> getConversations(Long userId);
+    
+    /**
+     * Record a newly saved message: latest message snapshot and the recipient's unread count
+     * 
+     * @param message Saved message
+     */
+    void onMessageSent(Message message);
+    
+    /**
+     * Get every participant's read watermark in a conversation
+     * 
+     * @param conversationId Conversation ID (see ConversationIds)
+     * @return Watermarks keyed by user ID (empty if nobody has read yet)
+     */
+    Map<String, Conversation.ReadMark> getReadMarks(String conversationId);
+    
+    /**
+     * Get one user's read watermarks in several conversations (one query)
+     * 
+     * @param userId Participant whose watermarks are wanted
+     * @param conversationIds Conversation IDs (see ConversationIds)
+     * @return Watermarks keyed by conversation ID; conversations without one are absent
+     */
+    Map<String, Conversation.ReadMark> getReadMarks(Long userId, Collection<String> conversationIds);
+    
+    /**
+     * Advance a participant's read watermark to a message (one conditional update)
+     * 
+     * The watermark only moves forward. For direct chats the participant's
+     * unread count is replaced with unreadCount and the latest message snapshot
+     * becomes READ when the watermark covers it.
+     * 
+     * @param readerId User who read the conversation
+     * @param upTo Newest message the user has read
+     * @param unreadCount Messages still unread after the watermark (null = leave unchanged)
+     * @return true if the watermark moved, false if it was already at or past upTo
+     */
+    boolean onReadUpTo(Long readerId, Message upTo, Long unreadCount);
+    
+    /**
+     * Record a message being deleted or hidden
+     * 
+     * @param message Deleted message
+     * @param wasUnread true if the recipient had not read the message (direct chats only)
+     * @param removed true if the message was removed from the collection (delete for everyone)
+     */
+    void onMessageDeleted(Message message, boolean wasUnread, boolean removed);
+    
+    /**
+     * Record group membership changes
+     * 
+     * @param groupId Group ID
+     * @param userId Member added or removed
+     * @param added true if added, false if removed
+     */
+    void onGroupMembershipChanged(String groupId, Long userId, boolean added);
+    
+    /**
+     * Rebuild the read model from the messages collection
+     * 
+     * @return Number of conversation documents written
+     */
+    long backfill();
+}
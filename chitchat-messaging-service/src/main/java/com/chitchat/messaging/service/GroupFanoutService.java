@@ -0,0 +1,23 @@
+package com.chitchat.messaging.service;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.dto.MessageResponse;
+
+/**
+ * Service interface for delivering a group message to every member
+ *
+ * A group message is stored once and fanned out here: members connected on
+ * any node get it over WebSocket, and everyone else is covered by batched push
+ * notification requests. The work runs asynchronously with bounded
+ * parallelism, so the sender's request never waits for it.
+ */
+public interface GroupFanoutService {
+
+    /**
+     * Deliver a saved group message to all members except the sender
+     *
+     * @param message Saved group message
+     * @param response Message as sent to clients
+     */
+    void fanOut(Message message, MessageResponse response);
+}
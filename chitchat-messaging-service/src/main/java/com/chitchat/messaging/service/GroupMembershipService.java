@@ -0,0 +1,179 @@
+package com.chitchat.messaging.service;
+
+import com.chitchat.messaging.document.Group;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service interface for cached group membership lookups
+ *
+ * Membership checks, fan-out and "which groups is this user in" no longer load
+ * whole Group documents: each group is cached as a compact sorted member array
+ * with roles, and each user as the set of their group IDs. Group mutations
+ * update the cached entries in place (on*) and invalidate them on the other
+ * nodes, so a changed membership is visible everywhere without waiting for a TTL.
+ */
+public interface GroupMembershipService {
+
+    /**
+     * Cached members of a group, or null if the group does not exist
+     *
+     * @param groupId Group ID
+     * @return Members with roles
+     */
+    Members getMembers(String groupId);
+
+    /**
+     * Whether a user is a member of a group (false if the group does not exist)
+     */
+    boolean isMember(String groupId, Long userId);
+
+    /**
+     * Whether a user is an admin or moderator of a group
+     */
+    boolean isAdminOrModerator(String groupId, Long userId);
+
+    /**
+     * IDs of the groups a user is a member of
+     *
+     * @param userId User ID
+     * @return Group IDs (unordered)
+     */
+    Set<String> getGroupIds(Long userId);
+
+    /**
+     * A group was created (or its name/admin changed); cache it as saved
+     */
+    void onGroupSaved(Group group);
+
+    /**
+     * A user joined a group
+     */
+    void onMemberAdded(String groupId, Long userId, Group.GroupRole role);
+
+    /**
+     * A user left or was removed from a group
+     */
+    void onMemberRemoved(String groupId, Long userId);
+
+    /**
+     * Compact, immutable member list of a group
+     *
+     * User IDs are a sorted long[] with a parallel array of role ordinals:
+     * no GroupMember objects, boxed IDs or join dates, and membership tests
+     * are binary searches.
+     */
+    final class Members {
+
+        private static final Group.GroupRole[] ROLES = Group.GroupRole.values();
+
+        private final String groupId;
+        private final String name;
+        private final long[] userIds;
+        private final byte[] roles;
+
+        private Members(String groupId, String name, long[] userIds, byte[] roles) {
+            this.groupId = groupId;
+            this.name = name;
+            this.userIds = userIds;
+            this.roles = roles;
+        }
+
+        public static Members of(Group group) {
+            List<Group.GroupMember> members = group.getMembers() != null ? group.getMembers() : List.of();
+            long[] userIds = new long[members.size()];
+            byte[] roles = new byte[members.size()];
+
+            Group.GroupMember[] sorted = members.stream()
+                    .filter(member -> member.getUserId() != null)
+                    .sorted((a, b) -> Long.compare(a.getUserId(), b.getUserId()))
+                    .toArray(Group.GroupMember[]::new);
+            int count = 0;
+            for (Group.GroupMember member : sorted) {
+                if (count > 0 && userIds[count - 1] == member.getUserId()) {
+                    continue;
+                }
+                userIds[count] = member.getUserId();
+                roles[count] = (byte) (member.getRole() != null ? member.getRole() : Group.GroupRole.MEMBER).ordinal();
+                count++;
+            }
+            return new Members(group.getId(), group.getName(), Arrays.copyOf(userIds, count), Arrays.copyOf(roles, count));
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int size() {
+            return userIds.length;
+        }
+
+        public boolean contains(Long userId) {
+            return userId != null && Arrays.binarySearch(userIds, userId) >= 0;
+        }
+
+        /**
+         * Role of a member, or null if the user is not a member
+         */
+        public Group.GroupRole roleOf(Long userId) {
+            int index = userId != null ? Arrays.binarySearch(userIds, userId) : -1;
+            return index >= 0 ? ROLES[roles[index]] : null;
+        }
+
+        public boolean isAdminOrModerator(Long userId) {
+            Group.GroupRole role = roleOf(userId);
+            return role == Group.GroupRole.ADMIN || role == Group.GroupRole.MODERATOR;
+        }
+
+        public List<Long> userIds() {
+            return Arrays.stream(userIds).boxed().toList();
+        }
+
+        /**
+         * Copy with a member added (or their role replaced)
+         */
+        public Members with(Long userId, Group.GroupRole role) {
+            byte ordinal = (byte) (role != null ? role : Group.GroupRole.MEMBER).ordinal();
+            int index = Arrays.binarySearch(userIds, userId);
+            if (index >= 0) {
+                byte[] newRoles = roles.clone();
+                newRoles[index] = ordinal;
+                return new Members(groupId, name, userIds, newRoles);
+            }
+
+            int insertAt = -index - 1;
+            long[] newUserIds = new long[userIds.length + 1];
+            byte[] newRoles = new byte[roles.length + 1];
+            System.arraycopy(userIds, 0, newUserIds, 0, insertAt);
+            System.arraycopy(roles, 0, newRoles, 0, insertAt);
+            newUserIds[insertAt] = userId;
+            newRoles[insertAt] = ordinal;
+            System.arraycopy(userIds, insertAt, newUserIds, insertAt + 1, userIds.length - insertAt);
+            System.arraycopy(roles, insertAt, newRoles, insertAt + 1, roles.length - insertAt);
+            return new Members(groupId, name, newUserIds, newRoles);
+        }
+
+        /**
+         * Copy with a member removed
+         */
+        public Members without(Long userId) {
+            int index = Arrays.binarySearch(userIds, userId);
+            if (index < 0) {
+                return this;
+            }
+            long[] newUserIds = new long[userIds.length - 1];
+            byte[] newRoles = new byte[roles.length - 1];
+            System.arraycopy(userIds, 0, newUserIds, 0, index);
+            System.arraycopy(roles, 0, newRoles, 0, index);
+            System.arraycopy(userIds, index + 1, newUserIds, index, userIds.length - index - 1);
+            System.arraycopy(roles, index + 1, newRoles, index, roles.length - index - 1);
+            return new Members(groupId, name, newUserIds, newRoles);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.chitchat.messaging.service;
 
 import com.chitchat.messaging.dto.*;
+import com.chitchat.messaging.util.MessageCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -57,6 +58,22 @@ public interface MessagingService {
      */
     Page<MessageResponse> getConversationMessages(Long userId1, Long userId2, Pageable pageable);
     
+    /**
+     * Gets a cursor-paginated slice of the conversation between two users
+     * 
+     * Keyset pagination on (createdAt, id): constant cost at any depth and no count query.
+     * Messages are returned newest first.
+     * 
+     * @param userId1 First user ID
+     * @param userId2 Second user ID
+     * @param before Cursor - return messages older than it (null for the newest messages)
+     * @param after Cursor - return messages newer than it
+     * @param limit Maximum number of messages (capped)
+     * @return CursorPage of MessageResponse objects
+     * @throws ChitChatException if a cursor is malformed
+     */
+    CursorPage<MessageResponse> getConversationHistory(Long userId1, Long userId2, String before, String after, int limit);
+    
     /**
      * Gets conversation list for a user with latest messages and unread counts
      * 
@@ -96,6 +113,18 @@ public interface MessagingService {
      */
     Page<MessageResponse> getGroupMessages(String groupId, Pageable pageable);
     
+    /**
+     * Gets a cursor-paginated slice of a group's messages
+     * 
+     * @param groupId Group ID
+     * @param before Cursor - return messages older than it (null for the newest messages)
+     * @param after Cursor - return messages newer than it
+     * @param limit Maximum number of messages (capped)
+     * @return CursorPage of MessageResponse objects
+     * @throws ChitChatException if a cursor is malformed
+     */
+    CursorPage<MessageResponse> getGroupHistory(String groupId, String before, String after, int limit);
+    
     /**
      * Gets all messages for a user (sent and received)
      * 
@@ -115,9 +144,10 @@ public interface MessagingService {
      * 
      * Full-text search across:
      * - Message content
-     * - Only user's accessible messages
+     * - Only user's accessible messages (sent, received, and their groups)
      * 
-     * Uses MongoDB text indexes for efficient searching.
+     * Uses the MongoDB text index. Returns the first page of ranked results;
+     * see searchMessageHits for paging, scores and highlights.
      * 
      * @param query Search query string
      * @param userId ID of user performing search
@@ -125,17 +155,31 @@ public interface MessagingService {
      */
     List<MessageResponse> searchMessages(String query, Long userId);
     
+    /**
+     * Ranked, paginated message search with highlight snippets
+     * 
+     * Hits are ordered by text relevance, then newest first. Offset paging is
+     * capped at the first 1000 results.
+     * 
+     * @param query Search text (words, "quoted phrases", -excluded)
+     * @param userId ID of user performing search
+     * @param page Zero-based page number
+     * @param size Hits per page (capped at 50)
+     * @return One page of search hits
+     */
+    MessageSearchPage searchMessageHits(String query, Long userId, int page, int size);
+    
     /**
      * Marks a message as read by the recipient
      * 
-     * Updates:
-     * - Message status to READ
-     * - Sets readAt timestamp
-     * - Publishes read receipt event (blue ticks)
+     * Advances the user's read watermark to the message (see
+     * markConversationReadUpTo): everything up to it counts as read, and the
+     * message documents are not written. Reading a message older than the
+     * watermark changes nothing.
      * 
      * @param messageId Message identifier
      * @param userId ID of user marking as read (must be recipient)
-     * @return Updated MessageResponse
+     * @return The message, with status READ for a direct message
      * @throws ChitChatException if message not found or user not recipient
      */
     MessageResponse markMessageAsRead(String messageId, Long userId);
@@ -267,29 +311,58 @@ public interface MessagingService {
     /**
      * Marks all messages in a conversation as read in bulk
      * 
-     * Optimized operation to mark multiple messages as read in a single transaction.
-     * Much faster than marking messages one by one.
+     * Advances the recipient's read watermark to the sender's latest message:
+     * one conditional write, whatever the number of unread messages.
      * 
      * @param recipientId User ID marking messages as read
      * @param senderId User ID who sent the messages
-     * @return Number of messages marked as read
+     * @return Number of messages that were unread before the call
      */
     int markAllMessagesAsReadFromSender(Long recipientId, Long senderId);
     
     /**
-     * Gets pending messages for a user (messages in SENT status)
+     * Marks a conversation as read up to a message (read watermark)
+     * 
+     * Everything at or before the message counts as read by the user. The
+     * other participants receive a single READ_UPTO frame, whatever the number
+     * of messages. Message documents are not written: unread counts, history
+     * ticks and pending replay of direct chats are derived from the watermark
+     * (the partner's messages after it are unread), as are group unread counts.
+     * 
+     * @param userId User who read the conversation
+     * @param messageId Newest message the user has read
+     * @return The user's watermark after the call
+     * @throws ChitChatException if the message does not exist or the user is not a participant
+     */
+    ReadWatermarkResponse markConversationReadUpTo(Long userId, String messageId);
+    
+    /**
+     * Gets one bounded batch of a user's pending messages (SENT status), oldest first
      * 
-     * When a user comes online, this method retrieves all messages that are in SENT status.
-     * These are messages that were sent while the user was offline or not in the chat screen.
-     * After retrieving, these messages will be sent via WebSocket and marked as DELIVERED.
+     * When a user comes online the backlog is replayed batch by batch with
+     * keyset pagination, so memory stays flat whatever its size. Messages stay
+     * SENT until markMessagesDelivered is called for their batch.
      * 
-     * Only returns messages in SENT status:
+     * Only returns messages in SENT status that the recipient has not read:
      * - Not DELIVERED (already delivered)
-     * - Not READ (already read)
+     * - Not covered by the recipient's read watermark (read on another device;
+     *   these are marked DELIVERED and skipped)
      * - Only SENT (pending delivery)
      * 
      * @param recipientId User ID to get pending messages for
-     * @return List of pending messages
+     * @param after Position of the last message already replayed (null = from the oldest)
+     * @param limit Maximum number of messages
+     * @return Pending messages after the position, oldest first
+     */
+    List<MessageResponse> getPendingMessageBatch(Long recipientId, MessageCursor after, int limit);
+    
+    /**
+     * Marks replayed messages as DELIVERED and notifies their senders
+     * 
+     * One updateMany for the batch and one status frame per sender.
+     * 
+     * @param recipientId User the messages were delivered to
+     * @param messages Messages written to the recipient's session
      */
-    List<MessageResponse> getPendingMessages(Long recipientId);
+    void markMessagesDelivered(Long recipientId, List<MessageResponse> messages);
 }
@@ -0,0 +1,53 @@
+package com.chitchat.messaging.service;
+
+import com.chitchat.messaging.document.Message;
+
+/**
+ * Service interface for publishing Kafka events through the transactional outbox
+ *
+ * Events are appended to the message_outbox collection by the request that
+ * changes the data, so an event is durable as soon as that request completes,
+ * whatever the state of the Kafka brokers. A relay drains the outbox in
+ * batches and deletes each event once Kafka has acknowledged it; events are
+ * therefore published at least once, and events with the same key in append
+ * order (a retried event holds back the later events of its key).
+ * 
+ * Events about a single message are staged on the message itself and written
+ * with it (stage, then dispatch), so no crash can separate the message change
+ * from its event.
+ */
+public interface OutboxService {
+
+    /**
+     * Append an event for publishing
+     *
+     * @param topic Kafka topic
+     * @param key Record key (null for none)
+     * @param payload Record value, serialized to JSON like the rest of the service's events
+     */
+    void append(String topic, String key, Object payload);
+    
+    /**
+     * Stage an event on a message that is about to be written
+     * 
+     * The event is added to the message's pending events, so the message write
+     * stores the change and its event atomically. Call dispatch() once that write
+     * succeeded.
+     * 
+     * @param message Message the event belongs to, not written yet
+     * @param topic Kafka topic
+     * @param key Record key (null for none)
+     * @param payload Record value, serialized to JSON now (the message must already carry its ID)
+     */
+    void stage(Message message, String topic, String key, Object payload);
+    
+    /**
+     * Move the staged events of a written message to the outbox for publishing
+     * 
+     * Idempotent. If it never runs (the node crashed right after the write), the
+     * relay finds the events on the message and moves them itself.
+     * 
+     * @param message Message that was written with its staged events
+     */
+    void dispatch(Message message);
+}
@@ -0,0 +1,84 @@
+package com.chitchat.messaging.service;
+
+import java.util.Map;
+
+/**
+ * Service interface for authoritative, write-through unread message counts
+ *
+ * Counts are kept per (recipient, sender) plus a per-recipient total, and
+ * adjusted atomically as messages are sent and read, so reading a badge or the
+ * unread fields of the conversation list never queries the database. All
+ * messaging nodes share the same counters. A user's counts are seeded from the
+ * conversations read model (whose counts follow the read watermarks) the first
+ * time they are needed, and periodically reconciled against it to repair drift.
+ *
+ * Only direct messages are counted: group messages have no per-member read state.
+ */
+public interface UnreadCounterService {
+
+    /**
+     * Total unread messages for a user across all senders
+     *
+     * @param userId Recipient user ID
+     * @return Total unread count
+     */
+    long getTotalUnread(Long userId);
+
+    /**
+     * Unread messages a user has from one sender
+     *
+     * @param userId Recipient user ID
+     * @param senderId Sender user ID
+     * @return Unread count for that conversation
+     */
+    long getUnreadFrom(Long userId, Long senderId);
+
+    /**
+     * Unread messages a user has from every sender with unread messages
+     *
+     * @param userId Recipient user ID
+     * @return senderId -> unread count (senders without unread messages are absent)
+     */
+    Map<Long, Long> getUnreadBySender(Long userId);
+
+    /**
+     * Record a new unread message (called after the message is saved and the read model updated)
+     *
+     * @param userId Recipient user ID
+     * @param senderId Sender user ID
+     */
+    void increment(Long userId, Long senderId);
+
+    /**
+     * Record messages from a sender being read
+     *
+     * @param userId Recipient user ID
+     * @param senderId Sender user ID
+     * @param count Number of messages that changed from unread to READ
+     */
+    void decrement(Long userId, Long senderId, long count);
+
+    /**
+     * Replace the unread count of one conversation (e.g. re-counted after a watermark read)
+     *
+     * @param userId Recipient user ID
+     * @param senderId Sender user ID
+     * @param count Messages from the sender still unread
+     */
+    void set(Long userId, Long senderId, long count);
+    
+    /**
+     * Drop a user's counts so they are re-seeded from the database on next use
+     *
+     * @param userId Recipient user ID
+     */
+    void evict(Long userId);
+
+    /**
+     * Re-count a batch of users whose counters are due for reconciliation
+     *
+     * Runs on its own schedule (chitchat.unread.reconcile-poll-seconds); each
+     * node claims a disjoint batch, so the work is spread across the cluster.
+     */
+    void reconcile();
+}
@@ -2,6 +2,10 @@ package com.chitchat.messaging.service;
 
 import com.chitchat.messaging.dto.MessageResponse;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Service interface for WebSocket operations
  * 
@@ -18,6 +22,17 @@ public interface WebSocketService {
      */
     void sendMessageToUser(Long receiverId, MessageResponse message);
     
+    /**
+     * Send a group message to many members at once via WebSocket
+     * 
+     * One forwarded frame per node rather than one per member.
+     * 
+     * @param userIds Members to receive the message
+     * @param message Message to send
+     * @return Members connected on some node; the others are offline
+     */
+    Set<Long> sendMessageToUsers(Collection<Long> userIds, MessageResponse message);
+    
     /**
      * Send message status update to the sender
      * 
@@ -27,8 +42,18 @@ public interface WebSocketService {
      */
     void sendStatusUpdateToUser(Long senderId, String messageId, String status);
     
+    /**
+     * Send one status update covering many of the sender's messages
+     * 
+     * @param senderId ID of the sender to notify about status change
+     * @param messageIds IDs of the messages
+     * @param status New status (DELIVERED, READ, etc.)
+     */
+    void sendStatusUpdatesToUser(Long senderId, List<String> messageIds, String status);
+    
     /**
      * Send typing indicator to a specific user (receiver)
+     * Debounced per sender and receiver - repeated frames within a burst are not forwarded
      * 
      * @param receiverId ID of the user to receive the typing indicator
      * @param senderId ID of the user who is typing
@@ -46,6 +71,7 @@ public interface WebSocketService {
     
     /**
      * Send total unread count update to a user
+     * Batched with other conversation updates into one CONVERSATION_DELTA frame
      * 
      * @param userId ID of the user to notify about unread count change
      */
@@ -0,0 +1,482 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.document.Conversation;
+import com.chitchat.messaging.document.Group;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.repository.ConversationRepository;
+import com.chitchat.messaging.repository.GroupRepository;
+import com.chitchat.messaging.repository.MessageRepository;
+import com.chitchat.messaging.service.ConversationSummaryService;
+import com.chitchat.messaging.util.ConversationIds;
+import com.chitchat.messaging.util.MessageCursor;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of ConversationSummaryService
+ *
+ * Each write touches exactly one conversation document with a single atomic
+ * update (upsert, $inc, or an update pipeline where the new value depends on
+ * the current one). Failures are logged and never fail the message operation
+ * itself - the messages collection stays the source of truth and backfill()
+ * rebuilds the read model from it.
+ *
+ * The latest-message snapshot only ever moves forward in (createdAt, messageId)
+ * order: concurrent sends that commit out of order, and a backfill racing live
+ * sends, never replace a newer snapshot with an older one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversationSummaryServiceImpl implements ConversationSummaryService {
+
+    private static final String COLLECTION = "conversations";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    // Attempts to re-count a conversation that live writes keep changing during the backfill
+    private static final int BACKFILL_RECOUNT_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final ConversationRepository conversationRepository;
+    private final GroupRepository groupRepository;
+    private final MessageRepository messageRepository;
+
+    @Override
+    public List<Conversation> getConversations(Long userId) {
+        return conversationRepository.findByParticipantOrderByLastMessageAtDesc(userId);
+    }
+
+    @Override
+    public void onMessageSent(Message message) {
+        String conversationId = ConversationIds.of(message);
+        if (conversationId == null) {
+            return;
+        }
+
+        try {
+            // Update pipeline upsert: the snapshot is only replaced by a newer message
+            Document set = latestMessageFields(message);
+            if (message.getGroupId() != null) {
+                // Members are maintained by onGroupMembershipChanged; the sender is always one
+                set.append("type", ifMissing("$type", Conversation.ConversationType.GROUP.name()))
+                        .append("groupId", ifMissing("$groupId", message.getGroupId()))
+                        .append("participantIds", new Document("$setUnion", List.of(
+                                new Document("$ifNull", List.of("$participantIds", List.of())),
+                                List.of(message.getSenderId()))));
+            } else {
+                String unreadField = "unreadCounts." + message.getRecipientId();
+                set.append("type", ifMissing("$type", Conversation.ConversationType.INDIVIDUAL.name()))
+                        .append("participantIds", ifMissing("$participantIds",
+                                directParticipants(message.getSenderId(), message.getRecipientId())))
+                        .append(unreadField, new Document("$add", List.of(
+                                new Document("$ifNull", List.of("$" + unreadField, 0L)), 1L)));
+            }
+
+            mongoTemplate.getCollection(COLLECTION).updateOne(Filters.eq("_id", conversationId),
+                    List.of(new Document("$set", set)), new UpdateOptions().upsert(true));
+        } catch (Exception e) {
+            log.error("Failed to update conversation {} for message {}", conversationId, message.getId(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Conversation.ReadMark> getReadMarks(String conversationId) {
+        Query query = byId(conversationId);
+        query.fields().include("readMarks");
+        Conversation conversation = mongoTemplate.findOne(query, Conversation.class);
+        return conversation != null && conversation.getReadMarks() != null ? conversation.getReadMarks() : Map.of();
+    }
+
+    @Override
+    public Map<String, Conversation.ReadMark> getReadMarks(Long userId, Collection<String> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return Map.of();
+        }
+        String markField = "readMarks." + userId;
+        Query query = Query.query(Criteria.where("_id").in(conversationIds).and(markField).exists(true));
+        query.fields().include(markField);
+
+        Map<String, Conversation.ReadMark> marks = new HashMap<>();
+        for (Conversation conversation : mongoTemplate.find(query, Conversation.class)) {
+            marks.put(conversation.getId(), conversation.getReadMarks().get(String.valueOf(userId)));
+        }
+        return marks;
+    }
+
+    @Override
+    public boolean onReadUpTo(Long readerId, Message upTo, Long unreadCount) {
+        String conversationId = ConversationIds.of(upTo);
+        if (conversationId == null) {
+            return false;
+        }
+
+        String markField = "readMarks." + readerId;
+        Object createdAt = mongoTemplate.getConverter().convertToMongoType(upTo.getCreatedAt());
+        Object now = mongoTemplate.getConverter().convertToMongoType(LocalDateTime.now());
+
+        // Only move forward: no mark yet, an older mark, or the same millisecond with a lower message ID
+        Bson filter = Filters.and(
+                Filters.eq("_id", conversationId),
+                Filters.eq("participantIds", readerId),
+                Filters.or(
+                        Filters.exists(markField, false),
+                        Filters.lt(markField + ".messageCreatedAt", createdAt),
+                        Filters.and(
+                                Filters.eq(markField + ".messageCreatedAt", createdAt),
+                                Filters.lt(markField + ".messageId", upTo.getId()))));
+
+        Document set = new Document(markField, new Document("$literal", new Document()
+                .append("messageId", upTo.getId())
+                .append("messageCreatedAt", createdAt)
+                .append("readAt", now)));
+        if (upTo.getGroupId() == null) {
+            if (unreadCount != null) {
+                set.append("unreadCounts." + readerId, unreadCount);
+            }
+            // The partner's latest message is READ once the watermark reaches it
+            set.append("lastMessage.status", new Document("$cond", List.of(
+                    new Document("$and", List.of(
+                            new Document("$ne", List.of(new Document("$type", "$lastMessage.createdAt"), "missing")),
+                            new Document("$lte", List.of("$lastMessage.createdAt", createdAt)),
+                            new Document("$ne", List.of("$lastMessage.senderId", readerId)))),
+                    Message.MessageStatus.READ.name(),
+                    "$lastMessage.status")));
+        }
+
+        try {
+            return mongoTemplate.getCollection(COLLECTION)
+                    .updateOne(filter, List.of(new Document("$set", set)))
+                    .getModifiedCount() > 0;
+        } catch (Exception e) {
+            log.error("Failed to advance read watermark of user {} in conversation {}", readerId, conversationId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void onMessageDeleted(Message message, boolean wasUnread, boolean removed) {
+        String conversationId = ConversationIds.of(message);
+        if (conversationId == null) {
+            return;
+        }
+
+        try {
+            if (wasUnread && message.getGroupId() == null) {
+                // unread = max(0, unread - 1)
+                String unreadField = "unreadCounts." + message.getRecipientId();
+                updatePipeline(conversationId, List.of(new Document("$set", new Document(unreadField,
+                        new Document("$max", List.of(0L, new Document("$subtract", List.of(
+                                new Document("$ifNull", List.of("$" + unreadField, 0L)), 1L))))))));
+            }
+
+            Query isLastMessage = Query.query(Criteria.where("_id").is(conversationId)
+                    .and("lastMessage.messageId").is(message.getId()));
+
+            if (!removed) {
+                mongoTemplate.updateFirst(isLastMessage,
+                        Update.update("lastMessage.status", message.getStatus()), Conversation.class);
+                return;
+            }
+
+            // Deleted message was the latest: fall back to the one before it, if any
+            Message previous = findLatestMessage(message);
+            if (previous == null) {
+                mongoTemplate.remove(isLastMessage, Conversation.class);
+            } else {
+                mongoTemplate.updateFirst(isLastMessage, new Update()
+                        .set("lastMessage", snapshot(previous))
+                        .set("lastMessageAt", previous.getCreatedAt()), Conversation.class);
+            }
+        } catch (Exception e) {
+            log.error("Failed to update conversation {} after deleting message {}", conversationId, message.getId(), e);
+        }
+    }
+
+    @Override
+    public void onGroupMembershipChanged(String groupId, Long userId, boolean added) {
+        try {
+            Query query = byId(ConversationIds.group(groupId));
+            if (added) {
+                mongoTemplate.upsert(query, new Update()
+                        .setOnInsert("type", Conversation.ConversationType.GROUP)
+                        .setOnInsert("groupId", groupId)
+                        .addToSet("participantIds", userId), Conversation.class);
+            } else {
+                mongoTemplate.updateFirst(query, new Update().pull("participantIds", userId), Conversation.class);
+            }
+        } catch (Exception e) {
+            log.error("Failed to update participants of group conversation {}", groupId, e);
+        }
+    }
+
+    /**
+     * Rebuild every conversation document from the messages collection
+     *
+     * Two aggregations (direct chats grouped by user pair, group chats by group ID)
+     * stream the latest message and unread counts per conversation; documents are
+     * written with unordered bulk upserts. Idempotent - safe to re-run.
+     *
+     * Each write is guarded like onMessageSent: if a live send moved a
+     * conversation past the message the aggregation saw, its snapshot is kept,
+     * and its unread counts (which the aggregation computed without that send)
+     * are re-counted once the batch is written. Conversations with read
+     * watermarks are re-counted too: the aggregation only sees message statuses.
+     */
+    @Override
+    public long backfill() {
+        log.info("Backfilling conversations read model from messages...");
+        long written = backfillDirect() + backfillGroups();
+        log.info("Conversations backfill complete: {} conversations written", written);
+        return written;
+    }
+
+    private long backfillDirect() {
+        Document unreadStatus = new Document("$in", List.of("$status", List.of("SENT", "DELIVERED")));
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("groupId", null).append("recipientId", new Document("$ne", null))),
+                new Document("$sort", new Document("createdAt", -1)),
+                new Document("$group", new Document("_id", new Document()
+                                .append("low", new Document("$min", List.of("$senderId", "$recipientId")))
+                                .append("high", new Document("$max", List.of("$senderId", "$recipientId"))))
+                        .append("last", new Document("$first", "$$ROOT"))
+                        .append("unreadLow", unreadSum(unreadStatus, "$lt"))
+                        .append("unreadHigh", unreadSum(unreadStatus, "$gt"))));
+
+        long written = 0;
+        List<Document> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        try (MongoCursor<Document> cursor = aggregateMessages(pipeline)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == BACKFILL_BATCH_SIZE || !cursor.hasNext()) {
+                    List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+                    Map<String, Message> latest = new HashMap<>();
+                    for (Document result : batch) {
+                        Document key = result.get("_id", Document.class);
+                        Long low = key.get("low", Number.class).longValue();
+                        Long high = key.get("high", Number.class).longValue();
+                        Message last = mongoTemplate.getConverter().read(Message.class, result.get("last", Document.class));
+                        String conversationId = ConversationIds.direct(low, high);
+                        latest.put(conversationId, last);
+
+                        // Unread counts only replace the stored ones together with the snapshot
+                        Document newer = isNewerThanSnapshot(last);
+                        String lowField = "unreadCounts." + low;
+                        String highField = "unreadCounts." + high;
+                        Document set = latestMessageFields(last)
+                                .append("type", Conversation.ConversationType.INDIVIDUAL.name())
+                                .append("participantIds", new Document("$literal", directParticipants(low, high)))
+                                .append(lowField, new Document("$cond", List.of(newer,
+                                        result.get("unreadLow", Number.class).longValue(), "$" + lowField)))
+                                .append(highField, new Document("$cond", List.of(newer,
+                                        result.get("unreadHigh", Number.class).longValue(), "$" + highField)));
+                        writes.add(new UpdateOneModel<>(Filters.eq("_id", conversationId),
+                                List.of(new Document("$set", set)), new UpdateOptions().upsert(true)));
+                    }
+                    mongoTemplate.getCollection(COLLECTION).bulkWrite(writes, UNORDERED);
+                    recountChangedConversations(latest);
+                    written += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Re-count the unread counts of conversations a live send moved past the backfilled
+     * message, or whose participants have read watermarks
+     *
+     * Counts are taken after each participant's watermark and written only if
+     * the snapshot is still the one observed, so a send landing meanwhile
+     * triggers another attempt instead of being overwritten.
+     */
+    private void recountChangedConversations(Map<String, Message> backfilled) {
+        Query query = Query.query(Criteria.where("_id").in(backfilled.keySet()));
+        query.fields().include("lastMessage.messageId").include("participantIds").include("readMarks");
+        for (Conversation conversation : mongoTemplate.find(query, Conversation.class)) {
+            String observed = conversation.getLastMessage() != null ? conversation.getLastMessage().getMessageId() : null;
+            boolean hasReadMarks = conversation.getReadMarks() != null && !conversation.getReadMarks().isEmpty();
+            if (observed == null || (observed.equals(backfilled.get(conversation.getId()).getId()) && !hasReadMarks)) {
+                continue;
+            }
+            recountUnread(conversation, observed);
+        }
+    }
+
+    private void recountUnread(Conversation conversation, String observedMessageId) {
+        String conversationId = conversation.getId();
+        Long low = conversation.getParticipantIds().get(0);
+        Long high = conversation.getParticipantIds().get(conversation.getParticipantIds().size() - 1);
+        Map<String, Conversation.ReadMark> readMarks = conversation.getReadMarks() != null ? conversation.getReadMarks() : Map.of();
+        String expected = observedMessageId;
+        for (int attempt = 0; attempt < BACKFILL_RECOUNT_ATTEMPTS && expected != null; attempt++) {
+            Update update = new Update()
+                    .set("unreadCounts." + low, messageRepository.countUnreadFromSender(low, high,
+                            MessageCursor.of(readMarks.get(String.valueOf(low)))))
+                    .set("unreadCounts." + high, messageRepository.countUnreadFromSender(high, low,
+                            MessageCursor.of(readMarks.get(String.valueOf(high)))));
+            Query unchanged = Query.query(Criteria.where("_id").is(conversationId).and("lastMessage.messageId").is(expected));
+            if (mongoTemplate.updateFirst(unchanged, update, Conversation.class).getMatchedCount() > 0) {
+                return;
+            }
+            Conversation current = mongoTemplate.findById(conversationId, Conversation.class);
+            expected = current != null && current.getLastMessage() != null ? current.getLastMessage().getMessageId() : null;
+            readMarks = current != null && current.getReadMarks() != null ? current.getReadMarks() : Map.of();
+        }
+        log.warn("Backfill could not re-count conversation {}: it kept changing", conversationId);
+    }
+
+    private long backfillGroups() {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("groupId", new Document("$ne", null))),
+                new Document("$sort", new Document("createdAt", -1)),
+                new Document("$group", new Document("_id", "$groupId")
+                        .append("last", new Document("$first", "$$ROOT"))));
+
+        long written = 0;
+        List<Document> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        try (MongoCursor<Document> cursor = aggregateMessages(pipeline)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == BACKFILL_BATCH_SIZE || !cursor.hasNext()) {
+                    Map<String, Group> groups = groupRepository.findAllById(
+                                    batch.stream().map(result -> result.getString("_id")).toList())
+                            .stream()
+                            .collect(Collectors.toMap(Group::getId, Function.identity()));
+
+                    List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+                    for (Document result : batch) {
+                        Group group = groups.get(result.getString("_id"));
+                        if (group == null) {
+                            continue;  // Messages of a deleted group
+                        }
+                        Message last = mongoTemplate.getConverter().read(Message.class, result.get("last", Document.class));
+                        List<Long> members = group.getMembers() == null ? List.of() : group.getMembers().stream()
+                                .map(Group.GroupMember::getUserId)
+                                .toList();
+
+                        Document set = latestMessageFields(last)
+                                .append("type", Conversation.ConversationType.GROUP.name())
+                                .append("groupId", group.getId())
+                                .append("participantIds", new Document("$literal", members));
+                        writes.add(new UpdateOneModel<>(Filters.eq("_id", ConversationIds.group(group.getId())),
+                                List.of(new Document("$set", set)), new UpdateOptions().upsert(true)));
+                        written++;
+                    }
+                    if (!writes.isEmpty()) {
+                        mongoTemplate.getCollection(COLLECTION).bulkWrite(writes, UNORDERED);
+                    }
+                    batch.clear();
+                }
+            }
+        }
+        return written;
+    }
+
+    private MongoCursor<Document> aggregateMessages(List<Document> pipeline) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Message.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .batchSize(BACKFILL_BATCH_SIZE)
+                .iterator();
+    }
+
+    private static Document unreadSum(Document unreadStatus, String recipientComparison) {
+        // Unread messages whose recipient is the lower ($lt) or higher ($gt) user of the pair
+        return new Document("$sum", new Document("$cond", List.of(
+                new Document("$and", List.of(unreadStatus,
+                        new Document(recipientComparison, List.of("$recipientId", "$senderId")))),
+                1, 0)));
+    }
+
+    private Message findLatestMessage(Message deleted) {
+        List<Message> latest = deleted.getGroupId() != null
+                ? messageRepository.findGroupSlice(deleted.getGroupId(), null, null, 1)
+                : messageRepository.findConversationSlice(deleted.getSenderId(), deleted.getRecipientId(), null, null, 1);
+        return latest.isEmpty() ? null : latest.get(0);
+    }
+
+    private void updatePipeline(String conversationId, List<Document> pipeline) {
+        try {
+            mongoTemplate.getCollection(COLLECTION).updateOne(Filters.eq("_id", conversationId), pipeline);
+        } catch (Exception e) {
+            log.error("Failed to update conversation {}", conversationId, e);
+        }
+    }
+
+    /**
+     * $set fields replacing the latest-message snapshot, only if message is newer than it
+     */
+    private Document latestMessageFields(Message message) {
+        Document newer = isNewerThanSnapshot(message);
+        Object snapshot = mongoTemplate.getConverter().convertToMongoType(snapshot(message));
+        return new Document()
+                .append("lastMessage", new Document("$cond", List.of(newer,
+                        new Document("$literal", snapshot), "$lastMessage")))
+                .append("lastMessageAt", new Document("$cond", List.of(newer,
+                        mongoTemplate.getConverter().convertToMongoType(message.getCreatedAt()), "$lastMessageAt")));
+    }
+
+    /**
+     * Whether message is at or after the stored snapshot in (createdAt, messageId) order
+     *
+     * At (same message) so that replaying a write is harmless.
+     */
+    private Document isNewerThanSnapshot(Message message) {
+        Object createdAt = mongoTemplate.getConverter().convertToMongoType(message.getCreatedAt());
+        return new Document("$or", List.of(
+                new Document("$eq", List.of(new Document("$type", "$lastMessageAt"), "missing")),
+                new Document("$lt", List.of("$lastMessageAt", createdAt)),
+                new Document("$and", List.of(
+                        new Document("$eq", List.of("$lastMessageAt", createdAt)),
+                        new Document("$lte", List.of(new Document("$ifNull", List.of("$lastMessage.messageId", "")),
+                                new Document("$literal", message.getId())))))));
+    }
+
+    private static Document ifMissing(String field, Object value) {
+        return new Document("$ifNull", List.of(field, new Document("$literal", value)));
+    }
+
+    private static List<Long> directParticipants(Long userId1, Long userId2) {
+        return userId1.equals(userId2) ? List.of(userId1) : List.of(Math.min(userId1, userId2), Math.max(userId1, userId2));
+    }
+
+    private static Conversation.LastMessage snapshot(Message message) {
+        return Conversation.LastMessage.builder()
+                .messageId(message.getId())
+                .senderId(message.getSenderId())
+                .content(message.getContent())
+                .type(message.getType())
+                .status(message.getStatus())
+                .createdAt(message.getCreatedAt())
+                .build();
+    }
+
+    private static Query byId(String conversationId) {
+        return Query.query(Criteria.where("_id").is(conversationId));
+    }
+}
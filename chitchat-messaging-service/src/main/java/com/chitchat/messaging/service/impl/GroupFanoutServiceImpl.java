@@ -0,0 +1,183 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.client.NotificationServiceClient;
+import com.chitchat.messaging.client.UserProfileCache;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.service.GroupFanoutService;
+import com.chitchat.messaging.service.GroupMembershipService;
+import com.chitchat.messaging.service.WebSocketService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Two-stage group fan-out
+ *
+ * 1. WebSocket: members are split into chunks of chitchat.group-fanout.chunk-size
+ *    and each chunk is handed to WebSocketService.sendMessageToUsers, which
+ *    queues local sessions directly and forwards one frame per remote node.
+ * 2. Push: members nobody could reach over WebSocket are notified in the same
+ *    chunks, one notification-service request per chunk. The sender's profile
+ *    is only looked up if someone is offline.
+ *
+ * Both stages run on groupFanoutExecutor (fixed size), never on the common pool
+ * and never blocking the sending thread. Member lists come from the
+ * GroupMembershipService cache, not a Group document read per message.
+ *
+ * Metrics (Actuator /actuator/metrics):
+ * - chitchat.group.fanout.latency{size}: send to both stages complete, per group-size bucket
+ * - chitchat.group.fanout.members: recipients per fan-out
+ * - chitchat.group.fanout.recipients{channel=websocket|push}: members reached per channel
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GroupFanoutServiceImpl implements GroupFanoutService {
+
+    private static final String[] SIZE_BUCKETS = {"1-10", "11-100", "101-1000", "1000+"};
+
+    private final GroupMembershipService groupMembershipService;
+    private final WebSocketService webSocketService;
+    private final NotificationServiceClient notificationClient;
+    private final UserProfileCache userProfileCache;
+    private final MeterRegistry meterRegistry;
+
+    // Resolved by name among the AsyncConfig executors
+    private final Executor groupFanoutExecutor;
+
+    @Value("${chitchat.group-fanout.chunk-size:500}")
+    private int chunkSize;
+
+    private final Map<String, Timer> latencyBySize = new ConcurrentHashMap<>();
+
+    @Override
+    public void fanOut(Message message, MessageResponse response) {
+        long started = System.nanoTime();
+        CompletableFuture.supplyAsync(() -> groupMembershipService.getMembers(message.getGroupId()), groupFanoutExecutor)
+            .thenCompose(members -> {
+                if (members == null) {
+                    log.warn("Group not found for fan-out: {}", message.getGroupId());
+                    return CompletableFuture.completedFuture(null);
+                }
+                List<Long> recipients = members.userIds().stream()
+                    .filter(userId -> !userId.equals(message.getSenderId()))
+                    .collect(Collectors.toList());
+                if (recipients.isEmpty()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                
+                DistributionSummary.builder("chitchat.group.fanout.members")
+                    .description("Recipients per group message fan-out")
+                    .register(meterRegistry)
+                    .record(recipients.size());
+                
+                return pushOverWebSocket(recipients, response)
+                    .thenCompose(online -> notifyOffline(message, members.getName(), recipients, online))
+                    .whenComplete((ignored, error) -> latencyTimer(recipients.size())
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS));
+            })
+            .whenComplete((ignored, error) -> {
+                if (error != null) {
+                    log.error("Group fan-out failed for message {} in group {}", 
+                        message.getId(), message.getGroupId(), error);
+                }
+            });
+    }
+
+    /**
+     * Stage 1: queue the message for every connected member, chunk by chunk
+     *
+     * @return members reached over WebSocket
+     */
+    private CompletableFuture<Set<Long>> pushOverWebSocket(List<Long> recipients, MessageResponse response) {
+        List<CompletableFuture<Set<Long>>> chunks = chunks(recipients).stream()
+            .map(chunk -> CompletableFuture.supplyAsync(
+                () -> webSocketService.sendMessageToUsers(chunk, response), groupFanoutExecutor))
+            .toList();
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> {
+                Set<Long> online = new HashSet<>();
+                chunks.forEach(chunk -> online.addAll(chunk.join()));
+                counter("websocket").increment(online.size());
+                return online;
+            });
+    }
+
+    /**
+     * Stage 2: one notification request per chunk of members that are not connected
+     */
+    private CompletableFuture<Void> notifyOffline(Message message, String groupName, List<Long> recipients,
+                                                  Set<Long> online) {
+        List<Long> offline = recipients.stream()
+            .filter(userId -> !online.contains(userId))
+            .collect(Collectors.toList());
+        if (offline.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        counter("push").increment(offline.size());
+
+        return CompletableFuture.supplyAsync(() -> userProfileCache.get(message.getSenderId()), groupFanoutExecutor)
+            .exceptionally(e -> {
+                log.warn("Failed to fetch sender details for user: {}", message.getSenderId());
+                return null;
+            })
+            .thenCompose(sender -> {
+                String senderName = sender != null && sender.getName() != null ? sender.getName() : "User";
+                String senderAvatarUrl = sender != null ? sender.getAvatarUrl() : null;
+                String title = senderName + " in " + groupName;
+
+                List<CompletableFuture<Void>> requests = chunks(offline).stream()
+                    .map(chunk -> CompletableFuture.runAsync(() -> notificationClient.sendGroupMessageNotification(
+                        chunk, title, message.getContent(), message.getSenderId(), message.getId(),
+                        message.getGroupId(), senderAvatarUrl), groupFanoutExecutor))
+                    .toList();
+                return CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]));
+            });
+    }
+
+    private List<List<Long>> chunks(List<Long> userIds) {
+        int size = Math.max(1, chunkSize);
+        List<List<Long>> chunks = new ArrayList<>((userIds.size() + size - 1) / size);
+        for (int from = 0; from < userIds.size(); from += size) {
+            chunks.add(userIds.subList(from, Math.min(userIds.size(), from + size)));
+        }
+        return chunks;
+    }
+
+    private Timer latencyTimer(int recipients) {
+        String bucket = recipients <= 10 ? SIZE_BUCKETS[0]
+            : recipients <= 100 ? SIZE_BUCKETS[1]
+            : recipients <= 1000 ? SIZE_BUCKETS[2]
+            : SIZE_BUCKETS[3];
+        return latencyBySize.computeIfAbsent(bucket, size -> Timer.builder("chitchat.group.fanout.latency")
+            .description("Time from send until a group message reached WebSocket queues and push notifications")
+            .tag("size", size)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry));
+    }
+
+    private Counter counter(String channel) {
+        return Counter.builder("chitchat.group.fanout.recipients")
+            .description("Group message recipients per delivery channel")
+            .tag("channel", channel)
+            .register(meterRegistry);
+    }
+}
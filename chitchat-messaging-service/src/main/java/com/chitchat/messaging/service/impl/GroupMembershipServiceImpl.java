@@ -0,0 +1,178 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
+import com.chitchat.messaging.document.Group;
+import com.chitchat.messaging.repository.GroupRepository;
+import com.chitchat.messaging.service.GroupMembershipService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Caffeine-backed GroupMembershipService
+ *
+ * Two local caches, both loaded with projections instead of full Group documents:
+ * - groupMembers: groupId -> Members (name, sorted member IDs, roles)
+ * - userGroups: userId -> IDs of the user's groups
+ *
+ * Group mutations on this node are applied to the cached entries in place
+ * (copy-on-write, under the cache's per-key lock, so a concurrent load cannot
+ * overwrite them with older data) and then published on the CacheInvalidationBus;
+ * other nodes drop the affected keys and reload them on next use. Concurrent
+ * misses on the same key share one load. The TTLs only bound staleness when an
+ * invalidation is lost (e.g. a Redis hiccup).
+ *
+ * Metrics (Actuator /actuator/metrics):
+ * - cache.gets{cache=groupMembers|userGroups, result=hit|miss}, cache.size, cache.evictions
+ * - chitchat.group.membership.hit.ratio{cache}: hit ratio since startup
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GroupMembershipServiceImpl implements GroupMembershipService {
+
+    private static final String GROUP_MEMBERS_CACHE = "groupMembers";
+    private static final String USER_GROUPS_CACHE = "userGroups";
+
+    private final GroupRepository groupRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chitchat.group-membership.max-groups:50000}")
+    private long maxGroups;
+
+    @Value("${chitchat.group-membership.max-users:200000}")
+    private long maxUsers;
+
+    @Value("${chitchat.group-membership.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    private Cache<String, Members> groupMembers;
+    private Cache<Long, Set<String>> userGroups;
+
+    @PostConstruct
+    public void init() {
+        groupMembers = Caffeine.newBuilder()
+            .maximumSize(maxGroups)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+        userGroups = Caffeine.newBuilder()
+            .maximumSize(maxUsers)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+
+        monitor(groupMembers, GROUP_MEMBERS_CACHE);
+        monitor(userGroups, USER_GROUPS_CACHE);
+
+        invalidationBus.subscribe(GROUP_MEMBERS_CACHE, groupMembers::invalidate);
+        invalidationBus.subscribe(USER_GROUPS_CACHE, key -> userGroups.invalidate(Long.valueOf(key)));
+
+        log.info("Group membership cache initialized (max groups: {}, max users: {}, ttl: {} min)",
+            maxGroups, maxUsers, ttlMinutes);
+    }
+
+    @Override
+    public Members getMembers(String groupId) {
+        if (groupId == null) {
+            return null;
+        }
+        // Missing groups are not cached: the loader returns null
+        return groupMembers.get(groupId, id -> groupRepository.findMembershipById(id)
+            .map(Members::of)
+            .orElse(null));
+    }
+
+    @Override
+    public boolean isMember(String groupId, Long userId) {
+        Members members = getMembers(groupId);
+        return members != null && members.contains(userId);
+    }
+
+    @Override
+    public boolean isAdminOrModerator(String groupId, Long userId) {
+        Members members = getMembers(groupId);
+        return members != null && members.isAdminOrModerator(userId);
+    }
+
+    @Override
+    public Set<String> getGroupIds(Long userId) {
+        return userGroups.get(userId, id -> groupRepository.findIdsByUserId(id).stream()
+            .map(Group::getId)
+            .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    @Override
+    public void onGroupSaved(Group group) {
+        Members members = Members.of(group);
+        Members previous = groupMembers.asMap().put(group.getId(), members);
+        publish(GROUP_MEMBERS_CACHE, group.getId());
+
+        // New group: its members' group sets gain it
+        if (previous == null) {
+            for (Long userId : members.userIds()) {
+                userGroups.asMap().computeIfPresent(userId, (id, groupIds) -> plus(groupIds, group.getId()));
+                publish(USER_GROUPS_CACHE, String.valueOf(userId));
+            }
+        }
+    }
+
+    @Override
+    public void onMemberAdded(String groupId, Long userId, Group.GroupRole role) {
+        groupMembers.asMap().computeIfPresent(groupId, (id, members) -> members.with(userId, role));
+        userGroups.asMap().computeIfPresent(userId, (id, groupIds) -> plus(groupIds, groupId));
+        publish(GROUP_MEMBERS_CACHE, groupId);
+        publish(USER_GROUPS_CACHE, String.valueOf(userId));
+    }
+
+    @Override
+    public void onMemberRemoved(String groupId, Long userId) {
+        groupMembers.asMap().computeIfPresent(groupId, (id, members) -> members.without(userId));
+        userGroups.asMap().computeIfPresent(userId, (id, groupIds) -> minus(groupIds, groupId));
+        publish(GROUP_MEMBERS_CACHE, groupId);
+        publish(USER_GROUPS_CACHE, String.valueOf(userId));
+    }
+
+    private void publish(String cacheName, String key) {
+        invalidationBus.publish(cacheName, key);
+    }
+
+    private void monitor(Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        Gauge.builder("chitchat.group.membership.hit.ratio", cache, c -> c.stats().hitRate())
+            .description("Hit ratio of the group membership cache since startup")
+            .tag("cache", name)
+            .register(meterRegistry);
+    }
+
+    private static Set<String> plus(Set<String> groupIds, String groupId) {
+        if (groupIds.contains(groupId)) {
+            return groupIds;
+        }
+        Set<String> updated = new HashSet<>(groupIds);
+        updated.add(groupId);
+        return Set.copyOf(updated);
+    }
+
+    private static Set<String> minus(Set<String> groupIds, String groupId) {
+        if (!groupIds.contains(groupId)) {
+            return groupIds;
+        }
+        Set<String> updated = new HashSet<>(groupIds);
+        updated.remove(groupId);
+        return Set.copyOf(updated);
+    }
+}
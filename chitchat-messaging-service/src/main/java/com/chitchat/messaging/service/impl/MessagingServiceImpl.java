@@ -1,29 +1,43 @@
 package com.chitchat.messaging.service.impl;
 
 import com.chitchat.messaging.client.NotificationServiceClient;
+import com.chitchat.messaging.client.UserProfileCache;
 import com.chitchat.messaging.client.UserServiceClient;
+import com.chitchat.messaging.document.Conversation;
 import com.chitchat.messaging.document.Group;
 import com.chitchat.messaging.document.Message;
 import com.chitchat.messaging.dto.*;
 import com.chitchat.messaging.repository.GroupRepository;
 import com.chitchat.messaging.repository.MessageRepository;
+import com.chitchat.messaging.service.ConversationSummaryService;
+import com.chitchat.messaging.service.GroupFanoutService;
+import com.chitchat.messaging.service.GroupMembershipService;
 import com.chitchat.messaging.service.MessagingService;
+import com.chitchat.messaging.service.OutboxService;
+import com.chitchat.messaging.service.UnreadCounterService;
+import com.chitchat.messaging.util.ConversationIds;
+import com.chitchat.messaging.util.MessageCursor;
+import com.chitchat.messaging.util.SearchSnippets;
 import com.chitchat.messaging.event.*;
 import org.springframework.context.ApplicationEventPublisher;
+import com.chitchat.shared.event.MessageCreated;
 import com.chitchat.shared.exception.ChitChatException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.Map;
 import java.util.HashMap;
@@ -40,16 +54,32 @@ public class MessagingServiceImpl implements MessagingService {
     
     private final MessageRepository messageRepository;
     private final GroupRepository groupRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxService outboxService;
     private final NotificationServiceClient notificationClient;
-    private final UserServiceClient userServiceClient;
+    private final UserProfileCache userProfileCache;
     private final ApplicationEventPublisher eventPublisher;
+    private final UnreadCounterService unreadCounterService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final GroupFanoutService groupFanoutService;
+    private final GroupMembershipService groupMembershipService;
+    
+    // Upper bound for cursor-paginated history pages
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // Search: ranked results are offset-paginated, so depth is capped
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    private static final int MAX_SEARCH_QUERY_LENGTH = 200;
+    private static final int SEARCH_SNIPPET_LENGTH = 160;
     private final com.chitchat.messaging.service.WebSocketService webSocketService;
     private final org.springframework.cache.CacheManager cacheManager;
     private final org.springframework.context.ApplicationContext applicationContext;
     
+    // message-events payload: binary MessageCreated (EventCodec) instead of the Message JSON
+    @Value("${chitchat.events.binary-message-events:false}")
+    private boolean binaryMessageEvents;
+    
     @Override
-    @CacheEvict(value = {"conversationList", "unreadCount"}, key = "#senderId")  // More targeted cache eviction
+    @CacheEvict(value = "conversationList", key = "#senderId")  // More targeted cache eviction
     public MessageResponse sendMessage(Long senderId, SendMessageRequest request) {
         // Handle both recipientId and receiverId field names for backward compatibility
         Long recipientId = request.getRecipientId() != null ? request.getRecipientId() : request.getReceiverId();
@@ -70,41 +100,59 @@ public class MessagingServiceImpl implements MessagingService {
                 .mentions(request.getMentions())
                 .scheduledAt(request.getScheduledAt())
                 .build();
-        
-        final Message savedMessage = messageRepository.save(message);
+        message.setConversationId(ConversationIds.of(message));
+        // ID and timestamps up front: the message-events payload staged on the message carries them
+        LocalDateTime now = LocalDateTime.now();
+        message.setId(new ObjectId().toHexString());
+        message.setCreatedAt(now);
+        message.setUpdatedAt(now);
+        
+        // Kafka event: stored by the same single-document write as the message
+        outboxService.stage(message, "message-events", message.getConversationId(),
+                binaryMessageEvents ? messageCreated(message) : message);
+        final Message savedMessage = messageRepository.insert(message);
         final MessageResponse messageResponse = mapToMessageResponse(savedMessage);
         
+        // Conversation summary: latest message snapshot + recipient unread count (one atomic upsert)
+        conversationSummaryService.onMessageSent(savedMessage);
+        
+        // Then the recipient's unread counter: an unseeded counter skips the increment, and
+        // its seed reads a read model that already includes this message
+        unreadCounterService.increment(recipientId, senderId);
+        
+        // Kafka event: moved to the outbox before returning, published by the outbox relay
+        outboxService.dispatch(savedMessage);
+        
         // All async operations - non-blocking
         final Long finalRecipientId = recipientId;
         
-        // Kafka publishing - using dedicated executor
-        CompletableFuture.runAsync(() -> publishMessageEvent(savedMessage), 
-            getExecutor("kafkaExecutor"));
-        
-        // Push notification - using dedicated executor
-        CompletableFuture.runAsync(() -> sendPushNotification(savedMessage, senderId), 
-            getExecutor("notificationExecutor"));
+        // Push notification - using dedicated executor (group members are notified by the fan-out)
+        if (finalRecipientId != null) {
+            CompletableFuture.runAsync(() -> sendPushNotification(savedMessage, senderId), 
+                getExecutor("notificationExecutor"));
+        }
         
         // WebSocket real-time delivery - using dedicated executor
         if (finalRecipientId != null) {
             CompletableFuture.runAsync(() -> {
                 eventPublisher.publishEvent(new SendMessageEvent(finalRecipientId, messageResponse));
-                eventPublisher.publishEvent(new SendConversationUpdateEvent(finalRecipientId));
-                eventPublisher.publishEvent(new SendUnreadCountUpdateEvent(finalRecipientId));
+                // Conversation + unread changes are batched per user into one CONVERSATION_DELTA
+                eventPublisher.publishEvent(new SendConversationDeltaEvent(finalRecipientId, messageResponse));
             }, getExecutor("websocketExecutor"));
             
             // Also evict recipient's cache
             CompletableFuture.runAsync(() -> {
                 org.springframework.cache.Cache conversationCache = cacheManager.getCache("conversationList");
-                org.springframework.cache.Cache unreadCache = cacheManager.getCache("unreadCount");
                 if (conversationCache != null) conversationCache.evict(finalRecipientId);
-                if (unreadCache != null) unreadCache.evict(finalRecipientId);
             });
+        } else if (savedMessage.getGroupId() != null) {
+            // Group: WebSocket to connected members, batched push to the rest (async, bounded)
+            groupFanoutService.fanOut(savedMessage, messageResponse);
         }
         
-        // Sender's conversation list update - using websocket executor
+        // Sender's conversation delta - using websocket executor
         CompletableFuture.runAsync(() -> 
-            eventPublisher.publishEvent(new SendConversationUpdateEvent(senderId)), 
+            eventPublisher.publishEvent(new SendConversationDeltaEvent(senderId, messageResponse)), 
             getExecutor("websocketExecutor"));
         
         log.debug("Message sent successfully with ID: {}", savedMessage.getId());
@@ -127,7 +175,60 @@ public class MessagingServiceImpl implements MessagingService {
     @Override
     public Page<MessageResponse> getConversationMessages(Long userId1, Long userId2, Pageable pageable) {
         Page<Message> messages = messageRepository.findConversationMessages(userId1, userId2, pageable);
-        return messages.map(this::mapToMessageResponse);
+        Map<String, Conversation.ReadMark> readMarks = conversationSummaryService.getReadMarks(
+                ConversationIds.direct(userId1, userId2));
+        return messages.map(message -> mapToMessageResponse(message, readMarks));
+    }
+    
+    @Override
+    public CursorPage<MessageResponse> getConversationHistory(Long userId1, Long userId2, String before, String after, int limit) {
+        MessageCursor beforeCursor = MessageCursor.decode(before);
+        MessageCursor afterCursor = MessageCursor.decode(after);
+        int pageSize = historyPageSize(limit);
+        
+        // One extra row tells whether another page exists - no count query
+        List<Message> messages = messageRepository.findConversationSlice(userId1, userId2, beforeCursor, afterCursor, pageSize + 1);
+        Map<String, Conversation.ReadMark> readMarks = conversationSummaryService.getReadMarks(
+                ConversationIds.direct(userId1, userId2));
+        return toCursorPage(messages, pageSize, afterCursor != null && beforeCursor == null, readMarks);
+    }
+    
+    @Override
+    public CursorPage<MessageResponse> getGroupHistory(String groupId, String before, String after, int limit) {
+        MessageCursor beforeCursor = MessageCursor.decode(before);
+        MessageCursor afterCursor = MessageCursor.decode(after);
+        int pageSize = historyPageSize(limit);
+        
+        List<Message> messages = messageRepository.findGroupSlice(groupId, beforeCursor, afterCursor, pageSize + 1);
+        return toCursorPage(messages, pageSize, afterCursor != null && beforeCursor == null, Map.of());
+    }
+    
+    private static int historyPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+    }
+    
+    /**
+     * Trim the look-ahead row and build cursors
+     * 
+     * @param messages Slice fetched with pageSize + 1, newest first
+     * @param pagingForward true when paging towards newer messages (the extra row is the newest one)
+     * @param readMarks Read watermarks of the conversation's participants, by user ID
+     */
+    private CursorPage<MessageResponse> toCursorPage(List<Message> messages, int pageSize, boolean pagingForward,
+                                                     Map<String, Conversation.ReadMark> readMarks) {
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = pagingForward 
+                    ? messages.subList(messages.size() - pageSize, messages.size()) 
+                    : messages.subList(0, pageSize);
+        }
+        
+        return CursorPage.<MessageResponse>builder()
+                .items(messages.stream().map(message -> mapToMessageResponse(message, readMarks)).collect(Collectors.toList()))
+                .nextCursor(messages.isEmpty() ? null : MessageCursor.of(messages.get(messages.size() - 1)).encode())
+                .prevCursor(messages.isEmpty() ? null : MessageCursor.of(messages.get(0)).encode())
+                .hasMore(hasMore)
+                .build();
     }
     
     @Override
@@ -136,20 +237,35 @@ public class MessagingServiceImpl implements MessagingService {
         log.debug("Getting conversation list for user: {} from database", userId);
         
         try {
-            // Get latest messages for all conversations
-            List<Message> latestMessages = messageRepository.findLatestMessagesForConversations(userId);
+            // Single indexed read of the conversations read model (latest message + unread counts included)
+            List<Conversation> summaries = conversationSummaryService.getConversations(userId);
+            
+            // Group names/avatars for group conversations in one query
+            List<String> groupIds = summaries.stream()
+                    .map(Conversation::getGroupId)
+                    .filter(java.util.Objects::nonNull)
+                    .collect(Collectors.toList());
+            Map<String, Group> groups = groupIds.isEmpty() ? Map.of() : groupRepository.findAllById(groupIds).stream()
+                    .collect(Collectors.toMap(Group::getId, group -> group));
             
-            // Get unread counts per conversation partner
-            List<MessageRepository.UnreadCountResult> unreadCounts = messageRepository.findUnreadCountsBySender(userId);
-            Map<Long, Long> unreadCountMap = unreadCounts.stream()
-                    .collect(Collectors.toMap(
-                            MessageRepository.UnreadCountResult::getSenderId,
-                            MessageRepository.UnreadCountResult::getUnreadCount
-                    ));
+            // Partner and latest-sender profiles in one cache lookup (one batch request for misses)
+            Set<Long> profileIds = new java.util.HashSet<>();
+            for (Conversation summary : summaries) {
+                if (summary.getType() == Conversation.ConversationType.INDIVIDUAL) {
+                    profileIds.addAll(summary.getParticipantIds());
+                }
+                if (summary.getLastMessage() != null) {
+                    profileIds.add(summary.getLastMessage().getSenderId());
+                }
+            }
+            Map<Long, UserServiceClient.UserDto> users = userProfileCache.getAll(profileIds);
+            
+            // Direct chat unread counts from the shared counters (one hash read, no count queries)
+            Map<Long, Long> unreadBySender = unreadCounterService.getUnreadBySender(userId);
             
             // Convert to conversation responses
-            List<ConversationResponse> conversations = latestMessages.stream()
-                    .map(message -> mapToConversationResponse(message, userId, unreadCountMap))
+            List<ConversationResponse> conversations = summaries.stream()
+                    .map(summary -> mapToConversationResponse(summary, userId, groups, users, unreadBySender))
                     .collect(Collectors.toList());
             
             log.debug("Found {} conversations for user {}", conversations.size(), userId);
@@ -162,77 +278,84 @@ public class MessagingServiceImpl implements MessagingService {
     }
     
     /**
-     * Maps a latest message to conversation response
+     * Maps a conversation summary to conversation response
      * 
-     * @param message Latest message in the conversation
+     * @param summary Conversation read model document
      * @param currentUserId ID of current user viewing the conversation list
-     * @param unreadCountMap Map of senderId -> count of unread messages from that sender
+     * @param groups Groups referenced by the user's group conversations, by ID
+     * @param users Profiles of participants and latest senders, by user ID
+     * @param unreadBySender Current user's direct chat unread counts, by partner ID
      * @return ConversationResponse with unread count for THIS specific conversation
      */
-    @SuppressWarnings("unused")
-    private ConversationResponse mapToConversationResponse(Message message, Long currentUserId, Map<Long, Long> unreadCountMap) {
-        // Determine the other user in the conversation (the conversation partner)
-        Long otherUserId = message.getSenderId().equals(currentUserId) ? 
-                message.getRecipientId() : message.getSenderId();
+    private ConversationResponse mapToConversationResponse(Conversation summary, Long currentUserId, Map<String, Group> groups,
+                                                           Map<Long, UserServiceClient.UserDto> users, Map<Long, Long> unreadBySender) {
+        Conversation.LastMessage message = summary.getLastMessage();
         
-        // Get user details (this would typically come from User Service)
-        String userName = getUserName(otherUserId);
-        String userAvatar = getUserAvatar(otherUserId);
-        String userStatus = getUserStatus(otherUserId);
-        
-        // Get unread count for THIS specific conversation (messages FROM otherUserId TO currentUserId)
-        // Example: If currentUserId is 13 and otherUserId is 12, this gets unread messages FROM user 12
-        Long unreadCount = unreadCountMap.getOrDefault(otherUserId, 0L);
-        
-        log.debug("Conversation with user {}: {} unread messages", otherUserId, unreadCount);
+        // Unread messages in this conversation for the current user: groups are not counted
+        // per message, so their count comes from the read model (set when the watermark moves)
+        Long unreadCount = summary.getUnreadCounts() != null 
+                ? summary.getUnreadCounts().getOrDefault(String.valueOf(currentUserId), 0L) : 0L;
         
         // Check if user is currently typing (this would come from WebSocket state)
         Boolean isTyping = false; // Placeholder - would be managed by WebSocket state
         
-        return ConversationResponse.builder()
-                .userId(otherUserId)
-                .userName(userName)
-                .userAvatar(userAvatar)
-                .userStatus(userStatus)
-                .latestMessageId(message.getId())
+        ConversationResponse.ConversationResponseBuilder builder = ConversationResponse.builder()
+                .latestMessageId(message.getMessageId())
                 .latestMessageContent(message.getContent())
-                .latestMessageType(message.getType().name())
+                .latestMessageType(message.getType() != null ? message.getType().name() : null)
                 .latestMessageSenderId(message.getSenderId())
-                .latestMessageSenderName(getUserName(message.getSenderId()))
+                .latestMessageSenderName(userName(users, message.getSenderId()))
                 .latestMessageTime(message.getCreatedAt())
-                .latestMessageStatus(message.getStatus().name())
-                .unreadCount(unreadCount.intValue()) // Unread messages FROM this specific user
+                .latestMessageStatus(message.getStatus() != null ? message.getStatus().name() : null)
+                .unreadCount(unreadCount.intValue())
                 .isTyping(isTyping)
-                .conversationType("INDIVIDUAL")
+                .conversationType(summary.getType().name());
+        
+        if (summary.getType() == Conversation.ConversationType.GROUP) {
+            Group group = groups.get(summary.getGroupId());
+            return builder
+                    .groupId(summary.getGroupId())
+                    .groupName(group != null ? group.getName() : null)
+                    .groupAvatar(group != null ? group.getAvatarUrl() : null)
+                    .build();
+        }
+        
+        // Determine the other user in the conversation (the conversation partner)
+        Long otherUserId = summary.getParticipantIds().stream()
+                .filter(id -> !id.equals(currentUserId))
+                .findFirst()
+                .orElse(currentUserId);
+        
+        Conversation.ReadMark partnerReadMark = summary.getReadMarks() != null
+                ? summary.getReadMarks().get(String.valueOf(otherUserId)) : null;
+        if (partnerReadMark != null && !otherUserId.equals(currentUserId)) {
+            builder.partnerReadUpToMessageId(partnerReadMark.getMessageId())
+                    .partnerReadUpToTime(partnerReadMark.getMessageCreatedAt());
+        }
+        
+        return builder
+                .unreadCount(otherUserId.equals(currentUserId) ? 0 : unreadBySender.getOrDefault(otherUserId, 0L).intValue())
+                .userId(otherUserId)
+                .userName(userName(users, otherUserId))
+                .userAvatar(userAvatar(users, otherUserId))
+                .userStatus(getUserStatus(otherUserId))
                 .build();
     }
     
     /**
-     * Get user name by ID with caching
+     * User name from prefetched profiles, "User {id}" if unknown
      */
-    @Cacheable(value = "userDetails", key = "'name:' + #userId")
-    private String getUserName(Long userId) {
-        try {
-            // This would typically call User Service to get user details
-            return "User " + userId;
-        } catch (Exception e) {
-            log.warn("Failed to get user name for ID: {}", userId);
-            return "Unknown User";
-        }
+    private static String userName(Map<Long, UserServiceClient.UserDto> users, Long userId) {
+        UserServiceClient.UserDto user = users.get(userId);
+        return user != null && user.getName() != null ? user.getName() : "User " + userId;
     }
     
     /**
-     * Get user avatar by ID with caching
+     * User avatar from prefetched profiles, the default avatar if unknown or unset
      */
-    @Cacheable(value = "userDetails", key = "'avatar:' + #userId")
-    private String getUserAvatar(Long userId) {
-        try {
-            // This would typically call User Service to get user avatar
-            return "/default-avatar.png";
-        } catch (Exception e) {
-            log.warn("Failed to get user avatar for ID: {}", userId);
-            return "/default-avatar.png";
-        }
+    private static String userAvatar(Map<Long, UserServiceClient.UserDto> users, Long userId) {
+        UserServiceClient.UserDto user = users.get(userId);
+        return user != null && user.getAvatarUrl() != null ? user.getAvatarUrl() : "/default-avatar.png";
     }
     
     /**
@@ -248,12 +371,12 @@ public class MessagingServiceImpl implements MessagingService {
     }
     
     @Override
-    @Cacheable(value = "unreadCount", key = "#userId")
     public long getTotalUnreadCount(Long userId) {
-        log.debug("Getting total unread count for user: {} from database", userId);
+        log.debug("Getting total unread count for user: {}", userId);
         
         try {
-            long totalUnreadCount = messageRepository.countTotalUnreadMessages(userId);
+            // Shared write-through counter: no database access once the user is seeded
+            long totalUnreadCount = unreadCounterService.getTotalUnread(userId);
             log.debug("User {} has {} total unread messages", userId, totalUnreadCount);
             return totalUnreadCount;
         } catch (Exception e) {
@@ -271,10 +394,7 @@ public class MessagingServiceImpl implements MessagingService {
     @Override
     public Page<MessageResponse> getUserMessages(Long userId, Pageable pageable) {
         // Get user's groups
-        List<Group> userGroups = groupRepository.findByUserId(userId);
-        List<String> groupIds = userGroups.stream()
-                .map(Group::getId)
-                .collect(Collectors.toList());
+        List<String> groupIds = List.copyOf(groupMembershipService.getGroupIds(userId));
         
         Page<Message> messages = messageRepository.findUserMessages(userId, groupIds, pageable);
         return messages.map(this::mapToMessageResponse);
@@ -282,137 +402,265 @@ public class MessagingServiceImpl implements MessagingService {
     
     @Override
     public List<MessageResponse> searchMessages(String query, Long userId) {
-        List<Message> messages = messageRepository.searchMessages(query, userId);
-        return messages.stream()
-                .map(this::mapToMessageResponse)
+        return searchMessageHits(query, userId, 0, MAX_SEARCH_PAGE_SIZE).getHits().stream()
+                .map(MessageSearchHit::getMessage)
                 .collect(Collectors.toList());
     }
     
     @Override
-    @CacheEvict(value = {"conversationList", "unreadCount"}, key = "#userId")  // Targeted cache eviction
+    public MessageSearchPage searchMessageHits(String query, Long userId, int page, int size) {
+        String text = query != null ? query.trim() : "";
+        Set<String> terms = SearchSnippets.terms(text);
+        if (terms.isEmpty() || text.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new ChitChatException("Search query must contain 1 to " + MAX_SEARCH_QUERY_LENGTH + " characters of text",
+                    HttpStatus.BAD_REQUEST, "INVALID_SEARCH_QUERY");
+        }
+        
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        int offset = pageNumber * pageSize;
+        if (offset >= MAX_SEARCH_RESULTS) {
+            return MessageSearchPage.builder().query(text).hits(List.of()).page(pageNumber).size(pageSize).hasMore(false).build();
+        }
+        
+        List<String> groupIds = List.copyOf(groupMembershipService.getGroupIds(userId));
+        
+        // Fetch one extra hit to know whether another page exists
+        List<Message> messages = messageRepository.searchMessages(text, userId, groupIds, offset, pageSize + 1);
+        boolean hasMore = messages.size() > pageSize && offset + pageSize < MAX_SEARCH_RESULTS;
+        
+        List<MessageSearchHit> hits = messages.stream()
+                .limit(pageSize)
+                .map(message -> {
+                    SearchSnippets.Snippet snippet = SearchSnippets.of(message.getContent(), terms, SEARCH_SNIPPET_LENGTH);
+                    return MessageSearchHit.builder()
+                            .message(mapToMessageResponse(message))
+                            .score(message.getScore())
+                            .snippet(snippet.text())
+                            .highlights(snippet.highlights())
+                            .build();
+                })
+                .collect(Collectors.toList());
+        
+        return MessageSearchPage.builder()
+                .query(text)
+                .hits(hits)
+                .page(pageNumber)
+                .size(pageSize)
+                .hasMore(hasMore)
+                .build();
+    }
+    
+    @Override
+    @CacheEvict(value = "conversationList", key = "#userId")  // Targeted cache eviction
     public MessageResponse markMessageAsRead(String messageId, Long userId) {
         Message message = messageRepository.findById(messageId)
                 .orElseThrow(() -> new ChitChatException("Message not found", HttpStatus.NOT_FOUND, "MESSAGE_NOT_FOUND"));
         
         // Check if user is the recipient
-        if (!message.getRecipientId().equals(userId) && !isUserInGroup(userId, message.getGroupId())) {
+        if (!message.getRecipientId().equals(userId) && !groupMembershipService.isMember(message.getGroupId(), userId)) {
             throw new ChitChatException("Unauthorized to mark message as read", HttpStatus.FORBIDDEN, "UNAUTHORIZED");
         }
         
-        message.setStatus(Message.MessageStatus.READ);
-        message.setReadAt(LocalDateTime.now());
-        message = messageRepository.save(message);
+        // Reading a message reads everything before it: one watermark write, no status change.
+        // An older message than the watermark is already read and changes nothing.
+        ReadWatermarkResponse watermark = readUpTo(userId, message);
         
-        // Async operations using dedicated executors
-        Message finalMessage = message;
-        CompletableFuture.runAsync(() -> {
-            publishReadReceiptEvent(finalMessage);
-            
-            // Send read status update via WebSocket to sender
-            if (finalMessage.getSenderId() != null) {
-                eventPublisher.publishEvent(new SendStatusUpdateEvent(finalMessage.getSenderId(), finalMessage.getId(), "READ"));
-            }
-            
-            // Send unread count update to user who marked as read
-            eventPublisher.publishEvent(new SendUnreadCountUpdateEvent(userId));
-        }, getExecutor("websocketExecutor"));
+        if (watermark.isAdvanced() && message.getGroupId() == null) {
+            // Per-message tick for clients that do not handle READ_UPTO yet
+            Long senderId = message.getSenderId();
+            CompletableFuture.runAsync(() ->
+                eventPublisher.publishEvent(new SendStatusUpdateEvent(senderId, messageId, "READ")),
+                getExecutor("websocketExecutor"));
+        }
         
-        return mapToMessageResponse(message);
+        MessageResponse response = mapToMessageResponse(message);
+        if (message.getGroupId() == null) {
+            response.setStatus(Message.MessageStatus.READ);
+            if (response.getReadAt() == null) {
+                response.setReadAt(watermark.getReadAt());
+            }
+        }
+        return response;
     }
     
     @Override
-    @CacheEvict(value = {"conversationList", "unreadCount"}, key = "#recipientId")  // Targeted cache eviction
+    @CacheEvict(value = "conversationList", key = "#recipientId")  // Targeted cache eviction
     public int markAllMessagesAsReadFromSender(Long recipientId, Long senderId) {
         log.debug("Bulk marking messages as read: recipient={}, sender={}", recipientId, senderId);
         
-        // Find all unread messages from sender to recipient
-        List<Message> unreadMessages = messageRepository.findUnreadMessagesFromSender(recipientId, senderId);
+        // Reading everything is a watermark at the sender's latest message
+        Message latest = messageRepository.findLatestMessageFromSender(recipientId, senderId);
+        if (latest == null) {
+            log.debug("No messages found from sender {} to recipient {}", senderId, recipientId);
+            return 0;
+        }
         
-        if (unreadMessages.isEmpty()) {
-            log.debug("No unread messages found from sender {} to recipient {}", senderId, recipientId);
+        String conversationId = ConversationIds.direct(recipientId, senderId);
+        Conversation.ReadMark previous = conversationSummaryService.getReadMarks(recipientId, List.of(conversationId))
+                .get(conversationId);
+        long unreadBefore = messageRepository.countUnreadFromSender(recipientId, senderId, MessageCursor.of(previous));
+        if (unreadBefore == 0) {
             return 0;
         }
         
-        // Update all messages in bulk
-        LocalDateTime now = LocalDateTime.now();
-        int updatedCount = 0;
+        ReadWatermarkResponse watermark = readUpTo(recipientId, latest);
+        if (!watermark.isAdvanced()) {
+            // Another request read them first
+            return 0;
+        }
         
-        for (Message message : unreadMessages) {
-            message.setStatus(Message.MessageStatus.READ);
-            message.setReadAt(now);
+        int readCount = (int) Math.max(0, unreadBefore - watermark.getUnreadCount());
+        log.debug("Bulk marked {} messages as read from sender {} to recipient {}", readCount, senderId, recipientId);
+        return readCount;
+    }
+    
+    @Override
+    @CacheEvict(value = "conversationList", key = "#userId")
+    public ReadWatermarkResponse markConversationReadUpTo(Long userId, String messageId) {
+        Message upTo = messageRepository.findById(messageId)
+                .orElseThrow(() -> new ChitChatException("Message not found", HttpStatus.NOT_FOUND, "MESSAGE_NOT_FOUND"));
+        return readUpTo(userId, upTo);
+    }
+    
+    /**
+     * Advance a user's read watermark to a message and notify the other participants
+     * 
+     * The only write is the conditional watermark update on the conversation
+     * document, whatever the number of messages it covers. Unread counts are
+     * then counted after the new watermark, bounded by the messages still unread.
+     */
+    private ReadWatermarkResponse readUpTo(Long userId, Message upTo) {
+        String groupId = upTo.getGroupId();
+        GroupMembershipService.Members group = null;
+        Long partnerId = null;
+        if (groupId != null) {
+            group = groupMembershipService.getMembers(groupId);
+            if (group == null || !group.contains(userId)) {
+                throw new ChitChatException("Unauthorized to mark message as read", HttpStatus.FORBIDDEN, "UNAUTHORIZED");
+            }
+        } else if (userId.equals(upTo.getRecipientId())) {
+            partnerId = upTo.getSenderId();
+        } else if (userId.equals(upTo.getSenderId())) {
+            partnerId = upTo.getRecipientId();
+        } else {
+            throw new ChitChatException("Unauthorized to mark message as read", HttpStatus.FORBIDDEN, "UNAUTHORIZED");
         }
         
-        // Save all messages in a single batch operation
-        List<Message> savedMessages = messageRepository.saveAll(unreadMessages);
-        updatedCount = savedMessages.size();
+        MessageCursor watermark = MessageCursor.of(upTo);
+        LocalDateTime readAt = LocalDateTime.now();
+        long unreadCount;
+        if (groupId != null) {
+            unreadCount = messageRepository.countGroupMessagesAfter(groupId, userId, watermark);
+        } else {
+            // Messages stay SENT/DELIVERED: what is after the watermark is unread
+            unreadCount = partnerId.equals(userId) ? 0 : messageRepository.countUnreadFromSender(userId, partnerId, watermark);
+        }
         
-        // Async operations for notifications
-        final int finalCount = updatedCount;
-        CompletableFuture.runAsync(() -> {
-            // Publish read receipts for all messages
-            for (Message message : savedMessages) {
-                publishReadReceiptEvent(message);
-                
-                // Send read status update via WebSocket to sender
-                if (message.getSenderId() != null) {
-                    eventPublisher.publishEvent(new SendStatusUpdateEvent(message.getSenderId(), message.getId(), "READ"));
-                }
+        // Single conditional write; false if the watermark was already at or past this message
+        boolean advanced = conversationSummaryService.onReadUpTo(userId, upTo, unreadCount);
+        String conversationId = ConversationIds.of(upTo);
+        
+        if (advanced) {
+            List<Long> recipientIds;
+            if (groupId != null) {
+                recipientIds = group.userIds().stream()
+                        .filter(memberId -> !memberId.equals(userId))
+                        .collect(Collectors.toList());
+            } else {
+                unreadCounterService.set(userId, partnerId, unreadCount);
+                recipientIds = partnerId.equals(userId) ? List.of() : List.of(partnerId);
             }
             
-            // Send unread count update to user who marked messages as read
-            eventPublisher.publishEvent(new SendUnreadCountUpdateEvent(recipientId));
+            publishReadUpToEvent(conversationId, groupId, userId, upTo, readAt);
             
-            log.debug("Bulk marked {} messages as read from sender {} to recipient {}", finalCount, senderId, recipientId);
-        }, getExecutor("websocketExecutor"));
+            Long finalPartnerId = partnerId;
+            long readAtMillis = System.currentTimeMillis();
+            CompletableFuture.runAsync(() -> {
+                if (!recipientIds.isEmpty()) {
+                    eventPublisher.publishEvent(new SendReadUpToEvent(recipientIds, conversationId, groupId, userId,
+                            upTo.getId(), readAtMillis));
+                }
+                if (finalPartnerId != null) {
+                    eventPublisher.publishEvent(new SendUnreadCountUpdateEvent(userId, finalPartnerId));
+                }
+            }, getExecutor("websocketExecutor"));
+            
+            log.debug("User {} read conversation {} up to message {} ({} unread left)",
+                    userId, conversationId, upTo.getId(), unreadCount);
+        }
         
-        return updatedCount;
+        return ReadWatermarkResponse.builder()
+                .conversationId(conversationId)
+                .groupId(groupId)
+                .userId(userId)
+                .messageId(upTo.getId())
+                .messageCreatedAt(upTo.getCreatedAt())
+                .readAt(readAt)
+                .unreadCount(unreadCount)
+                .advanced(advanced)
+                .build();
     }
     
     @Override
-    public List<MessageResponse> getPendingMessages(Long recipientId) {
-        log.debug("Fetching pending messages (SENT status) for user: {}", recipientId);
-        
-        // Find all messages in SENT status for this recipient
-        List<Message> pendingMessages = messageRepository.findPendingMessagesForRecipient(recipientId);
-        
-        if (pendingMessages.isEmpty()) {
-            log.debug("No pending messages found for user: {}", recipientId);
-            return new ArrayList<>();
-        }
-        
-        log.info("Found {} pending messages for user: {}", pendingMessages.size(), recipientId);
-        
-        // Convert to MessageResponse
-        List<MessageResponse> messageResponses = pendingMessages.stream()
-                .map(this::mapToMessageResponse)
-                .collect(Collectors.toList());
-        
-        // Mark all messages as DELIVERED asynchronously
-        CompletableFuture.runAsync(() -> {
-            LocalDateTime now = LocalDateTime.now();
-            for (Message message : pendingMessages) {
-                message.setStatus(Message.MessageStatus.DELIVERED);
-                message.setDeliveredAt(now);
+    public List<MessageResponse> getPendingMessageBatch(Long recipientId, MessageCursor after, int limit) {
+        List<MessageResponse> pending = new ArrayList<>(limit);
+        MessageCursor position = after;
+        while (pending.size() < limit) {
+            int sliceSize = limit - pending.size();
+            List<Message> slice = messageRepository.findPendingSlice(recipientId, position, sliceSize);
+            if (slice.isEmpty()) {
+                break;
             }
             
-            // Batch save all updated messages
-            List<Message> deliveredMessages = messageRepository.saveAll(pendingMessages);
-            
-            // Notify senders about delivery status
-            for (Message message : deliveredMessages) {
-                if (message.getSenderId() != null) {
-                    eventPublisher.publishEvent(new SendStatusUpdateEvent(
-                        message.getSenderId(), 
-                        message.getId(), 
-                        "DELIVERED"
-                    ));
+            // Messages the recipient already read through a watermark (on another device) are not replayed;
+            // they only leave the SENT backlog
+            Set<String> conversationIds = slice.stream().map(ConversationIds::of).collect(Collectors.toSet());
+            Map<String, Conversation.ReadMark> readMarks = conversationSummaryService.getReadMarks(recipientId, conversationIds);
+            List<String> alreadyRead = new ArrayList<>();
+            for (Message message : slice) {
+                MessageCursor mark = MessageCursor.of(readMarks.get(ConversationIds.of(message)));
+                if (mark != null && mark.covers(message)) {
+                    alreadyRead.add(message.getId());
+                } else {
+                    pending.add(mapToMessageResponse(message));
                 }
             }
+            if (!alreadyRead.isEmpty()) {
+                messageRepository.updateStatus(alreadyRead, List.of(Message.MessageStatus.SENT),
+                        Message.MessageStatus.DELIVERED, LocalDateTime.now());
+            }
             
-            log.info("Marked {} messages as DELIVERED for user: {}", deliveredMessages.size(), recipientId);
-        }, getExecutor("websocketExecutor"));
+            if (slice.size() < sliceSize) {
+                break;
+            }
+            position = MessageCursor.of(slice.get(slice.size() - 1));
+        }
+        return pending;
+    }
+    
+    @Override
+    public void markMessagesDelivered(Long recipientId, List<MessageResponse> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
         
-        return messageResponses;
+        // One updateMany for the batch; messages read meanwhile stay READ
+        List<String> messageIds = messages.stream()
+                .map(MessageResponse::getId)
+                .collect(Collectors.toList());
+        long deliveredCount = messageRepository.updateStatus(messageIds, List.of(Message.MessageStatus.SENT),
+                Message.MessageStatus.DELIVERED, LocalDateTime.now());
+        
+        // Notify each sender once about all of their delivered messages
+        Map<Long, List<String>> idsBySender = messages.stream()
+                .filter(message -> message.getSenderId() != null)
+                .collect(Collectors.groupingBy(MessageResponse::getSenderId,
+                        Collectors.mapping(MessageResponse::getId, Collectors.toList())));
+        idsBySender.forEach((senderId, ids) ->
+                eventPublisher.publishEvent(new SendStatusBatchUpdateEvent(senderId, ids, "DELIVERED")));
+        
+        log.debug("Marked {} messages as DELIVERED for user: {}", deliveredCount, recipientId);
     }
     
     @Override
@@ -446,6 +694,10 @@ public class MessagingServiceImpl implements MessagingService {
             throw new ChitChatException("Only sender can delete message", HttpStatus.FORBIDDEN, "UNAUTHORIZED");
         }
         
+        // Unread: a direct message after the recipient's watermark that is not a legacy READ
+        boolean wasUnread = message.getGroupId() == null && message.getRecipientId() != null
+                && (message.getStatus() == Message.MessageStatus.SENT || message.getStatus() == Message.MessageStatus.DELIVERED)
+                && !isReadByRecipient(message, conversationSummaryService.getReadMarks(ConversationIds.of(message)));
         if (deleteForEveryone) {
             messageRepository.delete(message);
             // Publish delete event for all recipients
@@ -455,6 +707,14 @@ public class MessagingServiceImpl implements MessagingService {
             message.setStatus(Message.MessageStatus.FAILED);
             messageRepository.save(message);
         }
+        
+        // Keep the conversation summary's snapshot and unread count in step
+        conversationSummaryService.onMessageDeleted(message, wasUnread, deleteForEveryone);
+        
+        // A deleted message the recipient had not read no longer counts as unread
+        if (wasUnread) {
+            unreadCounterService.decrement(message.getRecipientId(), message.getSenderId(), 1);
+        }
     }
     
     @Override
@@ -470,7 +730,7 @@ public class MessagingServiceImpl implements MessagingService {
         
         if (isPinned) {
             // Unpin any existing pinned message in this conversation
-            List<Message> existingPinnedMessages = messageRepository.findBySenderIdAndRecipientIdAndIsPinnedTrue(
+            List<Message> existingPinnedMessages = messageRepository.findPinnedConversationMessages(
                 message.getSenderId(), message.getRecipientId());
             
             if (message.getSenderId().equals(message.getRecipientId())) {
@@ -485,12 +745,11 @@ public class MessagingServiceImpl implements MessagingService {
             }
         }
         
-        // Set the pin status
+        // Set the pin status, and stage the pin event for both users in the conversation on the same write
         message.setIsPinned(isPinned);
+        stagePinMessageEvent(message, userId, isPinned);
         Message updatedMessage = messageRepository.save(message);
-        
-        // Publish pin event for both users in the conversation
-        publishPinMessageEvent(updatedMessage, userId, isPinned);
+        outboxService.dispatch(message);
         
         return mapToMessageResponse(updatedMessage);
     }
@@ -524,6 +783,8 @@ public class MessagingServiceImpl implements MessagingService {
         group.setMembers(List.of(adminMember));
         
         group = groupRepository.save(group);
+        groupMembershipService.onGroupSaved(group);
+        conversationSummaryService.onGroupMembershipChanged(group.getId(), adminId, true);
         
         log.info("Group created successfully with ID: {}", group.getId());
         
@@ -533,14 +794,17 @@ public class MessagingServiceImpl implements MessagingService {
     @Override
     @Transactional
     public GroupResponse addMemberToGroup(String groupId, Long adminId, Long memberId) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ChitChatException("Group not found", HttpStatus.NOT_FOUND, "GROUP_NOT_FOUND"));
-        
-        // Check if user is admin or moderator
-        if (!isUserAdminOrModerator(group, adminId)) {
+        // Check if user is admin or moderator (cached roles: rejected requests never load the group)
+        if (!groupMembershipService.isAdminOrModerator(groupId, adminId)) {
+            if (groupMembershipService.getMembers(groupId) == null) {
+                throw new ChitChatException("Group not found", HttpStatus.NOT_FOUND, "GROUP_NOT_FOUND");
+            }
             throw new ChitChatException("Only admin or moderator can add members", HttpStatus.FORBIDDEN, "UNAUTHORIZED");
         }
         
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new ChitChatException("Group not found", HttpStatus.NOT_FOUND, "GROUP_NOT_FOUND"));
+        
         // Check if member already exists
         boolean memberExists = group.getMembers().stream()
                 .anyMatch(member -> member.getUserId().equals(memberId));
@@ -559,6 +823,8 @@ public class MessagingServiceImpl implements MessagingService {
         group.setLastActivity(LocalDateTime.now());
         
         group = groupRepository.save(group);
+        groupMembershipService.onMemberAdded(groupId, memberId, newMember.getRole());
+        conversationSummaryService.onGroupMembershipChanged(groupId, memberId, true);
         
         return mapToGroupResponse(group);
     }
@@ -566,19 +832,24 @@ public class MessagingServiceImpl implements MessagingService {
     @Override
     @Transactional
     public GroupResponse removeMemberFromGroup(String groupId, Long adminId, Long memberId) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ChitChatException("Group not found", HttpStatus.NOT_FOUND, "GROUP_NOT_FOUND"));
-        
-        // Check if user is admin or moderator
-        if (!isUserAdminOrModerator(group, adminId)) {
+        // Check if user is admin or moderator (cached roles: rejected requests never load the group)
+        if (!groupMembershipService.isAdminOrModerator(groupId, adminId)) {
+            if (groupMembershipService.getMembers(groupId) == null) {
+                throw new ChitChatException("Group not found", HttpStatus.NOT_FOUND, "GROUP_NOT_FOUND");
+            }
             throw new ChitChatException("Only admin or moderator can remove members", HttpStatus.FORBIDDEN, "UNAUTHORIZED");
         }
         
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new ChitChatException("Group not found", HttpStatus.NOT_FOUND, "GROUP_NOT_FOUND"));
+        
         // Remove member
         group.getMembers().removeIf(member -> member.getUserId().equals(memberId));
         group.setLastActivity(LocalDateTime.now());
         
         group = groupRepository.save(group);
+        groupMembershipService.onMemberRemoved(groupId, memberId);
+        conversationSummaryService.onGroupMembershipChanged(groupId, memberId, false);
         
         return mapToGroupResponse(group);
     }
@@ -599,6 +870,7 @@ public class MessagingServiceImpl implements MessagingService {
         group.setLastActivity(LocalDateTime.now());
         
         group = groupRepository.save(group);
+        groupMembershipService.onGroupSaved(group);
         
         return mapToGroupResponse(group);
     }
@@ -635,57 +907,54 @@ public class MessagingServiceImpl implements MessagingService {
         group.setLastActivity(LocalDateTime.now());
         
         groupRepository.save(group);
+        groupMembershipService.onMemberRemoved(groupId, userId);
+        conversationSummaryService.onGroupMembershipChanged(groupId, userId, false);
     }
     
-    private void publishMessageEvent(Message message) {
-        // Publish to Kafka for real-time delivery
-        kafkaTemplate.send("message-events", message);
-    }
-    
-    private void publishReadReceiptEvent(Message message) {
-        // Publish read receipt to Kafka
-        kafkaTemplate.send("read-receipt-events", message);
+    private void publishReadUpToEvent(String conversationId, String groupId, Long readerId, Message upTo, LocalDateTime readAt) {
+        // One receipt per read action, whatever the number of messages it covers
+        Map<String, Object> receiptData = new HashMap<>();
+        receiptData.put("type", "READ_UPTO");
+        receiptData.put("conversationId", conversationId);
+        receiptData.put("groupId", groupId);
+        receiptData.put("readerId", readerId);
+        receiptData.put("messageId", upTo.getId());
+        receiptData.put("messageCreatedAt", upTo.getCreatedAt());
+        receiptData.put("readAt", readAt);
+        outboxService.append("read-receipt-events", conversationId, receiptData);
     }
     
     private void publishDeleteMessageEvent(Message message) {
         // Publish delete event to Kafka
-        kafkaTemplate.send("delete-message-events", message);
+        outboxService.append("delete-message-events", ConversationIds.of(message), message);
     }
     
-    private void publishPinMessageEvent(Message message, Long userId, boolean isPinned) {
+    private void stagePinMessageEvent(Message message, Long userId, boolean isPinned) {
         // Create pin event data
         Map<String, Object> pinEventData = new HashMap<>();
         pinEventData.put("messageId", message.getId());
         pinEventData.put("isPinned", isPinned);
         pinEventData.put("pinnedBy", userId);
         pinEventData.put("timestamp", LocalDateTime.now());
+        pinEventData.put("senderId", message.getSenderId());
+        pinEventData.put("recipientId", message.getRecipientId());
+        pinEventData.put("groupId", message.getGroupId());
         
-        // Send to both users in the conversation
-        if (message.getRecipientId() != null) {
-            // One-on-one conversation
-            kafkaTemplate.send("pin-message-events", message.getSenderId().toString(), pinEventData);
-            kafkaTemplate.send("pin-message-events", message.getRecipientId().toString(), pinEventData);
-        } else if (message.getGroupId() != null) {
-            // Group conversation - send to all group members
-            // Note: In a real implementation, you'd get group members and send to each
-            kafkaTemplate.send("pin-message-events", message.getGroupId(), pinEventData);
-        }
+        // One event per change, keyed by conversation like the other message events,
+        // so pin and unpin of a conversation stay on one partition and in order
+        outboxService.stage(message, "pin-message-events", ConversationIds.of(message), pinEventData);
     }
     
     /**
-     * Send push notification for new message
-     * Handles both one-to-one and group chat notifications
-     * Only sends notification if recipient is NOT connected via WebSocket
+     * Send push notification for a new one-to-one message
+     * Group messages are notified by GroupFanoutService
      */
     private void sendPushNotification(Message message, Long senderId) {
         try {
-            // Get sender details
-            String senderName = getSenderName(senderId);
+            // Sender name and avatar from the profile cache (no user-service call when cached)
+            UserServiceClient.UserDto sender = userProfileCache.get(senderId);
             
-            if (message.getGroupId() != null) {
-                // Group message - send to all group members except sender
-                sendGroupMessageNotification(message, senderName);
-            } else if (message.getRecipientId() != null) {
+            if (message.getRecipientId() != null) {
                 // One-to-one message - always send push notification
                 // Even if user has WebSocket connection, they might be on home screen
                 boolean isRecipientConnected = webSocketService.isUserConnected(message.getRecipientId());
@@ -697,7 +966,7 @@ public class MessagingServiceImpl implements MessagingService {
                 }
                 
                 // Always send push notification for one-to-one messages
-                sendOneToOneMessageNotification(message, senderName);
+                sendOneToOneMessageNotification(message, sender);
             }
         } catch (Exception e) {
             log.error("Failed to send push notification for message: {}", message.getId(), e);
@@ -708,18 +977,10 @@ public class MessagingServiceImpl implements MessagingService {
     /**
      * Send notification for one-to-one message
      */
-    private void sendOneToOneMessageNotification(Message message, String senderName) {
+    private void sendOneToOneMessageNotification(Message message, UserServiceClient.UserDto sender) {
         try {
-            // Get sender's profile image
-            String senderAvatarUrl = null;
-            try {
-                UserServiceClient.UserDto sender = userServiceClient.getUserById(message.getSenderId());
-                if (sender != null && sender.getAvatarUrl() != null) {
-                    senderAvatarUrl = sender.getAvatarUrl();
-                }
-            } catch (Exception e) {
-                log.warn("Failed to fetch sender avatar for user: {}", message.getSenderId());
-            }
+            String senderName = sender != null && sender.getName() != null ? sender.getName() : "User";
+            String senderAvatarUrl = sender != null ? sender.getAvatarUrl() : null;
             
             notificationClient.sendMessageNotification(
                 message.getRecipientId(),
@@ -736,105 +997,33 @@ public class MessagingServiceImpl implements MessagingService {
     }
     
     /**
-     * Send notification for group message (async batch processing)
-     * Only sends notifications to members who are NOT connected via WebSocket
-     */
-    private void sendGroupMessageNotification(Message message, String senderName) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                Group group = groupRepository.findById(message.getGroupId()).orElse(null);
-                if (group == null) {
-                    log.warn("Group not found for notification: {}", message.getGroupId());
-                    return;
-                }
-                
-                String notificationBody = message.getContent();
-                if (notificationBody != null && notificationBody.length() > 100) {
-                    notificationBody = notificationBody.substring(0, 97) + "...";
-                }
-                
-                // Get sender's profile image
-                String senderAvatarUrl = null;
-                try {
-                    UserServiceClient.UserDto sender = userServiceClient.getUserById(message.getSenderId());
-                    if (sender != null && sender.getAvatarUrl() != null) {
-                        senderAvatarUrl = sender.getAvatarUrl();
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to fetch sender avatar for user: {}", message.getSenderId());
-                }
-                
-                // Batch process notifications to avoid overwhelming the notification service
-                // Send to all members (even if connected via WebSocket, they might be on home screen)
-                String finalNotificationBody = notificationBody;
-                String finalSenderAvatarUrl = senderAvatarUrl;
-                List<CompletableFuture<Void>> notificationFutures = group.getMembers().stream()
-                    .filter(member -> !member.getUserId().equals(message.getSenderId()))
-                    .map(member -> CompletableFuture.runAsync(() -> {
-                        try {
-                            boolean isConnected = webSocketService.isUserConnected(member.getUserId());
-                            if (isConnected) {
-                                log.info("Sending group notification to user {} (connected via WebSocket, but user might be on home screen)", member.getUserId());
-                            } else {
-                                log.info("Sending group notification to user {} (not connected via WebSocket)", member.getUserId());
-                            }
-                            notificationClient.sendMessageNotification(
-                                member.getUserId(),
-                                senderName + " in " + group.getName(),
-                                finalNotificationBody,
-                                message.getSenderId(),
-                                message.getId(),
-                                finalSenderAvatarUrl
-                            );
-                        } catch (Exception e) {
-                            log.error("Failed to send group notification to user: {}", member.getUserId(), e);
-                        }
-                    }))
-                    .collect(Collectors.toList());
-                
-                // Wait for all notifications to complete (with timeout)
-                CompletableFuture.allOf(notificationFutures.toArray(new CompletableFuture[0]))
-                    .orTimeout(5, java.util.concurrent.TimeUnit.SECONDS)
-                    .exceptionally(ex -> {
-                        log.warn("Some group notifications timed out", ex);
-                        return null;
-                    })
-                    .join();
-                
-                log.debug("Push notifications processed for group members");
-            } catch (Exception e) {
-                log.error("Failed to send group message notification", e);
-            }
-        });
-    }
-    
-    /**
-     * Get sender name from User Service
+     * Maps a message with its read state taken from the recipient's read watermark
+     * 
+     * Direct messages keep their SENT/DELIVERED status when read: the watermark
+     * that covers them is what makes them READ.
      */
-    private String getSenderName(Long senderId) {
-        try {
-            UserServiceClient.UserDto user = userServiceClient.getUserById(senderId);
-            return (user != null && user.getName() != null) ? user.getName() : "User";
-        } catch (Exception e) {
-            log.error("Failed to get sender name for user: {}", senderId, e);
-            return "User"; // Fallback
+    private MessageResponse mapToMessageResponse(Message message, Map<String, Conversation.ReadMark> readMarks) {
+        MessageResponse response = mapToMessageResponse(message);
+        if (message.getStatus() != Message.MessageStatus.READ && isReadByRecipient(message, readMarks)) {
+            response.setStatus(Message.MessageStatus.READ);
+            response.setReadAt(readMarks.get(String.valueOf(message.getRecipientId())).getReadAt());
         }
+        return response;
     }
     
-    private boolean isUserInGroup(Long userId, String groupId) {
-        if (groupId == null) return false;
-        
-        Group group = groupRepository.findById(groupId).orElse(null);
-        if (group == null) return false;
-        
-        return group.getMembers().stream()
-                .anyMatch(member -> member.getUserId().equals(userId));
+    private static boolean isReadByRecipient(Message message, Map<String, Conversation.ReadMark> readMarks) {
+        if (message.getGroupId() != null || message.getRecipientId() == null) {
+            return false;
+        }
+        MessageCursor mark = MessageCursor.of(readMarks.get(String.valueOf(message.getRecipientId())));
+        return mark != null && mark.covers(message);
     }
     
-    private boolean isUserAdminOrModerator(Group group, Long userId) {
-        return group.getMembers().stream()
-                .anyMatch(member -> member.getUserId().equals(userId) && 
-                        (member.getRole() == Group.GroupRole.ADMIN || member.getRole() == Group.GroupRole.MODERATOR));
+    private static MessageCreated messageCreated(Message message) {
+        return new MessageCreated(message.getId(), message.getConversationId(), message.getSenderId(),
+                message.getRecipientId(), message.getGroupId(), message.getType().name(), message.getContent(),
+                message.getMediaUrl(), message.getReplyToMessageId(),
+                message.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant());
     }
     
     private MessageResponse mapToMessageResponse(Message message) {
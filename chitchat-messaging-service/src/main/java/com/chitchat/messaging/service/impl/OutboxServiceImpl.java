@@ -0,0 +1,499 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.document.OutboxEvent;
+import com.chitchat.messaging.service.OutboxService;
+import com.chitchat.shared.event.ChatEvent;
+import com.chitchat.shared.event.EventCodec;
+import com.chitchat.shared.exception.ChitChatException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MongoDB outbox with a batching Kafka relay
+ *
+ * Events about one message are staged on it (Message.pendingEvents) and stored
+ * by the message write itself: the deployment has no MongoDB transaction
+ * manager, and a single-document write is atomic without one. dispatch() then
+ * moves them into message_outbox, keeping the _id assigned at staging, so the
+ * move can be repeated safely. If the node crashes between the two, the relay
+ * sweeps messages whose events have been staged for longer than
+ * chitchat.outbox.staged-grace-seconds and moves them itself; a swept event
+ * keeps its place in append order, but is published after any later event of
+ * its key that was published in the meantime.
+ * 
+ * append() is one insert into message_outbox in the calling thread, for events
+ * that are not about a single message document (receipts covering many
+ * messages, deletions): it follows the write it belongs to, so a crash between
+ * the two loses that event. Either way a slow or unavailable broker loses
+ * nothing, and request threads never wait for Kafka.
+ *
+ * The relay is one thread per node:
+ * 1. Claim up to chitchat.outbox.batch-size due events, oldest first. The claim
+ *    is a conditional update with a lease, so relays on several nodes never
+ *    publish the same event concurrently, and a crashed relay's events are
+ *    picked up again once the lease expires.
+ * 2. Send the whole batch with the outbox producer (idempotent, compressed,
+ *    lingered: see KafkaConfig), then wait for the acknowledgements, all
+ *    within the lease.
+ * 3. Delete acknowledged events in one deleteMany; failed ones are retried
+ *    with exponential backoff.
+ * It wakes up immediately when this node appends and otherwise polls every
+ * chitchat.outbox.poll-interval-ms (events appended by other nodes, retries).
+ *
+ * Ordering: events with the same key (a conversation) are published in append
+ * order, even across nodes and retries.
+ * - A key is only claimed from its oldest stored event on: while any event of
+ *   the key is held by a relay (on this or another node) or backing off after
+ *   a failure, no later event of the key is claimed.
+ * - Two relays claiming concurrently may still both take events of one key;
+ *   after claiming, each relay gives back its events of a key that come after
+ *   an event it does not hold, so only the holder of the oldest ones proceeds.
+ * - When an event fails, the batch is held at that key: later events of the
+ *   key in the batch are not deleted but released, to be published again
+ *   after the failed one. If Kafka already accepted some of them they are
+ *   published twice (at least once), but never left behind an older event.
+ * Events without a key are not ordered.
+ *
+ * Metrics (Actuator /actuator/metrics):
+ * - chitchat.outbox.lag: append to Kafka acknowledgement
+ * - chitchat.outbox.pending: events not yet published
+ * - chitchat.outbox.batch.size: events per relay batch
+ * - chitchat.outbox.events{result=published|failed}
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, byte[]> outboxKafkaTemplate;
+    private final EventCodec eventCodec;
+    private final MeterRegistry meterRegistry;
+
+    // Same JSON as the JsonSerializer used for direct sends, so consumers see identical payloads
+    private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final ExecutorService relayThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    @Value("${chitchat.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chitchat.outbox.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @Value("${chitchat.outbox.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Value("${chitchat.outbox.staged-grace-seconds:30}")
+    private long stagedGraceSeconds;
+
+    private Timer lag;
+    private DistributionSummary batchSizes;
+    private Counter published;
+    private Counter failed;
+
+    public OutboxServiceImpl(MongoTemplate mongoTemplate, KafkaTemplate<String, byte[]> outboxKafkaTemplate,
+                             EventCodec eventCodec, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.outboxKafkaTemplate = outboxKafkaTemplate;
+        this.eventCodec = eventCodec;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        lag = Timer.builder("chitchat.outbox.lag")
+                .description("Time from appending an event to the outbox until Kafka acknowledged it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("chitchat.outbox.batch.size")
+                .description("Events published per outbox relay batch")
+                .register(meterRegistry);
+        published = Counter.builder("chitchat.outbox.events").tag("result", "published").register(meterRegistry);
+        failed = Counter.builder("chitchat.outbox.events").tag("result", "failed").register(meterRegistry);
+        // Every stored event is pending (published ones are deleted), so the collection estimate is the backlog
+        Gauge.builder("chitchat.outbox.pending", mongoTemplate, template -> template.estimatedCount(OutboxEvent.class))
+                .description("Events in the outbox not yet acknowledged by Kafka")
+                .register(meterRegistry);
+
+        relayThread.submit(this::relayLoop);
+        log.info("Outbox relay started (batch size: {}, poll interval: {} ms)", batchSize, pollIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        wakeUp.release();
+        relayThread.shutdown();
+        try {
+            relayThread.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void append(String topic, String key, Object payload) {
+        mongoTemplate.insert(newEvent(topic, key, payload));
+        wakeUp.release();
+    }
+
+    @Override
+    public void stage(Message message, String topic, String key, Object payload) {
+        OutboxEvent event = newEvent(topic, key, payload);
+        // Assigned now and kept in the outbox: append order holds, and a repeated move is a duplicate key
+        event.setId(new ObjectId().toHexString());
+        List<OutboxEvent> pending = message.getPendingEvents() != null
+                ? new ArrayList<>(message.getPendingEvents())
+                : new ArrayList<>();
+        pending.add(event);
+        message.setPendingEvents(pending);
+    }
+
+    @Override
+    public void dispatch(Message message) {
+        List<OutboxEvent> pending = message.getPendingEvents();
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        moveToOutbox(message.getId(), pending);
+        // A later save of this instance must not stage the events again
+        message.setPendingEvents(null);
+        wakeUp.release();
+    }
+
+    private OutboxEvent newEvent(String topic, String key, Object payload) {
+        String json = null;
+        byte[] binary = null;
+        try {
+            if (payload instanceof ChatEvent event) {
+                binary = eventCodec.encode(event);
+            } else {
+                json = objectMapper.writeValueAsString(payload);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            throw new ChitChatException("Failed to serialize event for " + topic, HttpStatus.INTERNAL_SERVER_ERROR, "EVENT_SERIALIZATION_FAILED");
+        }
+
+        Instant now = Instant.now();
+        return OutboxEvent.builder()
+                .topic(topic)
+                .key(key)
+                .payload(json)
+                .binaryPayload(binary)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+    }
+
+    /**
+     * Kafka record value: the binary event, or the JSON as UTF-8 (what StringSerializer sends)
+     */
+    private static byte[] value(OutboxEvent event) {
+        return event.getBinaryPayload() != null
+                ? event.getBinaryPayload()
+                : event.getPayload().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Insert a message's staged events into the outbox, then remove them from the message
+     */
+    private void moveToOutbox(String messageId, List<OutboxEvent> events) {
+        List<ObjectId> ids = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            try {
+                mongoTemplate.insert(event);
+            } catch (DuplicateKeyException e) {
+                log.debug("Outbox event {} was already moved", event.getId());
+            }
+            ids.add(new ObjectId(event.getId()));
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(messageId)),
+                new Update().pull("pendingEvents", new Document("_id", new Document("$in", ids))),
+                Message.class);
+    }
+
+    /**
+     * Move the events of messages whose dispatch never ran
+     *
+     * @return Number of messages swept
+     */
+    private int sweepStaged() {
+        Query stranded = Query.query(Criteria.where("pendingEvents.createdAt")
+                        .lt(Instant.now().minusSeconds(stagedGraceSeconds)))
+                .limit(batchSize);
+        stranded.fields().include("_id").include("pendingEvents");
+        List<Message> messages = mongoTemplate.find(stranded, Message.class);
+        for (Message message : messages) {
+            moveToOutbox(message.getId(), message.getPendingEvents());
+        }
+        if (!messages.isEmpty()) {
+            log.warn("Moved staged events of {} messages to the outbox (not dispatched after the write)", messages.size());
+        }
+        return messages.size();
+    }
+
+    private void relayLoop() {
+        long nextSweep = System.nanoTime();
+        while (running) {
+            // Before claiming, so swept events go out with this batch
+            if (System.nanoTime() - nextSweep >= 0) {
+                nextSweep = System.nanoTime() + TimeUnit.SECONDS.toNanos(stagedGraceSeconds);
+                try {
+                    sweepStaged();
+                } catch (Exception e) {
+                    log.error("Outbox sweep of staged events failed", e);
+                }
+            }
+
+            int relayed = 0;
+            try {
+                relayed = relayBatch();
+            } catch (Exception e) {
+                log.error("Outbox relay batch failed", e);
+            }
+
+            // A full batch means more are probably waiting: go again without sleeping
+            if (relayed < batchSize) {
+                try {
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim, publish and settle one batch
+     *
+     * @return Number of events claimed
+     */
+    private int relayBatch() {
+        String token = UUID.randomUUID().toString();
+        // The claim holds the events until the lease ends: waiting any longer would race a takeover
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds);
+        List<OutboxEvent> batch = claimBatch(token);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batchSizes.record(batch.size());
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            CompletableFuture<?> send;
+            try {
+                send = outboxKafkaTemplate.send(event.getTopic(), event.getKey(), value(event));
+            } catch (Exception e) {
+                send = CompletableFuture.failedFuture(e);
+            }
+            sends.add(send);
+        }
+        // Sends are async: the producer batches them (linger) and they complete together
+        outboxKafkaTemplate.flush();
+
+        List<String> acknowledged = new ArrayList<>(batch.size());
+        List<String> held = new ArrayList<>();
+        Set<String> failedKeys = new HashSet<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            if (event.getKey() != null && failedKeys.contains(event.getKey())) {
+                // An older event of the key failed: this one goes again after it
+                held.add(event.getId());
+                continue;
+            }
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acknowledged.add(event.getId());
+                lag.record(Duration.between(event.getCreatedAt(), now));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return batch.size();
+            } catch (Exception e) {
+                retryLater(event, token, e);
+                if (event.getKey() != null) {
+                    failedKeys.add(event.getKey());
+                }
+            }
+        }
+
+        if (!acknowledged.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(acknowledged)), OutboxEvent.class);
+            published.increment(acknowledged.size());
+        }
+        release(held, token);
+        return batch.size();
+    }
+
+    /**
+     * Claim the next due events, keeping each key's events in append order
+     *
+     * @param token Claim token of this batch
+     * @return Claimed events, oldest first
+     */
+    private List<OutboxEvent> claimBatch(String token) {
+        Instant now = Instant.now();
+        Criteria claimable = new Criteria().orOperator(
+                Criteria.where("claimedUntil").is(null),
+                Criteria.where("claimedUntil").lt(now));
+
+        // Keys with an event in flight elsewhere or backing off: their later events must wait for it
+        Query busy = Query.query(new Criteria().orOperator(
+                Criteria.where("nextAttemptAt").gt(now),
+                Criteria.where("claimedUntil").gte(now)));
+        List<String> busyKeys = mongoTemplate.findDistinct(busy, "key", OutboxEvent.class, String.class).stream()
+                .filter(Objects::nonNull)
+                .toList();
+
+        Query due = Query.query(Criteria.where("nextAttemptAt").lte(now)).addCriteria(claimable)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        if (!busyKeys.isEmpty()) {
+            due.addCriteria(Criteria.where("key").nin(busyKeys));
+        }
+        due.fields().include("_id");
+        List<String> ids = mongoTemplate.find(due, OutboxEvent.class).stream()
+                .map(OutboxEvent::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Only events still unclaimed are taken: a relay on another node may have claimed some meanwhile
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)).addCriteria(claimable),
+                Update.update("claimToken", token).set("claimedUntil", now.plusSeconds(leaseSeconds)),
+                OutboxEvent.class);
+
+        List<OutboxEvent> claimed = mongoTemplate.find(Query.query(Criteria.where("_id").in(ids).and("claimToken").is(token))
+                .with(Sort.by(Sort.Direction.ASC, "_id")), OutboxEvent.class);
+        return releaseOutOfOrder(claimed, token);
+    }
+
+    /**
+     * Give back claimed events that come after an event of the same key this batch does not hold
+     *
+     * Closes the race between two relays claiming at the same time: the relay
+     * holding a key's oldest events keeps them, the other one releases its later
+     * events, which are claimed again once the older ones are published.
+     *
+     * @param claimed Events claimed by this batch, oldest first
+     * @param token Claim token of this batch
+     * @return Events this batch may publish, oldest first
+     */
+    private List<OutboxEvent> releaseOutOfOrder(List<OutboxEvent> claimed, String token) {
+        Set<String> keys = new HashSet<>();
+        for (OutboxEvent event : claimed) {
+            if (event.getKey() != null) {
+                keys.add(event.getKey());
+            }
+        }
+        if (keys.isEmpty()) {
+            return claimed;
+        }
+
+        // Oldest event per key not held by this batch (ObjectId hex strings sort like the _id index)
+        String newest = claimed.get(claimed.size() - 1).getId();
+        Query foreign = Query.query(Criteria.where("key").in(keys)
+                        .and("_id").lt(new ObjectId(newest))
+                        .and("claimToken").ne(token))
+                .with(Sort.by(Sort.Direction.ASC, "_id"));
+        foreign.fields().include("_id").include("key");
+        Map<String, String> firstForeign = new HashMap<>();
+        for (OutboxEvent event : mongoTemplate.find(foreign, OutboxEvent.class)) {
+            firstForeign.putIfAbsent(event.getKey(), event.getId());
+        }
+        if (firstForeign.isEmpty()) {
+            return claimed;
+        }
+
+        List<OutboxEvent> kept = new ArrayList<>(claimed.size());
+        List<String> released = new ArrayList<>();
+        for (OutboxEvent event : claimed) {
+            String blocker = event.getKey() != null ? firstForeign.get(event.getKey()) : null;
+            if (blocker != null && blocker.compareTo(event.getId()) < 0) {
+                released.add(event.getId());
+            } else {
+                kept.add(event);
+            }
+        }
+        release(released, token);
+        return kept;
+    }
+
+    /**
+     * Give events back without counting an attempt, so they can be claimed again right away
+     */
+    private void release(List<String> ids, String token) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids).and("claimToken").is(token)),
+                new Update().unset("claimToken").unset("claimedUntil"),
+                OutboxEvent.class);
+    }
+
+    private void retryLater(OutboxEvent event, String token, Exception error) {
+        failed.increment();
+        int attempts = event.getAttempts() + 1;
+        long backoffMillis = Math.min(MAX_BACKOFF_MILLIS, 100L << Math.min(attempts, 16));
+        log.warn("Failed to publish outbox event {} to {} (attempt {}), retrying in {} ms: {}",
+                event.getId(), event.getTopic(), attempts, backoffMillis, error.getMessage());
+
+        // Unless the lease ran out and another relay has taken the event over
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(event.getId()).and("claimToken").is(token)),
+                Update.update("attempts", attempts)
+                        .set("nextAttemptAt", Instant.now().plusMillis(backoffMillis))
+                        .unset("claimToken")
+                        .unset("claimedUntil"),
+                OutboxEvent.class);
+    }
+}
@@ -0,0 +1,306 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.document.Conversation;
+import com.chitchat.messaging.service.ConversationSummaryService;
+import com.chitchat.messaging.service.UnreadCounterService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis implementation of UnreadCounterService
+ *
+ * Layout: one hash per recipient, chitchat:unread:{userId}, with a field per
+ * sender ({senderId} -> count, absent when zero) and a "total" field. Every
+ * change is one Lua script that adjusts the sender's field and the total
+ * together, so the two never disagree and counts never go below zero. The
+ * "total" field is always present, which is how a seeded hash is told apart
+ * from a missing one.
+ *
+ * - Seeding: a missing hash is built from the user's direct conversations in
+ *   the read model (Conversation.unreadCounts, which follows message statuses)
+ *   with one indexed read instead of an aggregation over the messages.
+ *   Changes to a user without a hash are skipped: the seed already includes them.
+ * - Reconciliation: chitchat:unread:reconcile is a sorted set of seeded users
+ *   scored by when they were last counted. Every
+ *   chitchat.unread.reconcile-poll-seconds each node claims the users not
+ *   counted for chitchat.unread.reconcile-interval-seconds (the
+ *   claim is atomic, so nodes never re-count the same user twice) and rebuilds
+ *   their hash from the read model, repairing drift from races or lost updates.
+ * - Idle users: a hash expires chitchat.unread.idle-ttl-hours after its last
+ *   change and is re-seeded on next use.
+ *
+ * Metrics: chitchat.unread.reconciled{result=in_sync|corrected}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnreadCounterServiceImpl implements UnreadCounterService {
+
+    private static final String KEY_PREFIX = "chitchat:unread:";
+    private static final String RECONCILE_KEY = "chitchat:unread:reconcile";
+    private static final String TOTAL_FIELD = "total";
+
+    // KEYS[1] hash; ARGV: field, delta, ttlMillis. -1 if not seeded.
+    private static final RedisScript<Long> INCREMENT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n"
+            + "local count = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])\n"
+            + "redis.call('HINCRBY', KEYS[1], 'total', ARGV[2])\n"
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[3])\n"
+            + "return count", Long.class);
+
+    // KEYS[1] hash; ARGV: field, count, ttlMillis. Returns the amount actually removed, -1 if not seeded.
+    private static final RedisScript<Long> DECREMENT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n"
+            + "local current = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')\n"
+            + "local delta = math.min(current, tonumber(ARGV[2]))\n"
+            + "if delta > 0 then\n"
+            + "  if current == delta then redis.call('HDEL', KEYS[1], ARGV[1])\n"
+            + "  else redis.call('HINCRBY', KEYS[1], ARGV[1], -delta) end\n"
+            + "  if redis.call('HINCRBY', KEYS[1], 'total', -delta) < 0 then redis.call('HSET', KEYS[1], 'total', 0) end\n"
+            + "end\n"
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[3])\n"
+            + "return delta", Long.class);
+
+    // KEYS[1] hash; ARGV: field, count, ttlMillis. -1 if not seeded.
+    private static final RedisScript<Long> SET = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n"
+            + "local current = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')\n"
+            + "local count = tonumber(ARGV[2])\n"
+            + "if count > 0 then redis.call('HSET', KEYS[1], ARGV[1], count)\n"
+            + "else redis.call('HDEL', KEYS[1], ARGV[1]) end\n"
+            + "if redis.call('HINCRBY', KEYS[1], 'total', count - current) < 0 then redis.call('HSET', KEYS[1], 'total', 0) end\n"
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[3])\n"
+            + "return count", Long.class);
+
+    // KEYS[1] hash, KEYS[2] reconcile set; ARGV: onlyIfAbsent (1/0), ttlMillis, now, userId, field/count pairs.
+    // Returns the previous total (-1 if there was no hash), or -2 if skipped because a hash already existed.
+    private static final RedisScript<Long> REPLACE = new DefaultRedisScript<>(
+            "local previous = redis.call('HGET', KEYS[1], 'total')\n"
+            + "if previous and ARGV[1] == '1' then return -2 end\n"
+            + "redis.call('DEL', KEYS[1])\n"
+            + "local total = 0\n"
+            + "for i = 5, #ARGV, 2 do\n"
+            + "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])\n"
+            + "  total = total + tonumber(ARGV[i + 1])\n"
+            + "end\n"
+            + "redis.call('HSET', KEYS[1], 'total', total)\n"
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[2])\n"
+            + "redis.call('ZADD', KEYS[2], ARGV[3], ARGV[4])\n"
+            + "return tonumber(previous or '-1')", Long.class);
+
+    // KEYS[1] reconcile set; ARGV: dueBefore, limit, now. Claims (re-scores) and returns due user IDs.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_DUE = new DefaultRedisScript<>(
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n"
+            + "for _, member in ipairs(due) do redis.call('ZADD', KEYS[1], ARGV[3], member) end\n"
+            + "return due", List.class);
+
+    private final ConversationSummaryService conversationSummaryService;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chitchat.unread.reconcile-interval-seconds:600}")
+    private long reconcileIntervalSeconds;
+
+    @Value("${chitchat.unread.reconcile-batch-size:200}")
+    private int reconcileBatchSize;
+
+    @Value("${chitchat.unread.idle-ttl-hours:168}")
+    private long idleTtlHours;
+
+    @Override
+    public long getTotalUnread(Long userId) {
+        Object total = redisTemplate.opsForHash().get(key(userId), TOTAL_FIELD);
+        if (total == null) {
+            return seed(userId).values().stream().mapToLong(Long::longValue).sum();
+        }
+        return Math.max(0, Long.parseLong(total.toString()));
+    }
+
+    @Override
+    public long getUnreadFrom(Long userId, Long senderId) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(key(userId), List.of(senderId.toString(), TOTAL_FIELD));
+        if (values.get(1) == null) {
+            return seed(userId).getOrDefault(senderId, 0L);
+        }
+        return values.get(0) != null ? Long.parseLong(values.get(0).toString()) : 0L;
+    }
+
+    @Override
+    public Map<Long, Long> getUnreadBySender(Long userId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(key(userId));
+        if (fields.isEmpty()) {
+            return seed(userId);
+        }
+        Map<Long, Long> bySender = new HashMap<>();
+        fields.forEach((field, value) -> {
+            if (!TOTAL_FIELD.equals(field)) {
+                bySender.put(Long.valueOf(field.toString()), Long.valueOf(value.toString()));
+            }
+        });
+        return bySender;
+    }
+
+    @Override
+    public void increment(Long userId, Long senderId) {
+        if (userId == null || senderId == null) {
+            return;
+        }
+        // Not seeded yet: the seed reads the read model, which includes the saved message
+        run(INCREMENT, userId, senderId, 1);
+    }
+
+    @Override
+    public void decrement(Long userId, Long senderId, long count) {
+        if (userId == null || senderId == null || count <= 0) {
+            return;
+        }
+        run(DECREMENT, userId, senderId, count);
+    }
+
+    @Override
+    public void set(Long userId, Long senderId, long count) {
+        if (userId == null || senderId == null) {
+            return;
+        }
+        run(SET, userId, senderId, Math.max(0, count));
+    }
+
+    @Override
+    public void evict(Long userId) {
+        redisTemplate.delete(key(userId));
+        redisTemplate.opsForZSet().remove(RECONCILE_KEY, userId.toString());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${chitchat.unread.reconcile-poll-seconds:30}",
+               initialDelayString = "${chitchat.unread.reconcile-poll-seconds:30}",
+               timeUnit = TimeUnit.SECONDS)
+    public void reconcile() {
+        long now = System.currentTimeMillis();
+        long dueBefore = now - TimeUnit.SECONDS.toMillis(reconcileIntervalSeconds);
+        List<?> due;
+        try {
+            due = redisTemplate.execute(CLAIM_DUE, List.of(RECONCILE_KEY),
+                    String.valueOf(dueBefore), String.valueOf(reconcileBatchSize), String.valueOf(now));
+        } catch (Exception e) {
+            log.error("Failed to claim unread counters for reconciliation", e);
+            return;
+        }
+        if (due == null || due.isEmpty()) {
+            return;
+        }
+
+        int corrected = 0;
+        for (Object member : due) {
+            Long userId = Long.valueOf(member.toString());
+            try {
+                if (Boolean.FALSE.equals(redisTemplate.hasKey(key(userId)))) {
+                    // Expired while idle: nothing to repair until it is seeded again
+                    redisTemplate.opsForZSet().remove(RECONCILE_KEY, member.toString());
+                    continue;
+                }
+                Map<Long, Long> counts = countFromReadModel(userId);
+                long previousTotal = replace(userId, counts, false);
+                long total = counts.values().stream().mapToLong(Long::longValue).sum();
+                boolean inSync = previousTotal == total;
+                if (!inSync) {
+                    corrected++;
+                }
+                meterRegistry.counter("chitchat.unread.reconciled", "result", inSync ? "in_sync" : "corrected").increment();
+            } catch (Exception e) {
+                log.error("Failed to reconcile unread counters for user {}", userId, e);
+            }
+        }
+        log.debug("Reconciled unread counters of {} users ({} corrected)", due.size(), corrected);
+    }
+
+    /**
+     * Build a missing hash from the read model (unless another node seeded it first)
+     */
+    private Map<Long, Long> seed(Long userId) {
+        Map<Long, Long> counts;
+        try {
+            counts = countFromReadModel(userId);
+        } catch (Exception e) {
+            log.error("Failed to seed unread counters for user {}", userId, e);
+            return Map.of();
+        }
+
+        long result = replace(userId, counts, true);
+        if (result == -2) {
+            // Seeded concurrently (possibly with later changes applied): use the stored counts
+            return getUnreadBySender(userId);
+        }
+        log.debug("Seeded unread counters for user {} ({} senders)", userId, counts.size());
+        return counts;
+    }
+
+    private long replace(Long userId, Map<Long, Long> counts, boolean onlyIfAbsent) {
+        List<String> args = new ArrayList<>(4 + counts.size() * 2);
+        args.add(onlyIfAbsent ? "1" : "0");
+        args.add(String.valueOf(ttlMillis()));
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(userId.toString());
+        counts.forEach((senderId, count) -> {
+            args.add(senderId.toString());
+            args.add(count.toString());
+        });
+        Long result = redisTemplate.execute(REPLACE, List.of(key(userId), RECONCILE_KEY), args.toArray());
+        return result != null ? result : -1;
+    }
+
+    /**
+     * Unread counts per partner from the user's direct conversations in the read model
+     */
+    private Map<Long, Long> countFromReadModel(Long userId) {
+        String userKey = String.valueOf(userId);
+        Map<Long, Long> counts = new HashMap<>();
+        for (Conversation conversation : conversationSummaryService.getConversations(userId)) {
+            if (conversation.getType() != Conversation.ConversationType.INDIVIDUAL
+                    || conversation.getUnreadCounts() == null) {
+                continue;
+            }
+            Long unread = conversation.getUnreadCounts().get(userKey);
+            Long partnerId = conversation.getParticipantIds().stream()
+                    .filter(id -> !id.equals(userId))
+                    .findFirst()
+                    .orElse(null);
+            if (partnerId != null && unread != null && unread > 0) {
+                counts.put(partnerId, unread);
+            }
+        }
+        return counts;
+    }
+
+    private void run(RedisScript<Long> script, Long userId, Long senderId, long amount) {
+        try {
+            redisTemplate.execute(script, List.of(key(userId)),
+                    senderId.toString(), String.valueOf(amount), String.valueOf(ttlMillis()));
+        } catch (Exception e) {
+            // Reconciliation repairs the count
+            log.error("Failed to update unread counter of user {} for sender {}", userId, senderId, e);
+        }
+    }
+
+    private long ttlMillis() {
+        return TimeUnit.HOURS.toMillis(idleTtlHours);
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+}
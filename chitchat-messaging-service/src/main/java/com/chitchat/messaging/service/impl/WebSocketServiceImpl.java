@@ -9,6 +9,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Implementation of WebSocketService
  * 
@@ -35,12 +39,24 @@ public class WebSocketServiceImpl implements WebSocketService {
         messageWebSocketHandler.sendMessageToUser(receiverId, message);
     }
     
+    @Override
+    public Set<Long> sendMessageToUsers(Collection<Long> userIds, MessageResponse message) {
+        log.debug("Sending message {} to {} users via WebSocket", message.getId(), userIds.size());
+        return messageWebSocketHandler.sendMessageToUsers(userIds, message);
+    }
+    
     @Override
     public void sendStatusUpdateToUser(Long senderId, String messageId, String status) {
         log.debug("Sending status update to sender {} via WebSocket", senderId);
         messageWebSocketHandler.sendStatusUpdateToUser(senderId, messageId, status);
     }
     
+    @Override
+    public void sendStatusUpdatesToUser(Long senderId, List<String> messageIds, String status) {
+        log.debug("Sending status update for {} messages to sender {} via WebSocket", messageIds.size(), senderId);
+        messageWebSocketHandler.sendStatusUpdatesToUser(senderId, messageIds, status);
+    }
+    
     @Override
     public void sendTypingIndicator(Long receiverId, Long senderId, String senderName, boolean isTyping) {
         log.debug("Sending typing indicator to receiver {} from sender {} via WebSocket", receiverId, senderId);
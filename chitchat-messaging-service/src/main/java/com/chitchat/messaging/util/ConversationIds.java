@@ -0,0 +1,44 @@
+package com.chitchat.messaging.util;
+
+import com.chitchat.messaging.document.Message;
+
+/**
+ * Stable conversation identifiers
+ *
+ * - Direct chats: "{lowerUserId}_{higherUserId}", the same for both participants
+ * - Group chats: the group ID (a 24-character ObjectId, so it never contains "_")
+ */
+public final class ConversationIds {
+
+    private ConversationIds() {
+    }
+
+    /**
+     * Conversation ID for a direct chat between two users (argument order does not matter)
+     */
+    public static String direct(Long userId1, Long userId2) {
+        long low = Math.min(userId1, userId2);
+        long high = Math.max(userId1, userId2);
+        return low + "_" + high;
+    }
+
+    /**
+     * Conversation ID for a group chat
+     */
+    public static String group(String groupId) {
+        return groupId;
+    }
+
+    /**
+     * Conversation ID a message belongs to, or null if it has neither a group nor a recipient
+     */
+    public static String of(Message message) {
+        if (message.getGroupId() != null) {
+            return group(message.getGroupId());
+        }
+        if (message.getSenderId() == null || message.getRecipientId() == null) {
+            return null;
+        }
+        return direct(message.getSenderId(), message.getRecipientId());
+    }
+}
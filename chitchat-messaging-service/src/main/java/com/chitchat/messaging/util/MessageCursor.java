@@ -0,0 +1,70 @@
+package com.chitchat.messaging.util;
+
+import com.chitchat.messaging.document.Conversation;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.shared.exception.ChitChatException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset pagination cursor: the (createdAt, _id) position of a message
+ *
+ * createdAt orders history; _id breaks ties between messages created in the
+ * same millisecond. Clients treat the encoded value as opaque.
+ *
+ * Encoded form: URL-safe Base64 of "{createdAt ISO-8601}|{messageId}".
+ */
+public record MessageCursor(LocalDateTime createdAt, String messageId) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Cursor positioned at the given message
+     */
+    public static MessageCursor of(Message message) {
+        return new MessageCursor(message.getCreatedAt(), message.getId());
+    }
+
+    /**
+     * Position of a read watermark; null if the participant has none
+     */
+    public static MessageCursor of(Conversation.ReadMark mark) {
+        return mark != null ? new MessageCursor(mark.getMessageCreatedAt(), mark.getMessageId()) : null;
+    }
+
+    /**
+     * Whether the message is at or before this position (read, for a read watermark)
+     *
+     * Same order as the keyset queries: createdAt, then _id (ObjectId hex strings sort like ObjectIds).
+     */
+    public boolean covers(Message message) {
+        int order = message.getCreatedAt().compareTo(createdAt);
+        return order < 0 || (order == 0 && message.getId().compareTo(messageId) <= 0);
+    }
+
+    /**
+     * Decode a client-supplied cursor; null or blank means "no cursor"
+     *
+     * @throws ChitChatException (400) if the cursor is malformed
+     */
+    public static MessageCursor decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new MessageCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new ChitChatException("Invalid pagination cursor", HttpStatus.BAD_REQUEST, "INVALID_CURSOR");
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + messageId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+package com.chitchat.messaging.util;
+
+import com.chitchat.messaging.dto.MessageSearchHit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds highlighted excerpts for message search results
+ *
+ * MongoDB text search returns matching documents but not match positions, so
+ * the terms of the query are located again in the content: any word starting
+ * with a query term is highlighted, which also covers the plural/stemmed forms
+ * the text index matches ("meet" highlights "meeting"). Negated terms
+ * ("-word") are ignored.
+ */
+public final class SearchSnippets {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final String ELLIPSIS = "…";
+
+    private SearchSnippets() {
+    }
+
+    /**
+     * Excerpt and highlight ranges
+     */
+    public record Snippet(String text, List<MessageSearchHit.Highlight> highlights) {
+    }
+
+    /**
+     * Lower-cased search terms of a text query, in order, without duplicates or negations
+     */
+    public static Set<String> terms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String token : query.trim().split("\\s+")) {
+            if (token.startsWith("-")) {
+                continue;
+            }
+            Matcher matcher = WORD.matcher(token);
+            while (matcher.find()) {
+                terms.add(matcher.group().toLowerCase(Locale.ROOT));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Excerpt of at most maxLength characters around the first matching word
+     */
+    public static Snippet of(String content, Set<String> terms, int maxLength) {
+        if (content == null || content.isEmpty()) {
+            return new Snippet("", List.of());
+        }
+
+        List<int[]> matches = new ArrayList<>();
+        Matcher matcher = WORD.matcher(content);
+        while (matcher.find()) {
+            String word = matcher.group().toLowerCase(Locale.ROOT);
+            for (String term : terms) {
+                if (word.startsWith(term)) {
+                    matches.add(new int[]{matcher.start(), matcher.end()});
+                    break;
+                }
+            }
+        }
+
+        // Window: whole content if it fits, otherwise centred on the first match
+        int from = 0;
+        int to = content.length();
+        if (content.length() > maxLength) {
+            int anchor = matches.isEmpty() ? 0 : matches.get(0)[0];
+            from = Math.max(0, anchor - maxLength / 3);
+            to = Math.min(content.length(), from + maxLength);
+            from = Math.max(0, to - maxLength);
+        }
+
+        String prefix = from > 0 ? ELLIPSIS : "";
+        String suffix = to < content.length() ? ELLIPSIS : "";
+        List<MessageSearchHit.Highlight> highlights = new ArrayList<>();
+        for (int[] match : matches) {
+            if (match[0] >= from && match[1] <= to) {
+                int offset = prefix.length() - from;
+                highlights.add(new MessageSearchHit.Highlight(match[0] + offset, match[1] + offset));
+            }
+        }
+        return new Snippet(prefix + content.substring(from, to) + suffix, highlights);
+    }
+}
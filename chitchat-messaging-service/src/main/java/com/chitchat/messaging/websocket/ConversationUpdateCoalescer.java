@@ -0,0 +1,129 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.dto.MessageResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merges a user's conversation and unread-count updates into one push per flush window
+ *
+ * Every sent or read message used to trigger a full conversation-list push and
+ * an unread-count push, each with its own query. Here the first change for a
+ * user opens a window of windowMillis; every change inside it is merged per
+ * conversation (keeping the latest message), and the window closes with a
+ * single publish of the changed conversations.
+ *
+ * A burst of 50 messages to one user therefore costs one CONVERSATION_DELTA
+ * frame instead of 100 list and count pushes.
+ */
+@Slf4j
+public class ConversationUpdateCoalescer {
+
+    /**
+     * A changed conversation; userId/groupId are both null for "unread total only"
+     */
+    public record Change(Long userId, String groupId, MessageResponse latestMessage) {
+    }
+
+    /**
+     * Receives the merged changes for a user when the window closes
+     */
+    @FunctionalInterface
+    public interface Publisher {
+        void publish(Long userId, List<Change> changes);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final Publisher publisher;
+
+    // userId -> changes merged per conversation, in arrival order
+    private final Map<Long, Map<String, Change>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    public ConversationUpdateCoalescer(ScheduledExecutorService scheduler, long windowMillis, Publisher publisher) {
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Record a change for the user; publication happens when the user's window closes
+     */
+    public void submit(Long userId, Change change) {
+        submitted.incrementAndGet();
+        if (windowMillis <= 0) {
+            publish(userId, List.of(change));
+            return;
+        }
+
+        boolean[] opened = new boolean[1];
+        pending.compute(userId, (id, changes) -> {
+            if (changes == null) {
+                opened[0] = true;
+                changes = new LinkedHashMap<>();
+            }
+            changes.merge(keyOf(change), change, ConversationUpdateCoalescer::merge);
+            return changes;
+        });
+
+        // Only the change that opens the window schedules a flush
+        if (opened[0]) {
+            try {
+                scheduler.schedule(() -> flush(userId), windowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                pending.remove(userId);
+                log.debug("Conversation update scheduler rejected flush for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    private void flush(Long userId) {
+        Map<String, Change> changes = pending.remove(userId);
+        if (changes != null) {
+            publish(userId, new ArrayList<>(changes.values()));
+        }
+    }
+
+    private void publish(Long userId, List<Change> changes) {
+        published.incrementAndGet();
+        try {
+            publisher.publish(userId, changes);
+        } catch (Exception e) {
+            log.warn("Failed to publish conversation update for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private static String keyOf(Change change) {
+        if (change.groupId() != null) {
+            return "g:" + change.groupId();
+        }
+        return change.userId() != null ? "u:" + change.userId() : "*";
+    }
+
+    /**
+     * Keep the newest message; an unread-only change never hides an earlier message
+     */
+    private static Change merge(Change previous, Change next) {
+        return next.latestMessage() != null ? next : previous;
+    }
+}
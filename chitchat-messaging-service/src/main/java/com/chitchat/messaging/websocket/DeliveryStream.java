@@ -0,0 +1,193 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.util.MessageCursor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user's NEW_MESSAGE delivery sequence on this node, with a bounded retransmit buffer
+ *
+ * Every message queued for the user's sessions here gets the next seq of the
+ * stream. Clients ACK cumulatively ("everything up to seq") and, after a
+ * reconnect, resume from the last seq they processed: as long as that seq is
+ * still in the buffer only the gap is replayed, from memory, instead of
+ * re-reading the offline backlog from MongoDB.
+ *
+ * Sequences are only comparable within one stream, so each instance has its own
+ * streamId. A client resuming with an unknown stream ID (another node, or a
+ * stream evicted after its resume window) gets a full backlog replay instead.
+ *
+ * A message is acknowledged by a session only if it was queued for that session:
+ * entries after the seq the session attached at, and not replayed exclusively
+ * to another session. Callers queue frames while holding the stream's monitor,
+ * so seqs reach every session in increasing order and a cumulative ACK never
+ * covers a message still waiting in a queue.
+ *
+ * Every method synchronizes on the stream, the same monitor callers hold while queueing.
+ */
+public class DeliveryStream {
+
+    private static final Comparator<MessageCursor> POSITION =
+            Comparator.comparing(MessageCursor::createdAt).thenComparing(MessageCursor::messageId);
+
+    /**
+     * A sequenced message; exclusiveTo is set for backlog replays queued for a single session
+     */
+    public static final class Entry {
+        private final long seq;
+        private final MessageResponse message;
+        private final String exclusiveTo;
+        private boolean delivered;
+
+        private Entry(long seq, MessageResponse message, String exclusiveTo) {
+            this.seq = seq;
+            this.message = message;
+            this.exclusiveTo = exclusiveTo;
+        }
+
+        public long seq() {
+            return seq;
+        }
+
+        public MessageResponse message() {
+            return message;
+        }
+    }
+
+    private final String streamId;
+    private final int capacity;
+    private final ArrayDeque<Entry> buffer;
+
+    // Attached session ID -> seq up to which the session has acknowledged (or attached at)
+    private final Map<String, Long> sessions = new HashMap<>();
+
+    private long lastSeq;
+
+    // Newest message position in the stream: where a resume's backlog query starts
+    private MessageCursor highWater;
+
+    // When the last session detached (streams start detached); 0 while attached
+    private long detachedSince;
+
+    public DeliveryStream(String streamId, int capacity, long now) {
+        this.streamId = streamId;
+        this.capacity = Math.max(1, capacity);
+        this.buffer = new ArrayDeque<>(Math.min(this.capacity, 64));
+        this.detachedSince = now;
+    }
+
+    public String getStreamId() {
+        return streamId;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    public synchronized MessageCursor getHighWater() {
+        return highWater;
+    }
+
+    /**
+     * Assign the next seq to a message; the oldest entry is dropped once the buffer is full
+     *
+     * @param exclusiveTo Session the message is queued for, or null for every attached session
+     */
+    public synchronized Entry append(MessageResponse message, String exclusiveTo) {
+        Entry entry = new Entry(++lastSeq, message, exclusiveTo);
+        buffer.addLast(entry);
+        if (buffer.size() > capacity) {
+            buffer.removeFirst();
+        }
+
+        if (message.getCreatedAt() != null && message.getId() != null) {
+            MessageCursor position = new MessageCursor(message.getCreatedAt(), message.getId());
+            if (highWater == null || POSITION.compare(position, highWater) > 0) {
+                highWater = position;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Buffered entries after a seq, or null if the gap is no longer (or was never) covered
+     */
+    public synchronized List<Entry> entriesAfter(long seq) {
+        long oldestCovered = lastSeq - buffer.size();
+        if (seq < oldestCovered || seq > lastSeq) {
+            return null;
+        }
+        List<Entry> gap = new ArrayList<>((int) (lastSeq - seq));
+        for (Entry entry : buffer) {
+            if (entry.seq > seq) {
+                gap.add(entry);
+            }
+        }
+        return gap;
+    }
+
+    /**
+     * Start following the stream; the session receives every entry after fromSeq
+     */
+    public synchronized void attach(String sessionId, long fromSeq) {
+        sessions.put(sessionId, fromSeq);
+        detachedSince = 0;
+    }
+
+    public synchronized boolean isAttached() {
+        return !sessions.isEmpty();
+    }
+
+    public synchronized boolean isAttached(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    /**
+     * Stop following the stream; the resume window starts when the last session leaves
+     */
+    public synchronized void detach(String sessionId, long now) {
+        if (sessions.remove(sessionId) != null && sessions.isEmpty()) {
+            detachedSince = now;
+        }
+    }
+
+    /**
+     * Cumulative ACK: messages up to seq that this session received and nobody acknowledged before
+     *
+     * @return Newly acknowledged messages (to be marked DELIVERED), in seq order
+     */
+    public synchronized List<MessageResponse> acknowledge(String sessionId, long seq) {
+        Long from = sessions.get(sessionId);
+        long upTo = Math.min(seq, lastSeq);
+        if (from == null || upTo <= from) {
+            return List.of();
+        }
+        sessions.put(sessionId, upTo);
+
+        List<MessageResponse> acknowledged = new ArrayList<>();
+        for (Entry entry : buffer) {
+            if (entry.seq > upTo) {
+                break;
+            }
+            if (entry.seq > from && !entry.delivered
+                    && (entry.exclusiveTo == null || entry.exclusiveTo.equals(sessionId))) {
+                entry.delivered = true;
+                acknowledged.add(entry.message);
+            }
+        }
+        return acknowledged;
+    }
+
+    /**
+     * Whether nobody attached during the resume window, so the stream can be dropped
+     */
+    public synchronized boolean isExpired(long now, long resumeWindowMillis) {
+        return sessions.isEmpty() && detachedSince > 0 && now - detachedSince >= resumeWindowMillis;
+    }
+}
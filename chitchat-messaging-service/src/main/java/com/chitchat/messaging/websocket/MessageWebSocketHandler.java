@@ -1,25 +1,45 @@
 package com.chitchat.messaging.websocket;
 
+import com.chitchat.messaging.cluster.ClusterDelivery;
+import com.chitchat.messaging.cluster.ClusterNode;
+import com.chitchat.messaging.cluster.NodeMessageBus;
+import com.chitchat.messaging.cluster.PresenceRegistry;
 import com.chitchat.messaging.dto.ConversationResponse;
 import com.chitchat.messaging.dto.MessageResponse;
 import com.chitchat.messaging.dto.SendMessageRequest;
+import com.chitchat.messaging.presence.PresenceAudience;
+import com.chitchat.messaging.presence.PresenceCoalescer;
+import com.chitchat.messaging.presence.TypingIndicatorTracker;
 import com.chitchat.messaging.document.Message;
 import com.chitchat.messaging.service.MessagingService;
+import com.chitchat.messaging.service.UnreadCounterService;
+import com.chitchat.messaging.util.MessageCursor;
+import com.chitchat.messaging.websocket.protocol.InboundFrame;
+import com.chitchat.messaging.websocket.protocol.OutboundFrame;
+import com.chitchat.messaging.websocket.protocol.PreparedFrame;
+import com.chitchat.messaging.websocket.protocol.WebSocketFrameCodec;
+import com.chitchat.messaging.websocket.protocol.WireFormat;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.*;
-import javax.annotation.PreDestroy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 /**
  * WebSocket handler for REAL-TIME message broadcasting ONLY
@@ -76,6 +96,23 @@ import javax.annotation.PreDestroy;
  * - When message arrives, sent to ALL active sessions
  * - Example: Message appears on both phone and laptop simultaneously
  * 
+ * MULTI-NODE SUPPORT:
+ * ==================
+ * - Sessions are node-local; the PresenceRegistry records which nodes hold a user's sessions
+ * - Frames for a user on another node are forwarded once to that node via the NodeMessageBus
+ * 
+ * PRESENCE FAN-OUT:
+ * ================
+ * - ONLINE/OFFLINE goes only to conversation partners and users viewing that chat (PresenceAudience)
+ * - Connect/disconnect flaps within chitchat.presence.flap-window-ms collapse into one update (or none)
+ * - Typing is tracked per (sender, conversation): one start and one stop per burst (TypingIndicatorTracker)
+ * 
+ * CONVERSATION UPDATES:
+ * ====================
+ * - Sent/read messages are merged per user for chitchat.websocket.update-flush-ms (ConversationUpdateCoalescer)
+ * - One CONVERSATION_DELTA frame carries the changed conversations and the new total unread count
+ * - Unread counts come from UnreadCounterService (maintained incrementally, not re-queried)
+ * 
  * Features:
  * - User session management (supports multiple sessions per user)
  * - Real-time message broadcasting to current active sessions
@@ -85,10 +122,22 @@ import javax.annotation.PreDestroy;
  * Message Types Handled:
  * - NEW_MESSAGE: Real-time message delivery
  * - MESSAGE_STATUS: Read/delivered status updates
+ * - MESSAGE_STATUS_BATCH: One status for many messages (bulk read, pending delivery)
+ * - READ_UPTO: A participant's read watermark (replaces per-message READ statuses)
  * - TYPING: Typing indicator
  * - USER_STATUS: Online/offline status
  * - CONVERSATION_UPDATE: Conversation list changed notification
- * - UNREAD_COUNT: Total unread count update
+ * - CONVERSATION_DELTA: Changed conversations + total unread count (batched)
+ * - RESUMED: Answer to a resume handshake (stream ID, how the gap is replayed)
+ * 
+ * AT-LEAST-ONCE DELIVERY:
+ * ======================
+ * - Every NEW_MESSAGE carries seq, the next number of the receiver's DeliveryStream on this node
+ * - Clients that AUTH with "resume" ACK cumulatively; an ACKed message becomes DELIVERED
+ *   (not merely queued), so an unacknowledged one is still SENT and is replayed later
+ * - On reconnect within chitchat.websocket.resume-window-seconds the gap after lastSeq is
+ *   replayed from the retransmit buffer; otherwise the offline backlog is replayed from MongoDB
+ * - Sessions that never ACK keep the old behaviour (backlog DELIVERED once written to the socket)
  * 
  * Message Types NOT Handled (use REST API):
  * - GET_CONVERSATION_MESSAGES: Use REST API for pagination
@@ -98,13 +147,81 @@ import javax.annotation.PreDestroy;
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class MessageWebSocketHandler implements WebSocketHandler {
+public class MessageWebSocketHandler implements WebSocketHandler, SubProtocolCapable {
     
     private final ObjectMapper objectMapper;
     
+    // Typed protocol codec - pre-built reader/writer, streaming writes for hot frames
+    private final WebSocketFrameCodec frameCodec;
+    
+    // Cluster routing: where users are connected, and how to reach other nodes
+    private final ClusterNode clusterNode;
+    private final PresenceRegistry presenceRegistry;
+    private final NodeMessageBus nodeMessageBus;
+    
+    // Who receives a user's ONLINE/OFFLINE updates
+    private final PresenceAudience presenceAudience;
+    
+    @Value("${chitchat.presence.flap-window-ms:2000}")
+    private long presenceFlapWindowMs;
+    
+    // Collapses rapid presence changes; created once the flap window is injected
+    private PresenceCoalescer presenceCoalescer;
+    
+    @Value("${chitchat.typing.stop-debounce-ms:1500}")
+    private long typingStopDebounceMs;
+    
+    @Value("${chitchat.typing.expiry-ms:6000}")
+    private long typingExpiryMs;
+    
+    // Debounces keystroke-driven TYPING frames into start/stop transitions
+    private TypingIndicatorTracker typingTracker;
+    
+    // Incremental unread counts for CONVERSATION_DELTA frames
+    private final UnreadCounterService unreadCounterService;
+    
+    @Value("${chitchat.websocket.update-flush-ms:250}")
+    private long conversationUpdateFlushMs;
+    
+    // Pending (offline backlog) messages read and queued per replay batch
+    @Value("${chitchat.websocket.pending-replay-batch-size:100}")
+    private int pendingReplayBatchSize;
+    
+    // NEW_MESSAGE entries kept per user so a reconnect can resume from its last seq
+    @Value("${chitchat.websocket.retransmit-buffer-size:512}")
+    private int retransmitBufferSize;
+    
+    // How long a user's delivery stream outlives their last session on this node
+    @Value("${chitchat.websocket.resume-window-seconds:120}")
+    private long resumeWindowSeconds;
+    
+    // Per-user delivery sequence and retransmit buffer for users connected to this node
+    private final Map<Long, DeliveryStream> deliveryStreams = new ConcurrentHashMap<>();
+    
+    // Merges conversation/unread updates per user into one CONVERSATION_DELTA frame
+    private ConversationUpdateCoalescer conversationUpdates;
+    
+    // Heartbeat interval advertised to clients in CONNECTION / AUTH_SUCCESS frames
+    private static final long HEARTBEAT_INTERVAL_MS = 30000;
+    
+    // Session attribute holding the resolved user ID once a session is bound to a user
+    private static final String USER_ID_ATTRIBUTE = "userId";
+    
+    // Session attribute holding the negotiated wire format (JSON text or CBOR binary)
+    private static final String WIRE_FORMAT_ATTRIBUTE = "wireFormat";
+    
+    // Session attribute set when the client ACKs NEW_MESSAGE frames (AUTH with "resume")
+    private static final String ACK_MODE_ATTRIBUTE = "ackMode";
+    
+    // Tomcat user property bounding a blocking WebSocket write, in milliseconds (a Long)
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    
     // Store active WebSocket sessions by user ID - supports multiple sessions per user
     private final Map<Long, ConcurrentHashMap<String, WebSocketSession>> userSessions = new ConcurrentHashMap<>();
     
+    // Reverse index: session ID -> user ID, so lookup and removal never scan userSessions
+    private final Map<String, Long> sessionOwners = new ConcurrentHashMap<>();
+    
     // Scheduled executor for cleanup tasks - increased threads for better performance
     private final ScheduledExecutorService cleanupExecutor = Executors.newScheduledThreadPool(2, r -> {
         Thread t = new Thread(r, "ws-cleanup");
@@ -113,14 +230,21 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         return t;
     });
     
-    // Executor for async WebSocket operations - optimized for high concurrency
+    // Executor that drains the per-session outbound queues (socket writes only)
     private final ExecutorService asyncExecutor = Executors.newFixedThreadPool(50, r -> {
         Thread t = new Thread(r, "ws-send");
         t.setDaemon(true);
         return t;
     });
     
-    // Executor for broadcast operations to multiple users
+    // Enforces the per-frame write deadline of the outbound queues
+    private final ScheduledExecutorService sendDeadlineTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-send-deadline");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    // Executor for work that loads data before sending (connection setup, DB lookups, broadcasts)
     private final ExecutorService broadcastExecutor = Executors.newFixedThreadPool(30, r -> {
         Thread t = new Thread(r, "ws-broadcast");
         t.setDaemon(true);
@@ -132,6 +256,50 @@ public class MessageWebSocketHandler implements WebSocketHandler {
     private final java.util.concurrent.atomic.AtomicLong activeConnections = new java.util.concurrent.atomic.AtomicLong(0);
     private final java.util.concurrent.atomic.AtomicLong messagesSent = new java.util.concurrent.atomic.AtomicLong(0);
     private final java.util.concurrent.atomic.AtomicLong messagesFailed = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong messagesDropped = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong slowConsumersClosed = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong framesForwarded = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong framesReceivedFromCluster = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong resumedFromBuffer = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong resumedWithFullReplay = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong messagesAcknowledged = new java.util.concurrent.atomic.AtomicLong(0);
+    
+    // Per-session outbound queues - single writer per session, bounded buffer
+    private final Map<String, SessionOutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+    
+    @Value("${chitchat.websocket.outbound.queue-capacity:256}")
+    private int outboundQueueCapacity;
+    
+    @Value("${chitchat.websocket.outbound.overflow-policy:DROP_TYPING_FIRST}")
+    private SessionOutboundQueue.OverflowPolicy outboundOverflowPolicy;
+    
+    @Value("${chitchat.websocket.outbound.send-time-limit-ms:10000}")
+    private long sendTimeLimitMs;
+    
+    private final SessionOutboundQueue.Listener outboundListener = new SessionOutboundQueue.Listener() {
+        @Override
+        public void onSent(WebSocketSession session) {
+            messagesSent.incrementAndGet();
+        }
+        
+        @Override
+        public void onFailed(WebSocketSession session, Exception e) {
+            log.error("Failed to send WebSocket frame to session {}: {}", session.getId(), e.getMessage());
+            messagesFailed.incrementAndGet();
+            closeUnreliableSession(session);
+        }
+        
+        @Override
+        public void onDropped(WebSocketSession session) {
+            messagesDropped.incrementAndGet();
+        }
+        
+        @Override
+        public void onSlowConsumer(WebSocketSession session) {
+            slowConsumersClosed.incrementAndGet();
+            closeUnreliableSession(session);
+        }
+    };
     
     // Initialize cleanup scheduler
     {
@@ -144,6 +312,27 @@ public class MessageWebSocketHandler implements WebSocketHandler {
     
     private MessagingService messagingService;
     
+    /**
+     * Receive frames forwarded by other nodes for users connected here, and start presence coalescing
+     */
+    @PostConstruct
+    public void init() {
+        nodeMessageBus.subscribe(this::onClusterDelivery);
+        
+        // Flushes only hand off: audience lookup and delivery run on the broadcast executor
+        presenceCoalescer = new PresenceCoalescer(cleanupExecutor, presenceFlapWindowMs,
+            (userId, status) -> broadcastExecutor.submit(() -> publishUserStatus(userId, status)));
+        
+        typingTracker = new TypingIndicatorTracker(cleanupExecutor, typingStopDebounceMs, typingExpiryMs,
+            this::publishTypingIndicator);
+        
+        conversationUpdates = new ConversationUpdateCoalescer(cleanupExecutor, conversationUpdateFlushMs,
+            (userId, changes) -> broadcastExecutor.submit(() -> publishConversationDelta(userId, changes)));
+        
+        // Delivery streams outlive their last session for the resume window only
+        cleanupExecutor.scheduleWithFixedDelay(this::evictExpiredDeliveryStreams, 30, 30, TimeUnit.SECONDS);
+    }
+    
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         totalConnections.incrementAndGet();
@@ -166,25 +355,26 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         } catch (Exception e) {
             log.warn("Failed to set message size limits: {}", e.getMessage());
         }
+        applySendTimeLimit(session);
+        
+        // Wire format follows the negotiated subprotocol; JSON when none was requested (and for SockJS)
+        WireFormat wireFormat = WireFormat.fromSubProtocol(session.getAcceptedProtocol());
+        session.getAttributes().put(WIRE_FORMAT_ATTRIBUTE, wireFormat);
+        log.debug("Session {} using {} wire format", session.getId(), wireFormat);
         
         Long userId = extractUserIdFromSession(session);
         if (userId != null) {
             // Support multiple sessions per user (e.g., mobile + web)
-            ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.computeIfAbsent(
-                userId, k -> new ConcurrentHashMap<>()
-            );
-            
-            // Add new session
-            sessions.put(session.getId(), session);
+            ConcurrentHashMap<String, WebSocketSession> sessions = registerUserSession(userId, session);
             
             log.info("WebSocket connection established for user: {} - User sessions: {} - Total active users: {}", 
                 userId, sessions.size(), userSessions.size());
             
             // Async connection confirmation to avoid blocking
-            asyncExecutor.submit(() -> {
+            broadcastExecutor.submit(() -> {
                 try {
                     // Send connection confirmation
-                    sendMessage(session, createConnectionMessage(userId));
+                    sendFrame(session, createConnectionFrame(userId));
                     
                     // Send ping to test connection
                     sendPing(session);
@@ -192,8 +382,8 @@ public class MessageWebSocketHandler implements WebSocketHandler {
                     // Broadcast user online status
                     broadcastUserStatus(userId, "ONLINE");
                     
-                    // Send pending SENT messages to user
-                    sendPendingMessagesToUser(userId);
+                    // Resume the delivery stream, or replay pending SENT messages
+                    startDelivery(userId, session, resumeFromQuery(session));
                 } catch (Exception e) {
                     log.error("Error sending connection confirmation for user {}: {}", userId, e.getMessage());
                 }
@@ -203,13 +393,10 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             log.info("WebSocket connection established without user ID. Session: {} - URI: {}", 
                 session.getId(), session.getUri());
             
-            asyncExecutor.submit(() -> {
+            broadcastExecutor.submit(() -> {
                 try {
-                    Map<String, Object> authRequest = new HashMap<>();
-                    authRequest.put("type", "AUTH_REQUEST");
-                    authRequest.put("message", "Please provide userId or token for authentication");
-                    authRequest.put("connectionStable", true);
-                    sendMessage(session, objectMapper.writeValueAsString(authRequest));
+                    sendFrame(session, new OutboundFrame.AuthRequest(
+                        "Please provide userId or token for authentication", true));
                 } catch (Exception e) {
                     log.error("Error sending auth request: {}", e.getMessage());
                 }
@@ -219,13 +406,16 @@ public class MessageWebSocketHandler implements WebSocketHandler {
     
     @Override
     public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
-        if (message instanceof TextMessage) {
-            String payload = ((TextMessage) message).getPayload();
-            log.debug("Received WebSocket message: {}", payload);
+        if (message instanceof TextMessage || message instanceof BinaryMessage) {
+            if (message instanceof TextMessage textMessage) {
+                log.debug("Received WebSocket message: {}", textMessage.getPayload());
+            } else {
+                log.debug("Received binary WebSocket message: {} bytes", message.getPayloadLength());
+            }
             log.info("WebSocket session ID: {}, URI: {}", session.getId(), session.getUri());
             
             // Handle different message types (ping, typing indicators, etc.)
-            handleIncomingMessage(session, payload);
+            handleIncomingMessage(session, message);
         }
     }
     
@@ -255,7 +445,7 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             // Try to send error message before closing
             try {
                 if (session.isOpen()) {
-                    sendMessage(session, createErrorMessage("Transport error occurred: " + exception.getMessage()));
+                    sendError(session, "Transport error occurred: " + exception.getMessage());
                 }
             } catch (Exception e) {
                 log.debug("Failed to send error message before closing session: {}", e.getMessage());
@@ -278,102 +468,306 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         return false;
     }
     
+    /**
+     * Subprotocols offered in the handshake (Sec-WebSocket-Protocol)
+     * 
+     * - chitchat.cbor: same frames encoded as CBOR in binary messages (mobile clients)
+     * - chitchat.json: JSON text frames, also the default when no subprotocol is requested
+     */
+    @Override
+    public List<String> getSubProtocols() {
+        return WireFormat.SUB_PROTOCOLS;
+    }
+    
     /**
      * Send a message to a specific user (receiver) - optimized for multiple sessions
      */
     public void sendMessageToUser(Long receiverId, MessageResponse message) {
-        ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(receiverId);
-        if (sessions == null || sessions.isEmpty()) {
-            log.debug("Receiver {} not connected via WebSocket", receiverId);
-            return;
+        if (message.getGroupId() == null) {
+            presenceAudience.recordConversation(message.getSenderId(), receiverId);
+            // The message itself ends the sender's typing burst
+            typingTracker.stopNow(message.getSenderId(), receiverId);
         }
         
-        String payload = createMessagePayload("NEW_MESSAGE", message);
+        // Sequenced here for local sessions; other nodes sequence it in their own stream for the user
+        int targets = sendMessageToUserSessions(receiverId, message)
+            + forwardToUserNodes(receiverId, new OutboundFrame.NewMessage(message, null), false);
         
-        // Send to all sessions of the user in parallel
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-        for (Map.Entry<String, WebSocketSession> entry : sessions.entrySet()) {
-            WebSocketSession session = entry.getValue();
-            futures.add(CompletableFuture.runAsync(() -> {
-                if (session.isOpen()) {
-                    try {
-                        sendMessage(session, payload);
-                        messagesSent.incrementAndGet();
-                    } catch (Exception e) {
-                        log.error("Failed to send message to receiver {} session {}", receiverId, session.getId(), e);
-                        messagesFailed.incrementAndGet();
-                        removeUserSession(session);
-                    }
+        if (targets == 0) {
+            log.debug("Receiver {} not connected via WebSocket", receiverId);
+        } else {
+            log.debug("Message routed to {} sessions/nodes for receiver {}", targets, receiverId);
+        }
+    }
+    
+    /**
+     * Deliver a group message to many members at once
+     * 
+     * Members connected here are queued directly, each in their own delivery
+     * stream. The others are grouped by the node that holds their sessions, and
+     * every such node gets one forwarded frame listing its members instead of one
+     * copy per member.
+     * 
+     * @return members with a session on some node (the rest need a push notification)
+     */
+    public Set<Long> sendMessageToUsers(Collection<Long> userIds, MessageResponse message) {
+        Set<Long> online = new HashSet<>();
+        Map<String, List<Long>> remoteMembersByNode = new HashMap<>();
+        
+        for (Long userId : userIds) {
+            if (sendMessageToUserSessions(userId, message) > 0 || userSessions.containsKey(userId)) {
+                online.add(userId);
+            }
+            for (String nodeId : presenceRegistry.nodesFor(userId)) {
+                if (!clusterNode.isSelf(nodeId)) {
+                    remoteMembersByNode.computeIfAbsent(nodeId, id -> new ArrayList<>()).add(userId);
+                    online.add(userId);
                 }
-            }, asyncExecutor));
+            }
         }
         
-        // Don't wait for completion - fire and forget for better performance
-        log.debug("Message queued to {} sessions for receiver {}", futures.size(), receiverId);
+        if (!remoteMembersByNode.isEmpty()) {
+            OutboundFrame.NewMessage unsequenced = new OutboundFrame.NewMessage(message, null);
+            remoteMembersByNode.forEach((nodeId, members) -> {
+                nodeMessageBus.send(nodeId, ClusterDelivery.toUsers(clusterNode.getNodeId(), members, unsequenced, false));
+                framesForwarded.incrementAndGet();
+            });
+        }
+        
+        log.debug("Group message {} queued for {} online members ({} other nodes)", 
+            message.getId(), online.size(), remoteMembersByNode.size());
+        return online;
     }
     
     /**
      * Send message status update to the sender - optimized for multiple sessions
      */
     public void sendStatusUpdateToUser(Long senderId, String messageId, String status) {
-        ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(senderId);
-        if (sessions == null || sessions.isEmpty()) {
+        PreparedFrame frame = frameCodec.prepare(new OutboundFrame.MessageStatus(messageId, status));
+        int targets = deliverToUser(senderId, frame, false);
+        
+        if (targets == 0) {
             log.debug("Sender {} not connected via WebSocket", senderId);
+        } else {
+            log.debug("Status update routed to {} sessions/nodes for sender {}", targets, senderId);
+        }
+    }
+    
+    /**
+     * Send a read watermark to the other participants of a conversation
+     * 
+     * The frame is encoded once and routed to every recipient.
+     */
+    public void sendReadUpTo(List<Long> recipientIds, String conversationId, String groupId, Long readerId,
+                             String messageId, long readAt) {
+        PreparedFrame frame = frameCodec.prepare(
+                new OutboundFrame.ReadUpTo(conversationId, groupId, readerId, messageId, readAt));
+        int targets = 0;
+        for (Long recipientId : recipientIds) {
+            targets += deliverToUser(recipientId, frame, false);
+        }
+        log.debug("READ_UPTO {} from user {} routed to {} sessions/nodes", messageId, readerId, targets);
+    }
+    
+    /**
+     * Send one status change for many of the sender's messages as a single frame
+     */
+    public void sendStatusUpdatesToUser(Long senderId, List<String> messageIds, String status) {
+        if (messageIds.isEmpty()) {
             return;
         }
+        PreparedFrame frame = frameCodec.prepare(
+                new OutboundFrame.MessageStatusBatch(messageIds, status, System.currentTimeMillis()));
+        int targets = deliverToUser(senderId, frame, false);
         
-        String payload = createStatusPayload(messageId, status);
-        
-        // Send to all sessions in parallel
-        for (WebSocketSession session : sessions.values()) {
-            asyncExecutor.submit(() -> {
-                if (session.isOpen()) {
-                    try {
-                        sendMessage(session, payload);
-                        messagesSent.incrementAndGet();
-                    } catch (Exception e) {
-                        log.error("Failed to send status update to sender {} session {}", senderId, session.getId(), e);
-                        messagesFailed.incrementAndGet();
-                        removeUserSession(session);
-                    }
-                }
-            });
+        if (targets == 0) {
+            log.debug("Sender {} not connected via WebSocket", senderId);
+        } else {
+            log.debug("Status update for {} messages routed to {} sessions/nodes for sender {}",
+                    messageIds.size(), targets, senderId);
         }
-        
-        log.debug("Status update queued to {} sessions for sender {}", sessions.size(), senderId);
     }
     
     /**
-     * Send typing indicator to a specific user - optimized for multiple sessions
+     * Send typing indicator to a specific user
+     * 
+     * Goes through the typing tracker, so repeated frames within a burst are
+     * absorbed and the receiver sees one start and one stop.
+     * 
+     * @return true if the indicator changed the typing state, false if it was debounced
+     */
+    public boolean sendTypingIndicator(Long receiverId, Long senderId, String senderName, boolean isTyping) {
+        return typingTracker.onTyping(senderId, receiverId, senderName, isTyping);
+    }
+    
+    /**
+     * Deliver a typing transition chosen by the tracker to the receiver's sessions
      */
-    public void sendTypingIndicator(Long receiverId, Long senderId, String senderName, boolean isTyping) {
+    private void publishTypingIndicator(Long senderId, Long receiverId, String senderName, boolean isTyping) {
         log.debug("Sending typing indicator from user {} to user {}: {}", senderId, receiverId, isTyping);
         
-        ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(receiverId);
-        if (sessions == null || sessions.isEmpty()) {
+        // Typing frames are droppable under backpressure
+        PreparedFrame frame = frameCodec.prepare(new OutboundFrame.Typing(senderId, senderName, isTyping));
+        int targets = deliverToUser(receiverId, frame, true);
+        
+        if (targets == 0) {
             log.debug("Receiver {} not connected via WebSocket", receiverId);
+        } else {
+            log.debug("Typing indicator routed to {} sessions/nodes for receiver {}", targets, receiverId);
+        }
+    }
+    
+    /**
+     * Deliver a frame to a user wherever they are connected
+     * 
+     * Local sessions are queued directly. Every other node that holds sessions for
+     * the user gets exactly one forwarded copy - never a broadcast to all nodes.
+     * The frame is only serialized if someone actually receives it.
+     * 
+     * @return number of local sessions plus remote nodes the frame was routed to
+     */
+    private int deliverToUser(Long userId, PreparedFrame frame, boolean droppable) {
+        return sendToUserSessions(userId, frame, droppable) + forwardToUserNodes(userId, frame.getFrame(), droppable);
+    }
+    
+    /**
+     * Forward one copy of a frame to every other node that holds sessions for the user
+     * 
+     * @return number of remote nodes the frame was forwarded to
+     */
+    private int forwardToUserNodes(Long userId, OutboundFrame frame, boolean droppable) {
+        int targets = 0;
+        for (String nodeId : presenceRegistry.nodesFor(userId)) {
+            if (!clusterNode.isSelf(nodeId)) {
+                nodeMessageBus.send(nodeId, 
+                    ClusterDelivery.toUser(clusterNode.getNodeId(), userId, frame, droppable));
+                framesForwarded.incrementAndGet();
+                targets++;
+            }
+        }
+        return targets;
+    }
+    
+    /**
+     * Handle a frame forwarded by another node - delivered to local sessions only, never re-forwarded
+     */
+    private void onClusterDelivery(ClusterDelivery delivery) {
+        framesReceivedFromCluster.incrementAndGet();
+        
+        List<Long> recipients = delivery.userId() != null ? List.of(delivery.userId()) : delivery.userIds();
+        
+        // Messages arrive unsequenced and take the next seq of this node's stream for each user
+        if (recipients != null && delivery.frame() instanceof OutboundFrame.NewMessage newMessage) {
+            for (Long userId : recipients) {
+                sendMessageToUserSessions(userId, newMessage.data());
+            }
             return;
         }
         
-        String payload = createTypingPayload(senderId, senderName, isTyping);
+        PreparedFrame frame = frameCodec.prepare(delivery.frame());
+        if (recipients != null) {
+            for (Long userId : recipients) {
+                sendToUserSessions(userId, frame, delivery.droppable());
+            }
+        } else {
+            sendToAllLocalUsers(frame, delivery.excludeUserId(), delivery.droppable());
+        }
+    }
+    
+    /**
+     * Queue a NEW_MESSAGE on every open session of a user, sequenced in the user's delivery stream
+     * 
+     * The seq is assigned and the frame queued under the stream's monitor, so every
+     * session receives seqs in increasing order. Sessions not yet attached to the
+     * stream are skipped: their resume gap or backlog replay brings the message.
+     * 
+     * @return number of sessions the message was queued for
+     */
+    private int sendMessageToUserSessions(Long userId, MessageResponse message) {
+        ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(userId);
+        if (sessions == null || sessions.isEmpty()) {
+            return 0;
+        }
         
-        // Send to all sessions in parallel
-        for (WebSocketSession session : sessions.values()) {
-            asyncExecutor.submit(() -> {
-                if (session.isOpen()) {
-                    try {
-                        sendMessage(session, payload);
-                        messagesSent.incrementAndGet();
-                    } catch (Exception e) {
-                        log.error("Failed to send typing indicator to receiver {}", receiverId, e);
-                        messagesFailed.incrementAndGet();
-                        removeUserSession(session);
-                    }
+        DeliveryStream stream = deliveryStreams.computeIfAbsent(userId, id -> newDeliveryStream());
+        synchronized (stream) {
+            DeliveryStream.Entry entry = stream.append(message, null);
+            PreparedFrame frame = frameCodec.prepare(new OutboundFrame.NewMessage(message, entry.seq()));
+            
+            int queued = 0;
+            for (WebSocketSession session : sessions.values()) {
+                if (session.isOpen() && stream.isAttached(session.getId())
+                        && outboundQueue(session).offer(frame.messageFor(wireFormat(session)), false)) {
+                    queued++;
                 }
-            });
+            }
+            return queued;
+        }
+    }
+    
+    /**
+     * Queue a frame on every open session of a user
+     * 
+     * The frame is shared between sessions, so it is serialized at most once per
+     * wire format no matter how many devices the user has connected.
+     * 
+     * @return number of sessions the frame was queued for
+     */
+    private int sendToUserSessions(Long userId, PreparedFrame frame, boolean droppable) {
+        ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(userId);
+        if (sessions == null || sessions.isEmpty()) {
+            return 0;
         }
         
-        log.debug("Typing indicator queued to {} sessions for receiver {}", sessions.size(), receiverId);
+        int queued = 0;
+        for (WebSocketSession session : sessions.values()) {
+            if (session.isOpen() && outboundQueue(session).offer(frame.messageFor(wireFormat(session)), droppable)) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+    
+    /**
+     * Outbound queue for a session, created on first use
+     */
+    private SessionOutboundQueue outboundQueue(WebSocketSession session) {
+        return outboundQueues.computeIfAbsent(session.getId(), id -> new SessionOutboundQueue(
+            session, outboundQueueCapacity, outboundOverflowPolicy, asyncExecutor, outboundListener,
+            sendDeadlineTimer, sendTimeLimitMs));
+    }
+    
+    /**
+     * Close a session its outbound queue gave up on (overflow, stalled or failed write)
+     * 
+     * Closing also fails a write still blocked on the session, which frees its send thread.
+     */
+    private void closeUnreliableSession(WebSocketSession session) {
+        try {
+            if (session.isOpen()) {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        } catch (IOException e) {
+            log.debug("Error closing slow consumer session {}: {}", session.getId(), e.getMessage());
+        }
+        removeUserSession(session);
+    }
+    
+    /**
+     * Bound blocking writes in the container too (Tomcat reads this per session)
+     * 
+     * The outbound queue closes a session whose write misses its deadline; with
+     * this property Tomcat also gives up on the write itself after the same time
+     * instead of its 20 s default.
+     */
+    private void applySendTimeLimit(WebSocketSession session) {
+        if (sendTimeLimitMs <= 0 || !(session instanceof NativeWebSocketSession nativeSession)) {
+            return;
+        }
+        jakarta.websocket.Session container = nativeSession.getNativeSession(jakarta.websocket.Session.class);
+        if (container != null) {
+            container.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, sendTimeLimitMs);
+        }
     }
     
     /**
@@ -394,47 +788,48 @@ public class MessageWebSocketHandler implements WebSocketHandler {
      * Log WebSocket metrics
      */
     private void logMetrics() {
-        long totalSessions = userSessions.values().stream()
-            .mapToInt(ConcurrentHashMap::size)
-            .sum();
+        long totalSessions = sessionOwners.size();
+        
+        int queuedFrames = 0;
+        int maxQueueDepth = 0;
+        for (SessionOutboundQueue queue : outboundQueues.values()) {
+            int depth = queue.depth();
+            queuedFrames += depth;
+            maxQueueDepth = Math.max(maxQueueDepth, depth);
+        }
         
-        log.info("WebSocket Metrics - Users: {}, Sessions: {}, Total Connections: {}, Active: {}, Sent: {}, Failed: {}",
-            userSessions.size(), totalSessions, totalConnections.get(), activeConnections.get(), 
-            messagesSent.get(), messagesFailed.get());
+        log.info("WebSocket Metrics - Node: {}, Users: {}, Sessions: {}, Total Connections: {}, Active: {}, Sent: {}, Failed: {}, " +
+                "Queued: {}, Max Queue Depth: {}, Dropped: {}, Slow Consumers Closed: {}, Forwarded: {}, Received From Cluster: {}, " +
+                "Presence Published: {}, Presence Coalesced: {}, Typing Received: {}, Typing Forwarded: {}, " +
+                "Typing Suppressed: {}, Typing Active: {}, Conversation Updates: {}, Conversation Deltas Sent: {}, " +
+                "Delivery Streams: {}, Resumed From Buffer: {}, Resumed With Full Replay: {}, Acknowledged: {}",
+            clusterNode.getNodeId(), userSessions.size(), totalSessions, totalConnections.get(), activeConnections.get(), 
+            messagesSent.get(), messagesFailed.get(), queuedFrames, maxQueueDepth, 
+            messagesDropped.get(), slowConsumersClosed.get(), framesForwarded.get(), framesReceivedFromCluster.get(),
+            presenceCoalescer.getPublishedCount(), presenceCoalescer.getSuppressedCount(),
+            typingTracker.getReceivedCount(), typingTracker.getForwardedCount(),
+            typingTracker.getSuppressedCount(), typingTracker.getActiveCount(),
+            conversationUpdates.getSubmittedCount(), conversationUpdates.getPublishedCount(),
+            deliveryStreams.size(), resumedFromBuffer.get(), resumedWithFullReplay.get(), messagesAcknowledged.get());
     }
     
     /**
      * Broadcast conversation list update to a user - optimized for multiple sessions
      */
     public void sendConversationUpdate(Long userId) {
-        ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(userId);
-        if (sessions == null || sessions.isEmpty()) {
+        if (!isUserConnected(userId)) {
             log.debug("User {} not connected via WebSocket for conversation update", userId);
             return;
         }
         
         // Fetch data once and send to all sessions
-        asyncExecutor.submit(() -> {
+        broadcastExecutor.submit(() -> {
             try {
                 List<ConversationResponse> conversations = messagingService.getConversationList(userId);
-                String payload = createConversationListMessage(conversations);
-                
-                // Send to all sessions
-                for (WebSocketSession session : sessions.values()) {
-                    if (session.isOpen()) {
-                        try {
-                            sendMessage(session, payload);
-                            messagesSent.incrementAndGet();
-                        } catch (Exception e) {
-                            log.error("Failed to send conversation update to user {} session {}", 
-                                userId, session.getId(), e);
-                            messagesFailed.incrementAndGet();
-                            removeUserSession(session);
-                        }
-                    }
-                }
+                PreparedFrame frame = frameCodec.prepare(createConversationListFrame(conversations));
+                int targets = deliverToUser(userId, frame, false);
                 
-                log.debug("Conversation list update sent to {} sessions for user {}", sessions.size(), userId);
+                log.debug("Conversation list update routed to {} sessions/nodes for user {}", targets, userId);
             } catch (Exception e) {
                 log.error("Failed to fetch conversation update for user {}", userId, e);
             }
@@ -442,118 +837,336 @@ public class MessageWebSocketHandler implements WebSocketHandler {
     }
     
     /**
-     * Send total unread count to a user - optimized for multiple sessions
+     * Send total unread count to a user (coalesced into the next CONVERSATION_DELTA)
      */
     public void sendUnreadCountUpdate(Long userId) {
-        ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(userId);
-        if (sessions == null || sessions.isEmpty()) {
+        sendUnreadCountUpdate(userId, null);
+    }
+    
+    /**
+     * Send the unread count of one conversation and the new total (coalesced into the next CONVERSATION_DELTA)
+     */
+    public void sendUnreadCountUpdate(Long userId, Long partnerId) {
+        if (!isUserConnected(userId)) {
             log.debug("User {} not connected via WebSocket for unread count update", userId);
             return;
         }
+        conversationUpdates.submit(userId, new ConversationUpdateCoalescer.Change(partnerId, null, null));
+    }
+    
+    /**
+     * Report a message added to one of the user's conversations (coalesced into the next CONVERSATION_DELTA)
+     */
+    public void sendConversationDelta(Long userId, MessageResponse message) {
+        if (!isUserConnected(userId)) {
+            log.debug("User {} not connected via WebSocket for conversation delta", userId);
+            return;
+        }
         
-        // Fetch data once and send to all sessions
-        asyncExecutor.submit(() -> {
-            try {
-                long totalUnreadCount = messagingService.getTotalUnreadCount(userId);
-                String payload = createUnreadCountMessage(totalUnreadCount);
-                
-                // Send to all sessions
-                for (WebSocketSession session : sessions.values()) {
-                    if (session.isOpen()) {
-                        try {
-                            sendMessage(session, payload);
-                            messagesSent.incrementAndGet();
-                        } catch (Exception e) {
-                            log.error("Failed to send unread count to user {} session {}", 
-                                userId, session.getId(), e);
-                            messagesFailed.incrementAndGet();
-                            removeUserSession(session);
-                        }
-                    }
+        Long partnerId = null;
+        if (message.getGroupId() == null) {
+            partnerId = userId.equals(message.getSenderId()) ? message.getRecipientId() : message.getSenderId();
+        }
+        conversationUpdates.submit(userId, new ConversationUpdateCoalescer.Change(partnerId, message.getGroupId(), message));
+    }
+    
+    /**
+     * Build and deliver one CONVERSATION_DELTA for everything merged during the flush window
+     */
+    private void publishConversationDelta(Long userId, List<ConversationUpdateCoalescer.Change> changes) {
+        try {
+            List<OutboundFrame.ConversationChange> conversations = new ArrayList<>(changes.size());
+            for (ConversationUpdateCoalescer.Change change : changes) {
+                if (change.userId() == null && change.groupId() == null) {
+                    continue;  // Total-only update
                 }
-                
-                log.debug("Unread count update sent to {} sessions for user {}: {}", 
-                    sessions.size(), userId, totalUnreadCount);
-            } catch (Exception e) {
-                log.error("Failed to fetch unread count for user {}", userId, e);
+                Long unreadCount = change.userId() != null 
+                    ? unreadCounterService.getUnreadFrom(userId, change.userId()) : null;
+                conversations.add(new OutboundFrame.ConversationChange(
+                    change.userId(), change.groupId(), change.latestMessage(), unreadCount));
             }
-        });
+            
+            long totalUnreadCount = unreadCounterService.getTotalUnread(userId);
+            PreparedFrame frame = frameCodec.prepare(
+                new OutboundFrame.ConversationDelta(conversations, totalUnreadCount, System.currentTimeMillis()));
+            int targets = deliverToUser(userId, frame, false);
+            
+            log.debug("Conversation delta ({} conversations, {} unread) routed to {} sessions/nodes for user {}", 
+                conversations.size(), totalUnreadCount, targets, userId);
+        } catch (Exception e) {
+            log.error("Failed to send conversation delta to user {}", userId, e);
+        }
     }
     
     /**
      * Send pending messages (SENT status) to user when they come online
      * 
-     * When a user connects via WebSocket, this method retrieves all messages
-     * that are in SENT status and sends them via WebSocket.
+     * When a user connects via WebSocket, the messages that are in SENT status
+     * are replayed to the connecting session.
      * 
      * Messages in SENT status are those that:
      * - Were sent while user was offline
      * - Were not delivered yet
      * 
-     * After sending, these messages are automatically marked as DELIVERED.
      * Messages that are already DELIVERED or READ are not sent again.
+     * 
+     * The backlog is streamed, never materialized: each batch of at most
+     * pendingReplayBatchSize messages (and at most half the outbound queue) is
+     * read with a keyset cursor, queued, and only once the session's queue has
+     * drained are the batch's messages marked DELIVERED - that is the delivery
+     * watermark - and the next batch read. Memory stays flat whatever the
+     * backlog size; if the session closes mid-replay the undelivered messages
+     * stay SENT and are replayed on the next connection.
+     * 
+     * For a session that ACKs (see startDelivery) each replayed message is sequenced
+     * in the user's delivery stream for that session only, and becomes DELIVERED
+     * when the client acknowledges it rather than when it is written; the queue
+     * drain then only paces the next batch.
      */
-    public void sendPendingMessagesToUser(Long userId) {
-        asyncExecutor.submit(() -> {
-            try {
-                log.debug("Checking for pending messages for user: {}", userId);
-                
-                // Get all pending messages (SENT status only)
-                List<MessageResponse> pendingMessages = messagingService.getPendingMessages(userId);
-                
-                if (pendingMessages.isEmpty()) {
+    public void sendPendingMessagesToUser(Long userId, WebSocketSession session) {
+        replayPendingFrom(userId, session, null);
+    }
+    
+    private void replayPendingFrom(Long userId, WebSocketSession session, MessageCursor after) {
+        broadcastExecutor.submit(() -> replayPendingBatch(userId, session, after, 0));
+    }
+    
+    private void replayPendingBatch(Long userId, WebSocketSession session, MessageCursor after, int replayed) {
+        try {
+            if (!session.isOpen()) {
+                log.warn("User {} not connected anymore, stopped pending message replay after {} messages", userId, replayed);
+                return;
+            }
+            
+            SessionOutboundQueue queue = outboundQueue(session);
+            int batchSize = Math.max(1, Math.min(pendingReplayBatchSize, queue.getCapacity() / 2));
+            List<MessageResponse> batch = messagingService.getPendingMessageBatch(userId, after, batchSize);
+            
+            if (batch.isEmpty()) {
+                if (replayed > 0) {
+                    log.info("Successfully replayed {} pending messages to user: {}", replayed, userId);
+                } else {
                     log.debug("No pending messages for user: {}", userId);
-                    return;
                 }
-                
-                log.info("Sending {} pending messages to user: {}", pendingMessages.size(), userId);
-                
-                // Send each pending message via WebSocket
-                ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(userId);
-                if (sessions == null || sessions.isEmpty()) {
-                    log.warn("User {} not connected anymore, cannot send pending messages", userId);
-                    return;
+                return;
+            }
+            
+            boolean ackMode = isAckMode(session);
+            if (!(ackMode ? queueSequenced(userId, session, batch) : queueUnsequenced(session, batch))) {
+                log.warn("Stopped pending message replay for user {} after {} messages (session closed)",
+                    userId, replayed);
+                return;
+            }
+            
+            MessageResponse last = batch.get(batch.size() - 1);
+            MessageCursor next = new MessageCursor(last.getCreatedAt(), last.getId());
+            boolean more = batch.size() == batchSize;
+            
+            // Written to the socket: advance the delivery watermark (ACKs do it in ack mode), then read the next batch
+            queue.whenDrainedTo(0, () -> broadcastExecutor.submit(() -> {
+                if (!ackMode) {
+                    try {
+                        messagingService.markMessagesDelivered(userId, batch);
+                    } catch (Exception e) {
+                        log.error("Failed to mark {} replayed messages as delivered for user {}", batch.size(), userId, e);
+                    }
                 }
+                if (more) {
+                    replayPendingBatch(userId, session, next, replayed + batch.size());
+                } else {
+                    log.info("Successfully replayed {} pending messages to user: {}", replayed + batch.size(), userId);
+                }
+            }));
+            
+        } catch (Exception e) {
+            log.error("Error sending pending messages to user {}: {}", userId, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Queue replayed messages for a session that does not ACK (no seq)
+     */
+    private boolean queueUnsequenced(WebSocketSession session, List<MessageResponse> batch) {
+        SessionOutboundQueue queue = outboundQueue(session);
+        WireFormat wireFormat = wireFormat(session);
+        for (MessageResponse message : batch) {
+            if (!queue.offer(frameCodec.encodeMessage(new OutboundFrame.NewMessage(message, null), wireFormat), false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Sequence replayed messages in the user's delivery stream for this session only, and queue them
+     */
+    private boolean queueSequenced(Long userId, WebSocketSession session, List<MessageResponse> batch) {
+        DeliveryStream stream = deliveryStreams.get(userId);
+        if (stream == null) {
+            return false;
+        }
+        SessionOutboundQueue queue = outboundQueue(session);
+        WireFormat wireFormat = wireFormat(session);
+        synchronized (stream) {
+            for (MessageResponse message : batch) {
+                DeliveryStream.Entry entry = stream.append(message, session.getId());
+                if (!queue.offer(frameCodec.encodeMessage(
+                        new OutboundFrame.NewMessage(message, entry.seq()), wireFormat), false)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Attach a newly authenticated session to the user's delivery stream and fill its gap
+     * 
+     * Without a resume request (older clients) the session never ACKs: it follows
+     * the stream from now on and the offline backlog is replayed as before.
+     * 
+     * With one, the session is in ack mode. If the client's streamId is this
+     * node's stream for the user and lastSeq is still buffered, only the entries
+     * after lastSeq are queued - from memory - and MongoDB is asked only for
+     * messages newer than the stream's high-water mark, and only if the user had
+     * no session here in between (while detached this node was not routable for
+     * them). Otherwise the client starts over on the current stream with a full
+     * backlog replay. Either way a RESUMED frame tells the client which stream
+     * to ACK against.
+     * 
+     * Attaching and queueing happen inside the stream map's compute, so eviction
+     * cannot drop the stream in between, and under the stream's monitor, so no
+     * live message overtakes the replayed gap.
+     */
+    private void startDelivery(Long userId, WebSocketSession session, InboundFrame.Resume resume) {
+        String sessionId = session.getId();
+        if (resume == null) {
+            deliveryStreams.compute(userId, (id, stream) -> {
+                DeliveryStream current = stream != null ? stream : newDeliveryStream();
+                current.attach(sessionId, current.getLastSeq());
+                return current;
+            });
+            sendPendingMessagesToUser(userId, session);
+            return;
+        }
+        
+        session.getAttributes().put(ACK_MODE_ATTRIBUTE, Boolean.TRUE);
+        boolean[] fullReplay = {false};
+        MessageCursor[] gapQueryFrom = {null};
+        boolean[] gapQuery = {false};
+        
+        deliveryStreams.compute(userId, (id, stream) -> {
+            DeliveryStream current = stream != null ? stream : newDeliveryStream();
+            synchronized (current) {
+                List<DeliveryStream.Entry> gap = current.getStreamId().equals(resume.streamId()) && resume.lastSeq() != null
+                    ? current.entriesAfter(resume.lastSeq())
+                    : null;
                 
-                for (MessageResponse message : pendingMessages) {
-                    String payload = createMessagePayload("NEW_MESSAGE", message);
-                    
-                    // Send to all sessions of the user
-                    for (WebSocketSession session : sessions.values()) {
-                        if (session.isOpen()) {
-                            try {
-                                sendMessage(session, payload);
-                                messagesSent.incrementAndGet();
-                                log.debug("Sent pending message {} to user {} via WebSocket", 
-                                    message.getId(), userId);
-                            } catch (Exception e) {
-                                log.error("Failed to send pending message {} to user {}", 
-                                    message.getId(), userId, e);
-                                messagesFailed.incrementAndGet();
-                            }
-                        }
-                    }
+                if (gap == null) {
+                    current.attach(sessionId, current.getLastSeq());
+                    sendFrame(session, new OutboundFrame.Resumed(current.getStreamId(), current.getLastSeq(), 0, true));
+                    fullReplay[0] = true;
+                    return current;
                 }
                 
-                log.info("Successfully sent {} pending messages to user: {}", pendingMessages.size(), userId);
+                gapQuery[0] = !current.isAttached();
+                gapQueryFrom[0] = current.getHighWater();
+                current.attach(sessionId, resume.lastSeq());
+                sendFrame(session, new OutboundFrame.Resumed(current.getStreamId(), resume.lastSeq(), gap.size(), false));
                 
-            } catch (Exception e) {
-                log.error("Error sending pending messages to user {}: {}", userId, e.getMessage(), e);
+                SessionOutboundQueue queue = outboundQueue(session);
+                WireFormat wireFormat = wireFormat(session);
+                for (DeliveryStream.Entry entry : gap) {
+                    queue.offer(frameCodec.encodeMessage(
+                        new OutboundFrame.NewMessage(entry.message(), entry.seq()), wireFormat), false);
+                }
+                return current;
             }
         });
+        
+        if (fullReplay[0]) {
+            resumedWithFullReplay.incrementAndGet();
+            log.debug("User {} session {} resumed with a full backlog replay", userId, sessionId);
+            sendPendingMessagesToUser(userId, session);
+        } else {
+            resumedFromBuffer.incrementAndGet();
+            log.debug("User {} session {} resumed from seq {}", userId, sessionId, resume.lastSeq());
+            if (gapQuery[0]) {
+                replayPendingFrom(userId, session, gapQueryFrom[0]);
+            }
+        }
+    }
+    
+    /**
+     * Resume request carried in the connection URL (ack=true, streamId=..., lastSeq=...), if any
+     */
+    private InboundFrame.Resume resumeFromQuery(WebSocketSession session) {
+        String query = session.getUri() != null ? session.getUri().getQuery() : null;
+        if (query == null) {
+            return null;
+        }
+        
+        boolean ack = false;
+        String streamId = null;
+        Long lastSeq = null;
+        for (String param : query.split("&")) {
+            if (param.equals("ack=true")) {
+                ack = true;
+            } else if (param.startsWith("streamId=")) {
+                streamId = param.substring(9);
+                ack = true;
+            } else if (param.startsWith("lastSeq=")) {
+                try {
+                    lastSeq = Long.parseLong(param.substring(8));
+                    ack = true;
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid lastSeq in WebSocket query parameter: {}", param);
+                }
+            }
+        }
+        return ack ? new InboundFrame.Resume(streamId, lastSeq) : null;
+    }
+    
+    private boolean isAckMode(WebSocketSession session) {
+        return Boolean.TRUE.equals(session.getAttributes().get(ACK_MODE_ATTRIBUTE));
+    }
+    
+    private DeliveryStream newDeliveryStream() {
+        return new DeliveryStream(UUID.randomUUID().toString(), retransmitBufferSize, System.currentTimeMillis());
+    }
+    
+    private void detachDeliveryStream(Long userId, String sessionId) {
+        DeliveryStream stream = deliveryStreams.get(userId);
+        if (stream != null) {
+            stream.detach(sessionId, System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Drop delivery streams nobody resumed within the resume window
+     */
+    private void evictExpiredDeliveryStreams() {
+        long now = System.currentTimeMillis();
+        long windowMillis = TimeUnit.SECONDS.toMillis(resumeWindowSeconds);
+        for (Long userId : deliveryStreams.keySet()) {
+            deliveryStreams.computeIfPresent(userId,
+                (id, stream) -> stream.isExpired(now, windowMillis) ? null : stream);
+        }
     }
     
     /**
-     * Check if a user is connected via WebSocket (has at least one active session)
+     * Check if a user is connected via WebSocket (has at least one active session on any node)
      */
     public boolean isUserConnected(Long userId) {
         ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.get(userId);
-        if (sessions == null || sessions.isEmpty()) {
-            return false;
+        
+        // Check if at least one local session is open
+        if (sessions != null && sessions.values().stream().anyMatch(WebSocketSession::isOpen)) {
+            return true;
         }
         
-        // Check if at least one session is open
-        return sessions.values().stream().anyMatch(WebSocketSession::isOpen);
+        // Otherwise the user may be connected to another node
+        return presenceRegistry.isOnline(userId);
     }
     
     /**
@@ -569,8 +1182,19 @@ public class MessageWebSocketHandler implements WebSocketHandler {
     }
     
     private Long getUserIdFromSession(WebSocketSession session) {
+        // Fast path: session already bound to a user (reverse index, O(1))
+        Long boundUserId = sessionOwners.get(session.getId());
+        if (boundUserId != null) {
+            return boundUserId;
+        }
+        
+        Object userIdAttribute = session.getAttributes().get(USER_ID_ATTRIBUTE);
+        if (userIdAttribute instanceof Long) {
+            return (Long) userIdAttribute;
+        }
+        
         // Try to get user ID from query parameters
-        String query = session.getUri().getQuery();
+        String query = session.getUri() != null ? session.getUri().getQuery() : null;
         if (query != null) {
             // Parse query parameters
             String[] params = query.split("&");
@@ -599,21 +1223,6 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             }
         }
         
-        // Try to get user ID from headers
-        Map<String, Object> attributes = session.getAttributes();
-        Object userIdObj = attributes.get("userId");
-        if (userIdObj instanceof Long) {
-            return (Long) userIdObj;
-        }
-        
-        // Try to find user ID from userSessions map
-        for (Map.Entry<Long, ConcurrentHashMap<String, WebSocketSession>> entry : userSessions.entrySet()) {
-            ConcurrentHashMap<String, WebSocketSession> sessions = entry.getValue();
-            if (sessions.containsValue(session)) {
-                return entry.getKey();
-            }
-        }
-        
         return null;
     }
     
@@ -659,6 +1268,7 @@ public class MessageWebSocketHandler implements WebSocketHandler {
      * - TYPING: Show typing indicators
      * - USER_STATUS: Online/offline status
      * - PIN_MESSAGE: Pin/unpin messages
+     * - VIEW_CHAT: Receive presence updates for the chat currently open
      * - AUTH: Authenticate WebSocket connection
      * - PING/PONG: Keep-alive
      * 
@@ -690,66 +1300,54 @@ public class MessageWebSocketHandler implements WebSocketHandler {
      *   3. Receiver gets it via WebSocket (if online)
      *   4. Message appears in history via REST API (if offline)
      */
-    private void handleIncomingMessage(WebSocketSession session, String payload) {
+    private void handleIncomingMessage(WebSocketSession session, WebSocketMessage<?> message) {
         try {
-            // Parse incoming message and handle different types
-            log.debug("Handling incoming WebSocket message: {}", payload);
-            
-            @SuppressWarnings("unchecked")
-            Map<String, Object> messageData = objectMapper.readValue(payload, Map.class);
-            String messageType = (String) messageData.get("type");
-            
-            switch (messageType) {
-                case "AUTH":
-                    handleAuthentication(session, messageData);
-                    break;
-                    
-                case "PING":
-                case "ping":
-                    handlePing(session);
-                    break;
-                    
-                case "SEND_MESSAGE":
-                    // REAL-TIME: Send message to receiver's current active sessions
-                    handleSendMessage(session, messageData);
-                    break;
-                    
-                case "TYPING":
-                    // REAL-TIME: Show typing indicator
-                    handleTypingIndicator(session, messageData);
-                    break;
-                    
-                case "USER_STATUS":
-                    // REAL-TIME: Broadcast online/offline status
-                    handleUserStatus(session, messageData);
-                    break;
-                    
-                case "PIN_MESSAGE":
-                    // REAL-TIME: Pin/unpin message notification
-                    handlePinMessage(session, messageData);
-                    break;
-                    
-                case "GET_CONVERSATIONS":
-                    // REAL-TIME: Get conversation list (cached)
-                    handleGetConversations(session, messageData);
-                    break;
-                    
+            // Typed decode: the record type selects the handler, fields are already converted.
+            // Binary frames carry CBOR, text frames carry JSON - same envelope either way.
+            InboundFrame frame = message instanceof BinaryMessage binaryMessage
+                ? frameCodec.decode(binaryMessage.getPayload())
+                : frameCodec.decode(((TextMessage) message).getPayload());
+            
+            switch (frame) {
+                case InboundFrame.Auth auth -> handleAuthentication(session, auth);
+                
+                case InboundFrame.Ping ping -> handlePing(session);
+                
+                // REAL-TIME: Cumulative delivery ACK - marks the acknowledged messages DELIVERED
+                case InboundFrame.Ack ack -> handleAck(session, ack);
+                
+                // REAL-TIME: Send message to receiver's current active sessions
+                case InboundFrame.SendMessage sendMessage -> handleSendMessage(session, sendMessage);
+                
+                // REAL-TIME: Show typing indicator
+                case InboundFrame.Typing typing -> handleTypingIndicator(session, typing);
+                
+                // REAL-TIME: Broadcast online/offline status
+                case InboundFrame.UserStatus userStatus -> handleUserStatus(session, userStatus);
+                
+                // REAL-TIME: Pin/unpin message notification
+                case InboundFrame.PinMessage pinMessage -> handlePinMessage(session, pinMessage);
+                
+                // REAL-TIME: Get conversation list (cached)
+                case InboundFrame.GetConversations getConversations -> handleGetConversations(session);
+                
+                // REAL-TIME: Subscribe to presence of the user whose chat is open
+                case InboundFrame.ViewChat viewChat -> handleViewChat(session, viewChat);
+                
+                // REAL-TIME: Read watermark - one write and one frame per read action
+                case InboundFrame.ReadUpTo readUpTo -> handleReadUpTo(session, readUpTo);
+                
                 // ========================================
                 // PAGINATION DISABLED IN WEBSOCKET
                 // ========================================
-                // GET_CONVERSATION_MESSAGES is commented out
+                // GET_CONVERSATION_MESSAGES has no inbound frame type and decodes as Unknown
                 // Use REST API instead: GET /api/messages/conversation/{userId}?page=0&size=50
                 //
-                // case "GET_CONVERSATION_MESSAGES":
-                //     handleGetConversationMessages(session, messageData);
-                //     break;
-                //
                 // Reason: WebSocket should only handle real-time push notifications
                 // Pagination is better handled by REST API with proper HTTP caching
                 // ========================================
-                    
-                default:
-                    log.debug("Unknown message type: {}", messageType);
+                
+                case InboundFrame.Unknown unknown -> log.debug("Unknown message type: {}", unknown.type());
             }
             
         } catch (Exception e) {
@@ -757,39 +1355,35 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         }
     }
     
-    private void handleAuthentication(WebSocketSession session, Map<String, Object> messageData) {
+    private void handleAuthentication(WebSocketSession session, InboundFrame.Auth frame) {
         try {
-            Object userIdObj = messageData.get("userId");
-            if (userIdObj instanceof Number) {
-                Long userId = ((Number) userIdObj).longValue();
+            Long userId = frame.userId();
+            if (userId != null) {
                 
                 // Add session to user's session map (supports multiple sessions)
-                ConcurrentHashMap<String, WebSocketSession> sessions = userSessions.computeIfAbsent(
-                    userId, k -> new ConcurrentHashMap<>()
-                );
-                sessions.put(session.getId(), session);
+                ConcurrentHashMap<String, WebSocketSession> sessions = registerUserSession(userId, session);
                 
                 log.info("User {} authenticated via WebSocket. Total sessions: {}", userId, sessions.size());
                 
                 // Send authentication success message
-                sendMessage(session, createAuthSuccessMessage(userId));
+                sendFrame(session, createAuthSuccessFrame(userId));
                 
                 // Broadcast user online status (only if this is the first session)
                 if (sessions.size() == 1) {
                     broadcastUserStatus(userId, "ONLINE");
                 }
                 
-                // Send pending SENT messages to user
-                sendPendingMessagesToUser(userId);
+                // Resume the delivery stream, or replay pending SENT messages
+                startDelivery(userId, session, frame.resume());
                 
             } else {
                 log.warn("Invalid userId in authentication message");
-                sendMessage(session, createErrorMessage("Invalid userId format"));
+                sendError(session, "Invalid userId format");
             }
         } catch (Exception e) {
             log.error("Error handling authentication", e);
             try {
-                sendMessage(session, createErrorMessage("Authentication failed"));
+                sendError(session, "Authentication failed");
             } catch (Exception ex) {
                 log.error("Failed to send error message", ex);
             }
@@ -798,27 +1392,56 @@ public class MessageWebSocketHandler implements WebSocketHandler {
     
     private void handlePing(WebSocketSession session) {
         try {
-            Map<String, Object> pongResponse = new HashMap<>();
-            pongResponse.put("type", "PONG");
-            pongResponse.put("timestamp", System.currentTimeMillis());
-            pongResponse.put("connectionStable", true);
-            sendMessage(session, objectMapper.writeValueAsString(pongResponse));
+            sendFrame(session, new OutboundFrame.Pong(System.currentTimeMillis()));
         } catch (Exception e) {
             log.error("Error sending pong response", e);
         }
     }
     
+    /**
+     * Cumulative ACK: messages up to seq that this session received become DELIVERED
+     * 
+     * Each message is marked once, by the first session that acknowledges it, with
+     * one updateMany and one MESSAGE_STATUS_BATCH per sender.
+     */
+    private void handleAck(WebSocketSession session, InboundFrame.Ack frame) {
+        Long userId = getUserIdFromSession(session);
+        if (userId == null) {
+            log.warn("Cannot acknowledge: user not authenticated");
+            sendError(session, "User not authenticated");
+            return;
+        }
+        
+        Long seq = frame.data() != null ? frame.data().seq() : null;
+        if (seq == null) {
+            log.warn("Missing seq in ACK");
+            sendError(session, "Missing seq");
+            return;
+        }
+        
+        DeliveryStream stream = deliveryStreams.get(userId);
+        List<MessageResponse> acknowledged = stream != null ? stream.acknowledge(session.getId(), seq) : List.of();
+        if (acknowledged.isEmpty()) {
+            return;
+        }
+        
+        messagesAcknowledged.addAndGet(acknowledged.size());
+        broadcastExecutor.submit(() -> {
+            try {
+                messagingService.markMessagesDelivered(userId, acknowledged);
+            } catch (Exception e) {
+                log.error("Failed to mark {} acknowledged messages as delivered for user {}", acknowledged.size(), userId, e);
+            }
+        });
+    }
+    
     /**
      * Send ping to test connection stability
      */
     private void sendPing(WebSocketSession session) {
         try {
             if (session != null && session.isOpen()) {
-                Map<String, Object> pingMessage = new HashMap<>();
-                pingMessage.put("type", "PING");
-                pingMessage.put("timestamp", System.currentTimeMillis());
-                pingMessage.put("connectionStable", true);
-                sendMessage(session, objectMapper.writeValueAsString(pingMessage));
+                sendFrame(session, new OutboundFrame.Ping(System.currentTimeMillis()));
                 log.debug("Sent ping to session: {}", session.getId());
             }
         } catch (Exception e) {
@@ -873,41 +1496,38 @@ public class MessageWebSocketHandler implements WebSocketHandler {
      * - When message arrives: Both session-1 and session-2 receive it
      * 
      * @param session Current sender's WebSocket session
-     * @param messageData Message payload from sender
+     * @param frame Message payload from sender
      */
-    private void handleSendMessage(WebSocketSession session, Map<String, Object> messageData) {
+    private void handleSendMessage(WebSocketSession session, InboundFrame.SendMessage frame) {
         try {
             // STEP 1: Authenticate sender from current WebSocket session
             Long senderId = getUserIdFromSession(session);
             if (senderId == null) {
                 log.warn("Cannot send message: user not authenticated");
-                sendMessage(session, createErrorMessage("User not authenticated"));
+                sendError(session, "User not authenticated");
                 return;
             }
             
             // STEP 2: Extract message data from WebSocket payload
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) messageData.get("data");
+            InboundFrame.SendMessageData data = frame.data();
             if (data == null) {
                 log.warn("No data in SEND_MESSAGE");
-                sendMessage(session, createErrorMessage("No message data provided"));
+                sendError(session, "No message data provided");
                 return;
             }
             
-            Object recipientIdObj = data.get("recipientId");
-            String content = (String) data.get("content");
-            String messageType = (String) data.get("type");
-            String groupId = (String) data.get("groupId");
-            String replyToMessageId = (String) data.get("replyToMessageId");
+            Long recipientId = data.recipientId();
+            String content = data.content();
+            String messageType = data.type();
+            String groupId = data.groupId();
+            String replyToMessageId = data.replyToMessageId();
             
-            if (recipientIdObj == null || content == null) {
+            if (recipientId == null || content == null) {
                 log.warn("Missing recipientId or content in SEND_MESSAGE");
-                sendMessage(session, createErrorMessage("Missing recipientId or content"));
+                sendError(session, "Missing recipientId or content");
                 return;
             }
             
-            Long recipientId = ((Number) recipientIdObj).longValue();
-            
             // STEP 3: Save message to MongoDB database for persistence
             // This ensures:
             // - Message is stored for pagination (conversation history)
@@ -932,55 +1552,15 @@ public class MessageWebSocketHandler implements WebSocketHandler {
                 
                 log.info("Message saved to database with ID: {}", messageId);
                 
-                // STEP 4: Send message to receiver's CURRENT active WebSocket sessions
-                // This is REAL-TIME delivery, NOT pagination
-                // Receiver loads chat history via REST API when opening conversation
-                ConcurrentHashMap<String, WebSocketSession> recipientSessions = userSessions.get(recipientId);
-                
-                if (recipientSessions != null && !recipientSessions.isEmpty()) {
-                    // Receiver is ONLINE with one or more active sessions
-                    String messagePayload = createWebSocketMessage(senderId, recipientId, content, 
-                        messageType, messageId, replyToMessageId);
-                    
-                    int deliveredCount = 0;
-                    // Send to ALL receiver's current active sessions
-                    // Example: If receiver has phone + laptop online, both receive the message
-                    for (Map.Entry<String, WebSocketSession> entry : recipientSessions.entrySet()) {
-                        WebSocketSession recipientSession = entry.getValue();
-                        if (recipientSession.isOpen()) {
-                            // Async send to avoid blocking
-                            asyncExecutor.submit(() -> {
-                                try {
-                                    sendMessage(recipientSession, messagePayload);
-                                    messagesSent.incrementAndGet();
-                                    log.debug("Message delivered to recipient {} session {} via WebSocket", 
-                                        recipientId, entry.getKey());
-                                } catch (Exception e) {
-                                    log.error("Failed to send message to recipient {} session {}", 
-                                        recipientId, entry.getKey(), e);
-                                    messagesFailed.incrementAndGet();
-                                    removeUserSession(recipientSession);
-                                }
-                            });
-                            deliveredCount++;
-                        }
-                    }
-                    
-                    log.info("Message queued for real-time delivery to {} active sessions of recipient {}", 
-                        deliveredCount, recipientId);
-                } else {
-                    // Receiver is OFFLINE
-                    // - Message already saved to MongoDB (for pagination when user comes online)
-                    // - Push notification will be sent by MessagingService
-                    // - When receiver comes online and opens chat, they'll see message via REST API pagination
-                    log.debug("Recipient {} not connected via WebSocket (offline), message stored in DB for pagination", 
-                        recipientId);
-                }
+                // STEP 4: Real-time delivery to the receiver's CURRENT active sessions
+                // is done by MessagingService (SendMessageEvent -> sendMessageToUser), which
+                // serializes the message once and shares that frame across all sessions.
+                // Nothing is pushed from here, so each device receives exactly one frame.
                 
                 // STEP 5: Send success confirmation to sender's current session
                 try {
-                    sendMessage(session, createSendMessageResponse(messageId, recipientId, 
-                        "Message sent successfully"));
+                    sendFrame(session, new OutboundFrame.SendMessageResponse(messageId, recipientId, 
+                        "Message sent successfully", System.currentTimeMillis()));
                 } catch (Exception e) {
                     log.error("Failed to send success response to sender", e);
                 }
@@ -989,98 +1569,60 @@ public class MessageWebSocketHandler implements WebSocketHandler {
                 
             } catch (Exception e) {
                 log.error("Failed to save message to database", e);
-                sendMessage(session, createErrorMessage("Failed to save message: " + e.getMessage()));
+                sendError(session, "Failed to save message: " + e.getMessage());
                 return;
             }
             
         } catch (Exception e) {
             log.error("Error handling SEND_MESSAGE", e);
             try {
-                sendMessage(session, createErrorMessage("Failed to send message: " + e.getMessage()));
+                sendError(session, "Failed to send message: " + e.getMessage());
             } catch (Exception ex) {
                 log.error("Failed to send error message", ex);
             }
         }
     }
     
-    private String createWebSocketMessage(Long senderId, Long recipientId, String content, String messageType, String messageId, String replyToMessageId) {
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("type", "NEW_MESSAGE");
-            
-            Map<String, Object> data = new HashMap<>();
-            data.put("messageId", messageId);
-            data.put("senderId", senderId);
-            data.put("receiverId", recipientId);
-            data.put("content", content);
-            data.put("type", messageType != null ? messageType : "TEXT");
-            data.put("timestamp", System.currentTimeMillis());
-            data.put("status", "SENT");
-            if (replyToMessageId != null && !replyToMessageId.isEmpty()) {
-                data.put("replyToMessageId", replyToMessageId);
-            }
-            
-            message.put("data", data);
-            
-            return objectMapper.writeValueAsString(message);
-        } catch (Exception e) {
-            log.error("Error creating WebSocket message", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create message\"}";
-        }
-    }
-    
-    private String createSendMessageResponse(String messageId, Long recipientId, String status) {
-        try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "SEND_MESSAGE_RESPONSE");
-            response.put("messageId", messageId);
-            response.put("recipientId", recipientId);
-            response.put("status", status);
-            response.put("timestamp", System.currentTimeMillis());
-            
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.error("Error creating send message response", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create response\"}";
-        }
-    }
-    
-    private void handleTypingIndicator(WebSocketSession session, Map<String, Object> messageData) {
+    private void handleTypingIndicator(WebSocketSession session, InboundFrame.Typing frame) {
         try {
             Long senderId = getUserIdFromSession(session);
             if (senderId == null) {
                 log.warn("Cannot send typing indicator: user not authenticated");
-                sendMessage(session, createErrorMessage("User not authenticated"));
+                sendError(session, "User not authenticated");
                 return;
             }
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) messageData.get("data");
+            InboundFrame.TypingData data = frame.data();
             if (data == null) {
                 log.warn("No data in TYPING message");
-                sendMessage(session, createErrorMessage("No typing data provided"));
+                sendError(session, "No typing data provided");
                 return;
             }
             
-            Object recipientIdObj = data.get("recipientId");
-            Object isTypingObj = data.get("isTyping");
-            String senderName = (String) data.get("senderName");
+            Long recipientId = data.recipientId();
+            Boolean isTypingObj = data.isTyping();
+            String senderName = data.senderName();
             
-            if (recipientIdObj == null || isTypingObj == null) {
+            if (recipientId == null || isTypingObj == null) {
                 log.warn("Missing recipientId or isTyping in TYPING message");
-                sendMessage(session, createErrorMessage("Missing recipientId or isTyping"));
+                sendError(session, "Missing recipientId or isTyping");
                 return;
             }
             
-            Long recipientId = ((Number) recipientIdObj).longValue();
-            boolean isTyping = (Boolean) isTypingObj;
+            boolean isTyping = isTypingObj;
             
-            // Forward typing indicator to recipient
-            sendTypingIndicator(recipientId, senderId, senderName != null ? senderName : "User " + senderId, isTyping);
+            // Forward typing indicator to recipient (debounced per sender and conversation)
+            boolean changed = sendTypingIndicator(recipientId, senderId,
+                senderName != null ? senderName : "User " + senderId, isTyping);
+            if (!changed) {
+                log.debug("Typing indicator from user {} to user {} debounced", senderId, recipientId);
+                return;
+            }
             
-            // Send confirmation to sender
+            // Confirm state changes only - absorbed keystroke frames get no reply either
             try {
-                sendMessage(session, createTypingResponse(recipientId, isTyping, "Typing indicator sent"));
+                sendFrame(session, new OutboundFrame.TypingResponse(recipientId, isTyping, 
+                    "Typing indicator sent", System.currentTimeMillis()));
             } catch (Exception e) {
                 log.error("Failed to send typing confirmation to sender", e);
             }
@@ -1090,34 +1632,33 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         } catch (Exception e) {
             log.error("Error handling typing indicator", e);
             try {
-                sendMessage(session, createErrorMessage("Failed to send typing indicator: " + e.getMessage()));
+                sendError(session, "Failed to send typing indicator: " + e.getMessage());
             } catch (Exception ex) {
                 log.error("Failed to send error message", ex);
             }
         }
     }
     
-    private void handleUserStatus(WebSocketSession session, Map<String, Object> messageData) {
+    private void handleUserStatus(WebSocketSession session, InboundFrame.UserStatus frame) {
         try {
             Long userId = getUserIdFromSession(session);
             if (userId == null) {
                 log.warn("Cannot update user status: user not authenticated");
-                sendMessage(session, createErrorMessage("User not authenticated"));
+                sendError(session, "User not authenticated");
                 return;
             }
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) messageData.get("data");
+            InboundFrame.UserStatusData data = frame.data();
             if (data == null) {
                 log.warn("No data in USER_STATUS message");
-                sendMessage(session, createErrorMessage("No status data provided"));
+                sendError(session, "No status data provided");
                 return;
             }
             
-            String status = (String) data.get("status");
+            String status = data.status();
             if (status == null) {
                 log.warn("Missing status in USER_STATUS message");
-                sendMessage(session, createErrorMessage("Missing status"));
+                sendError(session, "Missing status");
                 return;
             }
             
@@ -1126,7 +1667,8 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             
             // Send confirmation to sender
             try {
-                sendMessage(session, createUserStatusResponse(userId, status, "Status updated"));
+                sendFrame(session, new OutboundFrame.UserStatusResponse(userId, status, 
+                    "Status updated", System.currentTimeMillis()));
             } catch (Exception e) {
                 log.error("Failed to send status confirmation to sender", e);
             }
@@ -1136,64 +1678,120 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         } catch (Exception e) {
             log.error("Error handling user status", e);
             try {
-                sendMessage(session, createErrorMessage("Failed to update status: " + e.getMessage()));
+                sendError(session, "Failed to update status: " + e.getMessage());
             } catch (Exception ex) {
                 log.error("Failed to send error message", ex);
             }
         }
     }
     
+    /**
+     * Report a presence change; coalesced per user and published to the user's presence audience
+     */
     private void broadcastUserStatus(Long userId, String status) {
+        presenceCoalescer.submit(userId, status);
+    }
+    
+    /**
+     * Send a user's status to their conversation partners and current chat viewers only
+     */
+    private void publishUserStatus(Long userId, String status) {
         try {
-            String statusMessage = createUserStatusBroadcast(userId, status);
+            // Presence frames are droppable under backpressure
+            PreparedFrame statusFrame = frameCodec.prepare(
+                new OutboundFrame.UserStatusBroadcast(userId, status, System.currentTimeMillis()));
             
-            // Send to all connected users
-            for (Map.Entry<Long, ConcurrentHashMap<String, WebSocketSession>> entry : userSessions.entrySet()) {
-                Long recipientId = entry.getKey();
-                ConcurrentHashMap<String, WebSocketSession> sessions = entry.getValue();
-                
-                // Don't send status to the user themselves
-                if (!recipientId.equals(userId)) {
-                    for (WebSocketSession session : sessions.values()) {
-                        try {
-                            sendMessage(session, statusMessage);
-                            log.debug("User status broadcast sent to user: {}", recipientId);
-                        } catch (Exception e) {
-                            log.error("Failed to send status broadcast to user: {}", recipientId, e);
-                            removeUserSession(session);
-                        }
-                    }
-                }
+            int targets = 0;
+            for (Long recipientId : presenceAudience.audienceFor(userId)) {
+                targets += deliverToUser(recipientId, statusFrame, true);
             }
+            log.debug("User {} status {} routed to {} sessions/nodes", userId, status, targets);
         } catch (Exception e) {
             log.error("Error broadcasting user status", e);
         }
     }
     
-    @SuppressWarnings("unchecked")
-    private void handlePinMessage(WebSocketSession session, Map<String, Object> messageData) {
+    private void sendToAllLocalUsers(PreparedFrame frame, Long excludeUserId, boolean droppable) {
+        for (Long recipientId : userSessions.keySet()) {
+            // Skip the excluded user (e.g. don't send a status to the user themselves)
+            if (!recipientId.equals(excludeUserId)) {
+                sendToUserSessions(recipientId, frame, droppable);
+                log.debug("Broadcast frame queued for user: {}", recipientId);
+            }
+        }
+    }
+    
+    /**
+     * Track which chat a session has open so it receives that user's presence
+     * even without an existing conversation. The current status is sent right away.
+     */
+    private void handleViewChat(WebSocketSession session, InboundFrame.ViewChat frame) {
+        Long viewerId = getUserIdFromSession(session);
+        if (viewerId == null) {
+            log.warn("Cannot view chat: user not authenticated");
+            sendError(session, "User not authenticated");
+            return;
+        }
+        
+        Long chatUserId = frame.data() != null ? frame.data().userId() : null;
+        presenceAudience.setViewing(session.getId(), viewerId, chatUserId);
+        
+        if (chatUserId != null) {
+            String status = isUserConnected(chatUserId) ? "ONLINE" : "OFFLINE";
+            sendFrame(session, new OutboundFrame.UserStatusBroadcast(chatUserId, status, System.currentTimeMillis()));
+        }
+        log.debug("User {} viewing chat with {} (session {})", viewerId, chatUserId, session.getId());
+    }
+    
+    /**
+     * Move the user's read watermark; the other participants get READ_UPTO via SendReadUpToEvent
+     */
+    private void handleReadUpTo(WebSocketSession session, InboundFrame.ReadUpTo frame) {
+        Long userId = getUserIdFromSession(session);
+        if (userId == null) {
+            log.warn("Cannot mark read: user not authenticated");
+            sendError(session, "User not authenticated");
+            return;
+        }
+        
+        String messageId = frame.data() != null ? frame.data().messageId() : null;
+        if (messageId == null) {
+            log.warn("Missing messageId in READ_UPTO");
+            sendError(session, "Missing messageId");
+            return;
+        }
+        
+        try {
+            messagingService.markConversationReadUpTo(userId, messageId);
+        } catch (Exception e) {
+            log.error("Error handling read up to {} for user {}", messageId, userId, e);
+            sendError(session, "Failed to mark messages as read: " + e.getMessage());
+        }
+    }
+    
+    private void handlePinMessage(WebSocketSession session, InboundFrame.PinMessage frame) {
         try {
             Long userId = getUserIdFromSession(session);
             if (userId == null) {
                 log.warn("Cannot pin message: user not authenticated");
-                sendMessage(session, createErrorMessage("User not authenticated"));
+                sendError(session, "User not authenticated");
                 return;
             }
             
             // Extract message data
-            Map<String, Object> data = (Map<String, Object>) messageData.get("data");
+            InboundFrame.PinMessageData data = frame.data();
             if (data == null) {
                 log.warn("Missing data in PIN_MESSAGE");
-                sendMessage(session, createErrorMessage("Missing message data"));
+                sendError(session, "Missing message data");
                 return;
             }
             
-            String messageId = (String) data.get("messageId");
-            Boolean isPinnedObj = (Boolean) data.get("isPinned");
+            String messageId = data.messageId();
+            Boolean isPinnedObj = data.isPinned();
             
             if (messageId == null || isPinnedObj == null) {
                 log.warn("Missing messageId or isPinned in PIN_MESSAGE");
-                sendMessage(session, createErrorMessage("Missing messageId or isPinned"));
+                sendError(session, "Missing messageId or isPinned");
                 return;
             }
             
@@ -1203,8 +1801,8 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             MessageResponse response = messagingService.pinMessage(messageId, userId, isPinned);
             
             // Send confirmation to sender
-            String pinResponseMessage = createPinMessageResponse(messageId, isPinned, "Message " + (isPinned ? "pinned" : "unpinned") + " successfully");
-            sendMessage(session, pinResponseMessage);
+            sendFrame(session, new OutboundFrame.PinMessageResponse(messageId, isPinned, 
+                "Message " + (isPinned ? "pinned" : "unpinned") + " successfully", System.currentTimeMillis()));
             
             // Broadcast pin status to both users in the conversation
             broadcastPinMessage(response, userId, isPinned);
@@ -1214,19 +1812,19 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         } catch (Exception e) {
             log.error("Error handling pin message", e);
             try {
-                sendMessage(session, createErrorMessage("Failed to pin message: " + e.getMessage()));
+                sendError(session, "Failed to pin message: " + e.getMessage());
             } catch (Exception ex) {
                 log.error("Failed to send error message", ex);
             }
         }
     }
     
-    private void handleGetConversations(WebSocketSession session, Map<String, Object> messageData) {
+    private void handleGetConversations(WebSocketSession session) {
         try {
             Long userId = getUserIdFromSession(session);
             if (userId == null) {
                 log.warn("Cannot get conversations: user not authenticated");
-                sendMessage(session, createErrorMessage("User not authenticated"));
+                sendError(session, "User not authenticated");
                 return;
             }
             
@@ -1234,243 +1832,46 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             List<ConversationResponse> conversations = messagingService.getConversationList(userId);
             
             // Send conversation list via WebSocket
-            String conversationListMessage = createConversationListMessage(conversations);
-            sendMessage(session, conversationListMessage);
+            sendFrame(session, createConversationListFrame(conversations));
             
             log.info("Conversation list sent to user {} via WebSocket", userId);
             
         } catch (Exception e) {
             log.error("Error handling get conversations", e);
             try {
-                sendMessage(session, createErrorMessage("Failed to get conversations: " + e.getMessage()));
+                sendError(session, "Failed to get conversations: " + e.getMessage());
             } catch (Exception ex) {
                 log.error("Failed to send error message", ex);
             }
         }
     }
     
-    private void handleGetConversationMessages(WebSocketSession session, Map<String, Object> messageData) {
-        try {
-            Long userId = getUserIdFromSession(session);
-            if (userId == null) {
-                log.warn("Cannot get conversation messages: user not authenticated");
-                sendMessage(session, createErrorMessage("User not authenticated"));
-                return;
-            }
-            
-            // Extract parameters from message data
-            Object receiverIdObj = messageData.get("receiverId");
-            Object pageNumberObj = messageData.getOrDefault("pageNumber", 0);
-            Object pageSizeObj = messageData.getOrDefault("pageSize", 50);
-            
-            if (receiverIdObj == null) {
-                sendMessage(session, createErrorMessage("receiverId is required"));
-                return;
-            }
-            
-            Long receiverId = ((Number) receiverIdObj).longValue();
-            int pageNumber = ((Number) pageNumberObj).intValue();
-            int pageSize = ((Number) pageSizeObj).intValue();
-            
-            // Create pageable with descending order by createdAt (newest first)
-            org.springframework.data.domain.Pageable pageable = 
-                org.springframework.data.domain.PageRequest.of(pageNumber, pageSize, 
-                    org.springframework.data.domain.Sort.Direction.DESC, "createdAt", "id");
-            
-            // Get paginated messages
-            org.springframework.data.domain.Page<MessageResponse> messages = 
-                messagingService.getConversationMessages(userId, receiverId, pageable);
-            
-            // Send messages via WebSocket
-            String conversationMessagesMessage = createConversationMessagesMessage(messages, receiverId);
-            sendMessage(session, conversationMessagesMessage);
-            
-            log.info("Conversation messages sent to user {} for conversation with {} (page: {}, size: {})", 
-                    userId, receiverId, pageNumber, pageSize);
-            
-        } catch (Exception e) {
-            log.error("Error handling get conversation messages", e);
-            try {
-                sendMessage(session, createErrorMessage("Failed to get conversation messages: " + e.getMessage()));
-            } catch (Exception ex) {
-                log.error("Failed to send error message", ex);
-            }
-        }
-    }
-    
-    private String createTypingResponse(Long recipientId, boolean isTyping, String message) {
-        try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "TYPING_RESPONSE");
-            response.put("recipientId", recipientId);
-            response.put("isTyping", isTyping);
-            response.put("message", message);
-            response.put("timestamp", System.currentTimeMillis());
-            
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.error("Error creating typing response", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create typing response\"}";
-        }
-    }
-    
-    private String createUserStatusResponse(Long userId, String status, String message) {
-        try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "USER_STATUS_RESPONSE");
-            response.put("userId", userId);
-            response.put("status", status);
-            response.put("message", message);
-            response.put("timestamp", System.currentTimeMillis());
-            
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.error("Error creating user status response", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create status response\"}";
-        }
-    }
-    
-    private String createUserStatusBroadcast(Long userId, String status) {
-        try {
-            Map<String, Object> broadcast = new HashMap<>();
-            broadcast.put("type", "USER_STATUS_BROADCAST");
-            broadcast.put("userId", userId);
-            broadcast.put("status", status);
-            broadcast.put("timestamp", System.currentTimeMillis());
-            
-            return objectMapper.writeValueAsString(broadcast);
-        } catch (Exception e) {
-            log.error("Error creating user status broadcast", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create status broadcast\"}";
-        }
-    }
-    
-    private String createConversationUpdateMessage() {
-        try {
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "CONVERSATION_UPDATE");
-            update.put("message", "Conversation list has been updated");
-            update.put("timestamp", System.currentTimeMillis());
-            
-            return objectMapper.writeValueAsString(update);
-        } catch (Exception e) {
-            log.error("Error creating conversation update message", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create conversation update\"}";
-        }
-    }
-    
-    private String createConversationListMessage(List<ConversationResponse> conversations) {
-        try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "CONVERSATION_LIST");
-            response.put("conversations", conversations);
-            response.put("timestamp", System.currentTimeMillis());
-            response.put("count", conversations.size());
-            
-            // Calculate total unread count from conversations with safe casting
-            long totalUnreadCount = 0;
-            try {
-                totalUnreadCount = conversations.stream()
-                        .mapToLong(conv -> {
-                            if (conv instanceof ConversationResponse) {
-                                return conv.getUnreadCount();
-                            } else if (conv instanceof Map) {
-                                Map<?, ?> convMap = (Map<?, ?>) conv;
-                                Object unreadCount = convMap.get("unreadCount");
-                                if (unreadCount instanceof Number) {
-                                    return ((Number) unreadCount).longValue();
-                                } else if (unreadCount instanceof String) {
-                                    return Long.parseLong((String) unreadCount);
-                                }
-                            }
-                            return 0L;
-                        })
-                        .sum();
-            } catch (Exception e) {
-                log.warn("Error calculating unread count from conversations: {}", e.getMessage());
-                totalUnreadCount = 0;
+    private OutboundFrame.ConversationList createConversationListFrame(List<ConversationResponse> conversations) {
+        long totalUnreadCount = 0;
+        for (ConversationResponse conversation : conversations) {
+            if (conversation.getUnreadCount() != null) {
+                totalUnreadCount += conversation.getUnreadCount();
             }
-            
-            response.put("totalUnreadCount", totalUnreadCount);
-            
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.error("Error creating conversation list message", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create conversation list\"}";
-        }
-    }
-    
-    private String createConversationMessagesMessage(org.springframework.data.domain.Page<MessageResponse> messages, Long receiverId) {
-        try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "CONVERSATION_MESSAGES");
-            response.put("receiverId", receiverId);
-            response.put("messages", messages.getContent());
-            response.put("timestamp", System.currentTimeMillis());
-            
-            // Pagination metadata
-            Map<String, Object> pagination = new HashMap<>();
-            pagination.put("currentPage", messages.getNumber());
-            pagination.put("pageSize", messages.getSize());
-            pagination.put("totalPages", messages.getTotalPages());
-            pagination.put("totalMessages", messages.getTotalElements());
-            pagination.put("hasNext", messages.hasNext());
-            pagination.put("hasPrevious", messages.hasPrevious());
-            response.put("pagination", pagination);
-            
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.error("Error creating conversation messages message", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create conversation messages\"}";
-        }
-    }
-    
-    private String createPinMessageResponse(String messageId, boolean isPinned, String message) {
-        try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "PIN_MESSAGE_RESPONSE");
-            response.put("messageId", messageId);
-            response.put("isPinned", isPinned);
-            response.put("message", message);
-            response.put("timestamp", System.currentTimeMillis());
-            
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.error("Error creating pin message response", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create pin response\"}";
         }
+        return new OutboundFrame.ConversationList(conversations, System.currentTimeMillis(), 
+            conversations.size(), totalUnreadCount);
     }
     
     private void broadcastPinMessage(MessageResponse message, Long pinnedBy, boolean isPinned) {
         try {
-            Map<String, Object> broadcast = new HashMap<>();
-            broadcast.put("type", "MESSAGE_PINNED");
-            broadcast.put("messageId", message.getId());
-            broadcast.put("isPinned", isPinned);
-            broadcast.put("pinnedBy", pinnedBy);
-            broadcast.put("senderId", message.getSenderId());
-            broadcast.put("recipientId", message.getRecipientId());
-            broadcast.put("timestamp", System.currentTimeMillis());
-            
-            String broadcastMessage = objectMapper.writeValueAsString(broadcast);
+            PreparedFrame broadcastFrame = frameCodec.prepare(new OutboundFrame.MessagePinned(
+                message.getId(), isPinned, pinnedBy, message.getSenderId(), message.getRecipientId(), 
+                System.currentTimeMillis()));
             
             // Send to both users in the conversation
             Long senderId = message.getSenderId();
             Long recipientId = message.getRecipientId();
             
-            if (senderId != null && userSessions.containsKey(senderId)) {
-                ConcurrentHashMap<String, WebSocketSession> senderSessions = userSessions.get(senderId);
-                for (WebSocketSession session : senderSessions.values()) {
-                    sendMessage(session, broadcastMessage);
-                }
+            if (senderId != null && deliverToUser(senderId, broadcastFrame, false) > 0) {
                 log.debug("Pin message broadcast sent to sender: {}", senderId);
             }
             
-            if (recipientId != null && userSessions.containsKey(recipientId)) {
-                ConcurrentHashMap<String, WebSocketSession> recipientSessions = userSessions.get(recipientId);
-                for (WebSocketSession session : recipientSessions.values()) {
-                    sendMessage(session, broadcastMessage);
-                }
+            if (recipientId != null && deliverToUser(recipientId, broadcastFrame, false) > 0) {
                 log.debug("Pin message broadcast sent to recipient: {}", recipientId);
             }
             
@@ -1479,31 +1880,67 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         }
     }
     
-    private String createUnreadCountMessage(long totalUnreadCount) {
-        try {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "UNREAD_COUNT");
-            response.put("totalUnreadCount", totalUnreadCount);
-            response.put("timestamp", System.currentTimeMillis());
-            
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.error("Error creating unread count message", e);
-            return "{\"type\":\"ERROR\",\"message\":\"Failed to create unread count\"}";
+    /**
+     * Bind a session to a user: updates the user's session map and the reverse index.
+     * 
+     * @return the user's session map after the session was added
+     */
+    private ConcurrentHashMap<String, WebSocketSession> registerUserSession(Long userId, WebSocketSession session) {
+        String sessionId = session.getId();
+        
+        // Re-authentication as a different user moves the session to the new owner
+        Long previousOwner = sessionOwners.put(sessionId, userId);
+        if (previousOwner != null && !previousOwner.equals(userId)) {
+            detachDeliveryStream(previousOwner, sessionId);
+            if (detachSession(previousOwner, sessionId)) {
+                unregisterPresence(previousOwner);
+            }
         }
+        session.getAttributes().put(USER_ID_ATTRIBUTE, userId);
+        
+        // compute() keeps add atomic with respect to a concurrent removal of the last session
+        ConcurrentHashMap<String, WebSocketSession> userSessionMap = userSessions.compute(userId, (id, sessions) -> {
+            ConcurrentHashMap<String, WebSocketSession> sessionMap = sessions != null ? sessions : new ConcurrentHashMap<>();
+            sessionMap.put(sessionId, session);
+            return sessionMap;
+        });
+        
+        // Make this node routable for the user (idempotent)
+        presenceRegistry.register(userId);
+        return userSessionMap;
     }
     
-    private String createErrorMessage(String message) {
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("type", "ERROR");
-        errorResponse.put("message", message);
-        try {
-            return objectMapper.writeValueAsString(errorResponse);
-        } catch (Exception e) {
-            return "{\"type\":\"ERROR\",\"message\":\"Internal error\"}";
+    /**
+     * Remove this node from the user's presence once their last local session is gone
+     * 
+     * A session may have registered between the detach and this call; re-checking
+     * afterwards keeps the registry from ending up without a node that has sessions.
+     */
+    private void unregisterPresence(Long userId) {
+        presenceRegistry.unregister(userId);
+        if (userSessions.containsKey(userId)) {
+            presenceRegistry.register(userId);
         }
     }
     
+    /**
+     * Remove a single session from a user's session map in O(1).
+     * 
+     * @return true if this was the user's last session (user is now offline)
+     */
+    private boolean detachSession(Long userId, String sessionId) {
+        boolean[] lastSession = {false};
+        userSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(sessionId);
+            if (sessions.isEmpty()) {
+                lastSession[0] = true;
+                return null;
+            }
+            return sessions;
+        });
+        return lastSession[0];
+    }
+    
     private void removeUserSession(WebSocketSession session) {
         if (session == null) {
             log.warn("Attempted to remove null session");
@@ -1512,32 +1949,40 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         
         log.debug("Removing WebSocket session: {}", session.getId());
         
-        // Find and remove the session from user's session map
-        Long userId = null;
+        // Resolve owner through the reverse index - no scan over all users
         String sessionId = session.getId();
+        Long userId = sessionOwners.remove(sessionId);
+        
+        // Drop anything still queued for this session; its unacknowledged messages stay SENT
+        SessionOutboundQueue queue = outboundQueues.remove(sessionId);
+        if (queue != null) {
+            queue.close();
+        }
+        if (userId != null) {
+            detachDeliveryStream(userId, sessionId);
+        }
+        presenceAudience.clearViewing(sessionId);
         
-        for (Map.Entry<Long, ConcurrentHashMap<String, WebSocketSession>> entry : userSessions.entrySet()) {
-            ConcurrentHashMap<String, WebSocketSession> sessions = entry.getValue();
-            if (sessions.containsKey(sessionId)) {
-                sessions.remove(sessionId);
-                userId = entry.getKey();
+        if (userId != null) {
+            // If user has no more sessions, broadcast offline
+            if (detachSession(userId, sessionId)) {
+                unregisterPresence(userId);
                 final Long finalUserId = userId;
-                
-                // If user has no more sessions, remove user entry and broadcast offline
-                if (sessions.isEmpty()) {
-                    userSessions.remove(userId);
-                    asyncExecutor.submit(() -> {
-                        try {
-                            broadcastUserStatus(finalUserId, "OFFLINE");
-                            log.info("User {} went offline (all sessions closed)", finalUserId);
-                        } catch (Exception e) {
-                            log.warn("Error broadcasting offline status for user {}: {}", finalUserId, e.getMessage());
+                broadcastExecutor.submit(() -> {
+                    try {
+                        // Still connected through another node - not offline
+                        if (presenceRegistry.isOnline(finalUserId)) {
+                            log.debug("User {} closed last session here but is connected elsewhere", finalUserId);
+                            return;
                         }
-                    });
-                } else {
-                    log.debug("User {} still has {} active session(s)", userId, sessions.size());
-                }
-                break;
+                        broadcastUserStatus(finalUserId, "OFFLINE");
+                        log.info("User {} went offline (all sessions closed)", finalUserId);
+                    } catch (Exception e) {
+                        log.warn("Error broadcasting offline status for user {}: {}", finalUserId, e.getMessage());
+                    }
+                });
+            } else {
+                log.debug("User {} still has active session(s)", userId);
             }
         }
         
@@ -1556,110 +2001,65 @@ public class MessageWebSocketHandler implements WebSocketHandler {
         }
     }
     
-    private void sendMessage(WebSocketSession session, String message) throws IOException {
+    /**
+     * Queue a frame for a single session (never blocks, never writes concurrently)
+     */
+    private void sendFrame(WebSocketSession session, OutboundFrame frame) {
         if (session.isOpen()) {
-            session.sendMessage(new TextMessage(message));
+            outboundQueue(session).offer(frameCodec.encodeMessage(frame, wireFormat(session)), false);
         }
     }
     
-    private String createConnectionMessage(Long userId) {
-        try {
-            Map<String, Object> connectionMessage = new HashMap<>();
-            connectionMessage.put("type", "CONNECTION");
-            connectionMessage.put("userId", userId);
-            connectionMessage.put("status", "connected");
-            connectionMessage.put("timestamp", System.currentTimeMillis());
-            connectionMessage.put("message", "WebSocket connection established");
-            connectionMessage.put("activeConnections", userSessions.size());
-            connectionMessage.put("connectionStable", true);
-            connectionMessage.put("serverTime", System.currentTimeMillis());
-            connectionMessage.put("heartbeatInterval", 30000); // 30 seconds
-            
-            return objectMapper.writeValueAsString(connectionMessage);
-        } catch (Exception e) {
-            log.error("Error creating connection message", e);
-            return String.format("{\"type\":\"CONNECTION\",\"status\":\"connected\",\"userId\":%d,\"connectionStable\":true}", userId);
-        }
-    }
-    
-    private String createAuthSuccessMessage(Long userId) {
-        try {
-            Map<String, Object> authMessage = new HashMap<>();
-            authMessage.put("type", "AUTH_SUCCESS");
-            authMessage.put("userId", userId);
-            authMessage.put("status", "authenticated");
-            authMessage.put("timestamp", System.currentTimeMillis());
-            authMessage.put("message", "Authentication successful");
-            authMessage.put("activeConnections", userSessions.size());
-            authMessage.put("connectionStable", true);
-            authMessage.put("serverTime", System.currentTimeMillis());
-            authMessage.put("heartbeatInterval", 30000); // 30 seconds
-            
-            return objectMapper.writeValueAsString(authMessage);
-        } catch (Exception e) {
-            log.error("Error creating auth success message", e);
-            return String.format("{\"type\":\"AUTH_SUCCESS\",\"status\":\"authenticated\",\"userId\":%d,\"connectionStable\":true}", userId);
-        }
+    private WireFormat wireFormat(WebSocketSession session) {
+        Object wireFormat = session.getAttributes().get(WIRE_FORMAT_ATTRIBUTE);
+        return wireFormat instanceof WireFormat ? (WireFormat) wireFormat : WireFormat.JSON;
     }
     
-    private String createMessagePayload(String type, MessageResponse message) {
-        try {
-            return String.format("{\"type\":\"%s\",\"data\":%s}", type, objectMapper.writeValueAsString(message));
-        } catch (Exception e) {
-            log.error("Error creating message payload", e);
-            return "{\"type\":\"" + type + "\",\"error\":\"Failed to serialize message\"}";
-        }
+    private void sendError(WebSocketSession session, String message) {
+        sendFrame(session, new OutboundFrame.ErrorMessage(message));
     }
     
-    private String createStatusPayload(String messageId, String status) {
-        return String.format("{\"type\":\"MESSAGE_STATUS\",\"messageId\":\"%s\",\"status\":\"%s\"}", messageId, status);
+    private OutboundFrame.Connection createConnectionFrame(Long userId) {
+        long now = System.currentTimeMillis();
+        return new OutboundFrame.Connection(userId, "connected", now, "WebSocket connection established", 
+            userSessions.size(), true, now, HEARTBEAT_INTERVAL_MS);
     }
     
-    private String createTypingPayload(Long senderId, String senderName, boolean isTyping) {
-        return String.format("{\"type\":\"TYPING\",\"senderId\":%d,\"senderName\":\"%s\",\"isTyping\":%b}", 
-                senderId, senderName, isTyping);
+    private OutboundFrame.AuthSuccess createAuthSuccessFrame(Long userId) {
+        long now = System.currentTimeMillis();
+        return new OutboundFrame.AuthSuccess(userId, "authenticated", now, "Authentication successful", 
+            userSessions.size(), true, now, HEARTBEAT_INTERVAL_MS);
     }
     
     /**
      * Clean up stale WebSocket sessions - optimized for multiple sessions per user
+     * 
+     * Each stale session is removed through the reverse index, so the cost per
+     * session is constant regardless of how many users are connected.
      */
     private void cleanupStaleSessions() {
         try {
             int cleanedSessions = 0;
-            int cleanedUsers = 0;
             
-            Iterator<Map.Entry<Long, ConcurrentHashMap<String, WebSocketSession>>> userIterator = 
-                userSessions.entrySet().iterator();
-            
-            while (userIterator.hasNext()) {
-                Map.Entry<Long, ConcurrentHashMap<String, WebSocketSession>> userEntry = userIterator.next();
-                ConcurrentHashMap<String, WebSocketSession> sessions = userEntry.getValue();
-                
-                // Remove stale sessions for this user
-                Iterator<Map.Entry<String, WebSocketSession>> sessionIterator = sessions.entrySet().iterator();
-                while (sessionIterator.hasNext()) {
-                    Map.Entry<String, WebSocketSession> sessionEntry = sessionIterator.next();
-                    WebSocketSession session = sessionEntry.getValue();
-                    
-                    if (session == null || !session.isOpen()) {
-                        sessionIterator.remove();
+            for (ConcurrentHashMap<String, WebSocketSession> sessions : userSessions.values()) {
+                for (WebSocketSession session : sessions.values()) {
+                    if (!session.isOpen()) {
+                        removeUserSession(session);
                         cleanedSessions++;
-                        log.debug("Cleaned up stale session: {}", sessionEntry.getKey());
+                        log.debug("Cleaned up stale session: {}", session.getId());
                     }
                 }
-                
-                // Remove user entry if no sessions remain
-                if (sessions.isEmpty()) {
-                    userIterator.remove();
-                    cleanedUsers++;
-                    log.debug("Removed user {} (no active sessions)", userEntry.getKey());
-                }
             }
             
-            if (cleanedSessions > 0 || cleanedUsers > 0) {
-                log.info("Cleaned up {} stale sessions and {} users. Active users: {}, Total sessions: {}", 
-                    cleanedSessions, cleanedUsers, userSessions.size(), 
-                    userSessions.values().stream().mapToInt(ConcurrentHashMap::size).sum());
+            // Queues of sessions that closed before binding to a user
+            outboundQueues.values().removeIf(queue -> !queue.isOpen());
+            
+            // Partner sets of users that have not had a presence change recently
+            presenceAudience.evictExpired();
+            
+            if (cleanedSessions > 0) {
+                log.info("Cleaned up {} stale sessions. Active users: {}, Total sessions: {}", 
+                    cleanedSessions, userSessions.size(), sessionOwners.size());
             }
             
         } catch (Exception e) {
@@ -1691,13 +2091,22 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             }
             
             userSessions.clear();
+            sessionOwners.clear();
+            outboundQueues.values().forEach(SessionOutboundQueue::close);
+            outboundQueues.clear();
             
-            // Shutdown async executor
+            // Shutdown async executors
+            broadcastExecutor.shutdown();
             asyncExecutor.shutdown();
+            if (!broadcastExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                broadcastExecutor.shutdownNow();
+            }
             if (!asyncExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
                 asyncExecutor.shutdownNow();
             }
             
+            sendDeadlineTimer.shutdownNow();
+            
             // Shutdown cleanup executor
             cleanupExecutor.shutdown();
             if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -1707,6 +2116,7 @@ public class MessageWebSocketHandler implements WebSocketHandler {
             log.info("WebSocket handler shutdown complete");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            broadcastExecutor.shutdownNow();
             asyncExecutor.shutdownNow();
             cleanupExecutor.shutdownNow();
         } catch (Exception e) {
@@ -0,0 +1,353 @@
+package com.chitchat.messaging.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound write queue for a single WebSocket session
+ *
+ * WebSocketSession.sendMessage() is not thread-safe, so every frame for a
+ * session goes through this queue and is written by at most one thread at a time.
+ * Producers never block: frames are buffered in a bounded queue and drained on
+ * the shared send executor.
+ *
+ * Frames are either ESSENTIAL (messages, receipts, responses) or DROPPABLE
+ * (typing indicators, presence broadcasts). What happens when the queue is full
+ * is decided by the OverflowPolicy:
+ * - DROP_TYPING_FIRST: evict the oldest queued droppable frame to make room;
+ *   if only essential frames are queued, a droppable frame is discarded and an
+ *   essential frame marks the client as a slow consumer
+ * - DROP_NEWEST: discard the incoming frame
+ * - CLOSE_SESSION: mark the client as a slow consumer
+ *
+ * A drain pass writes at most MAX_FRAMES_PER_DRAIN frames before handing the
+ * thread back to the pool, so one busy session cannot monopolise a send thread.
+ *
+ * Each write has a deadline (sendTimeLimitMillis): a peer that stops reading
+ * makes sendMessage() block once the socket buffers are full, so a write still
+ * running at its deadline closes the queue and reports the client as a slow
+ * consumer, and the handler closes the session, which fails the blocked write
+ * and frees the send thread. If the send executor rejects a drain, the queued
+ * frames could not be written by anyone, so the queue is closed and the failure
+ * reported instead of leaving them stranded.
+ */
+@Slf4j
+public class SessionOutboundQueue {
+
+    public enum OverflowPolicy {
+        DROP_TYPING_FIRST, DROP_NEWEST, CLOSE_SESSION
+    }
+
+    /**
+     * Callbacks used by the handler to keep its metrics and session registry in sync
+     */
+    public interface Listener {
+        void onSent(WebSocketSession session);
+
+        void onFailed(WebSocketSession session, Exception e);
+
+        void onDropped(WebSocketSession session);
+
+        void onSlowConsumer(WebSocketSession session);
+    }
+
+    private static final int MAX_FRAMES_PER_DRAIN = 64;
+
+    private record PendingFrame(WebSocketMessage<?> message, boolean droppable) {
+    }
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor executor;
+    private final Listener listener;
+    private final ScheduledExecutorService deadlineTimer;
+    private final long sendTimeLimitMillis;
+
+    // Guarded by "pending"
+    private final Deque<PendingFrame> pending = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+    private Runnable drainedCallback;
+    private int drainedWatermark;
+    // Frame being written right now, if any
+    private PendingFrame writing;
+
+    /**
+     * Queue without a write deadline
+     */
+    public SessionOutboundQueue(WebSocketSession session, int capacity, OverflowPolicy overflowPolicy,
+                                Executor executor, Listener listener) {
+        this(session, capacity, overflowPolicy, executor, listener, null, 0);
+    }
+
+    /**
+     * @param deadlineTimer Timer that enforces the write deadline
+     * @param sendTimeLimitMillis Longest a single frame may take to write (0 for no limit)
+     */
+    public SessionOutboundQueue(WebSocketSession session, int capacity, OverflowPolicy overflowPolicy,
+                                Executor executor, Listener listener,
+                                ScheduledExecutorService deadlineTimer, long sendTimeLimitMillis) {
+        this.session = session;
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+        this.listener = listener;
+        this.deadlineTimer = deadlineTimer;
+        this.sendTimeLimitMillis = deadlineTimer != null ? sendTimeLimitMillis : 0;
+    }
+
+    /**
+     * Queue a frame for this session without blocking
+     *
+     * @param message Frame to write (may be shared between sessions - frames are immutable)
+     * @param droppable Whether the frame may be discarded under backpressure
+     * @return true if the frame was queued
+     */
+    public boolean offer(WebSocketMessage<?> message, boolean droppable) {
+        boolean queued = false;
+        int dropped = 0;
+        boolean slowConsumer = false;
+        boolean startDrain = false;
+
+        synchronized (pending) {
+            if (closed) {
+                return false;
+            }
+
+            if (pending.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DROP_TYPING_FIRST:
+                        if (evictOldestDroppable()) {
+                            dropped++;
+                        } else if (droppable) {
+                            dropped++;
+                        } else {
+                            slowConsumer = true;
+                        }
+                        break;
+                    case DROP_NEWEST:
+                        dropped++;
+                        break;
+                    case CLOSE_SESSION:
+                    default:
+                        slowConsumer = true;
+                        break;
+                }
+            }
+
+            if (slowConsumer) {
+                closeQuietly();
+            } else if (pending.size() < capacity) {
+                pending.addLast(new PendingFrame(message, droppable));
+                queued = true;
+                if (!draining) {
+                    draining = true;
+                    startDrain = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < dropped; i++) {
+            listener.onDropped(session);
+        }
+        if (slowConsumer) {
+            log.warn("Outbound queue for session {} is full ({} frames), closing slow consumer",
+                session.getId(), capacity);
+            listener.onSlowConsumer(session);
+        }
+        if (startDrain) {
+            scheduleDrain();
+        }
+        return queued;
+    }
+
+    /**
+     * Run a callback once the queue has drained to at most the given number of frames
+     *
+     * Used for flow-controlled bulk sends (e.g. offline backlog replay). Only one
+     * callback is kept per queue; a new registration replaces the previous one.
+     * The callback runs on the draining thread and should only hand off work.
+     */
+    public void whenDrainedTo(int watermark, Runnable callback) {
+        boolean runNow;
+        synchronized (pending) {
+            if (closed) {
+                return;
+            }
+            runNow = pending.size() <= watermark;
+            if (!runNow) {
+                drainedWatermark = watermark;
+                drainedCallback = callback;
+            }
+        }
+        if (runNow) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Number of frames waiting to be written
+     */
+    public int depth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isOpen() {
+        synchronized (pending) {
+            return !closed && session.isOpen();
+        }
+    }
+
+    /**
+     * Discard queued frames and reject further offers
+     */
+    public void close() {
+        synchronized (pending) {
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        closed = true;
+        pending.clear();
+        drainedCallback = null;
+    }
+
+    private boolean evictOldestDroppable() {
+        Iterator<PendingFrame> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().droppable()) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleDrain() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Nothing else would ever write the queued frames: give the session up
+            boolean wasOpen;
+            synchronized (pending) {
+                draining = false;
+                wasOpen = !closed;
+                closeQuietly();
+            }
+            if (wasOpen) {
+                log.warn("Send executor rejected drain for session {}, closing it: {}", session.getId(), e.getMessage());
+                listener.onFailed(session, e);
+            }
+        }
+    }
+
+    private void drain() {
+        for (int written = 0; written < MAX_FRAMES_PER_DRAIN; written++) {
+            PendingFrame frame;
+            synchronized (pending) {
+                frame = closed ? null : pending.pollFirst();
+                if (frame == null) {
+                    draining = false;
+                    return;
+                }
+            }
+
+            if (!session.isOpen()) {
+                close();
+                return;
+            }
+
+            ScheduledFuture<?> deadline = startDeadline(frame);
+            try {
+                session.sendMessage(frame.message());
+                listener.onSent(session);
+            } catch (Exception e) {
+                boolean wasOpen;
+                synchronized (pending) {
+                    wasOpen = !closed;
+                    closeQuietly();
+                }
+                // Not reported again when the deadline already gave the session up
+                if (wasOpen) {
+                    listener.onFailed(session, e);
+                }
+                return;
+            } finally {
+                finishWrite(deadline);
+            }
+
+            Runnable callback = null;
+            synchronized (pending) {
+                if (drainedCallback != null && pending.size() <= drainedWatermark) {
+                    callback = drainedCallback;
+                    drainedCallback = null;
+                }
+            }
+            if (callback != null) {
+                callback.run();
+            }
+        }
+
+        // Hand the thread back to the pool; "draining" stays set so no second drainer starts
+        scheduleDrain();
+    }
+
+    private ScheduledFuture<?> startDeadline(PendingFrame frame) {
+        if (sendTimeLimitMillis <= 0) {
+            return null;
+        }
+        synchronized (pending) {
+            writing = frame;
+        }
+        try {
+            return deadlineTimer.schedule(() -> onDeadline(frame), sendTimeLimitMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private void finishWrite(ScheduledFuture<?> deadline) {
+        if (sendTimeLimitMillis <= 0) {
+            return;
+        }
+        synchronized (pending) {
+            writing = null;
+        }
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * Write deadline passed: if that frame is still being written, the peer stopped reading
+     */
+    private void onDeadline(PendingFrame frame) {
+        synchronized (pending) {
+            if (writing != frame || closed) {
+                return;
+            }
+            closeQuietly();
+        }
+        log.warn("Write to session {} did not complete within {} ms, closing slow consumer",
+            session.getId(), sendTimeLimitMillis);
+        listener.onSlowConsumer(session);
+    }
+}
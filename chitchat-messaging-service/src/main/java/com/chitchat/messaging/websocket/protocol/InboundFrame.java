@@ -0,0 +1,127 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Client -> server WebSocket frames
+ *
+ * Each frame type is a record selected by the "type" property, so the handler
+ * works on typed fields instead of casting values out of a Map. Unknown or
+ * missing types decode to Unknown rather than failing the whole frame.
+ *
+ * Frame shapes:
+ * - AUTH: {"type":"AUTH","userId":1} - with "resume":{"streamId":"...","lastSeq":41} the session ACKs
+ *   its messages and resumes from lastSeq (first connection: "resume":{})
+ * - ACK: {"type":"ACK","data":{"seq":42}} (every NEW_MESSAGE up to seq was received)
+ * - PING: {"type":"PING"} (lower-case "ping" is also accepted)
+ * - SEND_MESSAGE: {"type":"SEND_MESSAGE","data":{"recipientId":2,"content":"hi","type":"TEXT"}}
+ * - TYPING: {"type":"TYPING","data":{"recipientId":2,"isTyping":true,"senderName":"Alice"}}
+ * - USER_STATUS: {"type":"USER_STATUS","data":{"status":"AWAY"}}
+ * - PIN_MESSAGE: {"type":"PIN_MESSAGE","data":{"messageId":"...","isPinned":true}}
+ * - GET_CONVERSATIONS: {"type":"GET_CONVERSATIONS"}
+ * - VIEW_CHAT: {"type":"VIEW_CHAT","data":{"userId":2}} (userId null/absent = chat closed)
+ * - READ_UPTO: {"type":"READ_UPTO","data":{"messageId":"..."}} (everything up to the message is read)
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type",
+        visible = true, defaultImpl = InboundFrame.Unknown.class)
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = InboundFrame.Auth.class, name = "AUTH"),
+        @JsonSubTypes.Type(value = InboundFrame.Ping.class, names = {"PING", "ping"}),
+        @JsonSubTypes.Type(value = InboundFrame.Ack.class, name = "ACK"),
+        @JsonSubTypes.Type(value = InboundFrame.SendMessage.class, name = "SEND_MESSAGE"),
+        @JsonSubTypes.Type(value = InboundFrame.Typing.class, name = "TYPING"),
+        @JsonSubTypes.Type(value = InboundFrame.UserStatus.class, name = "USER_STATUS"),
+        @JsonSubTypes.Type(value = InboundFrame.PinMessage.class, name = "PIN_MESSAGE"),
+        @JsonSubTypes.Type(value = InboundFrame.GetConversations.class, name = "GET_CONVERSATIONS"),
+        @JsonSubTypes.Type(value = InboundFrame.ViewChat.class, name = "VIEW_CHAT"),
+        @JsonSubTypes.Type(value = InboundFrame.ReadUpTo.class, name = "READ_UPTO")
+})
+@JsonIgnoreProperties(ignoreUnknown = true)
+public sealed interface InboundFrame {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Auth(Long userId, Resume resume) implements InboundFrame {
+    }
+
+    /**
+     * Resume position of a reconnecting client; both fields are null on its first connection
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Resume(String streamId, Long lastSeq) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Ping() implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Ack(AckData data) implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record AckData(Long seq) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SendMessage(SendMessageData data) implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SendMessageData(Long recipientId, String content, String type, String groupId,
+                           String replyToMessageId) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Typing(TypingData data) implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record TypingData(Long recipientId, @JsonProperty("isTyping") Boolean isTyping, String senderName) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record UserStatus(UserStatusData data) implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record UserStatusData(String status) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PinMessage(PinMessageData data) implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PinMessageData(String messageId, @JsonProperty("isPinned") Boolean isPinned) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record GetConversations() implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ViewChat(ViewChatData data) implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ViewChatData(Long userId) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ReadUpTo(ReadUpToData data) implements InboundFrame {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ReadUpToData(String messageId) {
+    }
+
+    /**
+     * Frame with a missing or unsupported type - logged and ignored
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Unknown(String type) implements InboundFrame {
+    }
+}
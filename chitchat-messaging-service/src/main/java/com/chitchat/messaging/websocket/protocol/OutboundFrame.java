@@ -0,0 +1,219 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import com.chitchat.messaging.dto.ConversationResponse;
+import com.chitchat.messaging.dto.MessageResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Server -> client WebSocket frames
+ *
+ * Every frame is an immutable record serialized by WebSocketFrameCodec; the
+ * "type" property is written from the subtype name. Frames sent at high rate
+ * (typing, keep-alive, delivery status) implement Streamed and write their
+ * fields straight to a JsonGenerator, skipping bean introspection entirely.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = OutboundFrame.AuthRequest.class, name = "AUTH_REQUEST"),
+        @JsonSubTypes.Type(value = OutboundFrame.Connection.class, name = "CONNECTION"),
+        @JsonSubTypes.Type(value = OutboundFrame.AuthSuccess.class, name = "AUTH_SUCCESS"),
+        @JsonSubTypes.Type(value = OutboundFrame.Resumed.class, name = "RESUMED"),
+        @JsonSubTypes.Type(value = OutboundFrame.Ping.class, name = "PING"),
+        @JsonSubTypes.Type(value = OutboundFrame.Pong.class, name = "PONG"),
+        @JsonSubTypes.Type(value = OutboundFrame.NewMessage.class, name = "NEW_MESSAGE"),
+        @JsonSubTypes.Type(value = OutboundFrame.MessageStatus.class, name = "MESSAGE_STATUS"),
+        @JsonSubTypes.Type(value = OutboundFrame.MessageStatusBatch.class, name = "MESSAGE_STATUS_BATCH"),
+        @JsonSubTypes.Type(value = OutboundFrame.ReadUpTo.class, name = "READ_UPTO"),
+        @JsonSubTypes.Type(value = OutboundFrame.Typing.class, name = "TYPING"),
+        @JsonSubTypes.Type(value = OutboundFrame.SendMessageResponse.class, name = "SEND_MESSAGE_RESPONSE"),
+        @JsonSubTypes.Type(value = OutboundFrame.TypingResponse.class, name = "TYPING_RESPONSE"),
+        @JsonSubTypes.Type(value = OutboundFrame.UserStatusResponse.class, name = "USER_STATUS_RESPONSE"),
+        @JsonSubTypes.Type(value = OutboundFrame.UserStatusBroadcast.class, name = "USER_STATUS_BROADCAST"),
+        @JsonSubTypes.Type(value = OutboundFrame.ConversationList.class, name = "CONVERSATION_LIST"),
+        @JsonSubTypes.Type(value = OutboundFrame.ConversationDelta.class, name = "CONVERSATION_DELTA"),
+        @JsonSubTypes.Type(value = OutboundFrame.PinMessageResponse.class, name = "PIN_MESSAGE_RESPONSE"),
+        @JsonSubTypes.Type(value = OutboundFrame.MessagePinned.class, name = "MESSAGE_PINNED"),
+        @JsonSubTypes.Type(value = OutboundFrame.ErrorMessage.class, name = "ERROR")
+})
+public sealed interface OutboundFrame {
+
+    /**
+     * Hot-path frame that writes itself as a complete JSON object
+     */
+    sealed interface Streamed extends OutboundFrame {
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+
+    // ==================== Connection lifecycle ====================
+
+    record AuthRequest(String message, boolean connectionStable) implements OutboundFrame {
+    }
+
+    record Connection(Long userId, String status, long timestamp, String message, int activeConnections,
+                      boolean connectionStable, long serverTime, long heartbeatInterval) implements OutboundFrame {
+    }
+
+    record AuthSuccess(Long userId, String status, long timestamp, String message, int activeConnections,
+                       boolean connectionStable, long serverTime, long heartbeatInterval) implements OutboundFrame {
+    }
+
+    /**
+     * Answer to a resume handshake: the stream to ACK against and how the gap is filled
+     *
+     * fullReplay is false when the missed messages (replayed, seqs after lastSeq)
+     * came from the retransmit buffer, true when the offline backlog is replayed instead.
+     */
+    record Resumed(String streamId, long lastSeq, int replayed, boolean fullReplay) implements OutboundFrame {
+    }
+
+    record Ping(long timestamp) implements Streamed {
+        @Override
+        public void writeTo(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "PING");
+            generator.writeNumberField("timestamp", timestamp);
+            generator.writeBooleanField("connectionStable", true);
+            generator.writeEndObject();
+        }
+    }
+
+    record Pong(long timestamp) implements Streamed {
+        @Override
+        public void writeTo(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "PONG");
+            generator.writeNumberField("timestamp", timestamp);
+            generator.writeBooleanField("connectionStable", true);
+            generator.writeEndObject();
+        }
+    }
+
+    // ==================== Real-time delivery ====================
+
+    /**
+     * A message for the receiver; seq is its position in the receiver's delivery stream (ACK with it)
+     */
+    record NewMessage(MessageResponse data, @JsonInclude(JsonInclude.Include.NON_NULL) Long seq)
+            implements OutboundFrame {
+    }
+
+    record MessageStatus(String messageId, String status) implements Streamed {
+        @Override
+        public void writeTo(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "MESSAGE_STATUS");
+            generator.writeStringField("messageId", messageId);
+            generator.writeStringField("status", status);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * One status change for many messages of the same sender (bulk read, pending delivery)
+     */
+    record MessageStatusBatch(List<String> messageIds, String status, long timestamp) implements Streamed {
+        @Override
+        public void writeTo(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "MESSAGE_STATUS_BATCH");
+            generator.writeArrayFieldStart("messageIds");
+            for (String messageId : messageIds) {
+                generator.writeString(messageId);
+            }
+            generator.writeEndArray();
+            generator.writeStringField("status", status);
+            generator.writeNumberField("timestamp", timestamp);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Read watermark: readerId has read every message of the conversation up to messageId
+     */
+    record ReadUpTo(String conversationId, String groupId, Long readerId, String messageId, long readAt)
+            implements Streamed {
+        @Override
+        public void writeTo(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "READ_UPTO");
+            generator.writeStringField("conversationId", conversationId);
+            if (groupId != null) {
+                generator.writeStringField("groupId", groupId);
+            }
+            generator.writeNumberField("readerId", readerId);
+            generator.writeStringField("messageId", messageId);
+            generator.writeNumberField("readAt", readAt);
+            generator.writeEndObject();
+        }
+    }
+
+    record Typing(Long senderId, String senderName, @JsonProperty("isTyping") boolean isTyping) implements Streamed {
+        @Override
+        public void writeTo(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "TYPING");
+            generator.writeFieldName("senderId");
+            if (senderId != null) {
+                generator.writeNumber(senderId);
+            } else {
+                generator.writeNull();
+            }
+            generator.writeStringField("senderName", senderName);
+            generator.writeBooleanField("isTyping", isTyping);
+            generator.writeEndObject();
+        }
+    }
+
+    // ==================== Responses to client requests ====================
+
+    record SendMessageResponse(String messageId, Long recipientId, String status, long timestamp)
+            implements OutboundFrame {
+    }
+
+    record TypingResponse(Long recipientId, @JsonProperty("isTyping") boolean isTyping, String message,
+                          long timestamp) implements OutboundFrame {
+    }
+
+    record UserStatusResponse(Long userId, String status, String message, long timestamp) implements OutboundFrame {
+    }
+
+    record UserStatusBroadcast(Long userId, String status, long timestamp) implements OutboundFrame {
+    }
+
+    record ConversationList(List<ConversationResponse> conversations, long timestamp, int count,
+                            long totalUnreadCount) implements OutboundFrame {
+    }
+
+    /**
+     * Coalesced conversation/unread push: only the conversations that changed since
+     * the last delta, plus the user's new total unread count
+     */
+    record ConversationDelta(List<ConversationChange> conversations, long totalUnreadCount, long timestamp)
+            implements OutboundFrame {
+    }
+
+    /**
+     * One changed conversation - userId for direct chats, groupId for groups.
+     * latestMessage is null when only the unread count changed.
+     */
+    record ConversationChange(Long userId, String groupId, MessageResponse latestMessage, Long unreadCount) {
+    }
+
+    record PinMessageResponse(String messageId, @JsonProperty("isPinned") boolean isPinned, String message,
+                              long timestamp) implements OutboundFrame {
+    }
+
+    record MessagePinned(String messageId, @JsonProperty("isPinned") boolean isPinned, Long pinnedBy, Long senderId,
+                         Long recipientId, long timestamp) implements OutboundFrame {
+    }
+
+    record ErrorMessage(String message) implements OutboundFrame {
+    }
+}
@@ -0,0 +1,55 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * An outbound frame ready to be fanned out to sessions that may use different wire formats
+ *
+ * Each format is encoded on first use and then reused, so a frame sent to many
+ * sessions is serialized at most once per format. Concurrent first use may
+ * encode twice; both results are identical, so no locking is needed.
+ *
+ * TextMessage is immutable and shared as-is. A BinaryMessage wraps a ByteBuffer
+ * whose position the container advances while writing, so every CBOR session
+ * gets its own BinaryMessage over the shared encoded bytes.
+ */
+public final class PreparedFrame {
+
+    private final OutboundFrame frame;
+    private final WebSocketFrameCodec codec;
+
+    private volatile TextMessage jsonMessage;
+    private volatile byte[] cborBytes;
+
+    PreparedFrame(OutboundFrame frame, WebSocketFrameCodec codec) {
+        this.frame = frame;
+        this.codec = codec;
+    }
+
+    public OutboundFrame getFrame() {
+        return frame;
+    }
+
+    /**
+     * The encoded message for a wire format
+     */
+    public WebSocketMessage<?> messageFor(WireFormat format) {
+        if (format == WireFormat.CBOR) {
+            byte[] bytes = cborBytes;
+            if (bytes == null) {
+                bytes = codec.encodeCbor(frame);
+                cborBytes = bytes;
+            }
+            return new BinaryMessage(bytes);
+        }
+
+        TextMessage message = jsonMessage;
+        if (message == null) {
+            message = codec.encodeText(frame);
+            jsonMessage = message;
+        }
+        return message;
+    }
+}
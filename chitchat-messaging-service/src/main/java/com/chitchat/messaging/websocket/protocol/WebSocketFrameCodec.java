@@ -0,0 +1,158 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for the messaging WebSocket protocol (JSON text or CBOR binary)
+ *
+ * The readers and writers are resolved once at startup, so per-frame cost is the
+ * serialization itself - no Map allocation, no type lookup per call. Streamed
+ * frames bypass the databind layer and are written with a raw JsonGenerator,
+ * which works unchanged for both JSON and CBOR.
+ *
+ * The CBOR mapper is a copy of the application ObjectMapper, so both formats
+ * share the same modules (java.time etc.) and produce the same field names.
+ *
+ * Encoding never throws: a frame that cannot be serialized is logged and
+ * replaced with a generic ERROR frame, matching what the handler used to send.
+ */
+@Slf4j
+@Component
+public class WebSocketFrameCodec {
+
+    private static final String FALLBACK_ERROR_FRAME = "{\"type\":\"ERROR\",\"message\":\"Internal error\"}";
+
+    // Typical hot frame is well under this size, so the buffer never has to grow
+    private static final int STREAMED_FRAME_INITIAL_CAPACITY = 128;
+
+    private final ObjectReader inboundReader;
+    private final ObjectWriter outboundWriter;
+    private final JsonFactory jsonFactory;
+
+    private final ObjectReader cborInboundReader;
+    private final ObjectWriter cborOutboundWriter;
+    private final JsonFactory cborFactory;
+    private final byte[] fallbackErrorCbor;
+
+    public WebSocketFrameCodec(ObjectMapper objectMapper) {
+        this.inboundReader = objectMapper.readerFor(InboundFrame.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.outboundWriter = objectMapper.writerFor(OutboundFrame.class);
+        this.jsonFactory = objectMapper.getFactory();
+
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.cborInboundReader = cborMapper.readerFor(InboundFrame.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.cborOutboundWriter = cborMapper.writerFor(OutboundFrame.class);
+        this.cborFactory = cborMapper.getFactory();
+        this.fallbackErrorCbor = encodeFallbackCbor(cborMapper);
+    }
+
+    /**
+     * Decode a JSON text frame
+     *
+     * @throws IOException if the payload is not valid JSON or a field has the wrong type
+     */
+    public InboundFrame decode(String payload) throws IOException {
+        return inboundReader.readValue(payload);
+    }
+
+    /**
+     * Decode a CBOR binary frame
+     *
+     * @throws IOException if the payload is not valid CBOR or a field has the wrong type
+     */
+    public InboundFrame decode(ByteBuffer payload) throws IOException {
+        if (payload.hasArray()) {
+            return cborInboundReader.readValue(payload.array(),
+                    payload.arrayOffset() + payload.position(), payload.remaining());
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return cborInboundReader.readValue(bytes);
+    }
+
+    /**
+     * Encode a frame to its JSON text
+     */
+    public String encode(OutboundFrame frame) {
+        try {
+            if (frame instanceof OutboundFrame.Streamed streamed) {
+                StringWriter writer = new StringWriter(STREAMED_FRAME_INITIAL_CAPACITY);
+                try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+                    streamed.writeTo(generator);
+                }
+                return writer.toString();
+            }
+            return outboundWriter.writeValueAsString(frame);
+        } catch (IOException e) {
+            log.error("Error encoding WebSocket frame {}", frame.getClass().getSimpleName(), e);
+            return FALLBACK_ERROR_FRAME;
+        }
+    }
+
+    /**
+     * Encode a frame to CBOR bytes
+     */
+    public byte[] encodeCbor(OutboundFrame frame) {
+        try {
+            if (frame instanceof OutboundFrame.Streamed streamed) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(STREAMED_FRAME_INITIAL_CAPACITY);
+                try (JsonGenerator generator = cborFactory.createGenerator(out)) {
+                    streamed.writeTo(generator);
+                }
+                return out.toByteArray();
+            }
+            return cborOutboundWriter.writeValueAsBytes(frame);
+        } catch (IOException e) {
+            log.error("Error encoding WebSocket frame {} as CBOR", frame.getClass().getSimpleName(), e);
+            return fallbackErrorCbor.clone();
+        }
+    }
+
+    /**
+     * Encode a frame as an immutable TextMessage that can be shared between sessions
+     */
+    public TextMessage encodeText(OutboundFrame frame) {
+        return new TextMessage(encode(frame));
+    }
+
+    /**
+     * Encode a frame as the WebSocket message type used by a wire format
+     */
+    public WebSocketMessage<?> encodeMessage(OutboundFrame frame, WireFormat format) {
+        return format == WireFormat.CBOR ? new BinaryMessage(encodeCbor(frame)) : encodeText(frame);
+    }
+
+    /**
+     * Wrap a frame for fan-out; each wire format is encoded at most once
+     */
+    public PreparedFrame prepare(OutboundFrame frame) {
+        return new PreparedFrame(frame, this);
+    }
+
+    private static byte[] encodeFallbackCbor(ObjectMapper cborMapper) {
+        try {
+            return cborMapper.writerFor(OutboundFrame.class)
+                    .writeValueAsBytes(new OutboundFrame.ErrorMessage("Internal error"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to initialise CBOR WebSocket codec", e);
+        }
+    }
+}
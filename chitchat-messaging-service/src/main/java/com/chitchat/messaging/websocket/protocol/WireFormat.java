@@ -0,0 +1,39 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import java.util.List;
+
+/**
+ * Encodings of the messaging WebSocket protocol, negotiated via Sec-WebSocket-Protocol
+ *
+ * Both formats carry the same frame envelopes ({"type": ..., ...}); only the
+ * byte encoding differs:
+ * - JSON: TextMessage frames (default, used when no subprotocol is requested and for SockJS)
+ * - CBOR: BinaryMessage frames, for mobile clients that want smaller payloads
+ */
+public enum WireFormat {
+
+    JSON("chitchat.json"),
+    CBOR("chitchat.cbor");
+
+    /**
+     * Subprotocols offered during the handshake, in server preference order
+     */
+    public static final List<String> SUB_PROTOCOLS = List.of(CBOR.subProtocol, JSON.subProtocol);
+
+    private final String subProtocol;
+
+    WireFormat(String subProtocol) {
+        this.subProtocol = subProtocol;
+    }
+
+    public String getSubProtocol() {
+        return subProtocol;
+    }
+
+    /**
+     * Resolve the format for a negotiated subprotocol; anything else falls back to JSON
+     */
+    public static WireFormat fromSubProtocol(String acceptedProtocol) {
+        return CBOR.subProtocol.equalsIgnoreCase(acceptedProtocol) ? CBOR : JSON;
+    }
+}
@@ -0,0 +1,243 @@
+package com.chitchat.messaging.cache;
+
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TwoTierCacheTest {
+
+    private static final String NAME = "conversations";
+
+    // Stands in for the RedisCache: same contract, no server
+    private final Cache remote = spy(new ConcurrentMapCache(NAME, false));
+    private final CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TwoTierCache(remote, 100, Duration.ofMinutes(1), invalidationBus, meterRegistry);
+    }
+
+    @Test
+    void remoteHitFillsTheLocalTier() {
+        remote.put(42L, "value");
+
+        assertEquals("value", cache.get(42L).get());
+        assertEquals("value", cache.get(42L).get());
+        assertEquals("value", cache.get("42", String.class), "local keys are key.toString()");
+
+        verify(remote, times(1)).get(42L);
+        assertEquals(2, gets("l1", "hit"));
+        assertEquals(1, gets("l1", "miss"));
+        assertEquals(1, gets("l2", "hit"));
+    }
+
+    @Test
+    void missInBothTiersIsNotCachedLocally() {
+        assertNull(cache.get(42L));
+        assertNull(cache.get(42L));
+
+        verify(remote, times(2)).get(42L);
+        assertEquals(2, gets("l2", "miss"));
+    }
+
+    @Test
+    void loaderRunsOnlyWhenBothTiersMissAndItsValueIsShared() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Callable<String> loader = () -> "loaded-" + loads.incrementAndGet();
+
+        assertEquals("loaded-1", cache.get(42L, loader));
+        assertEquals("loaded-1", cache.get(42L, loader));
+
+        assertEquals(1, loads.get());
+        assertEquals("loaded-1", remote.get(42L).get());
+        verify(invalidationBus).publish(NAME, "42");
+    }
+
+    @Test
+    void loaderIsSkippedOnARemoteHit() {
+        remote.put(42L, "from-redis");
+
+        assertEquals("from-redis", cache.get(42L, () -> {
+            throw new AssertionError("loader must not run");
+        }));
+        verify(invalidationBus, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(42L, () -> {
+                        Thread.sleep(50);
+                        return "loaded-" + loads.incrementAndGet();
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("loaded-1", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        verify(remote, times(1)).get(42L);
+    }
+
+    @Test
+    void nullFromTheLoaderIsNotCached() {
+        assertNull(cache.get(42L, () -> null));
+        assertNull(cache.get(42L, () -> null));
+
+        verify(remote, never()).put(any(), any());
+        verify(remote, times(2)).get(42L);
+    }
+
+    @Test
+    void failingLoaderIsReportedAsValueRetrievalException() {
+        Cache.ValueRetrievalException e = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get(42L, () -> {
+                    throw new IllegalStateException("mongo down");
+                }));
+        assertEquals("mongo down", e.getCause().getMessage());
+    }
+
+    @Test
+    void putWritesBothTiersAndInvalidatesTheOtherNodes() {
+        Object value = new Object();
+
+        cache.put(42L, value);
+
+        assertSame(value, cache.get(42L).get(), "served from the local tier");
+        verify(remote, never()).get(42L);
+        verify(invalidationBus).publish(NAME, "42");
+    }
+
+    @Test
+    void putOfNullEvicts() {
+        cache.put(42L, "value");
+
+        cache.put(42L, null);
+
+        assertNull(cache.get(42L));
+        verify(remote).evict(42L);
+    }
+
+    @Test
+    void evictDropsBothTiers() {
+        cache.put(42L, "value");
+
+        cache.evict(42L);
+
+        assertNull(cache.get(42L));
+        verify(invalidationBus, times(2)).publish(NAME, "42");
+    }
+
+    @Test
+    void putIfAbsentRereadsWhicheverValueWon() {
+        remote.put(42L, "first");
+        cache.get(42L);
+
+        assertEquals("first", cache.putIfAbsent(42L, "second").get());
+        assertEquals("first", cache.get(42L).get());
+        verify(remote, times(2)).get(42L);
+        verify(invalidationBus, never()).publish(anyString(), anyString());
+
+        assertNull(cache.putIfAbsent(7L, "new"));
+        verify(invalidationBus).publish(NAME, "7");
+    }
+
+    @Test
+    void invalidationFromAnotherNodeDropsOnlyTheLocalCopy() {
+        remote.put(42L, "old");
+        cache.get(42L);
+        // Another node wrote L2 directly and published the key
+        remote.put(42L, "new");
+
+        remoteInvalidation().accept("42");
+
+        assertEquals("new", cache.get(42L).get());
+        verify(remote, never()).evict(any());
+    }
+
+    @Test
+    void clearFromAnotherNodeDropsTheWholeLocalTier() {
+        remote.put(1L, "a");
+        remote.put(2L, "b");
+        cache.get(1L);
+        cache.get(2L);
+
+        remoteInvalidation().accept(TwoTierCache.CLEAR_ALL);
+        cache.get(1L);
+        cache.get(2L);
+
+        verify(remote, times(2)).get(1L);
+        verify(remote, times(2)).get(2L);
+        verify(remote, never()).clear();
+    }
+
+    @Test
+    void clearDropsBothTiersEverywhere() {
+        cache.put(42L, "value");
+
+        cache.clear();
+
+        assertNull(cache.get(42L));
+        verify(invalidationBus).publish(NAME, TwoTierCache.CLEAR_ALL);
+    }
+
+    @Test
+    void valueOfTheWrongTypeIsRejected() {
+        cache.put(42L, "value");
+
+        assertThrows(IllegalStateException.class, () -> cache.get(42L, Integer.class));
+    }
+
+    private double gets(String tier, String result) {
+        return meterRegistry.counter("chitchat.cache.gets", "cache", NAME, "tier", tier, "result", result).count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<String> remoteInvalidation() {
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(NAME), handler.capture());
+        return handler.getValue();
+    }
+}
@@ -0,0 +1,257 @@
+package com.chitchat.messaging.client;
+
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class UserProfileCacheTest {
+
+    private static final String KEY_PREFIX = "chitchat:user-profile:";
+
+    private final UserServiceClient userServiceClient = mock(UserServiceClient.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+    private final CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Profiles written to Redis by the pipelined SETEX, by key
+    private final List<String> redisWrites = new ArrayList<>();
+
+    private UserProfileCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        doAnswer(invocation -> {
+            redisWrites.add(new String((byte[]) invocation.getArgument(0), StandardCharsets.UTF_8));
+            return true;
+        }).when(stringCommands).setEx(any(byte[].class), anyLong(), any(byte[].class));
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            RedisCallback<?> callback = invocation.getArgument(0);
+            callback.doInRedis(connection);
+            return List.of();
+        });
+
+        cache = new UserProfileCache(userServiceClient, redisTemplate, objectMapper, invalidationBus, meterRegistry);
+        ReflectionTestUtils.setField(cache, "localMaxSize", 1_000L);
+        ReflectionTestUtils.setField(cache, "localTtlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "redisTtlMinutes", 60L);
+        cache.init();
+    }
+
+    @Test
+    void getAllReadsRedisOnceAndFetchesOnlyTheMissingUsers() throws Exception {
+        givenRedis(Map.of(1L, user(1L), 3L, user(3L)));
+        when(userServiceClient.getUsersByIds(anyList())).thenAnswer(invocation -> users(invocation.getArgument(0)));
+
+        Map<Long, UserServiceClient.UserDto> profiles = cache.getAll(List.of(1L, 2L, 3L, 4L));
+
+        assertEquals(Set.of(1L, 2L, 3L, 4L), profiles.keySet());
+        assertEquals("User 2", profiles.get(2L).getName());
+        verify(valueOperations, times(1)).multiGet(anyList());
+        assertEquals(Set.of(2L, 4L), new HashSet<>(requestedBatches().get(0)));
+        assertEquals(Set.of(KEY_PREFIX + 2, KEY_PREFIX + 4), new HashSet<>(redisWrites), "only loaded profiles are written back");
+        assertEquals(2, meterRegistry.counter("chitchat.user.profile.loads", "source", "redis").count());
+        assertEquals(2, meterRegistry.counter("chitchat.user.profile.loads", "source", "user-service").count());
+    }
+
+    @Test
+    void repeatedLookupsAreServedLocally() throws Exception {
+        givenRedis(Map.of(1L, user(1L)));
+        when(userServiceClient.getUsersByIds(anyList())).thenAnswer(invocation -> users(invocation.getArgument(0)));
+        cache.getAll(List.of(1L, 2L, 3L));
+
+        cache.getAll(List.of(3L, 2L, 1L));
+        assertEquals("User 1", cache.get(1L).getName());
+
+        verify(valueOperations, times(1)).multiGet(anyList());
+        verify(userServiceClient, times(1)).getUsersByIds(anyList());
+    }
+
+    @Test
+    void onlyTheUsersNotYetLocalAreLoaded() throws Exception {
+        givenRedis(Map.of());
+        when(userServiceClient.getUsersByIds(anyList())).thenAnswer(invocation -> users(invocation.getArgument(0)));
+        cache.getAll(List.of(1L, 2L));
+
+        cache.getAll(List.of(1L, 2L, 3L, 4L));
+
+        List<Collection<Long>> batches = requestedBatches();
+        assertEquals(2, batches.size());
+        assertEquals(Set.of(3L, 4L), new HashSet<>(batches.get(1)));
+    }
+
+    @Test
+    void missingUsersAreFetchedInBatchesOfTheEndpointLimit() throws Exception {
+        givenRedis(Map.of());
+        when(userServiceClient.getUsersByIds(anyList())).thenAnswer(invocation -> users(invocation.getArgument(0)));
+        List<Long> userIds = LongStream.rangeClosed(1, 1_201).boxed().toList();
+
+        Map<Long, UserServiceClient.UserDto> profiles = cache.getAll(userIds);
+
+        assertEquals(1_201, profiles.size());
+        assertEquals(List.of(500, 500, 201), requestedBatches().stream().map(Collection::size).toList());
+        assertEquals(1_201, redisWrites.size());
+    }
+
+    @Test
+    void singleMissingUserUsesTheSingleUserEndpoint() throws Exception {
+        givenRedis(Map.of());
+        when(userServiceClient.getUserById(7L)).thenReturn(user(7L));
+
+        assertEquals("User 7", cache.get(7L).getName());
+
+        verify(userServiceClient, never()).getUsersByIds(anyList());
+        assertEquals(List.of(KEY_PREFIX + 7), redisWrites);
+    }
+
+    @Test
+    void redisOutageFallsBackToTheUserService() {
+        when(valueOperations.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("down"));
+        when(userServiceClient.getUsersByIds(anyList())).thenAnswer(invocation -> users(invocation.getArgument(0)));
+
+        assertEquals(Set.of(1L, 2L), cache.getAll(List.of(1L, 2L)).keySet());
+    }
+
+    @Test
+    void unreadableRedisEntryIsReloaded() throws Exception {
+        when(valueOperations.multiGet(anyList())).thenReturn(List.of("{not json"));
+        when(userServiceClient.getUserById(5L)).thenReturn(user(5L));
+
+        assertEquals("User 5", cache.get(5L).getName());
+        assertEquals(List.of(KEY_PREFIX + 5), redisWrites);
+    }
+
+    @Test
+    void unknownUsersAreNotCached() throws Exception {
+        givenRedis(Map.of());
+        when(userServiceClient.getUserById(9L)).thenReturn(null);
+
+        assertNull(cache.get(9L));
+        assertNull(cache.get(9L));
+        assertTrue(cache.getAll(List.of(9L)).isEmpty());
+
+        verify(userServiceClient, times(3)).getUserById(9L);
+        assertTrue(redisWrites.isEmpty());
+    }
+
+    @Test
+    void invalidateDropsEveryCopyAndTellsTheOtherNodes() throws Exception {
+        givenRedis(Map.of(1L, user(1L)));
+        cache.get(1L);
+
+        cache.invalidate(1L);
+        cache.get(1L);
+
+        verify(redisTemplate).delete(KEY_PREFIX + 1);
+        verify(invalidationBus).publish("userProfiles", "1");
+        verify(valueOperations, times(2)).multiGet(anyList());
+    }
+
+    @Test
+    void invalidationFromAnotherNodeDropsOnlyTheLocalCopy() throws Exception {
+        givenRedis(Map.of(1L, user(1L)));
+        cache.get(1L);
+
+        remoteInvalidation().accept("1");
+        cache.get(1L);
+
+        verify(valueOperations, times(2)).multiGet(anyList());
+        verify(redisTemplate, never()).delete(any(String.class));
+        verify(invalidationBus).subscribe(eq("userProfiles"), any());
+        verifyNoMoreInteractions(invalidationBus);
+    }
+
+    @Test
+    void profileUpdatedEventInvalidatesTheUser() {
+        cache.onProfileUpdated(" 42 \n");
+        cache.onProfileUpdated("not-a-user");
+
+        verify(redisTemplate).delete(KEY_PREFIX + 42);
+        verify(invalidationBus).publish("userProfiles", "42");
+    }
+
+    /**
+     * MGET answers from the given profiles, in key order, null for the rest
+     */
+    private void givenRedis(Map<Long, UserServiceClient.UserDto> cached) throws Exception {
+        Map<String, String> json = new HashMap<>();
+        for (Map.Entry<Long, UserServiceClient.UserDto> entry : cached.entrySet()) {
+            json.put(KEY_PREFIX + entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+        }
+        when(valueOperations.multiGet(anyList())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            return keys.stream().map(json::get).toList();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Collection<Long>> requestedBatches() {
+        ArgumentCaptor<Collection<Long>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(userServiceClient, atLeastOnce()).getUsersByIds(batches.capture());
+        // The captured sublists are views; copy them before the loader's list goes away
+        return batches.getAllValues().stream().map(batch -> (Collection<Long>) List.copyOf(batch)).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<String> remoteInvalidation() {
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq("userProfiles"), handler.capture());
+        return handler.getValue();
+    }
+
+    private static List<UserServiceClient.UserDto> users(Collection<Long> userIds) {
+        return userIds.stream().map(UserProfileCacheTest::user).toList();
+    }
+
+    private static UserServiceClient.UserDto user(Long userId) {
+        UserServiceClient.UserDto user = new UserServiceClient.UserDto();
+        user.setId(userId);
+        user.setName("User " + userId);
+        return user;
+    }
+}
@@ -0,0 +1,206 @@
+package com.chitchat.messaging.repository;
+
+import com.chitchat.messaging.config.ConversationKeyMigration;
+import com.chitchat.messaging.config.MongoIndexConfig;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.util.ConversationIds;
+import com.chitchat.messaging.util.MessageCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset history pages cost the same at any depth; offset pages scan everything they skip
+ *
+ * Runs against a real MongoDB with the application's indexes. Per-query work is
+ * read from the database profiler (keysExamined / docsExamined of the find the
+ * repository issued), so the comparison does not depend on machine speed.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MessageRepositoryKeysetPaginationTest {
+
+    private static final String DATABASE = "chitchat";
+    private static final int DEPTH = 10_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int MESSAGES = DEPTH + 2 * PAGE_SIZE;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static MessageRepositoryCustomImpl repository;
+
+    @BeforeAll
+    static void seed() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl(DATABASE));
+        mongoTemplate = new MongoTemplate(client, DATABASE);
+
+        MongoIndexConfig indexConfig = new MongoIndexConfig(mongoTemplate);
+        ReflectionTestUtils.setField(indexConfig, "searchLanguage", "english");
+        indexConfig.initIndexes();
+
+        ConversationKeyMigration migration = new ConversationKeyMigration(mongoTemplate);
+        ReflectionTestUtils.setField(migration, "complete", true);
+        repository = new MessageRepositoryCustomImpl(mongoTemplate, migration);
+
+        // The chat under test, plus another chat of user 1 interleaved in the same index
+        insertConversation(1L, 2L, MESSAGES);
+        insertConversation(1L, 3L, MESSAGES);
+
+        mongoTemplate.executeCommand(new Document("profile", 2));
+    }
+
+    @AfterAll
+    static void closeClient() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void walkingTheHistoryReturnsEveryMessageOnceNewestFirst() {
+        List<Message> seen = new ArrayList<>();
+        MessageCursor before = null;
+        List<Message> page;
+        do {
+            page = repository.findConversationSlice(1L, 2L, before, null, PAGE_SIZE);
+            seen.addAll(page);
+            before = page.isEmpty() ? null : MessageCursor.of(page.get(page.size() - 1));
+        } while (page.size() == PAGE_SIZE);
+
+        assertEquals(MESSAGES, seen.size());
+        assertEquals(MESSAGES, new HashSet<>(seen.stream().map(Message::getId).toList()).size());
+        for (int i = 1; i < seen.size(); i++) {
+            Message newer = seen.get(i - 1);
+            Message older = seen.get(i);
+            int byTime = newer.getCreatedAt().compareTo(older.getCreatedAt());
+            assertTrue(byTime > 0 || (byTime == 0 && newer.getId().compareTo(older.getId()) > 0),
+                    "out of order at " + i);
+        }
+    }
+
+    @Test
+    void deepKeysetPageExaminesNoMoreThanTheFirstPage() {
+        MessageCursor deep = cursorAtDepth(DEPTH);
+
+        Document first = profiled(() -> repository.findConversationSlice(1L, 2L, null, null, PAGE_SIZE + 1));
+        Document atDepth = profiled(() -> repository.findConversationSlice(1L, 2L, deep, null, PAGE_SIZE + 1));
+
+        assertEquals(PAGE_SIZE + 1, count(atDepth, "nreturned"));
+        // Messages come in pairs sharing a millisecond: the cursor and its twin may be read and dropped by the tie-break
+        assertTrue(count(atDepth, "keysExamined") <= count(first, "keysExamined") + 2, atDepth.toJson());
+        assertTrue(count(atDepth, "docsExamined") <= count(first, "docsExamined") + 2, atDepth.toJson());
+    }
+
+    @Test
+    void offsetPageAtTheSameDepthScansEverySkippedEntry() {
+        PageRequest page = PageRequest.of(DEPTH / PAGE_SIZE, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+        Document offset = profiled(() -> repository.findConversationMessages(1L, 2L, page));
+
+        assertEquals(PAGE_SIZE, count(offset, "nreturned"));
+        assertTrue(count(offset, "keysExamined") >= DEPTH, offset.toJson());
+    }
+
+    @Test
+    void deepKeysetPageIsFasterThanTheOffsetPage() {
+        MessageCursor deep = cursorAtDepth(DEPTH);
+        PageRequest page = PageRequest.of(DEPTH / PAGE_SIZE, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+        long keysetNanos = medianNanos(() -> repository.findConversationSlice(1L, 2L, deep, null, PAGE_SIZE + 1));
+        long offsetNanos = medianNanos(() -> repository.findConversationMessages(1L, 2L, page));
+
+        assertTrue(keysetNanos < offsetNanos,
+                "keyset " + keysetNanos / 1000 + "us vs offset " + offsetNanos / 1000 + "us at depth " + DEPTH);
+    }
+
+    private static void insertConversation(Long userA, Long userB, int count) {
+        String conversationId = ConversationIds.direct(userA, userB);
+        List<Message> batch = new ArrayList<>(1000);
+        for (int i = 0; i < count; i++) {
+            boolean fromA = i % 2 == 0;
+            batch.add(Message.builder()
+                    .conversationId(conversationId)
+                    .senderId(fromA ? userA : userB)
+                    .recipientId(fromA ? userB : userA)
+                    .content("message " + i)
+                    .type(Message.MessageType.TEXT)
+                    .status(Message.MessageStatus.READ)
+                    // Two messages per millisecond, so page boundaries fall on ties
+                    .createdAt(START.plusNanos((i / 2) * 1_000_000L))
+                    .build());
+            if (batch.size() == 1000) {
+                mongoTemplate.insert(batch, Message.class);
+                batch = new ArrayList<>(1000);
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.insert(batch, Message.class);
+        }
+    }
+
+    /**
+     * Cursor at the depth-th newest message of the chat under test
+     */
+    private static MessageCursor cursorAtDepth(int depth) {
+        Query query = Query.query(Criteria.where("conversationId").is(ConversationIds.direct(1L, 2L)))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .skip(depth - 1)
+                .limit(1);
+        return MessageCursor.of(mongoTemplate.findOne(query, Message.class));
+    }
+
+    /**
+     * Run a repository call and return the profiler entry of the find it issued
+     */
+    private static Document profiled(Supplier<?> call) {
+        call.get();
+        Query lastFind = Query.query(Criteria.where("ns").is(DATABASE + ".messages").and("op").is("query"))
+                .with(Sort.by(Sort.Direction.DESC, "ts"))
+                .limit(1);
+        return mongoTemplate.findOne(lastFind, Document.class, "system.profile");
+    }
+
+    private static long count(Document profile, String field) {
+        return ((Number) profile.get(field)).longValue();
+    }
+
+    private static long medianNanos(Supplier<?> call) {
+        // Warm up the plan cache and the working set first
+        for (int i = 0; i < 5; i++) {
+            call.get();
+        }
+        long[] samples = new long[21];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            call.get();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,245 @@
+package com.chitchat.messaging.repository;
+
+import com.chitchat.messaging.config.ConversationKeyMigration;
+import com.chitchat.messaging.config.MongoIndexConfig;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.util.ConversationIds;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Message search under load: the text index against the unanchored regex it replaced
+ *
+ * The regex query ({content: {$regex, $options: 'i'}} scoped by senderId/recipientId)
+ * has to read every message the user ever sent or received; the text index only
+ * reads messages containing the term. Work per query is taken from the database
+ * profiler, latency from concurrent searches by many users.
+ *
+ * The default dataset keeps the build fast; for the million-message run:
+ * mvn -pl chitchat-messaging-service -am test -Dtest=MessageSearchLoadTest -Dchitchat.search.load.messages=1000000
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MessageSearchLoadTest {
+
+    private static final String DATABASE = "chitchat";
+    private static final int MESSAGES = Integer.getInteger("chitchat.search.load.messages", 100_000);
+    private static final int USERS = 100;
+    private static final int VOCABULARY = 2_000;
+    private static final int WORDS_PER_MESSAGE = 6;
+    private static final String RARE_TERM = "quokka";
+    private static final int RARE_FOR_USER_1 = 20;
+    private static final int RARE_FOR_OTHERS = 10;
+    private static final int PAGE_SIZE = 20;
+    private static final int THREADS = 8;
+    private static final int SEARCHES = 400;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static MessageRepositoryCustomImpl repository;
+
+    @BeforeAll
+    static void seed() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl(DATABASE));
+        mongoTemplate = new MongoTemplate(client, DATABASE);
+
+        MongoIndexConfig indexConfig = new MongoIndexConfig(mongoTemplate);
+        ReflectionTestUtils.setField(indexConfig, "searchLanguage", "english");
+        indexConfig.initIndexes();
+
+        ConversationKeyMigration migration = new ConversationKeyMigration(mongoTemplate);
+        ReflectionTestUtils.setField(migration, "complete", true);
+        repository = new MessageRepositoryCustomImpl(mongoTemplate, migration);
+
+        Random random = new Random(42);
+        List<Message> batch = new ArrayList<>(5_000);
+        for (int i = 0; i < MESSAGES; i++) {
+            long sender = 1 + random.nextInt(USERS);
+            long recipient = 1 + (sender + random.nextInt(USERS - 1)) % USERS;
+            StringBuilder content = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_MESSAGE; w++) {
+                content.append(w == 0 ? "" : " ").append(word(random.nextInt(VOCABULARY)));
+            }
+            batch.add(message(sender, recipient, content.toString(), i));
+            if (batch.size() == 5_000) {
+                mongoTemplate.insert(batch, Message.class);
+                batch = new ArrayList<>(5_000);
+            }
+        }
+        for (int i = 0; i < RARE_FOR_USER_1; i++) {
+            batch.add(message(i % 2 == 0 ? 1L : 2L, i % 2 == 0 ? 2L : 1L, "Saw a " + RARE_TERM + " today " + i, MESSAGES + i));
+        }
+        for (int i = 0; i < RARE_FOR_OTHERS; i++) {
+            batch.add(message(2L, 3L, "The " + RARE_TERM + " photo " + i, MESSAGES + RARE_FOR_USER_1 + i));
+        }
+        mongoTemplate.insert(batch, Message.class);
+
+        mongoTemplate.executeCommand(new Document("profile", 2));
+    }
+
+    @AfterAll
+    static void closeClient() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void textSearchIsScopedToTheUsersConversations() {
+        List<Message> hits = repository.searchMessages(RARE_TERM, 1L, List.of(), 0, PAGE_SIZE + 1);
+
+        assertEquals(RARE_FOR_USER_1, hits.size());
+        for (Message hit : hits) {
+            assertTrue(hit.getSenderId() == 1L || hit.getRecipientId() == 1L, hit.getId());
+            assertTrue(hit.getContent().contains(RARE_TERM), hit.getContent());
+        }
+    }
+
+    @Test
+    void textSearchReadsOnlyMatchingMessages() {
+        long userMessages = mongoTemplate.count(Query.query(userScope(1L)), Message.class);
+
+        Document text = profiled(() -> repository.searchMessages(RARE_TERM, 1L, List.of(), 0, PAGE_SIZE + 1));
+        Document regex = profiled(() -> regexSearch(RARE_TERM, 1L));
+
+        assertTrue(count(text, "docsExamined") <= RARE_FOR_USER_1 + RARE_FOR_OTHERS, text.toJson());
+        assertTrue(count(regex, "docsExamined") >= userMessages, regex.toJson());
+    }
+
+    @Test
+    void textSearchExaminesFewerMessagesForEveryUser() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            long userId = 1 + random.nextInt(USERS);
+            String term = word(random.nextInt(VOCABULARY));
+
+            Document text = profiled(() -> repository.searchMessages(term, userId, List.of(), 0, PAGE_SIZE + 1));
+            Document regex = profiled(() -> regexSearch(term, userId));
+
+            assertTrue(count(text, "docsExamined") < count(regex, "docsExamined"),
+                    term + " for user " + userId + ": text " + count(text, "docsExamined")
+                            + " vs regex " + count(regex, "docsExamined") + " documents");
+        }
+    }
+
+    @Test
+    void textSearchHasLowerLatencyUnderConcurrentLoad() throws Exception {
+        // Regex first, so the text run does not get a cache warmed by it for free
+        long[] regex = concurrentLatencies((userId, term) -> regexSearch(term, userId));
+        long[] text = concurrentLatencies((userId, term) -> repository.searchMessages(term, userId, List.of(), 0, PAGE_SIZE + 1));
+
+        long regexP95 = percentile(regex, 95);
+        long textP95 = percentile(text, 95);
+        assertTrue(textP95 < regexP95, String.format("%d messages, p50/p95 text %d/%dus, regex %d/%dus",
+                MESSAGES, percentile(text, 50) / 1000, textP95 / 1000, percentile(regex, 50) / 1000, regexP95 / 1000));
+    }
+
+    /**
+     * The search query MessageRepository used before the text index
+     */
+    private static List<Message> regexSearch(String term, Long userId) {
+        Query query = Query.query(new Criteria().andOperator(
+                Criteria.where("content").regex(term, "i"),
+                userScope(userId)));
+        return mongoTemplate.find(query, Message.class);
+    }
+
+    private static Criteria userScope(Long userId) {
+        return new Criteria().orOperator(Criteria.where("senderId").is(userId), Criteria.where("recipientId").is(userId));
+    }
+
+    private interface Search {
+        List<Message> run(Long userId, String term);
+    }
+
+    /**
+     * Latency of SEARCHES searches by random users for random terms, THREADS at a time
+     */
+    private static long[] concurrentLatencies(Search search) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(SEARCHES);
+            Random random = new Random(11);
+            for (int i = 0; i < SEARCHES; i++) {
+                long userId = 1 + random.nextInt(USERS);
+                String term = word(random.nextInt(VOCABULARY));
+                futures.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    search.run(userId, term);
+                    return System.nanoTime() - start;
+                }));
+            }
+            long[] latencies = new long[SEARCHES];
+            for (int i = 0; i < SEARCHES; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    /**
+     * Run a query and return the profiler entry of the find it issued
+     */
+    private static Document profiled(Supplier<?> call) {
+        call.get();
+        Query lastFind = Query.query(Criteria.where("ns").is(DATABASE + ".messages").and("op").is("query"))
+                .with(Sort.by(Sort.Direction.DESC, "ts"))
+                .limit(1);
+        return mongoTemplate.findOne(lastFind, Document.class, "system.profile");
+    }
+
+    private static long count(Document profile, String field) {
+        return ((Number) profile.get(field)).longValue();
+    }
+
+    private static String word(int index) {
+        return "term" + index;
+    }
+
+    private static Message message(long senderId, long recipientId, String content, int sequence) {
+        return Message.builder()
+                .conversationId(ConversationIds.direct(senderId, recipientId))
+                .senderId(senderId)
+                .recipientId(recipientId)
+                .content(content)
+                .type(Message.MessageType.TEXT)
+                .status(Message.MessageStatus.READ)
+                .createdAt(START.plusSeconds(sequence))
+                .build();
+    }
+}
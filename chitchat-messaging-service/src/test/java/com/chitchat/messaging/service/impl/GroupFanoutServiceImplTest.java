@@ -0,0 +1,178 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.client.NotificationServiceClient;
+import com.chitchat.messaging.client.UserProfileCache;
+import com.chitchat.messaging.client.UserServiceClient;
+import com.chitchat.messaging.document.Group;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.service.GroupMembershipService;
+import com.chitchat.messaging.service.WebSocketService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GroupFanoutServiceImplTest {
+
+    private static final String GROUP_ID = "65f1c0ffee00000000000001";
+    private static final long SENDER_ID = 1L;
+
+    private final GroupMembershipService groupMembershipService = mock(GroupMembershipService.class);
+    private final WebSocketService webSocketService = mock(WebSocketService.class);
+    private final NotificationServiceClient notificationClient = mock(NotificationServiceClient.class);
+    private final UserProfileCache userProfileCache = mock(UserProfileCache.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Runs every stage on the calling thread, so fanOut has finished when it returns
+    private final Executor direct = Runnable::run;
+
+    private GroupFanoutServiceImpl fanoutService;
+
+    @BeforeEach
+    void setUp() {
+        fanoutService = new GroupFanoutServiceImpl(groupMembershipService, webSocketService, notificationClient,
+                userProfileCache, meterRegistry, direct);
+        ReflectionTestUtils.setField(fanoutService, "chunkSize", 500);
+    }
+
+    @Test
+    void webSocketDeliveryIsChunkedAndSkipsTheSender() {
+        givenGroup(1_201);
+        when(webSocketService.sendMessageToUsers(any(), any())).thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+
+        fanoutService.fanOut(message(), response());
+
+        List<Collection<Long>> chunks = webSocketChunks(3);
+        assertEquals(List.of(500, 500, 200), chunks.stream().map(Collection::size).toList());
+        Set<Long> reached = chunks.stream().flatMap(Collection::stream).collect(Collectors.toSet());
+        assertEquals(1_200, reached.size());
+        assertFalse(reached.contains(SENDER_ID));
+    }
+
+    @Test
+    void everyoneOnlineMeansNoPushAndNoProfileLookup() {
+        givenGroup(20);
+        when(webSocketService.sendMessageToUsers(any(), any())).thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+
+        fanoutService.fanOut(message(), response());
+
+        verifyNoInteractions(notificationClient, userProfileCache);
+        assertEquals(19, meterRegistry.counter("chitchat.group.fanout.recipients", "channel", "websocket").count());
+    }
+
+    @Test
+    void offlineMembersAreNotifiedInChunks() {
+        givenGroup(1_201);
+        // Members with an even ID are connected somewhere
+        when(webSocketService.sendMessageToUsers(any(), any())).thenAnswer(invocation -> {
+            Collection<Long> chunk = invocation.getArgument(0);
+            return chunk.stream().filter(userId -> userId % 2 == 0).collect(Collectors.toSet());
+        });
+        when(userProfileCache.get(SENDER_ID)).thenReturn(user("Alice", "https://cdn.example/alice.png"));
+
+        fanoutService.fanOut(message(), response());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Long>> recipients = ArgumentCaptor.forClass(List.class);
+        verify(notificationClient, times(2)).sendGroupMessageNotification(recipients.capture(), eq("Alice in Team"),
+                eq("hello team"), eq(SENDER_ID), eq("m-1"), eq(GROUP_ID), eq("https://cdn.example/alice.png"));
+
+        List<Long> notified = new ArrayList<>();
+        recipients.getAllValues().forEach(notified::addAll);
+        assertEquals(List.of(500, 100), recipients.getAllValues().stream().map(List::size).toList());
+        assertEquals(600, new HashSet<>(notified).size());
+        assertFalse(notified.stream().anyMatch(userId -> userId % 2 == 0 || userId == SENDER_ID));
+
+        assertEquals(600, meterRegistry.counter("chitchat.group.fanout.recipients", "channel", "websocket").count());
+        assertEquals(600, meterRegistry.counter("chitchat.group.fanout.recipients", "channel", "push").count());
+        assertEquals(1, meterRegistry.get("chitchat.group.fanout.latency").tag("size", "1000+").timer().count());
+    }
+
+    @Test
+    void senderLookupFailureStillNotifies() {
+        givenGroup(3);
+        when(webSocketService.sendMessageToUsers(any(), any())).thenReturn(Set.of());
+        when(userProfileCache.get(SENDER_ID)).thenThrow(new IllegalStateException("user-service down"));
+
+        fanoutService.fanOut(message(), response());
+
+        verify(notificationClient).sendGroupMessageNotification(eq(List.of(2L, 3L)), eq("User in Team"),
+                anyString(), anyLong(), anyString(), anyString(), isNull());
+    }
+
+    @Test
+    void unknownGroupIsIgnored() {
+        when(groupMembershipService.getMembers(GROUP_ID)).thenReturn(null);
+
+        fanoutService.fanOut(message(), response());
+
+        verifyNoInteractions(webSocketService, notificationClient);
+    }
+
+    @Test
+    void senderAloneInTheGroupSendsNothing() {
+        givenGroup(1);
+
+        fanoutService.fanOut(message(), response());
+
+        verifyNoInteractions(webSocketService, notificationClient);
+    }
+
+    /**
+     * Group "Team" with members 1..size (the sender is member 1)
+     */
+    private void givenGroup(int size) {
+        List<Group.GroupMember> members = LongStream.rangeClosed(1, size)
+                .mapToObj(userId -> Group.GroupMember.builder().userId(userId).role(Group.GroupRole.MEMBER).build())
+                .toList();
+        Group group = Group.builder().id(GROUP_ID).name("Team").members(members).build();
+        when(groupMembershipService.getMembers(GROUP_ID)).thenReturn(GroupMembershipService.Members.of(group));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Collection<Long>> webSocketChunks(int count) {
+        ArgumentCaptor<Collection<Long>> chunks = ArgumentCaptor.forClass(Collection.class);
+        verify(webSocketService, times(count)).sendMessageToUsers(chunks.capture(), any());
+        return chunks.getAllValues();
+    }
+
+    private static Message message() {
+        return Message.builder().id("m-1").senderId(SENDER_ID).groupId(GROUP_ID).content("hello team").build();
+    }
+
+    private static MessageResponse response() {
+        return MessageResponse.builder().id("m-1").senderId(SENDER_ID).groupId(GROUP_ID).content("hello team").build();
+    }
+
+    private static UserServiceClient.UserDto user(String name, String avatarUrl) {
+        UserServiceClient.UserDto user = new UserServiceClient.UserDto();
+        user.setId(SENDER_ID);
+        user.setName(name);
+        user.setAvatarUrl(avatarUrl);
+        return user;
+    }
+}
@@ -0,0 +1,222 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.cluster.CacheInvalidationBus;
+import com.chitchat.messaging.document.Group;
+import com.chitchat.messaging.repository.GroupRepository;
+import com.chitchat.messaging.service.GroupMembershipService.Members;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GroupMembershipServiceImplTest {
+
+    private static final String GROUP_ID = "65f1c0ffee00000000000001";
+
+    private final GroupRepository groupRepository = mock(GroupRepository.class);
+    private final RecordingBus invalidationBus = new RecordingBus();
+    private GroupMembershipServiceImpl membershipService;
+
+    @BeforeEach
+    void setUp() {
+        membershipService = new GroupMembershipServiceImpl(groupRepository, invalidationBus, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(membershipService, "maxGroups", 100L);
+        ReflectionTestUtils.setField(membershipService, "maxUsers", 100L);
+        ReflectionTestUtils.setField(membershipService, "ttlMinutes", 10L);
+        membershipService.init();
+    }
+
+    @Test
+    void membersAreSortedDedupedAndDefaultToMemberRole() {
+        Members members = Members.of(group(member(3L, Group.GroupRole.ADMIN), member(1L, null), member(3L, Group.GroupRole.MEMBER),
+                member(null, Group.GroupRole.MEMBER), member(2L, Group.GroupRole.MODERATOR)));
+
+        assertEquals(List.of(1L, 2L, 3L), members.userIds());
+        assertEquals(Group.GroupRole.MEMBER, members.roleOf(1L));
+        assertTrue(members.isAdminOrModerator(2L));
+        assertTrue(members.isAdminOrModerator(3L));
+        assertFalse(members.contains(4L));
+        assertFalse(members.contains(null));
+    }
+
+    @Test
+    void withAndWithoutLeaveTheOriginalUntouched() {
+        Members original = Members.of(group(member(1L, Group.GroupRole.ADMIN), member(3L, Group.GroupRole.MEMBER)));
+
+        Members added = original.with(2L, null);
+        Members promoted = original.with(3L, Group.GroupRole.MODERATOR);
+        Members removed = original.without(1L);
+
+        assertEquals(List.of(1L, 3L), original.userIds());
+        assertEquals(Group.GroupRole.MEMBER, original.roleOf(3L));
+        assertEquals(List.of(1L, 2L, 3L), added.userIds());
+        assertEquals(Group.GroupRole.MEMBER, added.roleOf(2L));
+        assertEquals(Group.GroupRole.ADMIN, added.roleOf(1L));
+        assertEquals(Group.GroupRole.MODERATOR, promoted.roleOf(3L));
+        assertEquals(List.of(3L), removed.userIds());
+        assertSame(original, original.without(9L), "removing a non-member copies nothing");
+    }
+
+    @Test
+    void membersAreLoadedOnceAndMissingGroupsAreNotCached() {
+        when(groupRepository.findMembershipById(GROUP_ID)).thenReturn(Optional.of(group(member(1L, null))));
+        when(groupRepository.findMembershipById("missing")).thenReturn(Optional.empty());
+
+        membershipService.getMembers(GROUP_ID);
+        assertTrue(membershipService.isMember(GROUP_ID, 1L));
+        assertNull(membershipService.getMembers("missing"));
+        assertNull(membershipService.getMembers("missing"));
+
+        verify(groupRepository, times(1)).findMembershipById(GROUP_ID);
+        verify(groupRepository, times(2)).findMembershipById("missing");
+    }
+
+    @Test
+    void memberChangesAreAppliedToTheCachedEntryWithoutAReload() {
+        when(groupRepository.findMembershipById(GROUP_ID)).thenReturn(Optional.of(group(member(1L, Group.GroupRole.ADMIN))));
+        when(groupRepository.findIdsByUserId(2L)).thenReturn(List.of());
+        Members before = membershipService.getMembers(GROUP_ID);
+        assertEquals(Set.of(), membershipService.getGroupIds(2L));
+
+        membershipService.onMemberAdded(GROUP_ID, 2L, Group.GroupRole.MEMBER);
+
+        assertTrue(membershipService.isMember(GROUP_ID, 2L));
+        assertEquals(Set.of(GROUP_ID), membershipService.getGroupIds(2L));
+        assertEquals(List.of(1L), before.userIds(), "a snapshot handed out earlier never changes");
+
+        membershipService.onMemberRemoved(GROUP_ID, 2L);
+
+        assertFalse(membershipService.isMember(GROUP_ID, 2L));
+        assertEquals(Set.of(), membershipService.getGroupIds(2L));
+        verify(groupRepository, times(1)).findMembershipById(GROUP_ID);
+        verify(groupRepository, times(1)).findIdsByUserId(2L);
+        assertEquals(List.of("groupMembers:" + GROUP_ID, "userGroups:2", "groupMembers:" + GROUP_ID, "userGroups:2"),
+                invalidationBus.published);
+    }
+
+    @Test
+    void newGroupIsAddedToItsMembersCachedGroupSets() {
+        when(groupRepository.findIdsByUserId(1L)).thenReturn(List.of(Group.builder().id("other").build()));
+        membershipService.getGroupIds(1L);
+
+        membershipService.onGroupSaved(group(member(1L, Group.GroupRole.ADMIN), member(2L, null)));
+
+        assertEquals(Set.of("other", GROUP_ID), membershipService.getGroupIds(1L));
+        assertEquals(List.of(1L, 2L), membershipService.getMembers(GROUP_ID).userIds());
+        assertTrue(invalidationBus.published.containsAll(List.of("groupMembers:" + GROUP_ID, "userGroups:1", "userGroups:2")));
+    }
+
+    @Test
+    void invalidationFromAnotherNodeDropsTheEntry() {
+        when(groupRepository.findMembershipById(GROUP_ID))
+                .thenReturn(Optional.of(group(member(1L, null))))
+                .thenReturn(Optional.of(group(member(1L, null), member(2L, null))));
+        membershipService.getMembers(GROUP_ID);
+
+        invalidationBus.deliver("groupMembers", GROUP_ID);
+
+        assertTrue(membershipService.isMember(GROUP_ID, 2L));
+        verify(groupRepository, times(2)).findMembershipById(GROUP_ID);
+    }
+
+    @Test
+    void readersNeverSeeAHalfAppliedChange() throws Exception {
+        when(groupRepository.findMembershipById(GROUP_ID)).thenReturn(Optional.of(group(member(1L, Group.GroupRole.ADMIN))));
+        membershipService.getMembers(GROUP_ID);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                await(start);
+                for (long userId = 2; userId <= 2_000; userId++) {
+                    membershipService.onMemberAdded(GROUP_ID, userId, Group.GroupRole.MEMBER);
+                }
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                readers.add(executor.submit(() -> {
+                    await(start);
+                    for (int i = 0; i < 2_000; i++) {
+                        Members members = membershipService.getMembers(GROUP_ID);
+                        List<Long> userIds = members.userIds();
+                        // Every snapshot is a consistent prefix: 1..n in order, with the admin role intact
+                        for (int k = 0; k < userIds.size(); k++) {
+                            assertEquals(k + 1L, userIds.get(k));
+                        }
+                        assertEquals(Group.GroupRole.ADMIN, members.roleOf(1L));
+                    }
+                }));
+            }
+            start.countDown();
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2_000, membershipService.getMembers(GROUP_ID).size());
+    }
+
+    private static Group group(Group.GroupMember... members) {
+        return Group.builder().id(GROUP_ID).name("Team").members(List.of(members)).build();
+    }
+
+    private static Group.GroupMember member(Long userId, Group.GroupRole role) {
+        return Group.GroupMember.builder().userId(userId).role(role).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records published keys and lets a test deliver an invalidation as if it came from another node
+     */
+    private static class RecordingBus implements CacheInvalidationBus {
+        final List<String> published = new ArrayList<>();
+        final Map<String, Consumer<String>> handlers = new HashMap<>();
+
+        @Override
+        public void publish(String cacheName, String key) {
+            published.add(cacheName + ":" + key);
+        }
+
+        @Override
+        public void subscribe(String cacheName, Consumer<String> handler) {
+            handlers.put(cacheName, handler);
+        }
+
+        void deliver(String cacheName, String key) {
+            handlers.get(cacheName).accept(key);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.client.NotificationServiceClient;
+import com.chitchat.messaging.client.UserProfileCache;
+import com.chitchat.messaging.document.Conversation;
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.dto.CursorPage;
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.dto.ReadWatermarkResponse;
+import com.chitchat.messaging.repository.GroupRepository;
+import com.chitchat.messaging.repository.MessageRepository;
+import com.chitchat.messaging.service.ConversationSummaryService;
+import com.chitchat.messaging.service.GroupFanoutService;
+import com.chitchat.messaging.service.GroupMembershipService;
+import com.chitchat.messaging.service.OutboxService;
+import com.chitchat.messaging.service.UnreadCounterService;
+import com.chitchat.messaging.service.WebSocketService;
+import com.chitchat.messaging.util.ConversationIds;
+import com.chitchat.messaging.util.MessageCursor;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Direct-chat read state comes from the read watermark: reads write the watermark only
+ */
+class MessagingServiceImplReadTest {
+
+    private static final long READER_ID = 2L;
+    private static final long PARTNER_ID = 1L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationSummaryService conversationSummaryService = mock(ConversationSummaryService.class);
+    private final UnreadCounterService unreadCounterService = mock(UnreadCounterService.class);
+    private final ApplicationContext applicationContext = mock(ApplicationContext.class);
+
+    private MessagingServiceImpl messagingService;
+
+    @BeforeEach
+    void setUp() {
+        messagingService = new MessagingServiceImpl(messageRepository, mock(GroupRepository.class),
+                mock(OutboxService.class), mock(NotificationServiceClient.class), mock(UserProfileCache.class),
+                mock(ApplicationEventPublisher.class), unreadCounterService, conversationSummaryService,
+                mock(GroupFanoutService.class), mock(GroupMembershipService.class), mock(WebSocketService.class),
+                mock(CacheManager.class), applicationContext);
+        Executor direct = Runnable::run;
+        when(applicationContext.getBean(anyString(), eq(Executor.class))).thenReturn(direct);
+    }
+
+    @Test
+    void readUpToWritesTheWatermarkAndNoMessageStatus() {
+        Message upTo = fromPartner(10);
+        when(messageRepository.findById(upTo.getId())).thenReturn(Optional.of(upTo));
+        when(messageRepository.countUnreadFromSender(READER_ID, PARTNER_ID, MessageCursor.of(upTo))).thenReturn(3L);
+        when(conversationSummaryService.onReadUpTo(READER_ID, upTo, 3L)).thenReturn(true);
+
+        ReadWatermarkResponse response = messagingService.markConversationReadUpTo(READER_ID, upTo.getId());
+
+        assertTrue(response.isAdvanced());
+        assertEquals(3L, response.getUnreadCount());
+        verify(messageRepository, never()).updateStatus(anyCollection(), anyCollection(), any(), any());
+        verify(unreadCounterService).set(READER_ID, PARTNER_ID, 3L);
+    }
+
+    @Test
+    void readingOneMessageMovesTheWatermarkInsteadOfItsStatus() {
+        Message message = fromPartner(5);
+        when(messageRepository.findById(message.getId())).thenReturn(Optional.of(message));
+        when(messageRepository.countUnreadFromSender(READER_ID, PARTNER_ID, MessageCursor.of(message))).thenReturn(0L);
+        when(conversationSummaryService.onReadUpTo(READER_ID, message, 0L)).thenReturn(true);
+
+        MessageResponse response = messagingService.markMessageAsRead(message.getId(), READER_ID);
+
+        assertEquals(Message.MessageStatus.READ, response.getStatus());
+        verify(conversationSummaryService).onReadUpTo(READER_ID, message, 0L);
+        verify(messageRepository, never()).updateStatus(anyCollection(), anyCollection(), any(), any());
+    }
+
+    @Test
+    void pendingReplaySkipsMessagesCoveredByTheWatermarkAndFillsTheBatch() {
+        Message read1 = fromPartner(1);
+        Message read2 = fromPartner(2);
+        Message unread3 = fromPartner(3);
+        Message unread4 = fromPartner(4);
+        when(messageRepository.findPendingSlice(eq(READER_ID), isNull(), eq(2))).thenReturn(List.of(read1, read2));
+        when(messageRepository.findPendingSlice(READER_ID, MessageCursor.of(read2), 2)).thenReturn(List.of(unread3, unread4));
+        when(conversationSummaryService.getReadMarks(eq(READER_ID), anyCollection()))
+                .thenReturn(Map.of(conversationId(), mark(read2)));
+
+        List<MessageResponse> batch = messagingService.getPendingMessageBatch(READER_ID, null, 2);
+
+        assertEquals(List.of(unread3.getId(), unread4.getId()), batch.stream().map(MessageResponse::getId).toList());
+        verify(messageRepository).updateStatus(eq(List.of(read1.getId(), read2.getId())),
+                eq(List.of(Message.MessageStatus.SENT)), eq(Message.MessageStatus.DELIVERED), any(LocalDateTime.class));
+    }
+
+    @Test
+    void historyShowsMessagesUpToTheRecipientsWatermarkAsRead() {
+        Message read = fromPartner(1);
+        Message unread = fromPartner(2);
+        when(messageRepository.findConversationSlice(eq(READER_ID), eq(PARTNER_ID), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(unread, read));
+        when(conversationSummaryService.getReadMarks(conversationId()))
+                .thenReturn(Map.of(String.valueOf(READER_ID), mark(read)));
+
+        CursorPage<MessageResponse> page = messagingService.getConversationHistory(READER_ID, PARTNER_ID, null, null, 50);
+
+        assertEquals(Message.MessageStatus.SENT, page.getItems().get(0).getStatus());
+        assertEquals(Message.MessageStatus.READ, page.getItems().get(1).getStatus());
+    }
+
+    private static Message fromPartner(int second) {
+        return Message.builder()
+                .id(new ObjectId().toHexString())
+                .conversationId(conversationId())
+                .senderId(PARTNER_ID)
+                .recipientId(READER_ID)
+                .content("message " + second)
+                .type(Message.MessageType.TEXT)
+                .status(Message.MessageStatus.SENT)
+                .createdAt(START.plusSeconds(second))
+                .build();
+    }
+
+    private static Conversation.ReadMark mark(Message message) {
+        return Conversation.ReadMark.builder()
+                .messageId(message.getId())
+                .messageCreatedAt(message.getCreatedAt())
+                .readAt(message.getCreatedAt().plusMinutes(1))
+                .build();
+    }
+
+    private static String conversationId() {
+        return ConversationIds.direct(READER_ID, PARTNER_ID);
+    }
+}
@@ -0,0 +1,374 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.document.OutboxEvent;
+import com.chitchat.shared.event.ChatEvent;
+import com.chitchat.shared.event.ClasspathSchemaRegistry;
+import com.chitchat.shared.event.EventCodec;
+import com.chitchat.shared.event.MessageCreated;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox relay against a real MongoDB: claiming, retry backoff and per-key ordering
+ *
+ * Kafka is a mock that records what was sent. Each test drives the relay one
+ * batch at a time (relayBatch) instead of through the background thread.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OutboxServiceImplTest {
+
+    private static final String DATABASE = "chitchat";
+    private static final String TOPIC = "message-events";
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+
+    private MongoTemplate mongoTemplate;
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+    private final EventCodec eventCodec = new EventCodec(new ClasspathSchemaRegistry());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Payloads (as UTF-8) in the order they were handed to Kafka, and the payloads whose send fails
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    private final List<byte[]> binarySent = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> failing = Collections.synchronizedSet(new HashSet<>());
+
+    private OutboxServiceImpl outbox;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl(DATABASE));
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = spy(new MongoTemplate(client, DATABASE));
+        mongoTemplate.dropCollection(OutboxEvent.class);
+        mongoTemplate.dropCollection(Message.class);
+        when(kafkaTemplate.send(eq(TOPIC), any(), any(byte[].class))).thenAnswer(invocation -> {
+            byte[] value = invocation.getArgument(2);
+            binarySent.add(value);
+            String payload = new String(value, StandardCharsets.UTF_8);
+            sent.add(payload);
+            return failing.contains(payload)
+                    ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                    : CompletableFuture.completedFuture(null);
+        });
+        outbox = relay(mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.shutdown();
+    }
+
+    @Test
+    void appendedEventsArePublishedInOrderAndDeleted() {
+        outbox.append(TOPIC, "c1", Map.of("n", 1));
+        outbox.append(TOPIC, "c2", Map.of("n", 2));
+        outbox.append(TOPIC, null, Map.of("n", 3));
+
+        assertEquals(3, relayBatch());
+
+        assertEquals(List.of("{\"n\":1}", "{\"n\":2}", "{\"n\":3}"), sent);
+        assertEquals(0, mongoTemplate.count(new Query(), OutboxEvent.class));
+        assertEquals(3, meterRegistry.counter("chitchat.outbox.events", "result", "published").count());
+        assertEquals(0, relayBatch());
+    }
+
+    @Test
+    void failedEventBacksOffAndHoldsTheLaterEventsOfItsKey() {
+        append("c1", "a1");
+        append("c1", "a2");
+        append("c2", "b1");
+        failing.add("a1");
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        relayBatch();
+
+        assertEquals(List.of("a1", "a2", "b1"), sent);
+        OutboxEvent a1 = stored("a1");
+        assertEquals(1, a1.getAttempts());
+        assertFalse(a1.getNextAttemptAt().isBefore(before.plusMillis(200)), "retried after a backoff");
+        assertNull(a1.getClaimToken());
+        OutboxEvent a2 = stored("a2");
+        assertNotNull(a2, "a2 waits for a1 even though Kafka accepted it");
+        assertEquals(0, a2.getAttempts(), "a held event is not counted as a failed attempt");
+        assertNull(a2.getClaimedUntil());
+        assertNull(stored("b1"));
+        assertEquals(1, meterRegistry.counter("chitchat.outbox.events", "result", "failed").count());
+    }
+
+    @Test
+    void keyBackingOffIsNotClaimedUntilItsOldestEventIsDue() {
+        append("c1", "a1");
+        append("c1", "a2");
+        failing.add("a1");
+        relayBatch();
+        // Keep a1 backing off for the whole test, whatever the first backoff was
+        retryAt("a1", Instant.now().plusSeconds(3600));
+        failing.clear();
+        sent.clear();
+
+        append("c2", "b1");
+        relayBatch();
+        assertEquals(List.of("b1"), sent, "a2 must not overtake a1");
+
+        retryAt("a1", Instant.now().minusSeconds(1));
+        relayBatch();
+        assertEquals(List.of("b1", "a1", "a2"), sent);
+        assertEquals(0, mongoTemplate.count(new Query(), OutboxEvent.class));
+    }
+
+    @Test
+    void unkeyedEventsAreNotHeldByAFailure() {
+        append(null, "x1");
+        append(null, "x2");
+        failing.add("x1");
+
+        relayBatch();
+
+        assertNotNull(stored("x1"));
+        assertNull(stored("x2"));
+    }
+
+    @Test
+    void keyHeldByAnotherRelayWaitsUntilItsLeaseEnds() {
+        append("c1", "a1");
+        append("c1", "a2");
+        claimByOtherRelay("a1", Instant.now().plusSeconds(30));
+
+        assertEquals(0, relayBatch());
+        assertTrue(sent.isEmpty());
+
+        // The other relay crashed: its lease runs out and the events are taken over, in order
+        claimByOtherRelay("a1", Instant.now().minusSeconds(1));
+        assertEquals(2, relayBatch());
+        assertEquals(List.of("a1", "a2"), sent);
+    }
+
+    @Test
+    void eventsClaimedBehindAnotherRelaysOlderEventAreGivenBack() {
+        append("c1", "a1");
+        append("c1", "a2");
+        append("c2", "b1");
+        // The other relay claims a1 right after this relay looked for busy keys
+        doReturn(List.of()).when(mongoTemplate).findDistinct(any(Query.class), eq("key"), eq(OutboxEvent.class), eq(String.class));
+        claimByOtherRelay("a1", Instant.now().plusSeconds(30));
+
+        relayBatch();
+
+        assertEquals(List.of("b1"), sent);
+        OutboxEvent a2 = stored("a2");
+        assertNull(a2.getClaimToken(), "released for the holder of a1 to follow up");
+        assertEquals(0, a2.getAttempts());
+    }
+
+    @Test
+    void sendNotAcknowledgedWithinTheLeaseIsRetried() {
+        ReflectionTestUtils.setField(outbox, "leaseSeconds", 1L);
+        append("c1", "a1");
+        when(kafkaTemplate.send(eq(TOPIC), eq("c1"), aryEq(utf8("a1")))).thenReturn(new CompletableFuture<>());
+
+        relayBatch();
+
+        OutboxEvent a1 = stored("a1");
+        assertEquals(1, a1.getAttempts());
+        assertNull(a1.getClaimToken());
+    }
+
+    @Test
+    void eventsStagedOnAMessageAreWrittenWithItAndMovedOnDispatch() {
+        Message message = message();
+        outbox.stage(message, TOPIC, "c1", Map.of("n", 1));
+        mongoTemplate.insert(message);
+
+        assertEquals(1, mongoTemplate.findById(message.getId(), Message.class).getPendingEvents().size(),
+                "the event is part of the message write");
+        assertEquals(0, mongoTemplate.count(new Query(), OutboxEvent.class));
+
+        String eventId = message.getPendingEvents().get(0).getId();
+        outbox.dispatch(message);
+
+        assertNull(message.getPendingEvents(), "a later save of the instance does not stage it again");
+        assertTrue(mongoTemplate.findById(message.getId(), Message.class).getPendingEvents().isEmpty());
+        assertNotNull(mongoTemplate.findById(eventId, OutboxEvent.class), "moved with the ID given at staging");
+        assertEquals(1, relayBatch());
+        assertEquals(List.of("{\"n\":1}"), sent);
+    }
+
+    @Test
+    void chatEventsArePublishedInTheBinaryEventEncoding() {
+        Message message = message();
+        MessageCreated created = new MessageCreated(message.getId(), "c1", 1L, 2L, null, "TEXT", "hi",
+                null, null, Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        outbox.stage(message, TOPIC, "c1", created);
+        mongoTemplate.insert(message);
+
+        outbox.dispatch(message);
+        relayBatch();
+
+        assertEquals(1, binarySent.size());
+        ChatEvent published = eventCodec.decode(binarySent.get(0));
+        assertEquals(created, published);
+    }
+
+    @Test
+    void stagedEventsKeepTheirPlaceInAppendOrder() {
+        Message message = message();
+        outbox.stage(message, TOPIC, "c1", Map.of("n", 1));
+        mongoTemplate.insert(message);
+        append("c1", "{\"n\":2}");
+
+        outbox.dispatch(message);
+        relayBatch();
+
+        assertEquals(List.of("{\"n\":1}", "{\"n\":2}"), sent);
+    }
+
+    @Test
+    void eventsLeftOnAMessageAreSweptByTheRelay() {
+        ReflectionTestUtils.setField(outbox, "stagedGraceSeconds", 0L);
+        Message message = message();
+        outbox.stage(message, TOPIC, "c1", Map.of("n", 1));
+        mongoTemplate.insert(message);
+        // The node crashed before dispatch
+
+        assertEquals(1, sweepStaged());
+        assertEquals(0, sweepStaged(), "swept messages no longer have staged events");
+        // A dispatch that comes late anyway does not duplicate the event
+        outbox.dispatch(message);
+
+        assertEquals(1, mongoTemplate.count(new Query(), OutboxEvent.class));
+        assertEquals(1, relayBatch());
+        assertEquals(List.of("{\"n\":1}"), sent);
+    }
+
+    @Test
+    void recentlyStagedEventsAreLeftToTheirDispatch() {
+        Message message = message();
+        outbox.stage(message, TOPIC, "c1", Map.of("n", 1));
+        mongoTemplate.insert(message);
+
+        assertEquals(0, sweepStaged());
+        assertEquals(0, mongoTemplate.count(new Query(), OutboxEvent.class));
+    }
+
+    private OutboxServiceImpl relay(MongoTemplate template) {
+        OutboxServiceImpl relay = new OutboxServiceImpl(template, kafkaTemplate, eventCodec, meterRegistry);
+        ReflectionTestUtils.setField(relay, "batchSize", 100);
+        ReflectionTestUtils.setField(relay, "pollIntervalMs", 200L);
+        ReflectionTestUtils.setField(relay, "leaseSeconds", 30L);
+        ReflectionTestUtils.setField(relay, "stagedGraceSeconds", 30L);
+        relay.init();
+        // Stop the background relay; the tests run the batches themselves
+        relay.shutdown();
+        return relay;
+    }
+
+    private int relayBatch() {
+        Integer claimed = ReflectionTestUtils.invokeMethod(outbox, "relayBatch");
+        return claimed != null ? claimed : 0;
+    }
+
+    private int sweepStaged() {
+        Integer swept = ReflectionTestUtils.invokeMethod(outbox, "sweepStaged");
+        return swept != null ? swept : 0;
+    }
+
+    private static Message message() {
+        return Message.builder()
+                .id(new ObjectId().toHexString())
+                .senderId(1L)
+                .recipientId(2L)
+                .content("hello")
+                .build();
+    }
+
+    /**
+     * Append an event whose JSON payload is the given string literal
+     */
+    private static byte[] utf8(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void append(String key, String payload) {
+        Instant now = Instant.now();
+        mongoTemplate.insert(OutboxEvent.builder()
+                .topic(TOPIC)
+                .key(key)
+                .payload(payload)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build());
+    }
+
+    private OutboxEvent stored(String payload) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("payload").is(payload))
+                .with(Sort.by(Sort.Direction.ASC, "_id")), OutboxEvent.class);
+    }
+
+    private void retryAt(String payload, Instant nextAttemptAt) {
+        OutboxEvent event = stored(payload);
+        event.setNextAttemptAt(nextAttemptAt);
+        mongoTemplate.save(event);
+    }
+
+    private void claimByOtherRelay(String payload, Instant until) {
+        OutboxEvent event = stored(payload);
+        event.setClaimToken("other-relay");
+        event.setClaimedUntil(until);
+        mongoTemplate.save(event);
+    }
+}
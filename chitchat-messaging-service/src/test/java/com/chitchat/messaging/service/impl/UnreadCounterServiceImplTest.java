@@ -0,0 +1,242 @@
+package com.chitchat.messaging.service.impl;
+
+import com.chitchat.messaging.document.Conversation;
+import com.chitchat.messaging.service.ConversationSummaryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UnreadCounterServiceImpl against a real Redis, so the Lua scripts run as in production
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UnreadCounterServiceImplTest {
+
+    private static final String KEY = "chitchat:unread:1";
+    private static final String RECONCILE_KEY = "chitchat:unread:reconcile";
+    private static final long USER_ID = 1L;
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7.2-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final ConversationSummaryService conversationSummaryService = mock(ConversationSummaryService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UnreadCounterServiceImpl unreadCounterService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        unreadCounterService = new UnreadCounterServiceImpl(conversationSummaryService, redisTemplate, meterRegistry);
+        ReflectionTestUtils.setField(unreadCounterService, "reconcileIntervalSeconds", 600L);
+        ReflectionTestUtils.setField(unreadCounterService, "reconcileBatchSize", 200);
+        ReflectionTestUtils.setField(unreadCounterService, "idleTtlHours", 168L);
+    }
+
+    @Test
+    void missingHashIsSeededFromDirectConversations() {
+        givenReadModel(direct(2L, 3), direct(3L, 0), group(5));
+
+        assertEquals(3, unreadCounterService.getTotalUnread(USER_ID));
+
+        assertEquals(Map.of("2", "3", "total", "3"), hash());
+        assertNotNull(redisTemplate.opsForZSet().score(RECONCILE_KEY, "1"), "seeded users are reconciled");
+        Long ttl = redisTemplate.getExpire(KEY);
+        assertTrue(ttl != null && ttl > 0, "idle hashes expire");
+    }
+
+    @Test
+    void emptySeedStillMarksTheHashAsSeeded() {
+        givenReadModel();
+
+        assertEquals(0, unreadCounterService.getTotalUnread(USER_ID));
+        assertEquals(0, unreadCounterService.getTotalUnread(USER_ID));
+
+        assertEquals(Map.of("total", "0"), hash());
+        verify(conversationSummaryService, times(1)).getConversations(USER_ID);
+    }
+
+    @Test
+    void changesToAnUnseededUserAreSkipped() {
+        unreadCounterService.increment(USER_ID, 2L);
+        unreadCounterService.decrement(USER_ID, 2L, 1);
+        unreadCounterService.set(USER_ID, 2L, 4);
+
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(KEY)));
+    }
+
+    @Test
+    void incrementMovesTheSenderAndTheTotalTogether() {
+        seed(Map.of(2L, 3L));
+
+        unreadCounterService.increment(USER_ID, 2L);
+        unreadCounterService.increment(USER_ID, 4L);
+
+        assertEquals(Map.of(2L, 4L, 4L, 1L), unreadCounterService.getUnreadBySender(USER_ID));
+        assertEquals(5, unreadCounterService.getTotalUnread(USER_ID));
+        assertEquals(1, unreadCounterService.getUnreadFrom(USER_ID, 4L));
+    }
+
+    @Test
+    void decrementNeverGoesBelowZero() {
+        seed(Map.of(2L, 3L, 3L, 2L));
+
+        unreadCounterService.decrement(USER_ID, 2L, 10);
+        unreadCounterService.decrement(USER_ID, 9L, 1);
+
+        assertEquals(Map.of("3", "2", "total", "2"), hash(), "the sender's field is removed at zero");
+        assertEquals(0, unreadCounterService.getUnreadFrom(USER_ID, 2L));
+    }
+
+    @Test
+    void setAdjustsTheTotalByTheDifference() {
+        seed(Map.of(2L, 3L, 3L, 2L));
+
+        unreadCounterService.set(USER_ID, 2L, 5);
+        assertEquals(7, unreadCounterService.getTotalUnread(USER_ID));
+
+        unreadCounterService.set(USER_ID, 3L, 0);
+        unreadCounterService.set(USER_ID, 4L, -3);
+        assertEquals(Map.of("2", "5", "total", "5"), hash());
+    }
+
+    @Test
+    void totalIsClampedAtZeroIfItDrifted() {
+        seed(Map.of(2L, 3L));
+        redisTemplate.opsForHash().put(KEY, "total", "1");
+
+        unreadCounterService.decrement(USER_ID, 2L, 3);
+
+        assertEquals("0", redisTemplate.opsForHash().get(KEY, "total"));
+    }
+
+    @Test
+    void reconcileRebuildsDueHashesFromTheReadModel() {
+        seed(Map.of(2L, 3L));
+        unreadCounterService.increment(USER_ID, 2L);
+        // The read model says 3 (the increment was, say, for a message that failed to save)
+        makeDue("1");
+
+        unreadCounterService.reconcile();
+
+        assertEquals(Map.of("2", "3", "total", "3"), hash());
+        assertEquals(1, meterRegistry.counter("chitchat.unread.reconciled", "result", "corrected").count());
+
+        makeDue("1");
+        unreadCounterService.reconcile();
+        assertEquals(1, meterRegistry.counter("chitchat.unread.reconciled", "result", "in_sync").count());
+    }
+
+    @Test
+    void claimedUsersAreNotReconciledAgainUntilDue() {
+        seed(Map.of(2L, 3L));
+        makeDue("1");
+
+        unreadCounterService.reconcile();
+        unreadCounterService.reconcile();
+
+        // Once for the seed, once for the single reconciliation
+        verify(conversationSummaryService, times(2)).getConversations(USER_ID);
+    }
+
+    @Test
+    void expiredHashesLeaveTheReconcileSet() {
+        makeDue("9");
+
+        unreadCounterService.reconcile();
+
+        assertNull(redisTemplate.opsForZSet().score(RECONCILE_KEY, "9"));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("chitchat:unread:9")), "reconcile does not re-seed");
+    }
+
+    @Test
+    void evictDropsTheHashAndItsReconcileEntry() {
+        seed(Map.of(2L, 3L));
+
+        unreadCounterService.evict(USER_ID);
+
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(KEY)));
+        assertNull(redisTemplate.opsForZSet().score(RECONCILE_KEY, "1"));
+    }
+
+    /**
+     * Seed user 1's hash with the given unread counts per sender
+     */
+    private void seed(Map<Long, Long> countsBySender) {
+        givenReadModel(countsBySender.entrySet().stream()
+                .map(entry -> direct(entry.getKey(), entry.getValue()))
+                .toArray(Conversation[]::new));
+        unreadCounterService.getTotalUnread(USER_ID);
+    }
+
+    private void givenReadModel(Conversation... conversations) {
+        when(conversationSummaryService.getConversations(USER_ID)).thenReturn(List.of(conversations));
+    }
+
+    private void makeDue(String userId) {
+        redisTemplate.opsForZSet().add(RECONCILE_KEY, userId, 0);
+    }
+
+    private Map<Object, Object> hash() {
+        return redisTemplate.opsForHash().entries(KEY);
+    }
+
+    private static Conversation direct(Long partnerId, long unread) {
+        return Conversation.builder()
+                .type(Conversation.ConversationType.INDIVIDUAL)
+                .participantIds(List.of(USER_ID, partnerId))
+                .unreadCounts(Map.of(String.valueOf(USER_ID), unread, String.valueOf(partnerId), 0L))
+                .build();
+    }
+
+    private static Conversation group(long unread) {
+        return Conversation.builder()
+                .type(Conversation.ConversationType.GROUP)
+                .groupId("g-1")
+                .participantIds(List.of(USER_ID, 2L, 3L))
+                .unreadCounts(Map.of(String.valueOf(USER_ID), unread))
+                .build();
+    }
+}
@@ -0,0 +1,159 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.util.MessageCursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeliveryStreamTest {
+
+    private static final long NOW = 1_000_000L;
+    private static final long RESUME_WINDOW = 120_000L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Test
+    void appendAssignsIncreasingSeqs() {
+        DeliveryStream stream = stream(8);
+
+        assertEquals(1, stream.append(message(1), null).seq());
+        assertEquals(2, stream.append(message(2), null).seq());
+        assertEquals(2, stream.getLastSeq());
+    }
+
+    @Test
+    void resumeGapIsServedFromTheBuffer() {
+        DeliveryStream stream = stream(8);
+        for (int i = 1; i <= 5; i++) {
+            stream.append(message(i), null);
+        }
+
+        assertEquals(List.of(3L, 4L, 5L), seqs(stream.entriesAfter(2)));
+        assertTrue(stream.entriesAfter(5).isEmpty(), "client is up to date");
+        assertEquals(5, stream.entriesAfter(0).size());
+    }
+
+    @Test
+    void resumeGapIsUncoveredOnceOlderEntriesAreEvicted() {
+        DeliveryStream stream = stream(3);
+        for (int i = 1; i <= 5; i++) {
+            stream.append(message(i), null);
+        }
+
+        assertNull(stream.entriesAfter(1), "seq 2 was evicted");
+        assertEquals(List.of(3L, 4L, 5L), seqs(stream.entriesAfter(2)));
+    }
+
+    @Test
+    void seqAheadOfTheStreamIsNotCovered() {
+        DeliveryStream stream = stream(8);
+        stream.append(message(1), null);
+
+        // A seq from another stream (another node or an evicted stream)
+        assertNull(stream.entriesAfter(7));
+    }
+
+    @Test
+    void ackIsCumulativeAndReportsEachMessageOnce() {
+        DeliveryStream stream = stream(8);
+        stream.attach("s1", 0);
+        for (int i = 1; i <= 4; i++) {
+            stream.append(message(i), null);
+        }
+
+        assertEquals(List.of("m1", "m2"), ids(stream.acknowledge("s1", 2)));
+        assertTrue(stream.acknowledge("s1", 2).isEmpty());
+        assertTrue(stream.acknowledge("s1", 1).isEmpty(), "an older ACK is ignored");
+        assertEquals(List.of("m3", "m4"), ids(stream.acknowledge("s1", 99)), "capped at the last seq");
+    }
+
+    @Test
+    void ackFromADetachedSessionIsIgnored() {
+        DeliveryStream stream = stream(8);
+        stream.append(message(1), null);
+
+        assertTrue(stream.acknowledge("s1", 1).isEmpty());
+
+        stream.attach("s1", 0);
+        stream.detach("s1", NOW);
+        assertTrue(stream.acknowledge("s1", 1).isEmpty());
+    }
+
+    @Test
+    void sessionOnlyAcknowledgesWhatItWasQueuedAfterAttaching() {
+        DeliveryStream stream = stream(8);
+        stream.attach("s1", 0);
+        stream.append(message(1), null);
+        stream.append(message(2), null);
+        stream.attach("s2", 2);
+        stream.append(message(3), null);
+
+        assertEquals(List.of("m3"), ids(stream.acknowledge("s2", 3)));
+        assertEquals(List.of("m1", "m2"), ids(stream.acknowledge("s1", 3)), "m3 was acknowledged by s2");
+    }
+
+    @Test
+    void exclusiveReplayIsOnlyAcknowledgedByItsSession() {
+        DeliveryStream stream = stream(8);
+        stream.attach("s1", 0);
+        stream.attach("s2", 0);
+        stream.append(message(1), "s1");
+        stream.append(message(2), null);
+
+        assertEquals(List.of("m2"), ids(stream.acknowledge("s2", 2)));
+        assertEquals(List.of("m1"), ids(stream.acknowledge("s1", 2)));
+    }
+
+    @Test
+    void highWaterIsTheNewestPositionAppended() {
+        DeliveryStream stream = stream(8);
+        stream.append(message(2), null);
+        // A backlog replay can append an older message after a newer one
+        stream.append(message(1), null);
+        stream.append(MessageResponse.builder().content("no id yet").build(), null);
+
+        assertEquals(new MessageCursor(START.plusSeconds(2), "m2"), stream.getHighWater());
+    }
+
+    @Test
+    void streamExpiresOnlyAfterTheResumeWindowWithNoSession() {
+        DeliveryStream stream = stream(8);
+        assertFalse(stream.isExpired(NOW + RESUME_WINDOW - 1, RESUME_WINDOW));
+        assertTrue(stream.isExpired(NOW + RESUME_WINDOW, RESUME_WINDOW), "never attached");
+
+        stream.attach("s1", 0);
+        stream.attach("s2", 0);
+        stream.detach("s1", NOW + 10);
+        assertFalse(stream.isExpired(NOW + 10 * RESUME_WINDOW, RESUME_WINDOW), "s2 is still attached");
+
+        stream.detach("s2", NOW + 20);
+        assertFalse(stream.isExpired(NOW + 20 + RESUME_WINDOW - 1, RESUME_WINDOW));
+        assertTrue(stream.isExpired(NOW + 20 + RESUME_WINDOW, RESUME_WINDOW));
+    }
+
+    private static DeliveryStream stream(int capacity) {
+        return new DeliveryStream("stream-1", capacity, NOW);
+    }
+
+    private static MessageResponse message(int n) {
+        return MessageResponse.builder()
+                .id("m" + n)
+                .content("message " + n)
+                .createdAt(START.plusSeconds(n))
+                .build();
+    }
+
+    private static List<Long> seqs(List<DeliveryStream.Entry> entries) {
+        return entries.stream().map(DeliveryStream.Entry::seq).toList();
+    }
+
+    private static List<String> ids(List<MessageResponse> messages) {
+        return messages.stream().map(MessageResponse::getId).toList();
+    }
+}
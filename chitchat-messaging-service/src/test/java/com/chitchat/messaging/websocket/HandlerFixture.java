@@ -0,0 +1,92 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.cluster.ClusterNode;
+import com.chitchat.messaging.cluster.InMemoryNodeMessageBus;
+import com.chitchat.messaging.cluster.InMemoryPresenceRegistry;
+import com.chitchat.messaging.presence.PresenceAudience;
+import com.chitchat.messaging.service.MessagingService;
+import com.chitchat.messaging.service.UnreadCounterService;
+import com.chitchat.messaging.websocket.protocol.WebSocketFrameCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * A MessageWebSocketHandler on a single node, with the application defaults
+ * except a short presence flap window (pending presence flushes delay shutdown)
+ *
+ * Cluster routing is in-memory, the services behind the handler are mocks
+ * (MessagingService returns empty results unless stubbed).
+ */
+class HandlerFixture implements AutoCloseable {
+
+    // Built like the application's mapper (a plain ObjectMapper, which the codec copies for CBOR)
+    final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    final WebSocketFrameCodec codec = new WebSocketFrameCodec(objectMapper);
+    final ClusterNode clusterNode = new ClusterNode("node-a");
+    final InMemoryPresenceRegistry presenceRegistry = new InMemoryPresenceRegistry(clusterNode);
+    final InMemoryNodeMessageBus nodeMessageBus = new InMemoryNodeMessageBus(clusterNode);
+    final PresenceAudience presenceAudience = mock(PresenceAudience.class);
+    final UnreadCounterService unreadCounterService = mock(UnreadCounterService.class);
+    final MessagingService messagingService = mock(MessagingService.class);
+    final MessageWebSocketHandler handler;
+
+    private final AtomicInteger sessionIds = new AtomicInteger();
+
+    HandlerFixture() {
+        this(256, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+    }
+
+    HandlerFixture(int queueCapacity, SessionOutboundQueue.OverflowPolicy overflowPolicy) {
+        handler = new MessageWebSocketHandler(objectMapper, codec, clusterNode, presenceRegistry, nodeMessageBus,
+                presenceAudience, unreadCounterService);
+        ReflectionTestUtils.setField(handler, "presenceFlapWindowMs", 100L);
+        ReflectionTestUtils.setField(handler, "typingStopDebounceMs", 1500L);
+        ReflectionTestUtils.setField(handler, "typingExpiryMs", 6000L);
+        ReflectionTestUtils.setField(handler, "conversationUpdateFlushMs", 250L);
+        ReflectionTestUtils.setField(handler, "pendingReplayBatchSize", 100);
+        ReflectionTestUtils.setField(handler, "retransmitBufferSize", 512);
+        ReflectionTestUtils.setField(handler, "resumeWindowSeconds", 120L);
+        ReflectionTestUtils.setField(handler, "sendTimeLimitMs", 10_000L);
+        ReflectionTestUtils.setField(handler, "outboundQueueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(handler, "outboundOverflowPolicy", overflowPolicy);
+        handler.setMessagingService(messagingService);
+        handler.init();
+    }
+
+    /**
+     * Open a session that identifies its user in the URL, as mobile and web clients do
+     */
+    TestWebSocketSession connect(long userId) throws Exception {
+        return connect("userId=" + userId);
+    }
+
+    TestWebSocketSession connect(String query) throws Exception {
+        TestWebSocketSession session = new TestWebSocketSession("s" + sessionIds.incrementAndGet(), query);
+        handler.afterConnectionEstablished(session);
+        return session;
+    }
+
+    /**
+     * Client-side close: the container closes the session, then notifies the handler
+     */
+    void disconnect(TestWebSocketSession session) throws Exception {
+        session.close(CloseStatus.GOING_AWAY);
+        handler.afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+    }
+
+    void receive(TestWebSocketSession session, String json) throws Exception {
+        handler.handleMessage(session, new TextMessage(json));
+    }
+
+    @Override
+    public void close() {
+        handler.shutdown();
+    }
+}
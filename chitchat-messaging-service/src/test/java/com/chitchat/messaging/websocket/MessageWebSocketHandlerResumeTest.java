@@ -0,0 +1,137 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.util.MessageCursor;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Delivery streams in MessageWebSocketHandler: cumulative ACKs and resuming after a reconnect
+ */
+class MessageWebSocketHandlerResumeTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final HandlerFixture fixture = new HandlerFixture();
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void ackMarksOnlyTheAcknowledgedMessagesDelivered() throws Exception {
+        TestWebSocketSession session = fixture.connect("userId=2&ack=true");
+        awaitFullReplay();
+        for (int i = 1; i <= 3; i++) {
+            fixture.handler.sendMessageToUser(2L, message(i));
+        }
+        session.awaitFrames("NEW_MESSAGE", 3, TIMEOUT);
+
+        fixture.receive(session, "{\"type\":\"ACK\",\"data\":{\"seq\":2}}");
+        verify(fixture.messagingService, timeout(TIMEOUT.toMillis()))
+                .markMessagesDelivered(2L, List.of(message(1), message(2)));
+
+        // Repeating the ACK marks nothing again
+        fixture.receive(session, "{\"type\":\"ACK\",\"data\":{\"seq\":2}}");
+        fixture.receive(session, "{\"type\":\"ACK\",\"data\":{\"seq\":3}}");
+        verify(fixture.messagingService, timeout(TIMEOUT.toMillis())).markMessagesDelivered(2L, List.of(message(3)));
+        verify(fixture.messagingService).markMessagesDelivered(2L, List.of(message(1), message(2)));
+    }
+
+    @Test
+    void reconnectWithinTheWindowReplaysOnlyTheGapFromMemory() throws Exception {
+        TestWebSocketSession first = fixture.connect("userId=2&ack=true");
+        awaitFullReplay();
+        JsonNode resumed = resumed(first);
+        String streamId = resumed.path("streamId").asText();
+        assertTrue(resumed.path("fullReplay").asBoolean());
+
+        for (int i = 1; i <= 3; i++) {
+            fixture.handler.sendMessageToUser(2L, message(i));
+        }
+        first.awaitFrames("NEW_MESSAGE", 3, TIMEOUT);
+        fixture.disconnect(first);
+
+        TestWebSocketSession second = fixture.connect("userId=2&streamId=" + streamId + "&lastSeq=1");
+
+        JsonNode gap = resumed(second);
+        assertEquals(streamId, gap.path("streamId").asText());
+        assertEquals(1, gap.path("lastSeq").asLong());
+        assertEquals(2, gap.path("replayed").asInt());
+        assertFalse(gap.path("fullReplay").asBoolean());
+
+        List<String> replayed = second.awaitFrames("NEW_MESSAGE", 2, TIMEOUT);
+        assertEquals(2, replayed.size());
+        assertTrue(replayed.get(0).contains("\"id\":\"m2\"") && replayed.get(0).contains("\"seq\":2"), replayed.get(0));
+        assertTrue(replayed.get(1).contains("\"id\":\"m3\"") && replayed.get(1).contains("\"seq\":3"), replayed.get(1));
+
+        // Only messages newer than the stream's high-water mark are read from MongoDB
+        MessageCursor highWater = new MessageCursor(message(3).getCreatedAt(), "m3");
+        verify(fixture.messagingService, timeout(TIMEOUT.toMillis())).getPendingMessageBatch(eq(2L), eq(highWater), anyInt());
+        verify(fixture.messagingService, timeout(TIMEOUT.toMillis()).times(1))
+                .getPendingMessageBatch(eq(2L), isNull(), anyInt());
+    }
+
+    @Test
+    void unknownStreamFallsBackToAFullReplayOnTheCurrentStream() throws Exception {
+        TestWebSocketSession session = fixture.connect("userId=2&streamId=from-another-node&lastSeq=41");
+
+        JsonNode resumed = resumed(session);
+        assertNotEquals("from-another-node", resumed.path("streamId").asText());
+        assertEquals(0, resumed.path("lastSeq").asLong());
+        assertTrue(resumed.path("fullReplay").asBoolean());
+        awaitFullReplay();
+    }
+
+    @Test
+    void sessionWithoutResumeRequestFollowsTheStreamWithoutHandshake() throws Exception {
+        TestWebSocketSession session = fixture.connect(2L);
+        awaitFullReplay();
+        fixture.handler.sendMessageToUser(2L, message(1));
+
+        List<String> frames = session.awaitFrames("NEW_MESSAGE", 1, TIMEOUT);
+        assertTrue(frames.get(0).contains("\"seq\":1"), frames.get(0));
+        assertTrue(session.sentFrames("RESUMED").isEmpty());
+    }
+
+    /**
+     * The backlog replay starts off the connect thread; wait until it asked for the first batch
+     */
+    private void awaitFullReplay() {
+        verify(fixture.messagingService, timeout(TIMEOUT.toMillis()))
+                .getPendingMessageBatch(eq(2L), isNull(), anyInt());
+    }
+
+    private JsonNode resumed(TestWebSocketSession session) throws Exception {
+        List<String> frames = session.awaitFrames("RESUMED", 1, TIMEOUT);
+        assertEquals(1, frames.size());
+        return fixture.objectMapper.readTree(frames.get(0));
+    }
+
+    private static MessageResponse message(int n) {
+        return MessageResponse.builder()
+                .id("m" + n)
+                .senderId(1L)
+                .recipientId(2L)
+                .content("message " + n)
+                .createdAt(START.plusSeconds(n))
+                .build();
+    }
+}
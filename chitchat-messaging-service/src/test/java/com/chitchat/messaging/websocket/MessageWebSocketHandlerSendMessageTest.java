@@ -0,0 +1,192 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.dto.SendMessageRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * SEND_MESSAGE delivery: every recipient session receives the message exactly once
+ *
+ * The handler only persists the message and answers the sender; real-time
+ * delivery is left to MessagingService (SendMessageEvent -> sendMessageToUser),
+ * which the mock stands in for here.
+ */
+class MessageWebSocketHandlerSendMessageTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration SETTLE = Duration.ofMillis(300);
+
+    private final HandlerFixture fixture = new HandlerFixture();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void eachRecipientSessionGetsExactlyOneFrame() throws Exception {
+        TestWebSocketSession sender = fixture.connect(1L);
+        TestWebSocketSession phone = fixture.connect(2L);
+        TestWebSocketSession laptop = fixture.connect(2L);
+        TestWebSocketSession tablet = new TestWebSocketSession("cbor", "userId=2", "chitchat.cbor");
+        fixture.handler.afterConnectionEstablished(tablet);
+        awaitAttached(2L, 3);
+        stubDeliveryThroughHandler();
+
+        fixture.receive(sender, "{\"type\":\"SEND_MESSAGE\",\"data\":{\"recipientId\":2,\"content\":\"hi\",\"type\":\"TEXT\"}}");
+
+        assertEquals(1, sender.awaitFrames("SEND_MESSAGE_RESPONSE", 1, TIMEOUT).size());
+        List<String> phoneFrames = phone.awaitFrames("NEW_MESSAGE", 1, TIMEOUT);
+        List<String> laptopFrames = laptop.awaitFrames("NEW_MESSAGE", 1, TIMEOUT);
+        List<JsonNode> tabletFrames = awaitCborFrames(tablet, "NEW_MESSAGE", 1);
+
+        // Give a duplicate push time to show up before counting
+        Thread.sleep(SETTLE.toMillis());
+        assertEquals(1, phone.sentFrames("NEW_MESSAGE").size());
+        assertEquals(1, laptop.sentFrames("NEW_MESSAGE").size());
+        assertEquals(1, cborFrames(tablet, "NEW_MESSAGE").size());
+        assertTrue(sender.sentFrames("NEW_MESSAGE").isEmpty());
+        assertEquals(1, sender.sentFrames("SEND_MESSAGE_RESPONSE").size());
+
+        assertTrue(phoneFrames.get(0).contains("\"id\":\"m-1\""));
+        assertEquals(phoneFrames, laptopFrames);
+        assertEquals("m-1", tabletFrames.get(0).path("data").path("id").asText());
+    }
+
+    @Test
+    void jsonSessionsShareOneEncodedFrame() throws Exception {
+        fixture.connect(1L);
+        TestWebSocketSession phone = fixture.connect(2L);
+        TestWebSocketSession laptop = fixture.connect(2L);
+        awaitAttached(2L, 2);
+
+        fixture.handler.sendMessageToUser(2L, response("m-1"));
+
+        phone.awaitFrames("NEW_MESSAGE", 1, TIMEOUT);
+        laptop.awaitFrames("NEW_MESSAGE", 1, TIMEOUT);
+        assertSame(newMessage(phone), newMessage(laptop), "the frame must be serialized once and shared");
+    }
+
+    @Test
+    void everyRecipientSessionSeesMessagesOnceAndInOrder() throws Exception {
+        TestWebSocketSession sender = fixture.connect(1L);
+        TestWebSocketSession phone = fixture.connect(2L);
+        TestWebSocketSession laptop = fixture.connect(2L);
+        awaitAttached(2L, 2);
+        stubDeliveryThroughHandler();
+
+        for (int i = 0; i < 20; i++) {
+            fixture.receive(sender, "{\"type\":\"SEND_MESSAGE\",\"data\":{\"recipientId\":2,\"content\":\"m" + i
+                    + "\",\"type\":\"TEXT\"}}");
+        }
+
+        for (TestWebSocketSession session : List.of(phone, laptop)) {
+            List<String> frames = session.awaitFrames("NEW_MESSAGE", 20, TIMEOUT);
+            assertEquals(20, frames.size());
+            for (int i = 0; i < 20; i++) {
+                assertTrue(frames.get(i).contains("\"id\":\"m-" + (i + 1) + "\""), frames.get(i));
+            }
+        }
+        Thread.sleep(SETTLE.toMillis());
+        assertEquals(20, phone.sentFrames("NEW_MESSAGE").size());
+        assertEquals(20, laptop.sentFrames("NEW_MESSAGE").size());
+    }
+
+    /**
+     * Sessions attach to their delivery stream after the pending replay, which runs off the connect thread
+     */
+    private void awaitAttached(long userId, int sessions) throws InterruptedException {
+        verify(fixture.messagingService, timeout(TIMEOUT.toMillis()).times(sessions))
+                .getPendingMessageBatch(eq(userId), isNull(), anyInt());
+        // The attach itself follows the (empty) replay
+        Thread.sleep(100);
+    }
+
+    /**
+     * Stand in for MessagingService: persist, then deliver through SendMessageEvent -> sendMessageToUser
+     */
+    private void stubDeliveryThroughHandler() {
+        int[] ids = {0};
+        when(fixture.messagingService.sendMessage(eq(1L), any(SendMessageRequest.class))).thenAnswer(invocation -> {
+            SendMessageRequest request = invocation.getArgument(1);
+            MessageResponse response = response("m-" + (++ids[0]), request.getContent());
+            fixture.handler.sendMessageToUser(request.getRecipientId(), response);
+            return response;
+        });
+    }
+
+    private static MessageResponse response(String id) {
+        return response(id, "hi");
+    }
+
+    private static MessageResponse response(String id, String content) {
+        return MessageResponse.builder()
+                .id(id)
+                .senderId(1L)
+                .recipientId(2L)
+                .content(content)
+                .type(Message.MessageType.TEXT)
+                .status(Message.MessageStatus.SENT)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static WebSocketMessage<?> newMessage(TestWebSocketSession session) {
+        return session.sentMessages().stream()
+                .filter(message -> message.getPayload() instanceof String text && text.contains("\"NEW_MESSAGE\""))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<JsonNode> awaitCborFrames(TestWebSocketSession session, String type, int count) throws Exception {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        List<JsonNode> frames = cborFrames(session, type);
+        while (frames.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            frames = cborFrames(session, type);
+        }
+        return frames;
+    }
+
+    private List<JsonNode> cborFrames(TestWebSocketSession session, String type) throws Exception {
+        List<JsonNode> frames = new ArrayList<>();
+        for (WebSocketMessage<?> message : session.sentMessages()) {
+            if (message instanceof BinaryMessage binary) {
+                ByteBuffer payload = binary.getPayload().duplicate();
+                payload.rewind();
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                JsonNode frame = cborMapper.readTree(bytes);
+                if (type.equals(frame.path("type").asText())) {
+                    frames.add(frame);
+                }
+            }
+        }
+        return frames;
+    }
+}
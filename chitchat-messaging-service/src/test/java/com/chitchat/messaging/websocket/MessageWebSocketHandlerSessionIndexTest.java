@@ -0,0 +1,132 @@
+package com.chitchat.messaging.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Session registry of MessageWebSocketHandler: userSessions plus the sessionOwners reverse index
+ */
+class MessageWebSocketHandlerSessionIndexTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final HandlerFixture fixture = new HandlerFixture();
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void userStaysConnectedUntilLastSessionCloses() throws Exception {
+        TestWebSocketSession phone = fixture.connect(1L);
+        TestWebSocketSession laptop = fixture.connect(1L);
+        fixture.connect(2L);
+
+        assertEquals(2, fixture.handler.getActiveUsersCount());
+        assertEquals(Map.of("s1", 1L, "s2", 1L, "s3", 2L), sessionOwners());
+
+        fixture.disconnect(phone);
+        assertTrue(fixture.handler.isUserConnected(1L));
+        assertEquals(2, fixture.handler.getActiveUsersCount());
+        assertTrue(fixture.presenceRegistry.isOnline(1L));
+
+        fixture.disconnect(laptop);
+        assertFalse(fixture.handler.isUserConnected(1L));
+        assertEquals(1, fixture.handler.getActiveUsersCount());
+        assertFalse(fixture.presenceRegistry.isOnline(1L));
+        assertEquals(Map.of("s3", 2L), sessionOwners());
+    }
+
+    @Test
+    void reverseIndexIsEmptyOnceEverySessionIsGone() throws Exception {
+        List<TestWebSocketSession> sessions = new ArrayList<>();
+        for (long userId = 1; userId <= 500; userId++) {
+            sessions.add(fixture.connect(userId));
+            sessions.add(fixture.connect(userId));
+        }
+        assertEquals(1000, sessionOwners().size());
+        assertEquals(500, fixture.handler.getActiveUsersCount());
+
+        for (TestWebSocketSession session : sessions) {
+            fixture.disconnect(session);
+        }
+
+        assertTrue(sessionOwners().isEmpty());
+        assertEquals(0, fixture.handler.getActiveUsersCount());
+    }
+
+    @Test
+    void closingTwiceOrClosingUnknownSessionIsHarmless() throws Exception {
+        TestWebSocketSession session = fixture.connect(1L);
+        TestWebSocketSession neverBound = new TestWebSocketSession("unbound", null);
+
+        fixture.disconnect(session);
+        fixture.handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        fixture.handler.afterConnectionClosed(neverBound, CloseStatus.NORMAL);
+
+        assertEquals(0, fixture.handler.getActiveUsersCount());
+        assertTrue(sessionOwners().isEmpty());
+    }
+
+    @Test
+    void reAuthenticatingAsAnotherUserMovesTheSession() throws Exception {
+        TestWebSocketSession session = fixture.connect((String) null);
+        session.awaitFrames("AUTH_REQUEST", 1, TIMEOUT);
+
+        fixture.receive(session, "{\"type\":\"AUTH\",\"userId\":5}");
+        assertTrue(fixture.handler.isUserConnected(5L));
+
+        fixture.receive(session, "{\"type\":\"AUTH\",\"userId\":6}");
+        assertFalse(fixture.handler.isUserConnected(5L));
+        assertTrue(fixture.handler.isUserConnected(6L));
+        assertEquals(Map.of(session.getId(), 6L), sessionOwners());
+
+        // Frames for the previous owner no longer reach the session
+        fixture.handler.sendStatusUpdateToUser(5L, "m-5", "READ");
+        fixture.handler.sendStatusUpdateToUser(6L, "m-6", "READ");
+        List<String> statuses = session.awaitFrames("MESSAGE_STATUS", 1, TIMEOUT);
+        assertEquals(1, statuses.size());
+        assertTrue(statuses.get(0).contains("m-6"));
+    }
+
+    @Test
+    void transportErrorRemovesTheSession() throws Exception {
+        TestWebSocketSession session = fixture.connect(1L);
+
+        fixture.handler.handleTransportError(session, new java.io.EOFException());
+
+        assertFalse(session.isOpen());
+        assertFalse(fixture.handler.isUserConnected(1L));
+        assertTrue(sessionOwners().isEmpty());
+    }
+
+    @Test
+    void cleanupRemovesSessionsClosedWithoutNotification() throws Exception {
+        TestWebSocketSession stale = fixture.connect(1L);
+        fixture.connect(2L);
+        stale.close(CloseStatus.SESSION_NOT_RELIABLE);
+
+        ReflectionTestUtils.invokeMethod(fixture.handler, "cleanupStaleSessions");
+
+        assertFalse(fixture.handler.isUserConnected(1L));
+        assertTrue(fixture.handler.isUserConnected(2L));
+        assertEquals(Map.of("s2", 2L), sessionOwners());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> sessionOwners() {
+        return Map.copyOf((Map<String, Long>) ReflectionTestUtils.getField(fixture.handler, "sessionOwners"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.dto.MessageResponse;
+import com.chitchat.messaging.websocket.protocol.OutboundFrame;
+import com.chitchat.messaging.websocket.protocol.PreparedFrame;
+import com.chitchat.messaging.websocket.protocol.WebSocketFrameCodec;
+import com.chitchat.messaging.websocket.protocol.WireFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.socket.TextMessage;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one SEND_MESSAGE into frames for every session of the recipient
+ *
+ * perSessionDoubleDelivery reproduces the previous path: handleSendMessage built
+ * a Map payload and pushed it to each recipient session, then SendMessageEvent
+ * -> sendMessageToUser formatted the MessageResponse again and pushed a second
+ * frame to each session. preparedOnce is the current path: one PreparedFrame
+ * encoded once and the same TextMessage queued on every session.
+ *
+ * Run with the benchmark profile:
+ * mvn -pl chitchat-messaging-service -am test -Pbenchmark -DskipTests -Dbenchmark=SendMessageFanoutBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendMessageFanoutBenchmark {
+
+    @Param({"1", "3", "10"})
+    int sessions;
+
+    private ObjectMapper objectMapper;
+    private WebSocketFrameCodec codec;
+    private MessageResponse message;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        codec = new WebSocketFrameCodec(objectMapper);
+        message = MessageResponse.builder()
+                .id("65f1c0ffee0000000000abcd")
+                .senderId(1L)
+                .recipientId(2L)
+                .content("Are we still on for lunch tomorrow? I can book the usual place.")
+                .type(Message.MessageType.TEXT)
+                .status(Message.MessageStatus.SENT)
+                .createdAt(LocalDateTime.of(2024, 3, 1, 12, 30))
+                .build();
+    }
+
+    @Benchmark
+    public void perSessionDoubleDelivery(Blackhole blackhole) throws Exception {
+        // handleSendMessage: pushed straight to the recipient's sessions
+        String direct = createWebSocketMessage(message);
+        for (int i = 0; i < sessions; i++) {
+            blackhole.consume(new TextMessage(direct));
+        }
+        // SendMessageEvent -> sendMessageToUser: a second copy to the same sessions
+        String payload = String.format("{\"type\":\"%s\",\"data\":%s}", "NEW_MESSAGE",
+                objectMapper.writeValueAsString(message));
+        for (int i = 0; i < sessions; i++) {
+            blackhole.consume(new TextMessage(payload));
+        }
+    }
+
+    @Benchmark
+    public void preparedOnce(Blackhole blackhole) {
+        PreparedFrame frame = codec.prepare(new OutboundFrame.NewMessage(message, 1L));
+        for (int i = 0; i < sessions; i++) {
+            blackhole.consume(frame.messageFor(WireFormat.JSON));
+        }
+    }
+
+    /**
+     * The Map payload the old handleSendMessage built
+     */
+    private String createWebSocketMessage(MessageResponse response) throws Exception {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "NEW_MESSAGE");
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("messageId", response.getId());
+        data.put("senderId", response.getSenderId());
+        data.put("receiverId", response.getRecipientId());
+        data.put("content", response.getContent());
+        data.put("type", response.getType().name());
+        data.put("timestamp", System.currentTimeMillis());
+        data.put("status", "SENT");
+        frame.put("data", data);
+
+        return objectMapper.writeValueAsString(frame);
+    }
+}
@@ -0,0 +1,150 @@
+package com.chitchat.messaging.websocket;
+
+import com.chitchat.messaging.cluster.ClusterNode;
+import com.chitchat.messaging.cluster.InMemoryNodeMessageBus;
+import com.chitchat.messaging.cluster.InMemoryPresenceRegistry;
+import com.chitchat.messaging.presence.PresenceAudience;
+import com.chitchat.messaging.service.MessagingService;
+import com.chitchat.messaging.service.UnreadCounterService;
+import com.chitchat.messaging.websocket.protocol.WebSocketFrameCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Cost of one afterConnectionClosed with 1k vs 100k users connected to the node
+ *
+ * Each invocation closes the only session of one more user, so it takes the
+ * whole last-session path (queue, delivery stream, presence, OFFLINE broadcast
+ * hand-off). afterConnectionClosed is the current path: the owner comes from
+ * the sessionOwners reverse index. previousFullScan adds the lookup the
+ * previous removeUserSession did first, walking every user's session map until
+ * it found the session, in front of the same teardown.
+ *
+ * The handler is built like HandlerFixture's, with stub-only mocks so that
+ * millions of calls are not recorded. Sessions are bound through
+ * registerUserSession directly, so connecting them queues no background work.
+ *
+ * Run with the benchmark profile:
+ * mvn -pl chitchat-messaging-service -am test -Pbenchmark -DskipTests -Dbenchmark=SessionDisconnectBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionDisconnectBenchmark {
+
+    @Param({"1000", "100000"})
+    int connectedUsers;
+
+    private MessageWebSocketHandler handler;
+    private Map<Long, ConcurrentHashMap<String, WebSocketSession>> userSessions;
+    private long nextSessionId;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ClusterNode clusterNode = new ClusterNode("node-a");
+        handler = new MessageWebSocketHandler(objectMapper, new WebSocketFrameCodec(objectMapper), clusterNode,
+                new InMemoryPresenceRegistry(clusterNode), new InMemoryNodeMessageBus(clusterNode),
+                stub(PresenceAudience.class), stub(UnreadCounterService.class));
+        ReflectionTestUtils.setField(handler, "presenceFlapWindowMs", 100L);
+        ReflectionTestUtils.setField(handler, "typingStopDebounceMs", 1500L);
+        ReflectionTestUtils.setField(handler, "typingExpiryMs", 6000L);
+        ReflectionTestUtils.setField(handler, "conversationUpdateFlushMs", 250L);
+        ReflectionTestUtils.setField(handler, "pendingReplayBatchSize", 100);
+        ReflectionTestUtils.setField(handler, "retransmitBufferSize", 512);
+        ReflectionTestUtils.setField(handler, "resumeWindowSeconds", 120L);
+        ReflectionTestUtils.setField(handler, "sendTimeLimitMs", 10_000L);
+        ReflectionTestUtils.setField(handler, "outboundQueueCapacity", 256);
+        ReflectionTestUtils.setField(handler, "outboundOverflowPolicy",
+                SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+        handler.setMessagingService(stub(MessagingService.class));
+        handler.init();
+        userSessions = (Map<Long, ConcurrentHashMap<String, WebSocketSession>>)
+                ReflectionTestUtils.getField(handler, "userSessions");
+
+        for (long userId = 1; userId <= connectedUsers; userId++) {
+            register(userId);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.shutdown();
+    }
+
+    /**
+     * The session closed by the next invocation: the only one of a user who is not in the registry yet
+     */
+    @State(Scope.Thread)
+    public static class ClosingSession {
+
+        TestWebSocketSession session;
+
+        @Setup(Level.Invocation)
+        public void connect(SessionDisconnectBenchmark registry) {
+            session = registry.register(registry.connectedUsers + 1L);
+        }
+    }
+
+    @Benchmark
+    public void afterConnectionClosed(ClosingSession closing) throws Exception {
+        handler.afterConnectionClosed(closing.session, CloseStatus.GOING_AWAY);
+    }
+
+    @Benchmark
+    public Long previousFullScan(ClosingSession closing) throws Exception {
+        // The owner lookup removeUserSession did before the reverse index, then the same teardown
+        String sessionId = closing.session.getId();
+        Long owner = null;
+        for (Map.Entry<Long, ConcurrentHashMap<String, WebSocketSession>> entry : userSessions.entrySet()) {
+            if (entry.getValue().containsKey(sessionId)) {
+                owner = entry.getKey();
+                break;
+            }
+        }
+        handler.afterConnectionClosed(closing.session, CloseStatus.GOING_AWAY);
+        return owner;
+    }
+
+    /**
+     * Bind a new session to the user the way afterConnectionEstablished does, without
+     * its asynchronous welcome and replay (they would run on the broadcast pool during
+     * the measurement)
+     */
+    private TestWebSocketSession register(long userId) {
+        TestWebSocketSession session = new TestWebSocketSession("s" + (++nextSessionId), "userId=" + userId);
+        ReflectionTestUtils.invokeMethod(handler, "registerUserSession", userId, session);
+        return session;
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,313 @@
+package com.chitchat.messaging.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionOutboundQueueTest {
+
+    private final TestWebSocketSession session = new TestWebSocketSession("s1", null);
+    private final ManualExecutor executor = new ManualExecutor();
+    private final RecordingListener listener = new RecordingListener();
+
+    @Test
+    void writesFramesInOrderOnOneDrainTask() {
+        SessionOutboundQueue queue = queue(8, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+
+        assertTrue(queue.offer(frame("a"), false));
+        assertTrue(queue.offer(frame("b"), true));
+        assertTrue(queue.offer(frame("c"), false));
+
+        // One drain is scheduled however many frames are queued
+        assertEquals(1, executor.pending());
+        executor.runAll();
+
+        assertEquals(List.of("a", "b", "c"), payloads(session.sentMessages()));
+        assertEquals(3, listener.sent.get());
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void dropTypingFirstEvictsOldestDroppableFrame() {
+        SessionOutboundQueue queue = queue(3, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+        queue.offer(frame("message-1"), false);
+        queue.offer(frame("typing-1"), true);
+        queue.offer(frame("typing-2"), true);
+
+        assertTrue(queue.offer(frame("message-2"), false));
+
+        executor.runAll();
+        assertEquals(List.of("message-1", "typing-2", "message-2"), payloads(session.sentMessages()));
+        assertEquals(1, listener.dropped.get());
+        assertEquals(0, listener.slowConsumers.get());
+    }
+
+    @Test
+    void dropTypingFirstDiscardsDroppableFrameWhenOnlyEssentialFramesAreQueued() {
+        SessionOutboundQueue queue = queue(2, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+        queue.offer(frame("message-1"), false);
+        queue.offer(frame("message-2"), false);
+
+        assertFalse(queue.offer(frame("typing"), true));
+
+        assertEquals(1, listener.dropped.get());
+        assertEquals(2, queue.depth());
+        assertTrue(queue.isOpen());
+    }
+
+    @Test
+    void dropTypingFirstClosesSlowConsumerOnEssentialOverflow() {
+        SessionOutboundQueue queue = queue(2, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+        queue.offer(frame("message-1"), false);
+        queue.offer(frame("message-2"), false);
+
+        assertFalse(queue.offer(frame("message-3"), false));
+
+        assertEquals(1, listener.slowConsumers.get());
+        assertFalse(queue.isOpen());
+        assertEquals(0, queue.depth());
+        assertFalse(queue.offer(frame("message-4"), false));
+
+        // The drain scheduled before the overflow finds nothing left to write
+        executor.runAll();
+        assertTrue(session.sentMessages().isEmpty());
+    }
+
+    @Test
+    void dropNewestDiscardsIncomingFrame() {
+        SessionOutboundQueue queue = queue(2, SessionOutboundQueue.OverflowPolicy.DROP_NEWEST);
+        queue.offer(frame("typing"), true);
+        queue.offer(frame("message-1"), false);
+
+        assertFalse(queue.offer(frame("message-2"), false));
+
+        executor.runAll();
+        assertEquals(List.of("typing", "message-1"), payloads(session.sentMessages()));
+        assertEquals(1, listener.dropped.get());
+        assertTrue(queue.isOpen());
+    }
+
+    @Test
+    void closeSessionPolicyClosesOnAnyOverflow() {
+        SessionOutboundQueue queue = queue(1, SessionOutboundQueue.OverflowPolicy.CLOSE_SESSION);
+        queue.offer(frame("typing-1"), true);
+
+        assertFalse(queue.offer(frame("typing-2"), true));
+
+        assertEquals(1, listener.slowConsumers.get());
+        assertEquals(0, listener.dropped.get());
+        assertFalse(queue.isOpen());
+    }
+
+    @Test
+    void drainYieldsTheThreadAfterABoundedNumberOfFrames() {
+        SessionOutboundQueue queue = queue(200, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+        for (int i = 0; i < 100; i++) {
+            queue.offer(frame("m" + i), false);
+        }
+
+        executor.runNext();
+        assertEquals(64, session.sentMessages().size());
+        assertEquals(1, executor.pending(), "drain must reschedule itself for the rest");
+
+        executor.runAll();
+        assertEquals(100, session.sentMessages().size());
+    }
+
+    @Test
+    void drainedCallbackRunsOnceQueueReachesWatermark() {
+        SessionOutboundQueue queue = queue(8, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+        AtomicInteger calls = new AtomicInteger();
+        queue.offer(frame("a"), false);
+        queue.offer(frame("b"), false);
+
+        queue.whenDrainedTo(0, calls::incrementAndGet);
+        assertEquals(0, calls.get());
+
+        executor.runAll();
+        assertEquals(1, calls.get());
+
+        // Already at the watermark: runs right away
+        queue.whenDrainedTo(0, calls::incrementAndGet);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void writeFailureClosesQueueAndReportsIt() {
+        WebSocketSession failing = new TestWebSocketSession("s2", null) {
+            @Override
+            public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        SessionOutboundQueue queue = new SessionOutboundQueue(failing, 8,
+                SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST, executor, listener);
+        queue.offer(frame("a"), false);
+        queue.offer(frame("b"), false);
+
+        executor.runAll();
+
+        assertEquals(1, listener.failed.get());
+        assertFalse(queue.isOpen());
+        assertFalse(queue.offer(frame("c"), false));
+    }
+
+    @Test
+    void rejectedDrainClosesTheQueueInsteadOfStrandingFrames() {
+        executor.rejectNext = true;
+        SessionOutboundQueue queue = queue(8, SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST);
+
+        assertTrue(queue.offer(frame("a"), false));
+
+        assertEquals(0, executor.pending());
+        assertEquals(1, listener.failed.get());
+        assertFalse(queue.isOpen());
+        assertEquals(0, queue.depth());
+        assertFalse(queue.offer(frame("b"), false));
+    }
+
+    @Test
+    void writeStalledPastItsDeadlineClosesTheSlowConsumer() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SessionOutboundQueue queue = new SessionOutboundQueue(session, 8,
+                    SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST, executor, listener, timer, 100);
+            session.blockWrites();
+            queue.offer(frame("a"), false);
+            queue.offer(frame("b"), false);
+
+            Thread writer = new Thread(executor::runNext, "ws-send");
+            writer.start();
+            awaitCount(listener.slowConsumers, 1);
+            assertFalse(queue.isOpen());
+            assertEquals(0, queue.depth());
+
+            // The handler closes the session, which ends the blocked write
+            session.release();
+            writer.join(5_000);
+            assertEquals(List.of("a"), payloads(session.sentMessages()));
+            assertEquals(0, listener.failed.get(), "the stalled session is reported once");
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void writesWithinTheDeadlineKeepTheSessionOpen() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SessionOutboundQueue queue = new SessionOutboundQueue(session, 8,
+                    SessionOutboundQueue.OverflowPolicy.DROP_TYPING_FIRST, executor, listener, timer, 50);
+            queue.offer(frame("a"), false);
+            queue.offer(frame("b"), false);
+
+            executor.runAll();
+            Thread.sleep(150);
+
+            assertTrue(queue.isOpen());
+            assertEquals(0, listener.slowConsumers.get());
+            assertEquals(List.of("a", "b"), payloads(session.sentMessages()));
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    private SessionOutboundQueue queue(int capacity, SessionOutboundQueue.OverflowPolicy policy) {
+        return new SessionOutboundQueue(session, capacity, policy, executor, listener);
+    }
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counter.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, counter.get());
+    }
+
+    private static TextMessage frame(String payload) {
+        return new TextMessage(payload);
+    }
+
+    private static List<String> payloads(List<WebSocketMessage<?>> messages) {
+        List<String> payloads = new ArrayList<>();
+        for (WebSocketMessage<?> message : messages) {
+            payloads.add(((TextMessage) message).getPayload());
+        }
+        return payloads;
+    }
+
+    /**
+     * Runs submitted tasks only when the test says so
+     */
+    private static class ManualExecutor implements Executor {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        boolean rejectNext;
+
+        @Override
+        public void execute(Runnable task) {
+            if (rejectNext) {
+                rejectNext = false;
+                throw new RejectedExecutionException("Executor saturated");
+            }
+            tasks.addLast(task);
+        }
+
+        int pending() {
+            return tasks.size();
+        }
+
+        void runNext() {
+            tasks.pollFirst().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                runNext();
+            }
+        }
+    }
+
+    private static class RecordingListener implements SessionOutboundQueue.Listener {
+        final AtomicInteger sent = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+        final AtomicInteger slowConsumers = new AtomicInteger();
+
+        @Override
+        public void onSent(WebSocketSession session) {
+            sent.incrementAndGet();
+        }
+
+        @Override
+        public void onFailed(WebSocketSession session, Exception e) {
+            failed.incrementAndGet();
+        }
+
+        @Override
+        public void onDropped(WebSocketSession session) {
+            dropped.incrementAndGet();
+        }
+
+        @Override
+        public void onSlowConsumer(WebSocketSession session) {
+            slowConsumers.incrementAndGet();
+        }
+    }
+}
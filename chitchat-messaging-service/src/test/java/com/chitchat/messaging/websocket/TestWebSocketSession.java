@@ -0,0 +1,217 @@
+package com.chitchat.messaging.websocket;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * In-memory WebSocketSession that records every frame written to it
+ *
+ * Frames are written by the handler's send threads, so readers wait for them
+ * with awaitFrames instead of asserting right after the call under test.
+ */
+public class TestWebSocketSession implements WebSocketSession {
+
+    private final String id;
+    private final URI uri;
+    private final String acceptedProtocol;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final List<WebSocketMessage<?>> sent = new ArrayList<>();
+
+    private volatile boolean open = true;
+    private volatile CloseStatus closeStatus;
+    private volatile CountDownLatch writeGate;
+
+    public TestWebSocketSession(String id, String query) {
+        this(id, query, null);
+    }
+
+    public TestWebSocketSession(String id, String query, String acceptedProtocol) {
+        this.id = id;
+        this.uri = URI.create("ws://localhost:8082/ws/messages" + (query != null ? "?" + query : ""));
+        this.acceptedProtocol = acceptedProtocol;
+    }
+
+    /**
+     * Block writes until release() is called (simulates a client that stopped reading)
+     */
+    public void blockWrites() {
+        writeGate = new CountDownLatch(1);
+    }
+
+    public void release() {
+        CountDownLatch gate = writeGate;
+        writeGate = null;
+        if (gate != null) {
+            gate.countDown();
+        }
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        CountDownLatch gate = writeGate;
+        if (gate != null) {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while blocked", e);
+            }
+        }
+        if (!open) {
+            throw new IOException("Session " + id + " is closed");
+        }
+        synchronized (sent) {
+            sent.add(message);
+            sent.notifyAll();
+        }
+    }
+
+    /**
+     * Frames written so far, in write order
+     */
+    public List<WebSocketMessage<?>> sentMessages() {
+        synchronized (sent) {
+            return List.copyOf(sent);
+        }
+    }
+
+    /**
+     * JSON text of the frames written so far whose payload matches
+     */
+    public List<String> sentText(Predicate<String> filter) {
+        List<String> texts = new ArrayList<>();
+        for (WebSocketMessage<?> message : sentMessages()) {
+            if (message instanceof TextMessage text && filter.test(text.getPayload())) {
+                texts.add(text.getPayload());
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Text frames of a type ("type":"NEW_MESSAGE" etc.)
+     */
+    public List<String> sentFrames(String type) {
+        return sentText(payload -> payload.contains("\"type\":\"" + type + "\""));
+    }
+
+    /**
+     * Wait until at least count frames of a type were written
+     *
+     * @return the frames of that type written by then
+     */
+    public List<String> awaitFrames(String type, int count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (sent) {
+            while (sentFrames(type).size() < count) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    break;
+                }
+                sent.wait(remaining);
+            }
+        }
+        return sentFrames(type);
+    }
+
+    public CloseStatus getCloseStatus() {
+        return closeStatus;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return acceptedProtocol;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return 16384;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return 16384;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+        closeStatus = status;
+        release();
+    }
+}
@@ -0,0 +1,70 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import com.chitchat.messaging.document.Message;
+import com.chitchat.messaging.dto.MessageResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A fixed sample of server -> client traffic for wire format comparisons
+ *
+ * Roughly what a chatting client sees: messages and their receipts dominate,
+ * with typing updates, keep-alives and the occasional conversation delta.
+ */
+final class RepresentativeFrames {
+
+    private static final long TIMESTAMP = 1_709_296_200_000L;
+
+    private RepresentativeFrames() {
+    }
+
+    static List<OutboundFrame> outbound() {
+        MessageResponse text = message("65f1c0ffee0000000000ab01", "Are we still on for lunch tomorrow?");
+        MessageResponse reply = message("65f1c0ffee0000000000ab02", "Yes! 12:30 at the usual place, I booked a table.");
+        reply.setReplyToMessageId(text.getId());
+        MessageResponse image = message("65f1c0ffee0000000000ab03", "");
+        image.setType(Message.MessageType.IMAGE);
+        image.setMediaUrl("https://cdn.chitchat.example/media/2024/03/01/65f1c0ffee0000000000ab03.jpg");
+        image.setThumbnailUrl("https://cdn.chitchat.example/media/2024/03/01/65f1c0ffee0000000000ab03_thumb.jpg");
+
+        return List.of(
+                new OutboundFrame.NewMessage(text, 41L),
+                new OutboundFrame.Typing(1L, "Alice", true),
+                new OutboundFrame.Typing(1L, "Alice", false),
+                new OutboundFrame.NewMessage(reply, 42L),
+                new OutboundFrame.MessageStatus(text.getId(), "DELIVERED"),
+                new OutboundFrame.MessageStatus(text.getId(), "READ"),
+                new OutboundFrame.NewMessage(image, 43L),
+                new OutboundFrame.MessageStatusBatch(List.of(reply.getId(), image.getId()), "READ", TIMESTAMP),
+                new OutboundFrame.ReadUpTo("1_2", null, 2L, image.getId(), TIMESTAMP),
+                new OutboundFrame.Pong(TIMESTAMP),
+                new OutboundFrame.ConversationDelta(List.of(
+                        new OutboundFrame.ConversationChange(1L, null, image, 3L)), 7L, TIMESTAMP));
+    }
+
+    /**
+     * Client -> server frames in JSON; CBOR clients send the same envelopes
+     */
+    static List<String> inboundJson() {
+        return List.of(
+                "{\"type\":\"SEND_MESSAGE\",\"data\":{\"recipientId\":2,\"content\":\"Are we still on for lunch tomorrow?\",\"type\":\"TEXT\"}}",
+                "{\"type\":\"TYPING\",\"data\":{\"recipientId\":2,\"isTyping\":true,\"senderName\":\"Alice\"}}",
+                "{\"type\":\"TYPING\",\"data\":{\"recipientId\":2,\"isTyping\":false,\"senderName\":\"Alice\"}}",
+                "{\"type\":\"ACK\",\"data\":{\"seq\":43}}",
+                "{\"type\":\"READ_UPTO\",\"data\":{\"messageId\":\"65f1c0ffee0000000000ab03\"}}",
+                "{\"type\":\"PING\"}");
+    }
+
+    private static MessageResponse message(String id, String content) {
+        return MessageResponse.builder()
+                .id(id)
+                .senderId(1L)
+                .recipientId(2L)
+                .content(content)
+                .type(Message.MessageType.TEXT)
+                .status(Message.MessageStatus.SENT)
+                .createdAt(LocalDateTime.of(2024, 3, 1, 12, 30, 5))
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map-based frame handling (what MessageWebSocketHandler used to do) against WebSocketFrameCodec
+ *
+ * For each frame type the client sends most:
+ * - decode*: the inbound frame, readValue(payload, Map.class) vs the typed InboundFrame reader
+ * - encode*: the frame the server answers with (SEND_MESSAGE_RESPONSE, TYPING to the
+ *   recipient, PONG), a fresh HashMap per frame vs the typed record, streamed where
+ *   the codec streams it
+ *
+ * Run with the benchmark profile; add -prof gc to compare allocation per frame:
+ * mvn -pl chitchat-messaging-service -am test -Pbenchmark -DskipTests -Dbenchmark=WebSocketFrameCodecBenchmark -Djmh.args="-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketFrameCodecBenchmark {
+
+    private static final long TIMESTAMP = 1_709_296_200_000L;
+
+    @Param({"SEND_MESSAGE", "TYPING", "PING"})
+    String frame;
+
+    private ObjectMapper objectMapper;
+    private WebSocketFrameCodec codec;
+    private String inbound;
+    private OutboundFrame typedResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        codec = new WebSocketFrameCodec(objectMapper);
+        switch (frame) {
+            case "SEND_MESSAGE" -> {
+                inbound = "{\"type\":\"SEND_MESSAGE\",\"data\":{\"recipientId\":2,"
+                        + "\"content\":\"Are we still on for lunch tomorrow?\",\"type\":\"TEXT\"}}";
+                typedResponse = new OutboundFrame.SendMessageResponse("65f1c0ffee0000000000abcd", 2L,
+                        "Message sent successfully", TIMESTAMP);
+            }
+            case "TYPING" -> {
+                inbound = "{\"type\":\"TYPING\",\"data\":{\"recipientId\":2,\"isTyping\":true,\"senderName\":\"Alice\"}}";
+                typedResponse = new OutboundFrame.Typing(1L, "Alice", true);
+            }
+            case "PING" -> {
+                inbound = "{\"type\":\"PING\"}";
+                typedResponse = new OutboundFrame.Pong(TIMESTAMP);
+            }
+            default -> throw new IllegalArgumentException("Unknown frame " + frame);
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object decodeMap() throws Exception {
+        Map<String, Object> message = objectMapper.readValue(inbound, Map.class);
+        // The handler then pulled its fields out of the nested data map
+        Object data = message.get("data");
+        return data != null ? ((Map<String, Object>) data).get("recipientId") : message.get("type");
+    }
+
+    @Benchmark
+    public InboundFrame decodeTyped() throws Exception {
+        return codec.decode(inbound);
+    }
+
+    @Benchmark
+    public String encodeMap() throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        switch (frame) {
+            case "SEND_MESSAGE" -> {
+                response.put("type", "SEND_MESSAGE_RESPONSE");
+                response.put("messageId", "65f1c0ffee0000000000abcd");
+                response.put("recipientId", 2L);
+                response.put("status", "Message sent successfully");
+                response.put("timestamp", TIMESTAMP);
+            }
+            case "TYPING" -> {
+                response.put("type", "TYPING");
+                response.put("senderId", 1L);
+                response.put("senderName", "Alice");
+                response.put("isTyping", true);
+            }
+            default -> {
+                response.put("type", "PONG");
+                response.put("timestamp", TIMESTAMP);
+                response.put("connectionStable", true);
+            }
+        }
+        return objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public String encodeTyped() {
+        return codec.encode(typedResponse);
+    }
+}
@@ -0,0 +1,107 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON text frames against CBOR binary frames over the RepresentativeFrames mix
+ *
+ * One operation encodes (or decodes) the whole mix. encodeMix:bytes is the egress
+ * rate; divided by the encodeMix score it gives the bytes per mix, so throughput
+ * and size come out of one run:
+ * mvn -pl chitchat-messaging-service -am test -Pbenchmark -DskipTests -Dbenchmark=WireFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "CBOR"})
+    WireFormat format;
+
+    private WebSocketFrameCodec codec;
+    private List<OutboundFrame> outbound;
+    private List<String> inboundJson;
+    private List<byte[]> inboundCbor;
+
+    /**
+     * Encoded bytes, reported as a rate next to the ops count
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Egress {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        codec = new WebSocketFrameCodec(objectMapper);
+        outbound = RepresentativeFrames.outbound();
+        inboundJson = RepresentativeFrames.inboundJson();
+        inboundCbor = new ArrayList<>();
+        for (String json : inboundJson) {
+            inboundCbor.add(cborMapper.writeValueAsBytes(objectMapper.readTree(json)));
+        }
+    }
+
+    @Benchmark
+    public void encodeMix(Egress egress, Blackhole blackhole) {
+        for (OutboundFrame frame : outbound) {
+            if (format == WireFormat.CBOR) {
+                byte[] bytes = codec.encodeCbor(frame);
+                egress.bytes += bytes.length;
+                blackhole.consume(bytes);
+            } else {
+                String text = codec.encode(frame);
+                // TextMessage goes out as UTF-8
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                egress.bytes += bytes.length;
+                blackhole.consume(bytes);
+            }
+        }
+    }
+
+    @Benchmark
+    public void decodeMix(Blackhole blackhole) throws Exception {
+        if (format == WireFormat.CBOR) {
+            for (byte[] payload : inboundCbor) {
+                blackhole.consume(codec.decode(ByteBuffer.wrap(payload)));
+            }
+        } else {
+            for (String payload : inboundJson) {
+                blackhole.consume(codec.decode(payload));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.chitchat.messaging.websocket.protocol;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CBOR carries the same envelopes as JSON, in fewer bytes over a representative mix
+ */
+class WireFormatSizeTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    private final WebSocketFrameCodec codec = new WebSocketFrameCodec(objectMapper);
+
+    @Test
+    void cborFramesCarryTheSameEnvelopeAsJson() throws Exception {
+        for (OutboundFrame frame : RepresentativeFrames.outbound()) {
+            JsonNode json = objectMapper.readTree(codec.encode(frame));
+            JsonNode cbor = cborMapper.readTree(codec.encodeCbor(frame));
+
+            assertEquals(json.toString(), cbor.toString(), frame.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void cborIsSmallerThanJsonOverTheMix() {
+        int jsonBytes = 0;
+        int cborBytes = 0;
+        for (OutboundFrame frame : RepresentativeFrames.outbound()) {
+            int json = codec.encode(frame).getBytes(StandardCharsets.UTF_8).length;
+            int cbor = codec.encodeCbor(frame).length;
+            assertTrue(cbor <= json, frame.getClass().getSimpleName() + ": " + cbor + " > " + json + " bytes");
+            jsonBytes += json;
+            cborBytes += cbor;
+        }
+
+        // Field names are still sent in full, so the saving comes from numbers, lengths and quoting
+        assertTrue(cborBytes < jsonBytes * 0.95, "CBOR " + cborBytes + " bytes vs JSON " + jsonBytes);
+    }
+
+    @Test
+    void cborInboundFramesDecodeLikeJson() throws Exception {
+        for (String json : RepresentativeFrames.inboundJson()) {
+            byte[] cbor = cborMapper.writeValueAsBytes(objectMapper.readTree(json));
+
+            assertEquals(codec.decode(json), codec.decode(ByteBuffer.wrap(cbor)), json);
+        }
+    }
+}
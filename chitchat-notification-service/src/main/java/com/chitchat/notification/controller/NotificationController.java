@@ -84,9 +84,8 @@ public class NotificationController {
     @PostMapping("/send-bulk")
     public ResponseEntity<ApiResponse<Void>> sendBulkNotification(
             @RequestHeader("Authorization") String token,
-            @RequestBody List<Long> userIds,
-            @Valid @RequestBody SendNotificationRequest request) {
-        notificationService.sendBulkNotification(userIds, request);
+            @Valid @RequestBody SendBulkNotificationRequest request) {
+        notificationService.sendBulkNotification(request);
         return ResponseEntity.ok(ApiResponse.success(null, "Bulk notification sent successfully"));
     }
     
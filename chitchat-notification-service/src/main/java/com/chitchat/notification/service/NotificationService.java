@@ -19,7 +19,7 @@ public interface NotificationService {
     
     void sendNotificationByPhone(SendNotificationByPhoneRequest request);
     
-    void sendBulkNotification(List<Long> userIds, SendNotificationRequest request);
+    void sendBulkNotification(SendBulkNotificationRequest request);
     
     Page<NotificationResponse> getUserNotifications(Long userId, Pageable pageable);
     
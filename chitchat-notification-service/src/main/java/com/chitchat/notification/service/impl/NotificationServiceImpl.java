@@ -166,10 +166,10 @@ public class NotificationServiceImpl implements NotificationService {
     
     @Override
     @Transactional
-    public void sendBulkNotification(List<Long> userIds, SendNotificationRequest request) {
-        log.info("Sending bulk notification to {} users", userIds.size());
+    public void sendBulkNotification(SendBulkNotificationRequest request) {
+        log.info("Sending bulk notification to {} users", request.getUserIds().size());
         
-        for (Long userId : userIds) {
+        for (Long userId : request.getUserIds()) {
             SendNotificationRequest userRequest = SendNotificationRequest.builder()
                     .userId(userId)
                     .title(request.getTitle())
@@ -0,0 +1,22 @@
+package com.chitchat.shared.event;
+
+import java.time.Instant;
+
+/**
+ * A call moved to a new state (INITIATED, RINGING, ANSWERED, ENDED, ...)
+ *
+ * durationSeconds is set once the call has ended; reason for rejected and ended calls.
+ */
+public record CallStateChanged(String sessionId, long callId, long callerId, long calleeId, String callType,
+                               String state, Long durationSeconds, String reason, Instant at) implements ChatEvent {
+
+    @Override
+    public EventType type() {
+        return EventType.CALL_STATE_CHANGED;
+    }
+
+    @Override
+    public String key() {
+        return sessionId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.chitchat.shared.event;
+
+/**
+ * An event of the binary event schema
+ *
+ * Events are lean: identifiers, state and timestamps only. Consumers that need
+ * the full document (message, call, status) load it from its service. Encoded by
+ * EventCodec; EventSerializer/EventDeserializer plug the codec into Kafka.
+ */
+public sealed interface ChatEvent permits MessageCreated, ReceiptsAdvanced, CallStateChanged, StatusPosted {
+
+    EventType type();
+
+    /**
+     * Kafka record key: events with the same key are kept in order
+     */
+    String key();
+}
@@ -0,0 +1,49 @@
+package com.chitchat.shared.event;
+
+import org.apache.avro.Schema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read-only SchemaRegistry of the schemas committed with this module
+ *
+ * Reads event-schemas/{subject}/v{version}.avsc from the classpath, once per
+ * version. This is the registry services run with: every version a producer
+ * can write ships with the module, so consumers resolve it without a network
+ * call.
+ *
+ * Thread-safe.
+ */
+public class ClasspathSchemaRegistry implements SchemaRegistry {
+
+    private static final String ROOT = "event-schemas/";
+
+    private final ClassLoader classLoader;
+    private final ConcurrentMap<String, Optional<Schema>> schemas = new ConcurrentHashMap<>();
+
+    public ClasspathSchemaRegistry() {
+        this(ClasspathSchemaRegistry.class.getClassLoader());
+    }
+
+    public ClasspathSchemaRegistry(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public Optional<Schema> get(String subject, int version) {
+        return schemas.computeIfAbsent(subject + "/v" + version + ".avsc", this::load);
+    }
+
+    private Optional<Schema> load(String path) {
+        try (InputStream in = classLoader.getResourceAsStream(ROOT + path)) {
+            return in == null ? Optional.empty() : Optional.of(new Schema.Parser().parse(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read schema " + ROOT + path, e);
+        }
+    }
+}
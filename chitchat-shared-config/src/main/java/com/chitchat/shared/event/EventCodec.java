@@ -0,0 +1,207 @@
+package com.chitchat.shared.event;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binary encoding of ChatEvents: Avro GenericRecords with a schema version header
+ *
+ * Payload: MAGIC, type tag, writer schema version (Avro int), then the event
+ * as an Avro binary record of that version. Events are written with the
+ * current schema of their type (EventType.version); a payload is read with
+ * the writer schema its header names, resolved in the SchemaRegistry, into
+ * the current schema (Avro schema resolution: fields added since have their
+ * default, fields the writer had and the reader does not are skipped). So
+ * payloads of older and newer versions stay readable as long as every
+ * registered version is compatible with the previous one.
+ *
+ * Timestamps are epoch milliseconds (timestamp-millis); optional fields are
+ * unions with null.
+ *
+ * Thread-safe: schemas, writers and resolving readers are created once per
+ * version and shared.
+ */
+public final class EventCodec {
+
+    public static final byte MAGIC = 0x43;
+
+    private final SchemaRegistry registry;
+    private final Map<EventType, Schema> schemas = new EnumMap<>(EventType.class);
+    private final Map<EventType, GenericDatumWriter<GenericRecord>> writers = new EnumMap<>(EventType.class);
+    private final ConcurrentMap<Long, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+
+    /**
+     * @throws IllegalStateException if the registry lacks the current schema of an event type
+     */
+    public EventCodec(SchemaRegistry registry) {
+        this.registry = registry;
+        for (EventType type : EventType.values()) {
+            Schema schema = registry.get(type.subject(), type.version()).orElseThrow(() ->
+                    new IllegalStateException(type.subject() + " v" + type.version() + " is not registered"));
+            schemas.put(type, schema);
+            writers.put(type, new GenericDatumWriter<>(schema));
+        }
+    }
+
+    public byte[] encode(ChatEvent event) {
+        EventType type = event.type();
+        GenericRecord record = toRecord(event, schemas.get(type));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(MAGIC);
+        out.write(type.tag());
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            encoder.writeInt(type.version());
+            writers.get(type).write(record, encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode " + type, e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is not an event of a known type and
+     *         registered schema version, or is truncated
+     */
+    public ChatEvent decode(byte[] payload) {
+        if (payload.length < 3 || payload[0] != MAGIC) {
+            throw new IllegalArgumentException("Not a binary chat event (bad magic byte)");
+        }
+        EventType type = EventType.ofTag(payload[1]);
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(payload, 2, payload.length - 2, null);
+        try {
+            int version = decoder.readInt();
+            GenericRecord record = reader(type, version).read(null, decoder);
+            return fromRecord(type, record);
+        } catch (IOException | AvroRuntimeException | ClassCastException e) {
+            throw new IllegalArgumentException("Truncated or malformed " + type + " payload", e);
+        }
+    }
+
+    /**
+     * Reader resolving a version's payloads into the current schema
+     */
+    private GenericDatumReader<GenericRecord> reader(EventType type, int version) {
+        return readers.computeIfAbsent(((long) type.tag() << 32) | (version & 0xFFFFFFFFL), key -> {
+            Schema writer = registry.get(type.subject(), version).orElseThrow(() ->
+                    new IllegalArgumentException("Unknown schema version " + version + " of " + type.subject()));
+            return new GenericDatumReader<>(writer, schemas.get(type));
+        });
+    }
+
+    private static GenericRecord toRecord(ChatEvent event, Schema schema) {
+        GenericRecord record = new GenericData.Record(schema);
+        switch (event) {
+            case MessageCreated e -> {
+                record.put("messageId", e.messageId());
+                record.put("conversationId", e.conversationId());
+                record.put("senderId", e.senderId());
+                record.put("recipientId", e.recipientId());
+                record.put("groupId", e.groupId());
+                record.put("messageType", e.messageType());
+                record.put("content", e.content());
+                record.put("mediaUrl", e.mediaUrl());
+                record.put("replyToMessageId", e.replyToMessageId());
+                record.put("createdAt", millis(e.createdAt()));
+            }
+            case ReceiptsAdvanced e -> {
+                record.put("conversationId", e.conversationId());
+                record.put("readerId", e.readerId());
+                record.put("receipt", e.receipt().name());
+                record.put("upToMessageId", e.upToMessageId());
+                record.put("upToCreatedAt", millis(e.upToCreatedAt()));
+                record.put("messageIds", e.messageIds());
+                record.put("at", millis(e.at()));
+            }
+            case CallStateChanged e -> {
+                record.put("sessionId", e.sessionId());
+                record.put("callId", e.callId());
+                record.put("callerId", e.callerId());
+                record.put("calleeId", e.calleeId());
+                record.put("callType", e.callType());
+                record.put("state", e.state());
+                record.put("durationSeconds", e.durationSeconds());
+                record.put("reason", e.reason());
+                record.put("at", millis(e.at()));
+            }
+            case StatusPosted e -> {
+                record.put("statusId", e.statusId());
+                record.put("userId", e.userId());
+                record.put("statusType", e.statusType());
+                record.put("privacy", e.privacy());
+                record.put("content", e.content());
+                record.put("mediaUrl", e.mediaUrl());
+                record.put("createdAt", millis(e.createdAt()));
+                record.put("expiresAt", millis(e.expiresAt()));
+            }
+        }
+        return record;
+    }
+
+    private static ChatEvent fromRecord(EventType type, GenericRecord r) {
+        return switch (type) {
+            case MESSAGE_CREATED -> new MessageCreated(string(r, "messageId"), string(r, "conversationId"),
+                    (Long) r.get("senderId"), (Long) r.get("recipientId"), string(r, "groupId"),
+                    string(r, "messageType"), string(r, "content"), string(r, "mediaUrl"),
+                    string(r, "replyToMessageId"), instant(r, "createdAt"));
+            case RECEIPTS_ADVANCED -> new ReceiptsAdvanced(string(r, "conversationId"), (Long) r.get("readerId"),
+                    ReceiptsAdvanced.Receipt.valueOf(string(r, "receipt")), string(r, "upToMessageId"),
+                    instant(r, "upToCreatedAt"), strings(r, "messageIds"), instant(r, "at"));
+            case CALL_STATE_CHANGED -> new CallStateChanged(string(r, "sessionId"), (Long) r.get("callId"),
+                    (Long) r.get("callerId"), (Long) r.get("calleeId"), string(r, "callType"), string(r, "state"),
+                    (Long) r.get("durationSeconds"), string(r, "reason"), instant(r, "at"));
+            case STATUS_POSTED -> new StatusPosted(string(r, "statusId"), (Long) r.get("userId"),
+                    string(r, "statusType"), string(r, "privacy"), string(r, "content"), string(r, "mediaUrl"),
+                    instant(r, "createdAt"), instant(r, "expiresAt"));
+        };
+    }
+
+    private static Long millis(Instant value) {
+        return value == null ? null : value.toEpochMilli();
+    }
+
+    private static Instant instant(GenericRecord record, String field) {
+        Object value = record.get(field);
+        return value == null ? null : Instant.ofEpochMilli((Long) value);
+    }
+
+    // Avro reads strings as Utf8
+    private static String string(GenericRecord record, String field) {
+        Object value = record.get(field);
+        return value == null ? null : value.toString();
+    }
+
+    private static List<String> strings(GenericRecord record, String field) {
+        Object value = record.get(field);
+        if (value == null) {
+            return List.of();
+        }
+        List<?> values = (List<?>) value;
+        List<String> result = new ArrayList<>(values.size());
+        for (Object element : values) {
+            result.add(element.toString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package com.chitchat.shared.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka value deserializer for ChatEvents (binary, see EventCodec)
+ *
+ * A payload that is not a known event, or names a schema version the registry
+ * does not have, fails with SerializationException, which the listener
+ * container's error handler reports as a poison record. Configured by class
+ * name, it resolves versions in ClasspathSchemaRegistry.
+ */
+public class EventDeserializer implements Deserializer<ChatEvent> {
+
+    private final EventCodec codec;
+
+    public EventDeserializer() {
+        this(new EventCodec(new ClasspathSchemaRegistry()));
+    }
+
+    public EventDeserializer(EventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public ChatEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return codec.decode(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to decode event from topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.chitchat.shared.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka value serializer for ChatEvents (binary, see EventCodec)
+ *
+ * Usage: value-serializer: com.chitchat.shared.event.EventSerializer, and send
+ * with event.key() as the record key. Configured by class name, it writes with
+ * the schemas committed with this module (ClasspathSchemaRegistry).
+ */
+public class EventSerializer implements Serializer<ChatEvent> {
+
+    private final EventCodec codec;
+
+    public EventSerializer() {
+        this(new EventCodec(new ClasspathSchemaRegistry()));
+    }
+
+    public EventSerializer(EventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(String topic, ChatEvent event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return codec.encode(event);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to encode " + event.type() + " for topic " + topic, e);
+        }
+    }
+}
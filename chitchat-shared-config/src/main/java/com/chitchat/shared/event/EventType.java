@@ -0,0 +1,70 @@
+package com.chitchat.shared.event;
+
+/**
+ * Event types of the binary event schema, with their wire tag and current schema version
+ *
+ * The tag identifies the type in the payload header and must never be reused.
+ * The subject names the type's Avro schemas in a SchemaRegistry (the record's
+ * full name); version is the one this codebase writes. Bumping a schema means
+ * committing event-schemas/{subject}/v{n}.avsc, compatible both ways with the
+ * previous version (see FileSchemaRegistry), and raising version here.
+ */
+public enum EventType {
+
+    MESSAGE_CREATED(1, "chitchat.MessageCreated", 1),
+
+    RECEIPTS_ADVANCED(2, "chitchat.ReceiptsAdvanced", 1),
+
+    CALL_STATE_CHANGED(3, "chitchat.CallStateChanged", 1),
+
+    STATUS_POSTED(4, "chitchat.StatusPosted", 1);
+
+    private static final EventType[] BY_TAG = new EventType[8];
+
+    static {
+        for (EventType type : values()) {
+            BY_TAG[type.tag] = type;
+        }
+    }
+
+    private final int tag;
+    private final String subject;
+    private final int version;
+
+    EventType(int tag, String subject, int version) {
+        this.tag = tag;
+        this.subject = subject;
+        this.version = version;
+    }
+
+    public int tag() {
+        return tag;
+    }
+
+    /**
+     * Registry subject of the type's schemas
+     */
+    public String subject() {
+        return subject;
+    }
+
+    /**
+     * Schema version this codebase writes (and reads into)
+     */
+    public int version() {
+        return version;
+    }
+
+    /**
+     * Type by wire tag
+     *
+     * @throws IllegalArgumentException if the tag is unknown
+     */
+    public static EventType ofTag(int tag) {
+        EventType type = tag >= 0 && tag < BY_TAG.length ? BY_TAG[tag] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown event type tag: " + tag);
+        }
+        return type;
+    }
+}
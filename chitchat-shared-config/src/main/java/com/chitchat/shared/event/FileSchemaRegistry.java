@@ -0,0 +1,138 @@
+package com.chitchat.shared.event;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Schema registry backed by a directory, for local runs and compatibility checks
+ *
+ * Layout: {root}/{subject}/v{version}.avsc, each file an Avro schema.
+ * Registering fails if a registered version was changed in place, or if a new
+ * version is not compatible both ways with the latest older one (Avro schema
+ * resolution: the new schema reads payloads of the old one, and the old schema
+ * reads payloads of the new one). That catches breaking schema changes before
+ * any payload is written: fields may be added or removed only with a default.
+ *
+ * Not thread-safe; not meant to be shared by running services (they read the
+ * committed schemas through ClasspathSchemaRegistry).
+ */
+public class FileSchemaRegistry implements SchemaRegistry {
+
+    private static final String EXTENSION = ".avsc";
+
+    private final Path root;
+
+    public FileSchemaRegistry(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Registers every version of every EventType's schema held by source, oldest first
+     *
+     * @throws IllegalStateException if source lacks a version, or a schema conflicts with a registered one
+     */
+    public void registerAll(SchemaRegistry source) {
+        for (EventType type : EventType.values()) {
+            for (int version = 1; version <= type.version(); version++) {
+                int v = version;
+                Schema schema = source.get(type.subject(), version).orElseThrow(() ->
+                        new IllegalStateException(type.subject() + " v" + v + " is missing from the source registry"));
+                register(type.subject(), version, schema);
+            }
+        }
+    }
+
+    /**
+     * Registers a schema version; registering an identical version again is a no-op
+     *
+     * @throws IllegalStateException if the version is registered with another schema,
+     *         or is not compatible with the latest older version
+     */
+    public void register(String subject, int version, Schema schema) {
+        Optional<Schema> registered = get(subject, version);
+        if (registered.isPresent()) {
+            if (!registered.get().equals(schema)) {
+                throw new IllegalStateException(subject + " v" + version + " is already registered with another schema");
+            }
+            return;
+        }
+
+        Optional<Integer> previousVersion = versions(subject).stream()
+                .filter(existing -> existing < version)
+                .max(Integer::compare);
+        if (previousVersion.isPresent()) {
+            Schema previous = get(subject, previousVersion.get()).orElseThrow();
+            checkCompatible(subject + " v" + version, schema, "v" + previousVersion.get(), previous);
+            checkCompatible(subject + " v" + previousVersion.get(), previous, "v" + version, schema);
+        }
+
+        try {
+            Files.createDirectories(root.resolve(subject));
+            Files.writeString(file(subject, version), schema.toString(true), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to register " + subject + " v" + version, e);
+        }
+    }
+
+    @Override
+    public Optional<Schema> get(String subject, int version) {
+        Path file = file(subject, version);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new Schema.Parser().parse(file.toFile()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    public Optional<Schema> latest(String subject) {
+        return versions(subject).stream()
+                .max(Integer::compare)
+                .flatMap(version -> get(subject, version));
+    }
+
+    /**
+     * Registered versions of a subject, ascending
+     */
+    public List<Integer> versions(String subject) {
+        Path directory = root.resolve(subject);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Integer> versions = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("v") && name.endsWith(EXTENSION))
+                    .forEach(name -> versions.add(Integer.parseInt(name.substring(1, name.length() - EXTENSION.length()))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + directory, e);
+        }
+        versions.sort(Comparator.naturalOrder());
+        return versions;
+    }
+
+    private static void checkCompatible(String readerName, Schema reader, String writerName, Schema writer) {
+        SchemaCompatibility.SchemaPairCompatibility result = SchemaCompatibility.checkReaderWriterCompatibility(reader, writer);
+        if (result.getType() != SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE) {
+            throw new IllegalStateException(readerName + " cannot read payloads of " + writerName + ": "
+                    + result.getDescription());
+        }
+    }
+
+    private Path file(String subject, int version) {
+        return root.resolve(subject).resolve("v" + version + EXTENSION);
+    }
+}
@@ -0,0 +1,21 @@
+package com.chitchat.shared.event;
+
+import java.time.Instant;
+
+/**
+ * A message was sent to a direct chat (recipientId) or a group (groupId)
+ */
+public record MessageCreated(String messageId, String conversationId, long senderId, Long recipientId,
+                             String groupId, String messageType, String content, String mediaUrl,
+                             String replyToMessageId, Instant createdAt) implements ChatEvent {
+
+    @Override
+    public EventType type() {
+        return EventType.MESSAGE_CREATED;
+    }
+
+    @Override
+    public String key() {
+        return conversationId;
+    }
+}
@@ -0,0 +1,33 @@
+package com.chitchat.shared.event;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A reader's delivery or read position in a conversation moved forward
+ *
+ * Either a watermark (everything up to upToMessageId, created at upToCreatedAt)
+ * or an explicit list of message IDs; messageIds is empty for watermarks.
+ */
+public record ReceiptsAdvanced(String conversationId, long readerId, Receipt receipt, String upToMessageId,
+                               Instant upToCreatedAt, List<String> messageIds, Instant at) implements ChatEvent {
+
+    public enum Receipt {
+        DELIVERED,
+        READ
+    }
+
+    public ReceiptsAdvanced {
+        messageIds = messageIds == null ? List.of() : List.copyOf(messageIds);
+    }
+
+    @Override
+    public EventType type() {
+        return EventType.RECEIPTS_ADVANCED;
+    }
+
+    @Override
+    public String key() {
+        return conversationId;
+    }
+}
@@ -0,0 +1,25 @@
+package com.chitchat.shared.event;
+
+import org.apache.avro.Schema;
+
+import java.util.Optional;
+
+/**
+ * Source of the Avro schemas of the binary event schema, by subject and version
+ *
+ * EventCodec resolves the writer schema of every payload here, from the
+ * version in the payload header, so a registered version must never change.
+ * ClasspathSchemaRegistry serves the schemas committed with this module;
+ * FileSchemaRegistry also registers new versions after a compatibility check.
+ */
+public interface SchemaRegistry {
+
+    /**
+     * Schema of one version of a subject
+     *
+     * @param subject Subject (record full name, see EventType)
+     * @param version Schema version
+     * @return The schema, or empty if the version is not registered
+     */
+    Optional<Schema> get(String subject, int version);
+}
@@ -0,0 +1,20 @@
+package com.chitchat.shared.event;
+
+import java.time.Instant;
+
+/**
+ * A user posted a status, visible until expiresAt to the audience given by privacy
+ */
+public record StatusPosted(String statusId, long userId, String statusType, String privacy, String content,
+                           String mediaUrl, Instant createdAt, Instant expiresAt) implements ChatEvent {
+
+    @Override
+    public EventType type() {
+        return EventType.STATUS_POSTED;
+    }
+
+    @Override
+    public String key() {
+        return statusId;
+    }
+}
@@ -0,0 +1,101 @@
+package com.chitchat.shared.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KafkaProducerProfileTest {
+
+    @Test
+    void profileIsLookedUpByNameIgnoringCase() {
+        assertEquals(KafkaProducerProfile.LATENCY, KafkaProducerProfile.of("latency"));
+        assertEquals(KafkaProducerProfile.THROUGHPUT, KafkaProducerProfile.of(" Throughput "));
+        assertThrows(IllegalArgumentException.class, () -> KafkaProducerProfile.of("fastest"));
+    }
+
+    @Test
+    void presetsDifferOnlyInBatching() {
+        Map<String, Object> latency = KafkaProducerProfile.LATENCY.producerProperties();
+        Map<String, Object> throughput = KafkaProducerProfile.THROUGHPUT.producerProperties();
+
+        for (Map<String, Object> preset : List.of(latency, throughput)) {
+            assertEquals(true, preset.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+            assertEquals("all", preset.get(ProducerConfig.ACKS_CONFIG));
+            assertEquals(5, preset.get(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION));
+        }
+        assertEquals(0, latency.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(16 * 1024, latency.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("none", latency.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(20, throughput.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(128 * 1024, throughput.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("lz4", throughput.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    }
+
+    @Test
+    void everyCallReturnsAFreshMapToBuildOn() {
+        Map<String, Object> first = KafkaProducerProfile.THROUGHPUT.producerProperties();
+        first.put(ProducerConfig.LINGER_MS_CONFIG, 100);
+
+        assertEquals(20, KafkaProducerProfile.THROUGHPUT.producerProperties().get(ProducerConfig.LINGER_MS_CONFIG));
+    }
+
+    @Test
+    void explicitSpringKafkaSettingsOverrideThePreset() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getProducer().setCompressionType("gzip");
+        kafkaProperties.getProducer().getProperties().put(ProducerConfig.LINGER_MS_CONFIG, "5");
+
+        // The order the services' KafkaConfig merges in: preset first, spring.kafka.producer on top
+        Map<String, Object> configs = new HashMap<>(KafkaProducerProfile.THROUGHPUT.producerProperties());
+        configs.putAll(kafkaProperties.buildProducerProperties(null));
+
+        assertEquals("gzip", configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals("5", configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        // Not set explicitly: the preset's values survive
+        assertEquals(128 * 1024, configs.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals(true, configs.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertEquals("all", configs.get(ProducerConfig.ACKS_CONFIG));
+    }
+
+    @Test
+    void producersReportClientMetricsTaggedWithNameAndProfile() {
+        Map<String, Object> configs = new HashMap<>(KafkaProducerProfile.THROUGHPUT.producerProperties());
+        // Nothing listens here; creating a producer does not contact the broker
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:1");
+        configs.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        DefaultKafkaProducerFactory<String, String> factory =
+                KafkaProducerProfile.THROUGHPUT.producerFactory(configs, meterRegistry, "outbox");
+        assertEquals(configs, factory.getConfigurationProperties());
+
+        Producer<String, String> producer = factory.createProducer();
+        try {
+            Collection<Meter> meters = meterRegistry.find("kafka.producer.record.send.total")
+                    .tags("producer", "outbox", "profile", "throughput")
+                    .meters();
+            assertFalse(meters.isEmpty(), meterRegistry.getMetersAsString());
+        } finally {
+            producer.close();
+            factory.destroy();
+        }
+        assertTrue(meterRegistry.find("kafka.producer.record.send.total").meters().isEmpty(),
+                "metrics are unbound when the producer is closed");
+    }
+}
@@ -0,0 +1,231 @@
+package com.chitchat.shared.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Binary event schema (EventCodec) against the JSON events published today
+ *
+ * For each event type, the JSON baseline is what the services currently send:
+ * the full Message document, the Call entity, and the StatusEvent JSON, written
+ * with Jackson without type headers. encode:bytes is the egress rate; divided
+ * by the encode score it gives the payload size, so throughput and size come
+ * out of one run.
+ *
+ * The codec reads its schemas from a FileSchemaRegistry in a temporary
+ * directory, filled from the committed schemas (which also checks that they
+ * register cleanly) and deleted after the run:
+ * mvn -pl chitchat-shared-config test -Pbenchmark -DskipTests -Dbenchmark=EventCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    public enum Format { JSON, BINARY }
+
+    @Param({"MessageCreated", "ReceiptsAdvanced", "CallStateChanged", "StatusPosted"})
+    String event;
+
+    @Param({"JSON", "BINARY"})
+    Format format;
+
+    private Path registryDir;
+    private EventCodec codec;
+    private ObjectMapper objectMapper;
+    private Map<String, Object> json;
+    private ChatEvent chatEvent;
+    private byte[] payload;
+
+    /**
+     * Encoded bytes, reported as a rate next to the ops count
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Egress {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        registryDir = Files.createTempDirectory("event-schemas");
+        FileSchemaRegistry registry = new FileSchemaRegistry(registryDir);
+        registry.registerAll(new ClasspathSchemaRegistry());
+        codec = new EventCodec(registry);
+        objectMapper = new ObjectMapper();
+
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        switch (event) {
+            case "MessageCreated" -> {
+                json = messageDocument(now);
+                chatEvent = new MessageCreated("6710c2f5e4b0a1b2c3d4e5f6", "1042_2087", 1042L, 2087L, null,
+                        "TEXT", "Are we still on for lunch tomorrow?", null, null, now);
+            }
+            case "ReceiptsAdvanced" -> {
+                json = readUpToReceipt(now);
+                chatEvent = new ReceiptsAdvanced("1042_2087", 2087L, ReceiptsAdvanced.Receipt.READ,
+                        "6710c2f5e4b0a1b2c3d4e5f6", now, List.of(), now);
+            }
+            case "CallStateChanged" -> {
+                json = callEntity(now);
+                chatEvent = new CallStateChanged("4b1f6c1e-8d5a-4c7e-9a0b-2f1d3e4c5b6a", 88231L, 1042L, 2087L,
+                        "VIDEO", "ANSWERED", null, null, now);
+            }
+            case "StatusPosted" -> {
+                json = statusEvent(now);
+                chatEvent = new StatusPosted("6710c3a1e4b0a1b2c3d4e5f7", 1042L, "IMAGE", "CONTACTS",
+                        "Sunset at the beach", "https://media.chitchat.app/status/6710c3a1.jpg", now,
+                        now.plus(24, ChronoUnit.HOURS));
+            }
+            default -> throw new IllegalArgumentException("Unknown event " + event);
+        }
+
+        if (format == Format.BINARY) {
+            payload = codec.encode(chatEvent);
+            if (!codec.decode(payload).equals(chatEvent)) {
+                throw new IllegalStateException(event + " does not survive an encode/decode round trip");
+            }
+        } else {
+            payload = objectMapper.writeValueAsBytes(json);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(registryDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(Egress egress) throws IOException {
+        byte[] bytes = format == Format.BINARY ? codec.encode(chatEvent) : objectMapper.writeValueAsBytes(json);
+        egress.bytes += bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return format == Format.BINARY ? codec.decode(payload) : objectMapper.readValue(payload, Map.class);
+    }
+
+    /**
+     * Message document as published to message-events
+     */
+    private static Map<String, Object> messageDocument(Instant now) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("id", "6710c2f5e4b0a1b2c3d4e5f6");
+        message.put("senderId", 1042L);
+        message.put("recipientId", 2087L);
+        message.put("groupId", null);
+        message.put("conversationId", "1042_2087");
+        message.put("content", "Are we still on for lunch tomorrow?");
+        message.put("type", "TEXT");
+        message.put("status", "SENT");
+        message.put("mediaUrl", null);
+        message.put("thumbnailUrl", null);
+        message.put("replyToMessageId", null);
+        message.put("mentions", null);
+        message.put("scheduledAt", null);
+        message.put("deliveredAt", null);
+        message.put("readAt", null);
+        message.put("createdAt", now.toString());
+        message.put("updatedAt", now.toString());
+        message.put("isPinned", false);
+        message.put("score", null);
+        return message;
+    }
+
+    /**
+     * READ_UPTO receipt as published to read-receipt-events
+     */
+    private static Map<String, Object> readUpToReceipt(Instant now) {
+        Map<String, Object> receipt = new LinkedHashMap<>();
+        receipt.put("type", "READ_UPTO");
+        receipt.put("conversationId", "1042_2087");
+        receipt.put("groupId", null);
+        receipt.put("readerId", 2087L);
+        receipt.put("messageId", "6710c2f5e4b0a1b2c3d4e5f6");
+        receipt.put("messageCreatedAt", now.toString());
+        receipt.put("readAt", now.toString());
+        return receipt;
+    }
+
+    /**
+     * Call entity as published to call-events
+     */
+    private static Map<String, Object> callEntity(Instant now) {
+        Map<String, Object> call = new LinkedHashMap<>();
+        call.put("id", 88231L);
+        call.put("sessionId", "4b1f6c1e-8d5a-4c7e-9a0b-2f1d3e4c5b6a");
+        call.put("callerId", 1042L);
+        call.put("calleeId", 2087L);
+        call.put("callType", "VIDEO");
+        call.put("status", "ANSWERED");
+        call.put("startedAt", now.toString());
+        call.put("endedAt", null);
+        call.put("duration", null);
+        call.put("callerSdp", "v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n"
+                + "a=group:BUNDLE 0 1\r\nm=audio 9 UDP/TLS/RTP/SAVPF 111\r\nc=IN IP4 0.0.0.0\r\n");
+        call.put("calleeSdp", "v=0\r\no=- 2890844526 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n"
+                + "a=group:BUNDLE 0 1\r\nm=audio 9 UDP/TLS/RTP/SAVPF 111\r\nc=IN IP4 0.0.0.0\r\n");
+        call.put("iceCandidates", null);
+        call.put("rejectionReason", null);
+        call.put("endReason", null);
+        call.put("createdAt", now.toString());
+        call.put("updatedAt", now.toString());
+        return call;
+    }
+
+    /**
+     * StatusEvent as published (as a JSON string) to status-events
+     */
+    private static Map<String, Object> statusEvent(Instant now) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("eventType", "STATUS_CREATED");
+        status.put("statusId", "6710c3a1e4b0a1b2c3d4e5f7");
+        status.put("userId", 1042L);
+        status.put("type", "IMAGE");
+        status.put("privacy", "CONTACTS");
+        status.put("timestamp", now.toString());
+        status.put("content", "Sunset at the beach");
+        status.put("mediaUrl", "https://media.chitchat.app/status/6710c3a1.jpg");
+        status.put("expiresAt", now.plus(24, ChronoUnit.HOURS).toString());
+        return status;
+    }
+}
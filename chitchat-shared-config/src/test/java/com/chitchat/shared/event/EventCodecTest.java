@@ -0,0 +1,129 @@
+package com.chitchat.shared.event;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventCodecTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private static final ClasspathSchemaRegistry COMMITTED = new ClasspathSchemaRegistry();
+    private static final EventCodec CODEC = new EventCodec(COMMITTED);
+
+    private static final MessageCreated DIRECT_MESSAGE = new MessageCreated(
+            "6710c2f5e4b0a1b2c3d4e5f6", "1042_2087", 1042L, 2087L, null, "TEXT",
+            "Are we still on for lunch tomorrow? 🍜", null, null, NOW);
+
+    @Test
+    void messageCreatedSurvivesRoundTrip() {
+        assertEquals(DIRECT_MESSAGE, CODEC.decode(CODEC.encode(DIRECT_MESSAGE)));
+
+        MessageCreated groupMessage = new MessageCreated("6710c2f5e4b0a1b2c3d4e5f7", "group_77", -5L, null,
+                "77", "IMAGE", "", "https://media.chitchat.app/m/1.jpg", "6710c2f5e4b0a1b2c3d4e5f6", NOW);
+        assertEquals(groupMessage, CODEC.decode(CODEC.encode(groupMessage)));
+    }
+
+    @Test
+    void receiptsAdvancedSurvivesRoundTrip() {
+        ReceiptsAdvanced upTo = new ReceiptsAdvanced("1042_2087", 2087L, ReceiptsAdvanced.Receipt.READ,
+                "6710c2f5e4b0a1b2c3d4e5f6", NOW, List.of(), NOW);
+        assertEquals(upTo, CODEC.decode(CODEC.encode(upTo)));
+
+        ReceiptsAdvanced delivered = new ReceiptsAdvanced("1042_2087", 2087L, ReceiptsAdvanced.Receipt.DELIVERED,
+                null, null, List.of("a", "b", "c"), NOW);
+        assertEquals(delivered, CODEC.decode(CODEC.encode(delivered)));
+    }
+
+    @Test
+    void callStateChangedSurvivesRoundTrip() {
+        CallStateChanged answered = new CallStateChanged("4b1f6c1e-8d5a-4c7e-9a0b-2f1d3e4c5b6a", 88231L,
+                1042L, 2087L, "VIDEO", "ANSWERED", null, null, NOW);
+        assertEquals(answered, CODEC.decode(CODEC.encode(answered)));
+
+        CallStateChanged ended = new CallStateChanged("4b1f6c1e-8d5a-4c7e-9a0b-2f1d3e4c5b6a", Long.MAX_VALUE,
+                Long.MIN_VALUE, 0L, "AUDIO", "ENDED", 312L, "HANGUP", NOW);
+        assertEquals(ended, CODEC.decode(CODEC.encode(ended)));
+    }
+
+    @Test
+    void statusPostedSurvivesRoundTrip() {
+        StatusPosted status = new StatusPosted("6710c3a1e4b0a1b2c3d4e5f7", 1042L, "IMAGE", "CONTACTS",
+                "Sunset at the beach", "https://media.chitchat.app/status/6710c3a1.jpg",
+                NOW, NOW.plus(24, ChronoUnit.HOURS));
+        assertEquals(status, CODEC.decode(CODEC.encode(status)));
+    }
+
+    @Test
+    void payloadOfNewerVersionIsReadWithItsWriterSchema() throws Exception {
+        // v2 as a later release could register it: one optional field appended
+        Schema v1 = COMMITTED.get("chitchat.MessageCreated", 1).orElseThrow();
+        Schema v2 = appendOptionalLong(v1, "editedAt");
+        SchemaRegistry registry = (subject, version) ->
+                version == 2 && subject.equals("chitchat.MessageCreated") ? Optional.of(v2) : COMMITTED.get(subject, version);
+
+        GenericRecord record = new GenericData.Record(v2);
+        record.put("messageId", DIRECT_MESSAGE.messageId());
+        record.put("conversationId", DIRECT_MESSAGE.conversationId());
+        record.put("senderId", DIRECT_MESSAGE.senderId());
+        record.put("recipientId", DIRECT_MESSAGE.recipientId());
+        record.put("messageType", DIRECT_MESSAGE.messageType());
+        record.put("content", DIRECT_MESSAGE.content());
+        record.put("createdAt", NOW.toEpochMilli());
+        record.put("editedAt", 42L);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(EventCodec.MAGIC);
+        out.write(EventType.MESSAGE_CREATED.tag());
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        encoder.writeInt(2);
+        new GenericDatumWriter<GenericRecord>(v2).write(record, encoder);
+        encoder.flush();
+
+        assertEquals(DIRECT_MESSAGE, new EventCodec(registry).decode(out.toByteArray()));
+    }
+
+    @Test
+    void rejectsUnregisteredVersion() {
+        byte[] payload = CODEC.encode(DIRECT_MESSAGE);
+        payload[2] = 2 << 1; // zig-zag int 2
+
+        assertThrows(IllegalArgumentException.class, () -> CODEC.decode(payload));
+    }
+
+    @Test
+    void rejectsPayloadsThatAreNotEvents() {
+        byte[] json = "{\"id\":\"6710c2f5e4b0a1b2c3d4e5f6\"}".getBytes();
+        assertThrows(IllegalArgumentException.class, () -> CODEC.decode(json));
+
+        byte[] encoded = CODEC.encode(DIRECT_MESSAGE);
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> CODEC.decode(truncated));
+    }
+
+    private static Schema appendOptionalLong(Schema schema, String name) {
+        List<Schema.Field> fields = schema.getFields().stream()
+                .map(field -> new Schema.Field(field, field.schema()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        fields.add(new Schema.Field(name, SchemaBuilder.unionOf().nullType().and().longType().endUnion(),
+                null, Schema.Field.NULL_DEFAULT_VALUE));
+        return Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), false, fields);
+    }
+}
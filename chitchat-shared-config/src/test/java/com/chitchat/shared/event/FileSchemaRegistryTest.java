@@ -0,0 +1,124 @@
+package com.chitchat.shared.event;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileSchemaRegistryTest {
+
+    private static final String SUBJECT = "chitchat.Test";
+
+    private static final Schema V1 = SchemaBuilder.record("Test").namespace("chitchat").fields()
+            .requiredString("id")
+            .requiredLong("userId")
+            .endRecord();
+
+    @TempDir
+    Path root;
+
+    @Test
+    void registersAndReadsBackVersions() {
+        FileSchemaRegistry registry = new FileSchemaRegistry(root);
+        Schema v2 = SchemaBuilder.record("Test").namespace("chitchat").fields()
+                .requiredString("id")
+                .requiredLong("userId")
+                .optionalLong("durationSeconds")
+                .endRecord();
+
+        registry.register(SUBJECT, 1, V1);
+        registry.register(SUBJECT, 2, v2);
+        registry.register(SUBJECT, 1, V1); // identical again: no-op
+
+        assertEquals(List.of(1, 2), registry.versions(SUBJECT));
+        assertEquals(V1, registry.get(SUBJECT, 1).orElseThrow());
+        assertEquals(v2, registry.latest(SUBJECT).orElseThrow());
+    }
+
+    @Test
+    void rejectsFieldAddedWithoutDefault() {
+        FileSchemaRegistry registry = new FileSchemaRegistry(root);
+        registry.register(SUBJECT, 1, V1);
+
+        // New readers could not read v1 payloads
+        Schema v2 = SchemaBuilder.record("Test").namespace("chitchat").fields()
+                .requiredString("id")
+                .requiredLong("userId")
+                .requiredString("reason")
+                .endRecord();
+
+        assertThrows(IllegalStateException.class, () -> registry.register(SUBJECT, 2, v2));
+        assertEquals(List.of(1), registry.versions(SUBJECT));
+    }
+
+    @Test
+    void rejectsFieldsRemovedWithoutDefaultOrRetyped() {
+        FileSchemaRegistry registry = new FileSchemaRegistry(root);
+        registry.register(SUBJECT, 1, V1);
+
+        // v1 readers could not read payloads without userId
+        Schema removed = SchemaBuilder.record("Test").namespace("chitchat").fields()
+                .requiredString("id")
+                .endRecord();
+        Schema retyped = SchemaBuilder.record("Test").namespace("chitchat").fields()
+                .requiredString("id")
+                .requiredString("userId")
+                .endRecord();
+
+        assertThrows(IllegalStateException.class, () -> registry.register(SUBJECT, 2, removed));
+        assertThrows(IllegalStateException.class, () -> registry.register(SUBJECT, 2, retyped));
+    }
+
+    @Test
+    void checksCompatibilityAgainstLatestOlderVersion() {
+        FileSchemaRegistry registry = new FileSchemaRegistry(root);
+        Schema v2 = SchemaBuilder.record("Test").namespace("chitchat").fields()
+                .requiredString("id")
+                .requiredLong("userId")
+                .optionalString("reason")
+                .endRecord();
+        registry.register(SUBJECT, 1, V1);
+        registry.register(SUBJECT, 2, v2);
+
+        // Compatible with v1, but turns v2's reason into a long
+        Schema v3 = SchemaBuilder.record("Test").namespace("chitchat").fields()
+                .requiredString("id")
+                .requiredLong("userId")
+                .optionalLong("reason")
+                .endRecord();
+
+        assertThrows(IllegalStateException.class, () -> registry.register(SUBJECT, 3, v3));
+    }
+
+    @Test
+    void rejectsVersionChangedInPlace() {
+        FileSchemaRegistry registry = new FileSchemaRegistry(root);
+        registry.register(SUBJECT, 1, V1);
+
+        Schema changed = SchemaBuilder.record("Test").namespace("chitchat").fields()
+                .requiredString("id")
+                .requiredString("userId")
+                .endRecord();
+
+        assertThrows(IllegalStateException.class, () -> registry.register(SUBJECT, 1, changed));
+        assertEquals(V1, registry.get(SUBJECT, 1).orElseThrow());
+    }
+
+    @Test
+    void committedSchemasAreCompleteAndCompatible() {
+        // Every version of every event type ships with the module, each compatible with the one before
+        FileSchemaRegistry registry = new FileSchemaRegistry(root);
+        registry.registerAll(new ClasspathSchemaRegistry());
+
+        for (EventType type : EventType.values()) {
+            assertEquals(type.version(), registry.versions(type.subject()).size(), type.subject() + " is missing versions");
+            assertEquals(type.subject(), registry.latest(type.subject()).orElseThrow().getFullName());
+        }
+    }
+}
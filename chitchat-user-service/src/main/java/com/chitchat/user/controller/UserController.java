@@ -347,6 +347,13 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<java.util.List<UserResponse>>> getUsersByIds(
+            @Valid @RequestBody BatchUserLookupRequest request) {
+        java.util.List<UserResponse> response = userService.getUsersByIds(request.getUserIds());
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
     @GetMapping("/check-phone/{phoneNumber}")
     public ResponseEntity<ApiResponse<PhoneNumberCheckResponse>> checkPhoneNumberExists(@PathVariable String phoneNumber) {
         log.info("Phone number existence check request for: {}", phoneNumber);
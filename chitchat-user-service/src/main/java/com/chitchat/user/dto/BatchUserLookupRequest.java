@@ -0,0 +1,24 @@
+package com.chitchat.user.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO for loading several user profiles in one call
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUserLookupRequest {
+    
+    @NotEmpty(message = "User IDs list cannot be empty")
+    @Size(max = 500, message = "At most 500 user IDs per request")
+    private List<Long> userIds;
+}
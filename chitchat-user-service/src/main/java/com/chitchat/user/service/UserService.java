@@ -159,6 +159,18 @@ public interface UserService {
      */
     UserResponse getUserById(Long userId);
     
+    /**
+     * Finds several users by ID in one query
+     * 
+     * Used by other services to resolve names/avatars for whole lists
+     * (e.g. a conversation list) instead of one request per user.
+     * Unknown IDs are skipped.
+     * 
+     * @param userIds IDs of the users
+     * @return UserResponse for each existing user (unordered)
+     */
+    List<UserResponse> getUsersByIds(List<Long> userIds);
+    
     /**
      * Check if a phone number exists in the system for creating new chats
      * @param phoneNumber The phone number to check
@@ -15,8 +15,11 @@ import com.chitchat.user.service.RefreshTokenService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -37,6 +40,10 @@ public class UserServiceImpl implements UserService {
     private final TwilioService twilioService;
     private final RefreshTokenService refreshTokenService;
     private final com.chitchat.shared.service.ConfigurationService configurationService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    
+    // Key and value: user ID. Consumers (e.g. messaging's profile cache) drop their cached copy.
+    private static final String USER_PROFILE_UPDATED_TOPIC = "user-profile-updated";
 
     /**
      * Normalize phone number by removing all formatting characters
@@ -235,6 +242,7 @@ public class UserServiceImpl implements UserService {
         user.setAbout(request.getAbout());
         
         user = userRepository.save(user);
+        publishProfileUpdated(userId);
         
         log.info("User profile updated for ID: {}", userId);
         
@@ -330,6 +338,40 @@ public class UserServiceImpl implements UserService {
         return mapToUserResponse(user);
     }
     
+    @Override
+    public List<UserResponse> getUsersByIds(List<Long> userIds) {
+        return userRepository.findAllById(userIds.stream().distinct().collect(Collectors.toList())).stream()
+                .map(this::mapToUserResponse)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Announces a profile change once the transaction commits
+     * 
+     * Publishing after commit guarantees a consumer that reloads the profile
+     * right away sees the new values, not the ones being replaced.
+     */
+    private void publishProfileUpdated(Long userId) {
+        Runnable publish = () -> {
+            try {
+                kafkaTemplate.send(USER_PROFILE_UPDATED_TOPIC, userId.toString(), userId.toString());
+            } catch (Exception e) {
+                log.warn("Failed to publish profile update for user {}: {}", userId, e.getMessage());
+            }
+        };
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+    
     @Override
     public PhoneNumberCheckResponse checkPhoneNumberExists(String phoneNumber) {
         log.info("Checking if phone number exists: {}", phoneNumber);